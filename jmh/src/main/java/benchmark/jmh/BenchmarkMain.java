@@ -0,0 +1,35 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler always attached, so every
+ * result reports the bytes allocated per operation (gc.alloc.rate.norm) next
+ * to its time. Takes the usual JMH command line options, e.g. a regular
+ * expression selecting benchmarks or "-rf json -rff results.json".
+ *
+ * Usage: java -jar jmh/target/benchmarks.jar [JMH options]
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLine);
+		if (commandLine.getProfilers().stream().noneMatch(profiler -> profiler.getKlass().equals(GCProfiler.class.getName()))) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
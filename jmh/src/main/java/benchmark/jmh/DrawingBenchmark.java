@@ -0,0 +1,146 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.DepthStyle;
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import view.SoftwareRasterizer;
+
+/**
+ * Drawing a preset at its own depth into an offscreen image with Java2D,
+ * plain, depth-styled and antialiased, and with the software rasterizer, and
+ * moving its end points to device coordinates point by point versus column by
+ * column, with and without the Vector API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DrawingBenchmark {
+
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 900;
+
+	@Param({ "Plant1", "Plant2", "Plant3", "Seaweed", "Stick Plant", "Tree1", "Tree2", "Weed", "Weed Plant" })
+	public String preset;
+
+	private SegmentBuffer plain;
+	private SegmentBuffer depthStyled;
+	private BufferedImage image;
+	private BufferedImage premultiplied;
+	private AffineTransform transform;
+	private float[] points;
+	private float[] x1;
+	private float[] y1;
+	private float[] x2;
+	private float[] y2;
+
+	@Setup
+	public void setUp() {
+		PredefinedLSystem lSystem = Presets.named(preset);
+		SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, lSystem.getAngle(),
+				lSystem.getStep(), 1, Color.BLACK).interpret(new LSystemParser(lSystem.getAxiom(),
+						lSystem.getRules(), lSystem.getIterations()).generateLSystemString(), 0, 0);
+		plain = geometry.restyled(lSystem.getColour(), 1);
+		depthStyled = new DepthStyle(Color.BLACK, 1, Color.LIGHT_GRAY, 1).apply(geometry);
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+		premultiplied = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+		transform = new AffineTransform(1.5, 0, 0, 1.5, WIDTH / 2, HEIGHT / 2);
+		points = new float[4 * plain.size()];
+		x1 = new float[plain.size()];
+		y1 = new float[plain.size()];
+		x2 = new float[plain.size()];
+		y2 = new float[plain.size()];
+	}
+
+	private static void draw(SegmentBuffer geometry, BufferedImage target, boolean antialiased) {
+		Graphics2D g2 = target.createGraphics();
+		if (antialiased) {
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		}
+		g2.translate(WIDTH / 2, HEIGHT / 2);
+		geometry.draw(g2);
+		g2.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage drawPlain() {
+		draw(plain, image, false);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage drawDepthStyled() {
+		draw(depthStyled, image, false);
+		return image;
+	}
+
+	@Benchmark
+	public BufferedImage drawAntialiased() {
+		draw(plain, premultiplied, true);
+		return premultiplied;
+	}
+
+	@Benchmark
+	public BufferedImage drawSoftware() {
+		SoftwareRasterizer.draw(plain, premultiplied, 1, WIDTH / 2, HEIGHT / 2);
+		return premultiplied;
+	}
+
+	@Benchmark
+	public float[] transformAffine() {
+		for (int i = 0, p = 0; i < plain.size(); i++, p += 4) {
+			points[p] = plain.getX1(i);
+			points[p + 1] = plain.getY1(i);
+			points[p + 2] = plain.getX2(i);
+			points[p + 3] = plain.getY2(i);
+		}
+		transform.transform(points, 0, points, 0, 2 * plain.size());
+		return points;
+	}
+
+	@Benchmark
+	public float[] transformBatch() {
+		plain.transform(1.5, WIDTH / 2, HEIGHT / 2, x1, y1, x2, y2);
+		return x1;
+	}
+
+	@Benchmark
+	public float[] transformPixelCentres() {
+		plain.transformToPixelCentres(1.5, WIDTH / 2, HEIGHT / 2, x1, y1, x2, y2);
+		return x1;
+	}
+
+	// The same kernel through the Vector API, which SegmentBuffer only uses when the module is resolved
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector" })
+	public float[] transformPixelCentresVector() {
+		return transformPixelCentres();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+
+/**
+ * Rule parsing and string generation for the predefined L-Systems, one level
+ * below, at and one level above each preset's own depth.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GenerationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Grammar {
+		@Param({ "Plant1", "Plant2", "Plant3", "Seaweed", "Stick Plant", "Tree1", "Tree2", "Weed", "Weed Plant" })
+		public String preset;
+
+		PredefinedLSystem lSystem;
+		LSystemParser parser;
+
+		@Setup
+		public void setUp() {
+			lSystem = Presets.named(preset);
+			parser = new LSystemParser(lSystem.getAxiom(), lSystem.getRules(), 0);
+		}
+	}
+
+	// The rules are parsed once, as parsing is measured separately
+	@State(Scope.Benchmark)
+	public static class Expansion {
+		@Param({ "Plant1", "Plant2", "Plant3", "Seaweed", "Stick Plant", "Tree1", "Tree2", "Weed", "Weed Plant" })
+		public String preset;
+
+		@Param({ "-1", "0", "1" })
+		public int extraDepth;
+
+		LSystemParser parser;
+
+		@Setup
+		public void setUp() {
+			PredefinedLSystem lSystem = Presets.named(preset);
+			parser = new LSystemParser(lSystem.getAxiom(), lSystem.getRules(), lSystem.getIterations() + extraDepth);
+		}
+	}
+
+	@Benchmark
+	public Map<Character, String> parseRules(Grammar grammar) {
+		return grammar.parser.parseRules(grammar.lSystem.getRules());
+	}
+
+	@Benchmark
+	public String generate(Expansion expansion) {
+		return expansion.parser.generateLSystemString();
+	}
+}
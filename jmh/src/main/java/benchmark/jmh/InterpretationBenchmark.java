@@ -0,0 +1,79 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.InstancedGeometry;
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import model.TurtleProgram;
+
+/**
+ * Turning a preset one level deeper than its own depth into segments: walking
+ * the expanded string, replaying it compiled, and building display lists
+ * straight from the grammar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InterpretationBenchmark {
+
+	@Param({ "Plant1", "Plant2", "Plant3", "Seaweed", "Stick Plant", "Tree1", "Tree2", "Weed", "Weed Plant" })
+	public String preset;
+
+	private PredefinedLSystem lSystem;
+	private LSystemParser parser;
+	private String symbols;
+	private TurtleProgram program;
+
+	@Setup
+	public void setUp() {
+		lSystem = Presets.named(preset);
+		parser = new LSystemParser(lSystem.getAxiom(), lSystem.getRules(), lSystem.getIterations() + 1);
+		symbols = parser.generateLSystemString();
+		program = TurtleProgram.compile(symbols, TurtleCommand.PREDEFINED_COMMANDS);
+	}
+
+	private TurtleInterpreter interpreter() {
+		return new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, lSystem.getAngle(), lSystem.getStep(), 1,
+				Color.BLACK);
+	}
+
+	@Benchmark
+	public SegmentBuffer walk() {
+		return interpreter().interpret(symbols, 0, 0);
+	}
+
+	@Benchmark
+	public SegmentBuffer compiled() {
+		return interpreter().interpret(program, 0, 0);
+	}
+
+	@Benchmark
+	public SegmentBuffer instanced() {
+		return InstancedGeometry.build(lSystem.getAxiom(), parser.getRules(), lSystem.getIterations() + 1,
+				TurtleCommand.PREDEFINED_COMMANDS, lSystem.getAngle(), lSystem.getStep())
+				.toSegmentBuffer(Color.BLACK, 1);
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.TurtleCommand;
+import view.DrawingPanel;
+
+/**
+ * Painting a preset at its own depth into an offscreen image through the same
+ * code path the screen uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 900;
+
+	@Param({ "Plant1", "Plant2", "Plant3", "Seaweed", "Stick Plant", "Tree1", "Tree2", "Weed", "Weed Plant" })
+	public String preset;
+
+	private DrawingPanel panel;
+	private BufferedImage image;
+
+	@Setup
+	public void setUp() {
+		PredefinedLSystem lSystem = Presets.named(preset);
+		panel = new DrawingPanel();
+		panel.setSize(WIDTH, HEIGHT);
+		panel.setAngle(lSystem.getAngle());
+		panel.setStep(lSystem.getStep());
+		panel.setThickness(lSystem.getThickness());
+		panel.setColour(lSystem.getColour());
+		panel.setCommandMap(TurtleCommand.PREDEFINED_COMMANDS);
+		panel.setLSystemString(new LSystemParser(lSystem.getAxiom(), lSystem.getRules(), lSystem.getIterations())
+				.generateLSystemString());
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	@Benchmark
+	public BufferedImage paint() {
+		Graphics2D g2 = image.createGraphics();
+		panel.paint(g2);
+		g2.dispose();
+		return image;
+	}
+}
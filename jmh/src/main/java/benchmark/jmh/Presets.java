@@ -0,0 +1,24 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import model.PredefinedLSystem;
+
+/*
+ * Looks up the predefined L-Systems named in @Param values.
+ */
+final class Presets {
+
+	private Presets() {
+	}
+
+	static PredefinedLSystem named(String name) {
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			if (preset.getName().equals(name)) {
+				return preset;
+			}
+		}
+		throw new IllegalArgumentException("No predefined L-System named '" + name + "'.");
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A fixed workload that touches no code of the application, sorting the same
+ * pseudo-random numbers every time. The regression gate divides every other
+ * score by this one, so its limits measure the code rather than the machine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ReferenceBenchmark {
+
+	private static final int SIZE = 1 << 16;
+
+	private final int[] numbers = new Random(42).ints(SIZE).toArray();
+
+	@Benchmark
+	public int[] sort() {
+		int[] sorted = numbers.clone();
+		Arrays.sort(sorted);
+		return sorted;
+	}
+}
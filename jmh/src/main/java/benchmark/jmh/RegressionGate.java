@@ -0,0 +1,178 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Fails a benchmark run that became slower than stored limits. Absolute
+ * times depend on the machine, so every score is divided by the score of
+ * {@link ReferenceBenchmark} measured in the same run, and it is these ratios
+ * that are stored and compared. A benchmark regresses when its ratio grew by
+ * more than the threshold; benchmarks without a stored ratio never do.
+ *
+ * Usage: java -cp jmh/target/benchmarks.jar benchmark.jmh.RegressionGate
+ * [--save] [--limits file] [--threshold fraction] [JMH options]
+ *
+ * With --save the ratios of the run become the new limits, keeping those of
+ * benchmarks that were not run. The limits default to jmh/ratios.properties,
+ * relative to the repository root.
+ */
+public class RegressionGate {
+
+	static final String REFERENCE = "ReferenceBenchmark.sort";
+
+	private static final double DEFAULT_THRESHOLD = 0.25;
+
+	public static void main(String[] args) throws Exception {
+		boolean save = false;
+		Path limitsFile = Paths.get("jmh", "ratios.properties");
+		double threshold = DEFAULT_THRESHOLD;
+		List<String> jmhArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--save" -> save = true;
+			case "--limits" -> limitsFile = Paths.get(args[++i]);
+			case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+			default -> jmhArgs.add(args[i]);
+			}
+		}
+
+		// The reference runs whatever the selection, and all scores share one unit
+		CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(commandLine);
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(".*");
+		}
+		options.include(RegressionGate.class.getPackageName() + "." + REFERENCE.replace(".", "\\.") + "$");
+		options.timeUnit(TimeUnit.NANOSECONDS);
+		Collection<RunResult> results = new Runner(options.build()).run();
+
+		Map<String, Double> scores = new TreeMap<>();
+		for (RunResult result : results) {
+			scores.put(name(result.getParams()), result.getPrimaryResult().getScore());
+		}
+		Map<String, Double> ratios = ratios(scores);
+		List<String> regressions = compare(ratios, limitsFile, threshold);
+		if (save) {
+			save(ratios, limitsFile);
+			System.out.println("Limits written to " + limitsFile);
+		} else if (!regressions.isEmpty()) {
+			System.out.printf("%n%d benchmark(s) regressed by more than %.0f%%: %s%n", regressions.size(),
+					100 * threshold, String.join(", ", regressions));
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * The simple class and method name followed by the parameter values, e.g.
+	 * DrawingBenchmark.drawPlain/Stick_Plant.
+	 */
+	private static String name(BenchmarkParams params) {
+		String benchmark = params.getBenchmark();
+		StringBuilder name = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.',
+				benchmark.lastIndexOf('.') - 1) + 1));
+		for (String key : params.getParamsKeys()) {
+			name.append('/').append(params.getParam(key).replace(' ', '_'));
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Divides every score by the reference score, which itself is left out.
+	 */
+	static Map<String, Double> ratios(Map<String, Double> scores) {
+		Double reference = scores.get(REFERENCE);
+		if (reference == null || reference <= 0) {
+			throw new IllegalArgumentException("No score for " + REFERENCE + " in " + scores.keySet());
+		}
+		Map<String, Double> ratios = new TreeMap<>();
+		scores.forEach((name, score) -> {
+			if (!name.equals(REFERENCE)) {
+				ratios.put(name, score / reference);
+			}
+		});
+		return ratios;
+	}
+
+	/**
+	 * Prints the change of every ratio relative to the stored limits and returns
+	 * the names of the benchmarks whose ratio grew by more than the given
+	 * fraction, e.g. 0.25 for 25%.
+	 */
+	static List<String> compare(Map<String, Double> ratios, Path limitsFile, double threshold) throws IOException {
+		List<String> regressions = new ArrayList<>();
+		if (!Files.exists(limitsFile)) {
+			System.out.println("No limits at " + limitsFile);
+			return regressions;
+		}
+		Properties limits = load(limitsFile);
+		System.out.println();
+		System.out.printf("%-48s %12s %12s %9s%n", "Benchmark", "stored ratio", "ratio", "change");
+		for (Map.Entry<String, Double> entry : ratios.entrySet()) {
+			String stored = limits.getProperty(entry.getKey());
+			double now = entry.getValue();
+			if (stored == null) {
+				System.out.printf("%-48s %12s %12.4g%n", entry.getKey(), "none", now);
+				continue;
+			}
+			double before = Double.parseDouble(stored);
+			double change = (now - before) / before;
+			boolean regressed = change > threshold;
+			if (regressed) {
+				regressions.add(entry.getKey());
+			}
+			System.out.printf("%-48s %12.4g %12.4g %+8.1f%%%s%n", entry.getKey(), before, now, 100.0 * change,
+					regressed ? "  REGRESSION" : "");
+		}
+		return regressions;
+	}
+
+	/**
+	 * Stores the ratios as the new limits, keeping entries of benchmarks that
+	 * were not run.
+	 */
+	static void save(Map<String, Double> ratios, Path limitsFile) throws IOException {
+		Properties limits = Files.exists(limitsFile) ? load(limitsFile) : new Properties();
+		ratios.forEach((name, ratio) -> limits.setProperty(name, String.format(Locale.ROOT, "%.4g", ratio)));
+
+		// Written sorted and without a timestamp so the limits diff cleanly
+		Map<String, String> sorted = new TreeMap<>();
+		limits.stringPropertyNames().forEach(name -> sorted.put(name, limits.getProperty(name)));
+		try (Writer writer = Files.newBufferedWriter(limitsFile)) {
+			writer.write("# Benchmark scores divided by the score of " + REFERENCE + " in the same run\n");
+			for (Map.Entry<String, String> entry : sorted.entrySet()) {
+				writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+			}
+		}
+	}
+
+	private static Properties load(Path limitsFile) throws IOException {
+		Properties limits = new Properties();
+		try (Reader reader = Files.newBufferedReader(limitsFile)) {
+			limits.load(reader);
+		}
+		return limits;
+	}
+}
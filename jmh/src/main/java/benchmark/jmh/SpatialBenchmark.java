@@ -0,0 +1,64 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Camera;
+import model.LSystemParser;
+import model.SegmentBuffer;
+import model.SpatialGeometry;
+import model.SpatialInterpreter;
+import model.TurtleCommand;
+
+/**
+ * Interpreting a 3D bush and projecting it; orbiting the drawing only re-runs
+ * the projection, not the interpretation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpatialBenchmark {
+
+	private static final String AXIOM = "A";
+	private static final String RULES = "A→F[&FA]/////[&FA]///////[&FA], F→FF";
+
+	private String symbols;
+	private SpatialInterpreter interpreter;
+	private SpatialGeometry geometry;
+	private Camera camera;
+
+	@Setup
+	public void setUp() {
+		symbols = new LSystemParser(AXIOM, RULES, 7).generateLSystemString();
+		interpreter = new SpatialInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 22.5, 5, 1, Color.BLACK);
+		geometry = interpreter.interpret(symbols);
+		camera = new Camera(30, 20);
+	}
+
+	@Benchmark
+	public SpatialGeometry interpret() {
+		return interpreter.interpret(symbols);
+	}
+
+	@Benchmark
+	public SegmentBuffer project() {
+		return camera.project(geometry);
+	}
+}
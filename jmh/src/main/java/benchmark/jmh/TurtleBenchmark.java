@@ -0,0 +1,80 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package benchmark.jmh;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.SegmentBuffer;
+import model.Turtle;
+
+/**
+ * Raw turtle throughput per command, recording into a reused buffer or
+ * drawing straight into an image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TurtleBenchmark {
+
+	private static final int OPERATIONS = 10_000;
+
+	private final SegmentBuffer sink = new SegmentBuffer(OPERATIONS);
+	private final BufferedImage image = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_ARGB);
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public int moveRecorded() {
+		sink.clear();
+		Turtle turtle = new Turtle(sink, 0, 0);
+		turtle.dropPen();
+		for (int i = 0; i < OPERATIONS; i++) {
+			turtle.move(5, 1, Color.BLACK);
+			turtle.left(25);
+		}
+		return sink.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public BufferedImage moveDrawn() {
+		Graphics2D g2 = image.createGraphics();
+		Turtle turtle = new Turtle(g2, image.getWidth() / 2, image.getHeight() / 2);
+		turtle.dropPen();
+		for (int i = 0; i < OPERATIONS; i++) {
+			turtle.move(5, 1, Color.BLACK);
+			turtle.left(25);
+		}
+		g2.dispose();
+		return image;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public Turtle pushPop() {
+		Turtle turtle = new Turtle(sink, 0, 0);
+		for (int i = 0; i < OPERATIONS; i++) {
+			turtle.push();
+			turtle.left(25);
+			turtle.pop();
+		}
+		return turtle;
+	}
+}
@@ -0,0 +1,83 @@
+package benchmark.jmh;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RegressionGateTest {
+
+	private Path limits;
+
+	@BeforeEach
+	void createLimits() throws IOException {
+		limits = Files.createTempFile("ratios", ".properties");
+	}
+
+	@AfterEach
+	void deleteLimits() throws IOException {
+		Files.deleteIfExists(limits);
+	}
+
+	private void writeLimits(String... lines) throws IOException {
+		Files.write(limits, List.of(lines), StandardCharsets.UTF_8);
+	}
+
+	//tests for ratios
+	@Test
+	void testRatios_DivideByTheReferenceScore() {
+		Map<String, Double> ratios = RegressionGate
+				.ratios(Map.of(RegressionGate.REFERENCE, 200.0, "PaintBenchmark.paint/Plant1", 50.0));
+		assertEquals(Map.of("PaintBenchmark.paint/Plant1", 0.25), ratios);
+	}
+
+	@Test
+	void testRatios_RequireTheReference() {
+		assertThrows(IllegalArgumentException.class,
+				() -> RegressionGate.ratios(Map.of("PaintBenchmark.paint/Plant1", 50.0)));
+	}
+
+	@Test
+	void testRatios_SameOnAFasterMachine() {
+		Map<String, Double> slow = RegressionGate
+				.ratios(Map.of(RegressionGate.REFERENCE, 200.0, "PaintBenchmark.paint/Plant1", 50.0));
+		Map<String, Double> fast = RegressionGate
+				.ratios(Map.of(RegressionGate.REFERENCE, 100.0, "PaintBenchmark.paint/Plant1", 25.0));
+		assertEquals(slow, fast);
+	}
+
+	//tests for the regression gate
+	@Test
+	void testCompare_GrownMoreThanThresholdIsARegression() throws IOException {
+		writeLimits("PaintBenchmark.paint/Plant1=0.2");
+		assertEquals(List.of("PaintBenchmark.paint/Plant1"),
+				RegressionGate.compare(Map.of("PaintBenchmark.paint/Plant1", 0.3), limits, 0.25));
+		assertEquals(List.of(), RegressionGate.compare(Map.of("PaintBenchmark.paint/Plant1", 0.24), limits, 0.25));
+	}
+
+	@Test
+	void testCompare_FasterOrMissingIsNoRegression() throws IOException {
+		writeLimits("PaintBenchmark.paint/Plant1=0.2");
+		assertEquals(List.of(), RegressionGate.compare(Map.of("PaintBenchmark.paint/Plant1", 0.1), limits, 0.25));
+		assertEquals(List.of(), RegressionGate.compare(Map.of("PaintBenchmark.paint/Tree1", 9.0), limits, 0.25));
+		assertEquals(List.of(), RegressionGate.compare(Map.of("PaintBenchmark.paint/Plant1", 9.0),
+				limits.resolveSibling("missing.properties"), 0.25));
+	}
+
+	@Test
+	void testSave_KeepsEntriesOfBenchmarksNotRun() throws IOException {
+		writeLimits("TurtleBenchmark.pushPop=0.5");
+		RegressionGate.save(Map.of("PaintBenchmark.paint/Plant1", 0.25), limits);
+		List<String> lines = Files.readAllLines(limits, StandardCharsets.UTF_8);
+		assertTrue(lines.contains("TurtleBenchmark.pushPop=0.5"), lines.toString());
+		assertTrue(lines.contains("PaintBenchmark.paint/Plant1=0.2500"), lines.toString());
+	}
+}
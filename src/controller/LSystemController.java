@@ -4,16 +4,53 @@
 package controller;
 
 import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
+import model.DepthStyle;
+import model.DrawingStatistics;
+import model.GenerationCache;
+import model.GeometryFile;
+import model.GrammarCatalog;
+import model.GrowthAnimation;
+import model.InstancedGeometry;
 import model.LSystemParser;
+import model.ParameterSweep;
 import model.PredefinedLSystem;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
 import model.TurtleCommand;
+import model.ViewportExpander;
+import view.AnimationExporter;
+import view.AnimationOptionsPanel;
 import view.ControlPanel;
 import view.DrawingPanel;
+import view.GeometryRenderer;
 import view.MainFrame;
+import view.SweepDialog;
 
 /**
  * Controller class handling interactions between the view (GUI) and the model
@@ -23,11 +60,52 @@ public class LSystemController {
 	private ControlPanel controlPanel;
 	private DrawingPanel drawingPanel;
 	private MainFrame frame;
+	private GenerationCache generationCache = GenerationCache.defaultCache();
+	private RenderPipeline pipeline = new RenderPipeline(generationCache);
+	private final PredefinedLSystem[] builtInPresets = PredefinedLSystem.predefinedLSystems();
+
+	// Preset files indexed in the background; searching loads only the matching entries
+	private final GrammarCatalog catalog = GrammarCatalog.defaultCatalog();
+	private final int MAX_CATALOG_RESULTS = 100;
+
+	// Settings of the most recent drawing, shared by tools such as the parameter sweep
+	private RenderSettings lastSettings;
+
+	// Parameter sweep state
+	private final int MAX_SWEEP_CELLS = 400;
+	private SweepDialog sweepDialog;
+	private ExecutorService sweepPool;
+	private List<Future<?>> sweepTasks = new ArrayList<>();
+	private int sweepRun;
+
+	// Expansion of only the visible part of the drawing, redone whenever the view comes to rest
+	private final int MAX_VIEWPORT_SEGMENTS = Integer.parseInt(System.getProperty("lsystem.viewport.maxSegments", "500000"));
+	private final double VIEWPORT_FEATURE_PIXELS = 1;
+	private final ExecutorService viewportExpansion = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "viewport-expander");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private ViewportExpander expander;
+	private RenderSettings expanderSettings;
+	private volatile int expansionRun;
+
+	// Longest expansion a growth animation frame may have
+	private final long MAX_ANIMATION_SYMBOLS = 20_000_000;
+
+	// Set "lsystem.cache.warm" to false to skip pre-generating the presets at startup
+	private final boolean WARM_CACHE = Boolean.parseBoolean(System.getProperty("lsystem.cache.warm", "true"));
+
+	// Frame time the panning and zooming preview aims for, and the input pause after which full quality returns
+	private final double PREVIEW_FRAME_MILLIS = Double.parseDouble(System.getProperty("lsystem.preview.frameMillis", "16"));
+	private final int PREVIEW_IDLE_MILLIS = Integer.parseInt(System.getProperty("lsystem.preview.idleMillis", "250"));
 
 	public LSystemController(MainFrame frame) {
 		this.frame = frame;
 		this.controlPanel = frame.getControlPanel();
 		this.drawingPanel = frame.getDrawingPanel();
+		drawingPanel.getQuality().setTargetFrameMillis(PREVIEW_FRAME_MILLIS);
+		drawingPanel.getQuality().setIdleDelayMillis(PREVIEW_IDLE_MILLIS);
 		initializeController();
 	}
 
@@ -37,28 +115,102 @@ public class LSystemController {
 	 */
 	private void initializeController() {
 		try {
-			if (PredefinedLSystem.predefinedLSystems() == null) {
+			if (builtInPresets.length == 0) {
 				showErrorDialog("No predefined L-Systems available.");
 				throw new IllegalStateException("No predefined L-Systems available.");
 			}
 			// Set the default L-System preset to the first available option
-			controlPanel.setSelectedPreset(PredefinedLSystem.predefinedLSystems()[0]);
+			controlPanel.setSelectedPreset(builtInPresets[0]);
 			onPresetSelected();
 
 			// Set up GUI event listeners
 			controlPanel.addPresetComboBoxListener(e -> onPresetSelected()); // e.g. on Event e, call onPresetSelected()
 			setupEventHandler();
+
+			if (WARM_CACHE) {
+				warmCacheInBackground();
+			}
+			reloadCatalogInBackground();
 		} catch (Exception e) {
 			showErrorDialog("Error initializing controller: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * Generates the predefined L-Systems whose drawing reads the expanded string
+	 * on a low priority background thread, so that later preset switches (and
+	 * the next start) are served from the cache. The others are drawn straight
+	 * from their rules and would never read their entry.
+	 */
+	private void warmCacheInBackground() {
+		Thread warmer = new Thread(() -> {
+			List<PredefinedLSystem> presets = new ArrayList<>();
+			for (PredefinedLSystem preset : builtInPresets) {
+				try {
+					if (RenderPipeline.readsSymbols(preset.getAxiom(), preset.getRules(), preset.getIterations(),
+							TurtleCommand.PREDEFINED_COMMANDS)) {
+						presets.add(preset);
+					}
+				} catch (RuntimeException e) {
+					// Reported when the preset is selected
+				}
+			}
+			generationCache.warm(presets.toArray(new PredefinedLSystem[0]));
+		}, "generation-cache-warmer");
+		warmer.setDaemon(true);
+		warmer.setPriority(Thread.MIN_PRIORITY);
+		warmer.start();
+	}
+
+	/**
+	 * Brings the catalog index up to date on a background thread, so startup does
+	 * not wait for the preset files however large they are, then repeats the
+	 * current search.
+	 */
+	private void reloadCatalogInBackground() {
+		Thread indexer = new Thread(() -> {
+			catalog.reload();
+			SwingUtilities.invokeLater(this::onCatalogSearch);
+		}, "grammar-catalog-indexer");
+		indexer.setDaemon(true);
+		indexer.start();
+	}
+
+	/**
+	 * Offers the built-in presets and the catalog entries whose names start with
+	 * the search text in the preset drop down. Only the matching entries are read
+	 * from the catalog files.
+	 */
+	private void onCatalogSearch() {
+		String prefix = controlPanel.getCatalogSearch().trim().toLowerCase(Locale.ROOT);
+		List<PredefinedLSystem> presets = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for (PredefinedLSystem preset : builtInPresets) {
+			if (preset.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) {
+				presets.add(preset);
+				names.add(preset.getName().toLowerCase(Locale.ROOT));
+			}
+		}
+		for (GrammarCatalog.Entry entry : catalog.search(prefix, MAX_CATALOG_RESULTS)) {
+			if (names.add(entry.getName().toLowerCase(Locale.ROOT))) {
+				try {
+					presets.add(catalog.load(entry));
+				} catch (IllegalStateException e) {
+					// The file changed after indexing; the next reload picks up the change
+					System.err.println(e.getMessage());
+				}
+			}
+		}
+		controlPanel.setPresets(presets.toArray(new PredefinedLSystem[0]));
+	}
+
 	/**
 	 * Adds listeners for iteration depth, turning angle, thickness, colour and step length spinners.
 	 * Each change will trigger regeneration of the L-System drawing.
 	 */
 	private void setupEventHandler() {
 		controlPanel.getIterationSpinner().addChangeListener(e -> onGenerateClicked());
+		controlPanel.getSeedSpinner().addChangeListener(e -> onGenerateClicked());
 		controlPanel.getAngleSpinner().addChangeListener(e -> onGenerateClicked());
 		controlPanel.getAngleFactorSpinner().addChangeListener(e -> onGenerateClicked());
 		controlPanel.getStepSpinner().addChangeListener(e -> onGenerateClicked());
@@ -67,6 +219,259 @@ public class LSystemController {
 		controlPanel.getThicknessFactorSpinner().addChangeListener(e -> onGenerateClicked());
 		controlPanel.getColourFactorSpinner().addChangeListener(e -> onGenerateClicked());
 		controlPanel.getColourComboBox().addActionListener(e -> onGenerateClicked());
+		controlPanel.getDepthStyleCheckBox().addActionListener(e -> onGenerateClicked());
+		controlPanel.getViewportExpansionCheckBox().addActionListener(e -> onGenerateClicked());
+		drawingPanel.addViewListener(e -> expandViewport());
+		drawingPanel.addOrbitListener(e -> onGenerateClicked()); // only re-projects 3D geometry
+		frame.getSaveDrawingItem().addActionListener(e -> onSaveDrawing());
+		frame.getOpenDrawingItem().addActionListener(e -> onOpenDrawing());
+		frame.getExportAnimationItem().addActionListener(e -> onExportAnimation());
+		frame.getSweepItem().addActionListener(e -> onOpenSweep());
+		frame.getStatisticsItem().addActionListener(e -> onShowStatistics());
+		frame.getReloadCatalogItem().addActionListener(e -> reloadCatalogInBackground());
+		controlPanel.getCatalogSearchField().getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				onCatalogSearch();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				onCatalogSearch();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				onCatalogSearch();
+			}
+		});
+	}
+
+	/**
+	 * Computes the statistics of the current drawing on a background thread and
+	 * shows them when they are ready. They are taken from the drawing as it is
+	 * shown (projected, for 3D grammars): its retained geometry or display
+	 * lists, and only otherwise from the symbols, which are then expanded on the
+	 * background thread.
+	 */
+	private void onShowStatistics() {
+		if (lastSettings == null) {
+			showErrorDialog("Generate an L-System before computing its statistics.");
+			return;
+		}
+		SegmentBuffer geometry = pipeline.getGeometry();
+		InstancedGeometry instances = pipeline.getInstances();
+		Supplier<CharSequence> symbols = pipeline.symbols();
+		RenderSettings settings = lastSettings;
+		Thread analyser = new Thread(() -> {
+			try {
+				DrawingStatistics statistics = geometry != null ? DrawingStatistics.of(geometry)
+						: instances != null ? DrawingStatistics.of(instances)
+								: DrawingStatistics.of(symbols.get(), TurtleCommand.PREDEFINED_COMMANDS,
+										settings.effectiveAngle(), settings.effectiveStep());
+				String report = statistics.report();
+				SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame, report, "Drawing Statistics",
+						JOptionPane.INFORMATION_MESSAGE));
+			} catch (Exception | OutOfMemoryError e) {
+				SwingUtilities.invokeLater(() -> showErrorDialog("Error computing statistics: " + e.getMessage()));
+			}
+		}, "drawing-statistics");
+		analyser.setDaemon(true);
+		analyser.start();
+	}
+
+	/**
+	 * Exports the current L-System growing through a range of depths and angle
+	 * factors as an animated GIF or PNG sequence. Frames are produced on
+	 * background threads while a progress monitor offers to cancel.
+	 */
+	private void onExportAnimation() {
+		if (lastSettings == null) {
+			showErrorDialog("Generate an L-System before exporting an animation.");
+			return;
+		}
+		AnimationOptionsPanel options = new AnimationOptionsPanel(lastSettings.getIterations(),
+				lastSettings.getAngleFactor());
+		if (JOptionPane.showConfirmDialog(frame, options, "Export Growth Animation", JOptionPane.OK_CANCEL_OPTION,
+				JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+			return;
+		}
+		try {
+			GrowthAnimation animation = new GrowthAnimation(controlPanel.getAxiom(), controlPanel.getRules(),
+					TurtleCommand.PREDEFINED_COMMANDS, lastSettings, options.getFromDepth(), options.getToDepth(),
+					ParameterSweep.range(options.getAngleFactorFrom(), options.getAngleFactorTo(),
+							options.getAngleFactorStep()));
+			if (animation.getMaxLength() > MAX_ANIMATION_SYMBOLS) {
+				showErrorDialog("The last frame would expand into more than " + MAX_ANIMATION_SYMBOLS
+						+ " symbols; choose a lower depth.");
+				return;
+			}
+
+			AnimationExporter.Format format = options.getFormat();
+			JFileChooser chooser = new JFileChooser();
+			if (format == AnimationExporter.Format.GIF) {
+				chooser.setFileFilter(new FileNameExtensionFilter("Animated GIF (*.gif)", "gif"));
+			} else {
+				chooser.setDialogTitle("Choose a folder for the frames");
+				chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+			}
+			if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+				return;
+			}
+			File file = chooser.getSelectedFile();
+			if (format == AnimationExporter.Format.GIF && !file.getName().toLowerCase().endsWith(".gif")) {
+				file = new File(file.getParentFile(), file.getName() + ".gif");
+			}
+			Path target = file.toPath();
+
+			AnimationExporter exporter = new AnimationExporter(options.getFrameWidth(), options.getFrameHeight(),
+					Color.WHITE, options.getDelay());
+			ProgressMonitor monitor = new ProgressMonitor(frame, "Exporting growth animation", null, 0,
+					animation.getFrameCount());
+			Thread exportThread = new Thread(() -> {
+				try {
+					exporter.export(animation, format, target, (written, frames) -> {
+						SwingUtilities.invokeLater(() -> monitor.setProgress(written + 1));
+						if (monitor.isCanceled()) {
+							Thread.currentThread().interrupt(); // ends the export at the next frame
+						}
+					});
+				} catch (InterruptedException e) {
+					// Cancelled from the progress monitor
+				} catch (Exception e) {
+					SwingUtilities.invokeLater(() -> showErrorDialog("Error exporting animation: " + e.getMessage()));
+				} finally {
+					SwingUtilities.invokeLater(monitor::close);
+				}
+			}, "animation-export");
+			exportThread.setDaemon(true);
+			exportThread.start();
+		} catch (Exception e) {
+			showErrorDialog("Error exporting animation: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Opens the parameter sweep dialog for the current drawing.
+	 */
+	private void onOpenSweep() {
+		if (sweepDialog == null) {
+			sweepDialog = new SweepDialog(frame);
+			sweepDialog.addRenderListener(e -> onRunSweep());
+		}
+		sweepDialog.setVisible(true);
+	}
+
+	/**
+	 * Renders a grid of parameter variants of the current expansion. The string
+	 * is not regenerated; every worker interprets the shared symbols with its own
+	 * settings and the cells are filled in as they finish.
+	 */
+	private void onRunSweep() {
+		try {
+			if (lastSettings == null) {
+				showErrorDialog("Generate an L-System before running a sweep.");
+				return;
+			}
+			double[] columnValues = ParameterSweep.range(sweepDialog.getColumnFrom(), sweepDialog.getColumnTo(),
+					sweepDialog.getColumnStep());
+			double[] rowValues = ParameterSweep.range(sweepDialog.getRowFrom(), sweepDialog.getRowTo(),
+					sweepDialog.getRowStep());
+			if ((long) columnValues.length * rowValues.length > MAX_SWEEP_CELLS) {
+				showErrorDialog("A sweep can have at most " + MAX_SWEEP_CELLS + " variants; this one has "
+						+ (long) columnValues.length * rowValues.length + ".");
+				return;
+			}
+
+			// Supersede any sweep that is still running
+			sweepTasks.forEach(task -> task.cancel(true));
+			int run = ++sweepRun;
+			if (sweepPool == null) {
+				sweepPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+					Thread thread = new Thread(runnable, "sweep-renderer");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+
+			// Expanded and compiled by the first sweep task, not on the EDT
+			ParameterSweep sweep = new ParameterSweep(pipeline.symbols(), TurtleCommand.PREDEFINED_COMMANDS, lastSettings,
+					sweepDialog.getColumnParameter(), columnValues, sweepDialog.getRowParameter(), rowValues);
+			sweepDialog.prepareGrid(rowValues, columnValues);
+			AtomicBoolean failed = new AtomicBoolean();
+			sweepTasks = sweep.run(sweepPool, new ParameterSweep.Listener() {
+				@Override
+				public void cellReady(int row, int column, RenderSettings settings, SegmentBuffer geometry) {
+					BufferedImage image = GeometryRenderer.render(geometry, SweepDialog.CELL_SIZE,
+							SweepDialog.CELL_SIZE, null, false);
+					SwingUtilities.invokeLater(() -> {
+						if (run == sweepRun) {
+							sweepDialog.setCell(row, column, image);
+						}
+					});
+				}
+
+				@Override
+				public void cellFailed(int row, int column, Exception e) {
+					// A failed expansion fails every cell; one dialog is enough
+					if (failed.compareAndSet(false, true)) {
+						SwingUtilities.invokeLater(() -> {
+							if (run == sweepRun) {
+								showErrorDialog("Error running parameter sweep: " + e.getMessage());
+							}
+						});
+					}
+				}
+			});
+		} catch (Exception e) {
+			showErrorDialog("Error running parameter sweep: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Saves the interpreted geometry of the current drawing to a binary geometry
+	 * file.
+	 */
+	private void onSaveDrawing() {
+		JFileChooser chooser = createGeometryChooser();
+		if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		try {
+			SegmentBuffer geometry = drawingPanel.interpretGeometry();
+			if (geometry == null) {
+				return;
+			}
+			File file = chooser.getSelectedFile();
+			if (!file.getName().toLowerCase().endsWith("." + GeometryFile.EXTENSION)) {
+				file = new File(file.getParentFile(), file.getName() + "." + GeometryFile.EXTENSION);
+			}
+			GeometryFile.save(geometry, file.toPath());
+		} catch (IOException | RuntimeException e) {
+			showErrorDialog("Error saving drawing: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Opens a saved geometry file and shows it without regenerating the L-System.
+	 */
+	private void onOpenDrawing() {
+		JFileChooser chooser = createGeometryChooser();
+		if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		try {
+			drawingPanel.setGeometry(GeometryFile.load(chooser.getSelectedFile().toPath()));
+		} catch (IOException | RuntimeException e) {
+			showErrorDialog("Error opening drawing: " + e.getMessage());
+		}
+	}
+
+	private JFileChooser createGeometryChooser() {
+		JFileChooser chooser = new JFileChooser();
+		chooser.setFileFilter(new FileNameExtensionFilter("L-System drawings (*." + GeometryFile.EXTENSION + ")",
+				GeometryFile.EXTENSION));
+		return chooser;
 	}
 
 	/**
@@ -114,53 +519,102 @@ public class LSystemController {
 			Color colour = preset != null ? preset.getColour() : controlPanel.getColour();
 			int iterations = preset != null ? preset.getIterations() : controlPanel.getIteration();
 
-			// Generate L-System string
-			LSystemParser lSystem = new LSystemParser(axiom, rules, iterations);
-
 			Map<Character, TurtleCommand> commandMap;
 
 			// Choose default turtle commands
 			commandMap = TurtleCommand.PREDEFINED_COMMANDS;
 
-			String lSystemString = lSystem.generateLSystemString();
-			
-			System.out.println(lSystemString);			
-	        // Multiply angle by exponentially increasing factor per iteration:
-	        // iterations = 0 → baseAngle
-	        // iterations = 1 → baseAngle * factor
-	        // iterations = 2 → baseAngle * factor^2, etc.
-			double angleFactor = controlPanel.getAngleFactor();
-			double effectiveAngle = angle * Math.pow(angleFactor, Math.max(0, iterations - 1));
-			//double effectiveAngle = angle + iterations * angleFactor; // linearly (slower growth)
-			// "Toggling" growth
-			if (iterations % 2 == 0) { // toggle on even iterations
-				effectiveAngle *= -1;
-			}
-			
-			double stepFactor = controlPanel.getStepFactor();
-			double effectiveStep = step * Math.pow(stepFactor, Math.max(0, iterations - 1));
-			//double effectiveStep = step + iterations * stepFactor;
-			
-			double thicknessFactor = controlPanel.getThicknessFactor();
-			double effectiveThickness = thickness * Math.pow(thicknessFactor, Math.max(0, iterations - 1));
-			//double effectiveThickness = thickness + iterations * thicknessFactor;
-			
-			// Colour
-			Color effectiveColour = this.nextShade(colour, (float)controlPanel.getColourFactor());
-
-			updateDrawingPanel(effectiveAngle, effectiveStep, effectiveThickness, effectiveColour, commandMap, lSystemString);
-			//updateDrawingPanel(angle, step, thickness, colour, commandMap, lSystemString);
+			RenderSettings settings = new RenderSettings(angle, step, thickness, colour, iterations,
+					controlPanel.getAngleFactor(), controlPanel.getStepFactor(), controlPanel.getThicknessFactor(),
+					controlPanel.getColourFactor(), controlPanel.isDepthStyled()).withSeed(controlPanel.getSeed())
+					.withCamera(drawingPanel.getCameraYaw(), drawingPanel.getCameraPitch());
+
+			expander = null;
+			if (controlPanel.isViewportExpansion()) {
+				drawVisibleOnly(axiom, rules, commandMap, settings);
+				return;
+			}
+
+			// Only the stages whose inputs changed are recomputed
+			SegmentBuffer geometry = pipeline.render(axiom, rules, commandMap, settings);
+			lastSettings = settings;
+			drawingPanel.setOrbitEnabled(pipeline.isSpatial());
+
+			if (geometry != null) {
+				drawingPanel.setGeometry(geometry);
+			} else if (pipeline.getInstances() != null) {
+				// Too large to retain; drawn from the display lists on every paint
+				drawingPanel.setInstances(pipeline.getInstances(), settings.effectiveColour(),
+						(float) settings.effectiveThickness());
+			} else {
+				// Too large to retain and cannot be instanced; walked on every paint
+				updateDrawingPanel(settings.effectiveAngle(), settings.effectiveStep(), settings.effectiveThickness(),
+						settings.effectiveColour(), commandMap, pipeline.getSymbols());
+			}
 
 		} catch (Exception e) {
 			showErrorDialog("Error generating L-System: " + e.getMessage());
 		}
 	}
 
+	/**
+	 * Draws the grammar by expanding only what is visible, so any depth can be
+	 * explored by zooming. Only grammars with fixed productions can be expanded
+	 * this way.
+	 */
+	private void drawVisibleOnly(String axiom, String rules, Map<Character, TurtleCommand> commandMap,
+			RenderSettings settings) {
+		LSystemParser parser = new LSystemParser(axiom, rules, settings.getIterations(), settings.getSeed());
+		if (!parser.hasFixedProductions()) {
+			showErrorDialog("Only grammars without stochastic, context-sensitive or parametric rules can be expanded on demand.");
+			return;
+		}
+		expander = new ViewportExpander(axiom, parser.getRules(), commandMap, settings.effectiveAngle(),
+				settings.effectiveStep(), settings.getIterations());
+		expanderSettings = settings;
+		drawingPanel.setOrbitEnabled(false);
+		expandViewport();
+	}
+
+	/**
+	 * Expands the current viewport in the background and shows the result,
+	 * unless a newer view or drawing has been requested by then.
+	 */
+	private void expandViewport() {
+		ViewportExpander expander = this.expander;
+		if (expander == null) {
+			return;
+		}
+		RenderSettings settings = expanderSettings;
+		Rectangle2D.Double viewport = drawingPanel.getViewport();
+		double scale = drawingPanel.getScale();
+		int run = ++expansionRun;
+		viewportExpansion.execute(() -> {
+			if (run != expansionRun) {
+				return;
+			}
+			try {
+				ViewportExpander.Result result = expander.expand(viewport, scale, VIEWPORT_FEATURE_PIXELS,
+						MAX_VIEWPORT_SEGMENTS, settings.effectiveColour(), (float) settings.effectiveThickness());
+				DepthStyle depthStyle = settings.depthStyle();
+				SegmentBuffer geometry = depthStyle != null ? depthStyle.apply(result.getGeometry())
+						: result.getGeometry();
+				SwingUtilities.invokeLater(() -> {
+					if (run == expansionRun) {
+						drawingPanel.setGeometry(geometry, result.getOriginX(), result.getOriginY());
+					}
+				});
+			} catch (RuntimeException e) {
+				SwingUtilities.invokeLater(() -> showErrorDialog("Error expanding the view: " + e.getMessage()));
+			}
+		});
+	}
+
 	/**
 	 * Updates the drawing panel with new configuration and L-System string.
 	 */
 	private void updateDrawingPanel(double angle, double step, double thickness, Color colour, Map<Character, TurtleCommand> commandMap,
-			String lSystemString) {
+			CharSequence lSystemString) {
 		drawingPanel.setAngle(angle);
 		drawingPanel.setStep(step);
 		drawingPanel.setThickness(thickness);
@@ -189,26 +643,4 @@ public class LSystemController {
 	private void showErrorDialog(String message) {
 		JOptionPane.showMessageDialog(null, message, "Error", JOptionPane.ERROR_MESSAGE);
 	}
-	
-	/**
-	 * Helper method to get the next colour with gradient change controlled by factor
-	 * @param current
-	 * @param factor
-	 * @return
-	 */
-	private Color nextShade(Color current, float factor) {
-        // Convert RGB to HSB
-        float[] hsb = Color.RGBtoHSB(
-            current.getRed(),
-            current.getGreen(),
-            current.getBlue(),
-            null
-        );
-
-        // Increment hue by step (wrap around at 1.0)
-        float newHue = (hsb[0] + factor) % 1.0f;
-
-        // Create new color with same saturation & brightness
-        return Color.getHSBColor(newHue, hsb[1], hsb[2]);
-    }
 }
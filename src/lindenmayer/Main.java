@@ -3,9 +3,17 @@
  */
 package lindenmayer;
 
+import java.util.Arrays;
+
 import javax.swing.SwingUtilities;
 
 import controller.LSystemController;
+import model.DrawingStatistics;
+import model.GrammarEvolution;
+import server.RenderFarm;
+import server.RenderServer;
+import server.TileWorker;
+import view.AnimationExporter;
 import view.MainFrame;
 
 /*
@@ -19,7 +27,33 @@ public class Main {
 		LSystemController controller = new LSystemController(frame);
 	}
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		// Command line modes run without opening a window
+		if (args.length > 0 && args[0].equals("serve")) {
+			RenderServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("evolve")) {
+			GrammarEvolution.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("stats")) {
+			DrawingStatistics.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("animate")) {
+			AnimationExporter.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("farm")) {
+			RenderFarm.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("tile-worker")) {
+			TileWorker.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+
 		// invokeLater() to run programme on Event Dispatch Thread (EDT) from Swing utilities - handling UI and button actions etc
 		SwingUtilities.invokeLater(new Runnable() { // instantiates anon class implementing Runnable() interface and its run() method
 
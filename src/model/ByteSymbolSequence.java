@@ -0,0 +1,55 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A compact, read-only sequence of L-System symbols stored as one Latin-1 byte
+ * per symbol. Used when every symbol of the alphabet fits into a byte, halving
+ * the footprint of a UTF-16 char array and avoiding the extra copy made when a
+ * StringBuilder is turned into a String.
+ */
+public class ByteSymbolSequence implements CharSequence {
+
+	private final byte[] symbols;
+	private final int offset;
+	private final int length;
+
+	public ByteSymbolSequence(byte[] symbols) {
+		this(symbols, 0, symbols.length);
+	}
+
+	private ByteSymbolSequence(byte[] symbols, int offset, int length) {
+		this.symbols = symbols;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + (length - 1));
+		}
+		return (char) (symbols[offset + index] & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Invalid range " + start + ".." + end);
+		}
+		return new ByteSymbolSequence(symbols, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return new String(symbols, offset, length, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.geom.Rectangle2D;
+import java.util.stream.IntStream;
+
+/**
+ * Camera projects {@link SpatialGeometry} onto the drawing plane with a
+ * parallel (orthographic) projection. The camera orbits the origin: the yaw
+ * turns the drawing about its vertical axis and the pitch then tilts it
+ * towards the viewer, both in degrees. At yaw and pitch 0 the camera looks
+ * along -z with +y up, so a planar drawing appears exactly as in 2D.
+ *
+ * Every segment is projected independently; large geometries are projected in
+ * parallel chunks that also compute their own bounds.
+ */
+public class Camera {
+
+	// Geometries with fewer segments are projected on the calling thread only
+	private static final int PARALLEL_THRESHOLD = 1 << 15;
+	private static final int CHUNK = 1 << 13;
+
+	private final double yaw;
+	private final double pitch;
+
+	// Rows of the view matrix giving the screen coordinates (screen y points down)
+	private final double xx, xy, xz;
+	private final double yx, yy, yz;
+
+	public Camera(double yaw, double pitch) {
+		this.yaw = yaw;
+		this.pitch = pitch;
+		double cy = Math.cos(Math.toRadians(yaw));
+		double sy = Math.sin(Math.toRadians(yaw));
+		double cp = Math.cos(Math.toRadians(pitch));
+		double sp = Math.sin(Math.toRadians(pitch));
+		xx = cy;
+		xy = 0;
+		xz = sy;
+		yx = -sy * sp;
+		yy = -cp;
+		yz = cy * sp;
+	}
+
+	/**
+	 * Returns the screen x coordinate of a point.
+	 */
+	public float screenX(float x, float y, float z) {
+		return (float) (xx * x + xy * y + xz * z);
+	}
+
+	/**
+	 * Returns the screen y coordinate of a point.
+	 */
+	public float screenY(float x, float y, float z) {
+		return (float) (yx * x + yy * y + yz * z);
+	}
+
+	/**
+	 * Projects the geometry into a new SegmentBuffer with its own coordinate
+	 * columns. The style and depth columns are shared with the geometry, so
+	 * projecting again after orbiting costs one pass over the coordinates.
+	 */
+	public SegmentBuffer project(SpatialGeometry geometry) {
+		int size = geometry.size();
+		float[] x1 = new float[size];
+		float[] y1 = new float[size];
+		float[] x2 = new float[size];
+		float[] y2 = new float[size];
+		int chunks = (size + CHUNK - 1) / CHUNK;
+		float[][] chunkBounds = new float[chunks][];
+		IntStream range = IntStream.range(0, chunks);
+		(size >= PARALLEL_THRESHOLD ? range.parallel() : range)
+				.forEach(c -> chunkBounds[c] = projectChunk(geometry, c, x1, y1, x2, y2));
+
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		for (float[] bounds : chunkBounds) {
+			minX = Math.min(minX, bounds[0]);
+			minY = Math.min(minY, bounds[1]);
+			maxX = Math.max(maxX, bounds[2]);
+			maxY = Math.max(maxY, bounds[3]);
+		}
+		Rectangle2D.Float bounds = size == 0 ? new Rectangle2D.Float()
+				: new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY);
+		return new SegmentBuffer(size, x1, y1, x2, y2, geometry.styleColumn(), geometry.depthColumn(),
+				geometry.styleArgbTable(), geometry.styleWidthTable(), bounds, geometry.getMaxDepth());
+	}
+
+	/*
+	 * Projects one chunk and returns its bounds as minX, minY, maxX, maxY.
+	 */
+	private float[] projectChunk(SpatialGeometry geometry, int chunk, float[] x1, float[] y1, float[] x2,
+			float[] y2) {
+		float[] gx1 = geometry.x1Column(), gy1 = geometry.y1Column(), gz1 = geometry.z1Column();
+		float[] gx2 = geometry.x2Column(), gy2 = geometry.y2Column(), gz2 = geometry.z2Column();
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+		int end = Math.min(geometry.size(), (chunk + 1) * CHUNK);
+		for (int i = chunk * CHUNK; i < end; i++) {
+			float ax = screenX(gx1[i], gy1[i], gz1[i]);
+			float ay = screenY(gx1[i], gy1[i], gz1[i]);
+			float bx = screenX(gx2[i], gy2[i], gz2[i]);
+			float by = screenY(gx2[i], gy2[i], gz2[i]);
+			x1[i] = ax;
+			y1[i] = ay;
+			x2[i] = bx;
+			y2[i] = by;
+			minX = Math.min(minX, Math.min(ax, bx));
+			minY = Math.min(minY, Math.min(ay, by));
+			maxX = Math.max(maxX, Math.max(ax, bx));
+			maxY = Math.max(maxY, Math.max(ay, by));
+		}
+		return new float[] { minX, minY, maxX, maxY };
+	}
+
+	public double getYaw() {
+		return yaw;
+	}
+
+	public double getPitch() {
+		return pitch;
+	}
+}
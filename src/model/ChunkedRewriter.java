@@ -0,0 +1,92 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * ChunkedRewriter produces the next generation of grammars whose productions
+ * depend on more than the symbol itself (see {@link StochasticGrammar} and
+ * {@link ContextSensitiveGrammar}). The previous generation is split into
+ * fixed-size chunks; a first pass computes the output length of every chunk,
+ * a prefix sum turns the lengths into offsets and a second pass lets every
+ * chunk write its output at its own offset. As long as the chosen production
+ * depends only on the position, the result does not depend on how the chunks
+ * are scheduled.
+ */
+final class ChunkedRewriter {
+
+	/**
+	 * Chooses the production of one symbol.
+	 */
+	interface Productions {
+
+		/**
+		 * @return the replacement of the symbol at the given position of the
+		 *         previous generation, or null to keep the symbol
+		 */
+		char[] at(int position);
+	}
+
+	// Generations shorter than this are rewritten on the calling thread only
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+	private static final int CHUNK = 1 << 14;
+
+	private ChunkedRewriter() {
+	}
+
+	/**
+	 * Rewrites every symbol of the previous generation.
+	 *
+	 * @throws IllegalStateException if the next generation does not fit into an
+	 *                               array
+	 */
+	static char[] rewrite(char[] previous, Productions productions, boolean parallel) {
+		int chunks = (previous.length + CHUNK - 1) / CHUNK;
+		boolean inParallel = parallel && previous.length >= PARALLEL_THRESHOLD;
+
+		// First pass: the output length of every chunk
+		long[] offsets = new long[chunks + 1];
+		stream(chunks, inParallel).forEach(c -> offsets[c + 1] = chunkLength(previous, c, productions));
+		for (int c = 0; c < chunks; c++) {
+			offsets[c + 1] += offsets[c];
+		}
+		if (offsets[chunks] > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("The next generation is too long to expand in memory.");
+		}
+
+		// Second pass: every chunk writes its output at its own offset
+		char[] next = new char[(int) offsets[chunks]];
+		stream(chunks, inParallel).forEach(c -> writeChunk(previous, c, productions, next, (int) offsets[c]));
+		return next;
+	}
+
+	private static IntStream stream(int chunks, boolean parallel) {
+		IntStream stream = IntStream.range(0, chunks);
+		return parallel ? stream.parallel() : stream;
+	}
+
+	private static long chunkLength(char[] previous, int chunk, Productions productions) {
+		long length = 0;
+		int end = Math.min(previous.length, (chunk + 1) * CHUNK);
+		for (int i = chunk * CHUNK; i < end; i++) {
+			char[] production = productions.at(i);
+			length += production == null ? 1 : production.length;
+		}
+		return length;
+	}
+
+	private static void writeChunk(char[] previous, int chunk, Productions productions, char[] next, int offset) {
+		int end = Math.min(previous.length, (chunk + 1) * CHUNK);
+		for (int i = chunk * CHUNK; i < end; i++) {
+			char[] production = productions.at(i);
+			if (production == null) {
+				next[offset++] = previous[i];
+			} else {
+				System.arraycopy(production, 0, next, offset, production.length);
+				offset += production.length;
+			}
+		}
+	}
+}
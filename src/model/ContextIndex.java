@@ -0,0 +1,188 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ContextIndex finds the left and right context of every symbol of one
+ * generation of a bracketed L-System in linear time, so that context-sensitive
+ * productions can then be applied in a single pass.
+ *
+ * A symbol's left neighbour is the nearest preceding symbol on the same branch
+ * or, for the first symbol of a branch, the symbol the branch starts from. Its
+ * right neighbour is the nearest following symbol on the same branch; branches
+ * in between are skipped and the last symbol of a branch has none. Ignored
+ * symbols (usually the turns) are never neighbours.
+ *
+ * The index consists of a matching-bracket table and the two neighbour arrays.
+ * The neighbours are found in one pass per branch level; in parallel mode large
+ * branches are handed to their own fork/join task, since a branch is
+ * independent of everything outside it apart from the symbol it starts from.
+ */
+public class ContextIndex {
+
+	// Branches with at least this many symbols are indexed as a separate task in parallel mode
+	private static final int BRANCH_GRAIN = 1 << 14;
+
+	private final char[] symbols;
+	private final boolean[] ignored;
+	private final int[] match;
+	private final int[] left;
+	private final int[] right;
+
+	/**
+	 * Builds the index of one generation.
+	 *
+	 * @param ignored  symbols that are never neighbours, indexed by symbol;
+	 *                 symbols beyond its length are not ignored
+	 * @param parallel whether large branches are indexed on the common fork/join
+	 *                 pool
+	 * @throws IllegalArgumentException if the brackets are unbalanced
+	 */
+	public ContextIndex(char[] symbols, boolean[] ignored, boolean parallel) {
+		this.symbols = symbols;
+		this.ignored = ignored;
+		this.match = matchBrackets(symbols);
+		this.left = new int[symbols.length];
+		this.right = new int[symbols.length];
+		if (parallel && symbols.length >= ChunkedRewriter.PARALLEL_THRESHOLD) {
+			ForkJoinPool.commonPool().invoke(new BranchTask(0, symbols.length, -1, true));
+		} else {
+			new BranchTask(0, symbols.length, -1, false).compute();
+		}
+	}
+
+	/**
+	 * Returns the position of the left neighbour of the symbol at the given
+	 * position, or -1 if it has none. Only defined for symbols that are neither
+	 * brackets nor ignored.
+	 */
+	public int left(int position) {
+		return left[position];
+	}
+
+	/**
+	 * Returns the position of the right neighbour of the symbol at the given
+	 * position, or -1 if it has none. Only defined for symbols that are neither
+	 * brackets nor ignored.
+	 */
+	public int right(int position) {
+		return right[position];
+	}
+
+	/**
+	 * Returns the position of the bracket matching the one at the given
+	 * position.
+	 */
+	public int match(int position) {
+		return match[position];
+	}
+
+	/**
+	 * Returns whether the symbol at the given position can have and be a
+	 * neighbour.
+	 */
+	public boolean isRelevant(int position) {
+		char symbol = symbols[position];
+		return symbol != '[' && symbol != ']' && !(symbol < ignored.length && ignored[symbol]);
+	}
+
+	private static int[] matchBrackets(char[] symbols) {
+		int[] match = new int[symbols.length];
+		int[] open = new int[16];
+		int depth = 0;
+		for (int i = 0; i < symbols.length; i++) {
+			if (symbols[i] == '[') {
+				if (depth == open.length) {
+					open = Arrays.copyOf(open, depth * 2);
+				}
+				open[depth++] = i;
+			} else if (symbols[i] == ']') {
+				if (depth == 0) {
+					throw new IllegalArgumentException("Unbalanced ']' at position " + i + ".");
+				}
+				int start = open[--depth];
+				match[start] = i;
+				match[i] = start;
+			}
+		}
+		if (depth > 0) {
+			throw new IllegalArgumentException("Unbalanced '[' at position " + open[depth - 1] + ".");
+		}
+		return match;
+	}
+
+	/**
+	 * Links the neighbours within a range that starts and ends on the same
+	 * branch level, walking nested branches with an explicit stack (or forking
+	 * them off when they are large).
+	 */
+	private class BranchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int parent;
+		private final boolean fork;
+
+		BranchTask(int from, int to, int parent, boolean fork) {
+			this.from = from;
+			this.to = to;
+			this.parent = parent;
+			this.fork = fork;
+		}
+
+		@Override
+		protected void compute() {
+			List<BranchTask> forked = new ArrayList<>();
+			int[] stack = new int[32]; // pairs of (last, previous) of the enclosing levels
+			int depth = 0;
+			int last = parent; // left neighbour of the next relevant symbol
+			int previous = -1; // last relevant symbol of this level, waiting for its right neighbour
+			for (int i = from; i < to; i++) {
+				char symbol = symbols[i];
+				if (symbol == '[') {
+					if (fork && match[i] - i > BRANCH_GRAIN) {
+						BranchTask task = new BranchTask(i + 1, match[i], last, true);
+						task.fork();
+						forked.add(task);
+						i = match[i];
+						continue;
+					}
+					if (depth + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[depth++] = last;
+					stack[depth++] = previous;
+					previous = -1;
+				} else if (symbol == ']') {
+					if (previous >= 0) {
+						right[previous] = -1;
+					}
+					previous = stack[--depth];
+					last = stack[--depth];
+				} else if (!(symbol < ignored.length && ignored[symbol])) {
+					left[i] = last;
+					if (previous >= 0) {
+						right[previous] = i;
+					}
+					previous = i;
+					last = i;
+				}
+			}
+			if (previous >= 0) {
+				right[previous] = -1;
+			}
+			for (BranchTask task : forked) {
+				task.join();
+			}
+		}
+	}
+}
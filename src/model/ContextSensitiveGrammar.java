@@ -0,0 +1,244 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ContextSensitiveGrammar holds productions that only apply when a symbol has
+ * the given neighbours, written "A<B>C→X": B is replaced by X if its left
+ * neighbour is A and its right neighbour is C. Either context may be left out
+ * ("A<B→X", "B>C→X") and may span several symbols ("AB<C→X" requires the left
+ * neighbour to be B and the one before it A). Neighbours are found on the same
+ * branch with branches in between skipped, as described by
+ * {@link ContextIndex}.
+ *
+ * For every symbol the context-sensitive rules are tried in the order they
+ * were written and the context-free rule (if any) applies when none matches.
+ * Turn symbols are ignored when looking for neighbours; an entry
+ * "#ignore:+-F" in the rules replaces the ignored symbols.
+ */
+public class ContextSensitiveGrammar {
+
+	public static final String DEFAULT_IGNORED = "+-";
+
+	private static final String IGNORE_PREFIX = "#ignore:";
+	private static final Pattern CONTEXT_RULE = Pattern.compile("(?:([^<>]+)<)?([^<>])(?:>([^<>]+))?");
+
+	/**
+	 * A production with the contexts it needs.
+	 */
+	private static class Rule {
+		final char[] leftContext; // null when there is none
+		final char[] rightContext;
+		final char[] production;
+
+		Rule(String leftContext, String rightContext, String production) {
+			this.leftContext = leftContext == null ? null : leftContext.toCharArray();
+			this.rightContext = rightContext == null ? null : rightContext.toCharArray();
+			this.production = production.toCharArray();
+		}
+	}
+
+	private final Map<Character, List<Rule>> contextRules;
+	private final Map<Character, String> contextFreeRules;
+	private final boolean[] ignored;
+
+	// Lookup by symbol for the rewriting loop
+	private final Rule[][] ruleTable;
+	private final char[][] contextFreeTable;
+
+	private ContextSensitiveGrammar(Map<Character, List<Rule>> contextRules, Map<Character, String> contextFreeRules,
+			String ignoredSymbols) {
+		this.contextRules = contextRules;
+		this.contextFreeRules = contextFreeRules;
+		int size = 0;
+		for (char symbol : ignoredSymbols.toCharArray()) {
+			size = Math.max(size, symbol + 1);
+		}
+		this.ignored = new boolean[size];
+		for (char symbol : ignoredSymbols.toCharArray()) {
+			ignored[symbol] = true;
+		}
+
+		size = 0;
+		for (char symbol : contextRules.keySet()) {
+			size = Math.max(size, symbol + 1);
+		}
+		for (char symbol : contextFreeRules.keySet()) {
+			size = Math.max(size, symbol + 1);
+		}
+		ruleTable = new Rule[size][];
+		contextFreeTable = new char[size][];
+		contextRules.forEach((symbol, rules) -> ruleTable[symbol] = rules.toArray(new Rule[0]));
+		contextFreeRules.forEach((symbol, production) -> contextFreeTable[symbol] = production.toCharArray());
+	}
+
+	/**
+	 * Returns whether a rules entry is a directive rather than a production.
+	 */
+	public static boolean isDirective(String entry) {
+		return entry.startsWith(IGNORE_PREFIX);
+	}
+
+	/**
+	 * Returns whether the left-hand side of a rule has a context.
+	 */
+	public static boolean hasContext(String predecessor) {
+		return predecessor.length() > 1 && (predecessor.indexOf('<') >= 0 || predecessor.indexOf('>') >= 0);
+	}
+
+	/**
+	 * Parses rules that may contain context-sensitive productions. As in
+	 * {@link LSystemParser#parseRules(String)}, only the first context-free rule
+	 * of a symbol is kept.
+	 *
+	 * @return the grammar, or null if no rule has a context
+	 * @throws IllegalArgumentException if a rule is malformed or rules with
+	 *                                  contexts and weights are mixed
+	 */
+	public static ContextSensitiveGrammar parse(String rulesInput) {
+		if (rulesInput == null || rulesInput.isBlank()) {
+			throw new IllegalArgumentException("Rules input cannot be null or empty.");
+		}
+		Map<Character, List<Rule>> contextRules = new LinkedHashMap<>();
+		Map<Character, String> contextFreeRules = new HashMap<>();
+		String ignoredSymbols = DEFAULT_IGNORED;
+		String weighted = null;
+		for (String entry : rulesInput.replaceAll("\\s+", "").split(",")) {
+			if (isDirective(entry)) {
+				ignoredSymbols = entry.substring(IGNORE_PREFIX.length());
+				continue;
+			}
+			String[] parts = entry.split("→");
+			if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+				throw new IllegalArgumentException("Invalid rule format: " + entry);
+			}
+			if (StochasticGrammar.isWeighted(parts[1])) {
+				weighted = entry;
+			}
+			if (!hasContext(parts[0])) {
+				contextFreeRules.putIfAbsent(parts[0].charAt(0), parts[1]);
+				continue;
+			}
+			Matcher matcher = CONTEXT_RULE.matcher(parts[0]);
+			if (!matcher.matches()) {
+				throw new IllegalArgumentException("Invalid context rule: " + entry);
+			}
+			char symbol = matcher.group(2).charAt(0);
+			contextRules.computeIfAbsent(symbol, k -> new ArrayList<>())
+					.add(new Rule(matcher.group(1), matcher.group(3), parts[1]));
+		}
+		if (contextRules.isEmpty()) {
+			return null;
+		}
+		if (weighted != null) {
+			throw new IllegalArgumentException(
+					"Context-sensitive rules cannot be combined with weighted alternatives: " + weighted);
+		}
+		return new ContextSensitiveGrammar(contextRules, contextFreeRules, ignoredSymbols);
+	}
+
+	/**
+	 * Returns a production per symbol that bounds all productions the symbol
+	 * may be replaced by, including keeping it (see
+	 * {@link GrowthTable#boundingProduction}), for planning the expansion.
+	 */
+	public Map<Character, String> boundingProductions() {
+		Map<Character, String> bounding = new HashMap<>(contextFreeRules);
+		contextRules.forEach((symbol, rules) -> {
+			List<String> alternatives = new ArrayList<>();
+			alternatives.add(contextFreeRules.getOrDefault(symbol, String.valueOf(symbol)));
+			for (Rule rule : rules) {
+				alternatives.add(new String(rule.production));
+			}
+			bounding.put(symbol, GrowthTable.boundingProduction(alternatives));
+		});
+		return bounding;
+	}
+
+	/**
+	 * Expands the axiom; large branches are indexed and long generations
+	 * rewritten in parallel, with the same result.
+	 *
+	 * @throws IllegalArgumentException if a generation has unbalanced brackets
+	 * @throws IllegalStateException    if a generation does not fit into a
+	 *                                  String
+	 */
+	public String expand(String axiom, int iterations) {
+		return expand(axiom, iterations, true);
+	}
+
+	/**
+	 * Expands the axiom on the calling thread only.
+	 */
+	public String expandSequentially(String axiom, int iterations) {
+		return expand(axiom, iterations, false);
+	}
+
+	private String expand(String axiom, int iterations, boolean parallel) {
+		char[] current = axiom.toCharArray();
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			char[] previous = current;
+			ContextIndex index = new ContextIndex(previous, ignored, parallel);
+			current = ChunkedRewriter.rewrite(previous, position -> production(previous, index, position), parallel);
+		}
+		return new String(current);
+	}
+
+	/*
+	 * Returns the production of the first rule whose contexts match, the
+	 * context-free one if none does, or null to keep the symbol.
+	 */
+	private char[] production(char[] symbols, ContextIndex index, int position) {
+		char symbol = symbols[position];
+		if (symbol >= ruleTable.length) {
+			return null;
+		}
+		Rule[] rules = ruleTable[symbol];
+		if (rules != null && index.isRelevant(position)) {
+			for (Rule rule : rules) {
+				if (matchesLeft(symbols, index, position, rule.leftContext)
+						&& matchesRight(symbols, index, position, rule.rightContext)) {
+					return rule.production;
+				}
+			}
+		}
+		return contextFreeTable[symbol];
+	}
+
+	private static boolean matchesLeft(char[] symbols, ContextIndex index, int position, char[] context) {
+		if (context == null) {
+			return true;
+		}
+		int neighbour = index.left(position);
+		for (int k = context.length - 1; k >= 0; k--) {
+			if (neighbour < 0 || symbols[neighbour] != context[k]) {
+				return false;
+			}
+			neighbour = index.left(neighbour);
+		}
+		return true;
+	}
+
+	private static boolean matchesRight(char[] symbols, ContextIndex index, int position, char[] context) {
+		if (context == null) {
+			return true;
+		}
+		int neighbour = index.right(position);
+		for (int k = 0; k < context.length; k++) {
+			if (neighbour < 0 || symbols[neighbour] != context[k]) {
+				return false;
+			}
+			neighbour = index.right(neighbour);
+		}
+		return true;
+	}
+}
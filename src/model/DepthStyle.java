@@ -0,0 +1,124 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+
+/**
+ * DepthStyle styles each segment by the bracket depth of the branch it belongs
+ * to, blending from a trunk style at depth 0 to a tip style at the deepest
+ * branches. Depths are quantized into at most {@value #MAX_BUCKETS} buckets so
+ * the style table stays small and {@link SegmentBuffer#draw} still strokes
+ * each bucket in a single batched pass.
+ */
+public class DepthStyle {
+
+	public static final int MAX_BUCKETS = 16;
+
+	private final Color trunkColour;
+	private final float trunkWidth;
+	private final Color tipColour;
+	private final float tipWidth;
+
+	public DepthStyle(Color trunkColour, float trunkWidth, Color tipColour, float tipWidth) {
+		if (trunkWidth < 0 || tipWidth < 0) {
+			throw new IllegalArgumentException("Stroke widths cannot be negative.");
+		}
+		this.trunkColour = trunkColour;
+		this.trunkWidth = trunkWidth;
+		this.tipColour = tipColour;
+		this.tipWidth = tipWidth;
+	}
+
+	/**
+	 * Derives a trunk-to-tip style from a single colour and thickness: the trunk
+	 * is a darker shade three times as thick, the tips a lighter shade at the
+	 * given thickness.
+	 */
+	public static DepthStyle taper(Color colour, float thickness) {
+		return new DepthStyle(blend(colour, Color.BLACK, 0.35f), 3 * thickness, blend(colour, Color.WHITE, 0.55f),
+				thickness);
+	}
+
+	/**
+	 * Returns how many buckets a drawing with the given maximum depth uses.
+	 */
+	public int bucketCount(int maxDepth) {
+		return Math.min(MAX_BUCKETS, Math.max(maxDepth, 0) + 1);
+	}
+
+	/**
+	 * Returns the bucket of a segment at the given depth.
+	 */
+	public int bucket(int depth, int maxDepth) {
+		int buckets = bucketCount(maxDepth);
+		if (buckets == 1) {
+			return 0;
+		}
+		return Math.round(depth * (buckets - 1) / (float) maxDepth);
+	}
+
+	public Color colour(int bucket, int buckets) {
+		return blend(trunkColour, tipColour, fraction(bucket, buckets));
+	}
+
+	public float width(int bucket, int buckets) {
+		return trunkWidth + (tipWidth - trunkWidth) * fraction(bucket, buckets);
+	}
+
+	/**
+	 * Returns a view of the geometry styled by depth. Only a new style column is
+	 * allocated; the coordinates are shared with the given buffer.
+	 */
+	public SegmentBuffer apply(SegmentBuffer geometry) {
+		int maxDepth = geometry.getMaxDepth();
+		int buckets = bucketCount(maxDepth);
+		int[] styleArgb = new int[buckets];
+		float[] styleWidth = new float[buckets];
+		for (int b = 0; b < buckets; b++) {
+			styleArgb[b] = colour(b, buckets).getRGB();
+			styleWidth[b] = width(b, buckets);
+		}
+
+		// Bucket of every depth, looked up per segment
+		int[] bucketOfDepth = new int[maxDepth + 1];
+		for (int d = 0; d <= maxDepth; d++) {
+			bucketOfDepth[d] = bucket(d, maxDepth);
+		}
+		int[] depth = geometry.depthColumn();
+		int[] style = new int[geometry.size()];
+		for (int i = 0; i < style.length; i++) {
+			style[i] = bucketOfDepth[depth[i]];
+		}
+		return geometry.withStyles(style, styleArgb, styleWidth);
+	}
+
+	// Getters
+	public Color getTrunkColour() {
+		return trunkColour;
+	}
+
+	public float getTrunkWidth() {
+		return trunkWidth;
+	}
+
+	public Color getTipColour() {
+		return tipColour;
+	}
+
+	public float getTipWidth() {
+		return tipWidth;
+	}
+
+	private static float fraction(int bucket, int buckets) {
+		return buckets == 1 ? 0 : bucket / (float) (buckets - 1);
+	}
+
+	private static Color blend(Color from, Color to, float t) {
+		return new Color(Math.round(from.getRed() + (to.getRed() - from.getRed()) * t),
+				Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * t),
+				Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * t),
+				Math.round(from.getAlpha() + (to.getAlpha() - from.getAlpha()) * t));
+	}
+}
@@ -0,0 +1,378 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * DrawingStatistics collects numbers about a drawing in a single pass over the
+ * turtle's output: the segment count, the total path length, the deepest
+ * bracket, a histogram of branch lengths and an estimate of the fractal
+ * dimension by box counting.
+ *
+ * A branch is the part of the walk between a push and its pop; its length is
+ * the length of the segments drawn in it, not counting its own sub-branches.
+ * Branches that draw nothing are not counted. Bin i of the histogram counts the
+ * branches whose length is at least 2^i and below 2^(i+1) (bin 0 includes
+ * everything shorter, the last bin everything longer).
+ *
+ * The bounds of the drawing are given up front, so the boxes every segment
+ * touches are marked while walking and memory stays the same whatever the
+ * size of the drawing: one bit grid per scale, the finest with 2048 x 2048
+ * boxes, and a fixed chunk of segments that is marked into all grids in
+ * parallel, one scale per task, whenever it fills up. The scales halve the box
+ * size from half the drawing's extent down to the mean segment length, below
+ * which a drawing only looks like lines; the dimension is the slope of
+ * log(count) over log(1 / box size).
+ *
+ * Retained geometry carries the depth of every segment but not the branch
+ * events, which {@link #of(SegmentBuffer)} and {@link #of(InstancedGeometry)}
+ * recover from the changes of depth. Sibling branches with nothing drawn
+ * between them, as in [F][F], are then counted as one.
+ */
+public class DrawingStatistics implements SegmentSink {
+
+	public static final int HISTOGRAM_BINS = 16;
+	private static final int MAX_SCALE = 11; // at most 2048 x 2048 boxes
+	private static final int CHUNK = 1 << 16;
+
+	private final float minX, minY;
+	private final double extent;
+	private final long[][] occupied = new long[MAX_SCALE][];
+
+	// Segments not yet marked into the box grids
+	private int chunkSize;
+	private final float[] x1 = new float[CHUNK];
+	private final float[] y1 = new float[CHUNK];
+	private final float[] x2 = new float[CHUNK];
+	private final float[] y2 = new float[CHUNK];
+
+	private long size;
+	private double pathLength;
+	private int maxDepth;
+	private double[] branchLengths = new double[16]; // length drawn so far by the open branch at each depth
+	private final long[] histogram = new long[HISTOGRAM_BINS];
+	private long branches;
+	private int replayDepth; // depth of the last segment replayed from retained geometry
+
+	private long[] boxCounts;
+	private double[] boxSizes;
+
+	/**
+	 * @param bounds the bounds of all segments that will be passed in
+	 */
+	public DrawingStatistics(Rectangle2D bounds) {
+		this.minX = (float) bounds.getMinX();
+		this.minY = (float) bounds.getMinY();
+		this.extent = Math.max(bounds.getWidth(), bounds.getHeight());
+		for (int k = 0; k < MAX_SCALE; k++) {
+			long boxes = 2L << k;
+			occupied[k] = new long[(int) ((boxes * boxes + 63) >>> 6)];
+		}
+	}
+
+	@Override
+	public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth) {
+		if (chunkSize == CHUNK) {
+			markChunk();
+		}
+		this.x1[chunkSize] = x1;
+		this.y1[chunkSize] = y1;
+		this.x2[chunkSize] = x2;
+		this.y2[chunkSize] = y2;
+		chunkSize++;
+		size++;
+
+		double length = Math.hypot(x2 - x1, y2 - y1);
+		pathLength += length;
+		maxDepth = Math.max(maxDepth, depth);
+		ensureDepth(depth);
+		branchLengths[depth] += length;
+		boxCounts = null;
+	}
+
+	@Override
+	public void push(int depth) {
+		ensureDepth(depth);
+		branchLengths[depth] = 0;
+	}
+
+	@Override
+	public void pop(int depth) {
+		// The branch one deeper than the restored depth has ended
+		double length = branchLengths[depth + 1];
+		if (length > 0) {
+			int bin = length < 2 ? 0 : 63 - Long.numberOfLeadingZeros((long) length);
+			histogram[Math.min(bin, HISTOGRAM_BINS - 1)]++;
+			branches++;
+		}
+	}
+
+	private void ensureDepth(int depth) {
+		if (depth + 1 >= branchLengths.length) {
+			branchLengths = Arrays.copyOf(branchLengths, Math.max(branchLengths.length * 2, depth + 2));
+		}
+	}
+
+	/*
+	 * Emits the branch events that lead from the depth of the previous replayed
+	 * segment to the given one.
+	 */
+	private void replayDepth(int depth) {
+		for (; replayDepth > depth; replayDepth--) {
+			pop(replayDepth - 1);
+		}
+		for (; replayDepth < depth; replayDepth++) {
+			push(replayDepth + 1);
+		}
+	}
+
+	/**
+	 * Walks the symbols with a turtle and returns their statistics. The symbols
+	 * are walked twice, first for the bounds of the drawing.
+	 */
+	public static DrawingStatistics of(CharSequence symbols, Map<Character, TurtleCommand> commandMap, double angle,
+			double step) {
+		TurtleInterpreter interpreter = new TurtleInterpreter(commandMap, angle, step, 1, Color.BLACK);
+		float[] extremes = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+				Float.NEGATIVE_INFINITY };
+		interpreter.interpret(symbols, new Turtle((x1, y1, x2, y2, colour, thickness, depth) -> {
+			extremes[0] = Math.min(extremes[0], Math.min(x1, x2));
+			extremes[1] = Math.min(extremes[1], Math.min(y1, y2));
+			extremes[2] = Math.max(extremes[2], Math.max(x1, x2));
+			extremes[3] = Math.max(extremes[3], Math.max(y1, y2));
+		}, 0, 0));
+		Rectangle2D.Float bounds = extremes[0] > extremes[2] ? new Rectangle2D.Float()
+				: new Rectangle2D.Float(extremes[0], extremes[1], extremes[2] - extremes[0], extremes[3] - extremes[1]);
+		DrawingStatistics statistics = new DrawingStatistics(bounds);
+		interpreter.interpret(symbols, new Turtle(statistics, 0, 0));
+		return statistics;
+	}
+
+	/**
+	 * Returns the statistics of retained geometry, in the order its segments
+	 * were drawn.
+	 */
+	public static DrawingStatistics of(SegmentBuffer geometry) {
+		DrawingStatistics statistics = new DrawingStatistics(geometry.getBounds());
+		for (int i = 0; i < geometry.size(); i++) {
+			statistics.replayDepth(geometry.getDepth(i));
+			statistics.segment(geometry.getX1(i), geometry.getY1(i), geometry.getX2(i), geometry.getY2(i), null, 1,
+					geometry.getDepth(i));
+		}
+		statistics.replayDepth(0);
+		return statistics;
+	}
+
+	/**
+	 * Returns the statistics of a drawing kept as display lists, flattening
+	 * them segment by segment.
+	 */
+	public static DrawingStatistics of(InstancedGeometry instances) {
+		DrawingStatistics statistics = new DrawingStatistics(instances.getBounds());
+		instances.flatten((x1, y1, x2, y2, colour, thickness, depth) -> {
+			statistics.replayDepth(depth);
+			statistics.segment(x1, y1, x2, y2, colour, thickness, depth);
+		}, Color.BLACK, 1);
+		statistics.replayDepth(0);
+		return statistics;
+	}
+
+	public long getSegments() {
+		return size;
+	}
+
+	public double getPathLength() {
+		return pathLength;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the number of branches that drew something.
+	 */
+	public long getBranches() {
+		return branches;
+	}
+
+	/**
+	 * Returns the branch length histogram (see the class comment).
+	 */
+	public long[] getBranchHistogram() {
+		return histogram.clone();
+	}
+
+	/**
+	 * Returns the box sizes used for box counting, largest first.
+	 */
+	public double[] getBoxSizes() {
+		countBoxes();
+		return boxSizes.clone();
+	}
+
+	/**
+	 * Returns the number of boxes the drawing touches at each box size.
+	 */
+	public long[] getBoxCounts() {
+		countBoxes();
+		return boxCounts.clone();
+	}
+
+	/**
+	 * Returns the box-counting dimension, or NaN if the drawing is too small to
+	 * be measured at two scales.
+	 */
+	public double getBoxCountingDimension() {
+		countBoxes();
+		int n = boxCounts.length;
+		if (n < 2) {
+			return Double.NaN;
+		}
+		// Least squares slope of log(count) over log(1 / size)
+		double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+		for (int k = 0; k < n; k++) {
+			double x = -Math.log(boxSizes[k]);
+			double y = Math.log(boxCounts[k]);
+			sumX += x;
+			sumY += y;
+			sumXX += x * x;
+			sumXY += x * y;
+		}
+		return (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+	}
+
+	private void countBoxes() {
+		if (boxCounts != null) {
+			return;
+		}
+		markChunk();
+		double meanLength = size == 0 ? 0 : pathLength / size;
+		int scales = 0;
+		while (scales < MAX_SCALE && extent > 0 && extent / (2 << scales) >= meanLength) {
+			scales++;
+		}
+		double[] sizes = new double[scales];
+		long[] counts = new long[scales];
+		for (int k = 0; k < scales; k++) {
+			sizes[k] = extent / (2 << k);
+			for (long word : occupied[k]) {
+				counts[k] += Long.bitCount(word);
+			}
+		}
+		boxSizes = sizes;
+		boxCounts = counts;
+	}
+
+	/*
+	 * Marks the buffered segments into the grids of all scales and empties the
+	 * chunk.
+	 */
+	private void markChunk() {
+		if (extent > 0 && chunkSize > 0) {
+			IntStream.range(0, MAX_SCALE).parallel().forEach(k -> markBoxes(occupied[k], 2 << k, extent / (2 << k)));
+		}
+		chunkSize = 0;
+	}
+
+	/*
+	 * Marks the boxes of a grid with the given number of boxes per side that
+	 * the buffered segments pass through, sampling every segment at half a box.
+	 */
+	private void markBoxes(long[] occupied, int boxes, double boxSize) {
+		for (int i = 0; i < chunkSize; i++) {
+			double dx = x2[i] - x1[i];
+			double dy = y2[i] - y1[i];
+			int samples = (int) Math.ceil(Math.hypot(dx, dy) / (boxSize / 2)) + 1;
+			for (int s = 0; s < samples; s++) {
+				double t = samples == 1 ? 0 : (double) s / (samples - 1);
+				int bx = Math.max(0, Math.min(boxes - 1, (int) ((x1[i] + dx * t - minX) / boxSize)));
+				int by = Math.max(0, Math.min(boxes - 1, (int) ((y1[i] + dy * t - minY) / boxSize)));
+				long cell = (long) by * boxes + bx;
+				occupied[(int) (cell >>> 6)] |= 1L << cell;
+			}
+		}
+	}
+
+	/**
+	 * Returns the statistics as lines of text.
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Segments: %d%n", getSegments()));
+		report.append(String.format("Path length: %.1f%n", pathLength));
+		report.append(String.format("Maximum depth: %d%n", maxDepth));
+		report.append(String.format("Box-counting dimension: %.3f%n", getBoxCountingDimension()));
+		report.append(String.format("Branches: %d%n", branches));
+		for (int i = 0; i < HISTOGRAM_BINS; i++) {
+			if (histogram[i] > 0) {
+				report.append(String.format("  length %s %d: %d%n", i == HISTOGRAM_BINS - 1 ? ">=" : "<",
+						i == HISTOGRAM_BINS - 1 ? 1L << i : 2L << i, histogram[i]));
+			}
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Prints the statistics of one L-System, or one line per entry of a catalog
+	 * file, from the command line.
+	 *
+	 * Usage: stats [--axiom F] [--rules "F→F[+F]F[-F]F"] [--iterations 4]
+	 * [--angle 25.7] [--step 10] [--seed 0] | stats --catalog file
+	 * [--max-symbols 20000000]
+	 */
+	public static void main(String[] args) {
+		String axiom = "F";
+		String rules = "F→F[+F]F[-F]F";
+		int iterations = 4;
+		double angle = 25.7;
+		double step = 10;
+		long seed = 0;
+		String catalogFile = null;
+		long maxSymbols = 20_000_000;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--axiom" -> axiom = args[++i];
+			case "--rules" -> rules = args[++i];
+			case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+			case "--angle" -> angle = Double.parseDouble(args[++i]);
+			case "--step" -> step = Double.parseDouble(args[++i]);
+			case "--seed" -> seed = Long.parseLong(args[++i]);
+			case "--catalog" -> catalogFile = args[++i];
+			case "--max-symbols" -> maxSymbols = Long.parseLong(args[++i]);
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if (catalogFile == null) {
+			LSystemParser lSystem = new LSystemParser(axiom, rules, iterations, seed);
+			System.out.print(of(lSystem.generateLSystemString(), TurtleCommand.PREDEFINED_COMMANDS, angle, step)
+					.report());
+			return;
+		}
+
+		GrammarCatalog catalog = new GrammarCatalog(List.of(Paths.get(catalogFile)));
+		catalog.reload();
+		System.out.println("name\tsegments\tpath length\tmax depth\tbranches\tdimension");
+		for (GrammarCatalog.Entry entry : catalog.search("", Integer.MAX_VALUE)) {
+			PredefinedLSystem preset = catalog.load(entry);
+			LSystemParser lSystem = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations());
+			if (lSystem.getGrowthTable().length(preset.getIterations()) > maxSymbols) {
+				System.out.println(preset.getName() + "\tskipped: more than " + maxSymbols + " symbols");
+				continue;
+			}
+			DrawingStatistics statistics = of(lSystem.generateLSystemString(), TurtleCommand.PREDEFINED_COMMANDS,
+					preset.getAngle(), preset.getStep());
+			System.out.printf("%s\t%d\t%.1f\t%d\t%d\t%.3f%n", preset.getName(), statistics.getSegments(),
+					statistics.getPathLength(), statistics.getMaxDepth(), statistics.getBranches(),
+					statistics.getBoxCountingDimension());
+		}
+	}
+}
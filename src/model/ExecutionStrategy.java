@@ -0,0 +1,16 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+/**
+ * Enum representing how an L-System expansion is held in memory, chosen by the
+ * {@link MemoryGovernor} before anything is allocated.
+ */
+public enum ExecutionStrategy {
+	MATERIALIZED, // Expanded into an ordinary String
+	COMPRESSED,   // Expanded into one byte per symbol
+	DISK_BACKED,  // Expanded into a memory-mapped file outside of the heap
+	STREAMING,    // Never expanded; symbols are derived on demand while walking
+	REFUSED       // Too large to draw at all
+}
@@ -0,0 +1,65 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+/**
+ * The outcome of a {@link MemoryGovernor} decision: the predicted size of an
+ * expansion, the strategy chosen to hold it and a human readable explanation
+ * of why.
+ */
+public class ExpansionPlan {
+	private final ExecutionStrategy strategy;
+	private final long predictedLength;
+	private final long predictedSegments;
+	private final long estimatedBytes;
+	private final long availableBytes;
+	private final String explanation;
+
+	public ExpansionPlan(ExecutionStrategy strategy, long predictedLength, long predictedSegments,
+			long estimatedBytes, long availableBytes, String explanation) {
+		this.strategy = strategy;
+		this.predictedLength = predictedLength;
+		this.predictedSegments = predictedSegments;
+		this.estimatedBytes = estimatedBytes;
+		this.availableBytes = availableBytes;
+		this.explanation = explanation;
+	}
+
+	// Getters
+	public ExecutionStrategy getStrategy() {
+		return strategy;
+	}
+
+	public long getPredictedLength() {
+		return predictedLength;
+	}
+
+	public long getPredictedSegments() {
+		return predictedSegments;
+	}
+
+	/**
+	 * Returns the estimated peak heap usage of the chosen strategy.
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	public long getAvailableBytes() {
+		return availableBytes;
+	}
+
+	public String getExplanation() {
+		return explanation;
+	}
+
+	public boolean isRefused() {
+		return strategy == ExecutionStrategy.REFUSED;
+	}
+
+	@Override
+	public String toString() {
+		return strategy + ": " + explanation;
+	}
+}
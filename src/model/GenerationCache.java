@@ -0,0 +1,362 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * GenerationCache keeps previously generated L-System strings in a directory on
+ * disk so that presets and repeated inputs do not have to be expanded again on
+ * the next run.
+ *
+ * Each entry is stored in its own file named after a content hash of the axiom,
+ * the production rules, the iteration count (and the seed, for stochastic
+ * rules) and the cache format version. A file holds a small little-endian
+ * header followed by the symbols, one byte per symbol when every symbol fits
+ * into Latin-1 and two bytes otherwise. Entries are read into the heap in one
+ * piece, since they are returned as Strings anyway, verified with a CRC32
+ * checksum and silently regenerated when they turn out to be damaged.
+ *
+ * Only expansions that are drawn from their string go through the cache:
+ * {@link RenderPipeline} asks it for grammars that are drawn in 3D or cannot
+ * be instanced, and for the symbols tools such as the parameter sweep need.
+ * Grammars drawn with {@link InstancedGeometry} never expand their string to
+ * render, so they are neither read from nor written to it.
+ *
+ * The total size of the directory is bounded; when it grows beyond the limit
+ * the least recently used entries (by file modification time, which is
+ * refreshed on every hit) are removed first.
+ */
+public class GenerationCache {
+
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x4359534C; // "LSYC" in little-endian order
+	private static final int HEADER_BYTES = 4 + 4 + 1 + 4 + 8; // magic, version, encoding, length, crc
+	private static final byte LATIN1 = 0;
+	private static final byte UTF16 = 1;
+	private static final String FILE_SUFFIX = ".lsc";
+	private static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	private final Path directory;
+	private final long maxBytes;
+
+	public GenerationCache(Path directory, long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Cache size limit must be positive.");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cache stored in the user's home directory
+	 * (~/.lsystem/cache/generations). The location can be overridden with the
+	 * system property "lsystem.cache.dir".
+	 */
+	public static GenerationCache defaultCache() {
+		return new GenerationCache(baseDirectory().resolve("generations"), DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Returns the root directory shared by all on-disk caches of the application.
+	 */
+	public static Path baseDirectory() {
+		return Paths.get(System.getProperty("lsystem.cache.dir",
+				Paths.get(System.getProperty("user.home"), ".lsystem", "cache").toString()));
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the expanded L-System string, reading it from the cache when a valid
+	 * entry exists and generating (and storing) it otherwise.
+	 *
+	 * @return the final L-System string after all iterations
+	 */
+	public String getOrGenerate(String axiom, String rules, int iterations) {
+		return getOrGenerate(axiom, rules, iterations, 0);
+	}
+
+	/**
+	 * Like {@link #getOrGenerate(String, String, int)}, with the seed of a
+	 * stochastic grammar. The seed is only part of the key when the rules are
+	 * stochastic, so deterministic entries are shared by all seeds.
+	 */
+	public String getOrGenerate(String axiom, String rules, int iterations, long seed) {
+		// Constructing the parser validates the rules before anything is read
+		LSystemParser parser = new LSystemParser(axiom, rules, iterations, seed);
+		if (axiom == null || axiom.isBlank()) {
+			return parser.generateLSystemString(); // reports the invalid axiom
+		}
+
+		String key = parser.isStochastic() ? key(axiom, rules, iterations, seed) : key(axiom, rules, iterations);
+		String cached = load(key);
+		if (cached != null) {
+			return cached;
+		}
+		String generated = parser.generateLSystemString();
+		store(key, generated);
+		return generated;
+	}
+
+	/**
+	 * Generates and stores every predefined L-System that is not yet cached.
+	 * Intended to be run on a background thread after the UI is shown.
+	 */
+	public void warm(PredefinedLSystem[] presets) {
+		for (PredefinedLSystem preset : presets) {
+			try {
+				getOrGenerate(preset.getAxiom(), preset.getRules(), preset.getIterations());
+			} catch (RuntimeException e) {
+				System.err.println("Could not warm cache for '" + preset.getName() + "': " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Computes the content hash identifying a generation. Whitespace in the rules
+	 * is ignored in the same way as by {@link LSystemParser#parseRules(String)}.
+	 */
+	public static String key(String axiom, String rules, int iterations) {
+		return hash(FORMAT_VERSION + "\u0000" + axiom + "\u0000" + rules.replaceAll("\\s+", "") + "\u0000"
+				+ iterations);
+	}
+
+	/**
+	 * Computes the content hash identifying a generation of a stochastic
+	 * grammar, which also depends on the seed.
+	 */
+	public static String key(String axiom, String rules, int iterations, long seed) {
+		return hash(FORMAT_VERSION + "\u0000" + axiom + "\u0000" + rules.replaceAll("\\s+", "") + "\u0000"
+				+ iterations + "\u0000" + seed);
+	}
+
+	/**
+	 * Returns the hex encoded SHA-256 hash of the given content, for use as a
+	 * content-addressed file name.
+	 */
+	public static String hash(String content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+
+	/**
+	 * Reads a cached generation. Returns null when there is no entry or when the
+	 * entry is damaged, in which case the file is removed.
+	 */
+	public String load(String key) {
+		Path file = fileFor(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try {
+			long size = Files.size(file);
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE - 8) {
+				throw new IOException("Unexpected file size " + size);
+			}
+			String value = decode(Files.readAllBytes(file));
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return value;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Discarding damaged cache entry " + file.getFileName() + ": " + e.getMessage());
+			deleteQuietly(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a generation to the cache and evicts old entries if the size limit
+	 * is exceeded. Failures are reported but never propagated: the cache is only
+	 * an optimisation.
+	 */
+	public void store(String key, String value) {
+		try {
+			Files.createDirectories(directory);
+			ByteBuffer buffer = encode(value);
+
+			// Write to a temporary file first so readers never see a partial entry
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+				try {
+					Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					Files.move(temp, fileFor(key), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				// Only left over when writing or moving failed
+				deleteQuietly(temp);
+			}
+			evict();
+		} catch (IOException e) {
+			System.err.println("Could not write cache entry: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries until the directory fits within the
+	 * size limit.
+	 */
+	private synchronized void evict() throws IOException {
+		evictLeastRecentlyUsed(directory, "*" + FILE_SUFFIX, maxBytes);
+	}
+
+	/**
+	 * Deletes the files of the directory matching the glob, oldest modification
+	 * time first, until those left take at most maxBytes. Caches that refresh the
+	 * modification time of an entry on every hit thereby drop the least recently
+	 * used entries first.
+	 */
+	public static void evictLeastRecentlyUsed(Path directory, String glob, long maxBytes) throws IOException {
+		List<Path> entries = new ArrayList<>();
+		long total = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+			for (Path entry : stream) {
+				entries.add(entry);
+				total += Files.size(entry);
+			}
+		}
+		if (total <= maxBytes) {
+			return;
+		}
+		entries.sort(Comparator.comparing(GenerationCache::lastModified));
+		for (Path entry : entries) {
+			if (total <= maxBytes) {
+				break;
+			}
+			long size = Files.size(entry);
+			if (deleteQuietly(entry)) {
+				total -= size;
+			}
+		}
+	}
+
+	/*
+	 * Serializes a string into the binary entry layout.
+	 */
+	private ByteBuffer encode(String value) {
+		boolean latin1 = isLatin1(value);
+		int payloadBytes = latin1 ? value.length() : value.length() * 2;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payloadBytes).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(HEADER_BYTES);
+		if (latin1) {
+			buffer.put(value.getBytes(StandardCharsets.ISO_8859_1));
+		} else {
+			buffer.asCharBuffer().put(value);
+			buffer.position(buffer.position() + payloadBytes);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), HEADER_BYTES, payloadBytes);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT_VERSION);
+		buffer.put(8, latin1 ? LATIN1 : UTF16);
+		buffer.putInt(9, value.length());
+		buffer.putLong(13, crc.getValue());
+		buffer.rewind();
+		return buffer;
+	}
+
+	/*
+	 * Validates the header and checksum of an entry and decodes its symbols.
+	 */
+	private String decode(byte[] entry) throws IOException {
+		if (entry.length < HEADER_BYTES) {
+			throw new IOException("Unexpected file size " + entry.length);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(entry).order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Bad magic number");
+		}
+		if (buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Unsupported format version " + buffer.getInt(4));
+		}
+		byte encoding = buffer.get(8);
+		int length = buffer.getInt(9);
+		long expectedCrc = buffer.getLong(13);
+		if (encoding != LATIN1 && encoding != UTF16) {
+			throw new IOException("Unknown encoding " + encoding);
+		}
+		long payloadBytes = encoding == LATIN1 ? length : 2L * length;
+		if (length < 0 || HEADER_BYTES + payloadBytes != entry.length) {
+			throw new IOException("Length does not match file size");
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(entry, HEADER_BYTES, (int) payloadBytes);
+		if (crc.getValue() != expectedCrc) {
+			throw new IOException("Checksum mismatch");
+		}
+		if (encoding == LATIN1) {
+			return new String(entry, HEADER_BYTES, length, StandardCharsets.ISO_8859_1);
+		}
+		char[] chars = new char[length];
+		buffer.position(HEADER_BYTES);
+		buffer.asCharBuffer().get(chars);
+		return new String(chars);
+	}
+
+	private Path fileFor(String key) {
+		return directory.resolve(key + FILE_SUFFIX);
+	}
+
+	private static boolean isLatin1(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 0xFF) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static FileTime lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	private static boolean deleteQuietly(Path path) {
+		try {
+			return Files.deleteIfExists(path);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
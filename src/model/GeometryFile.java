@@ -0,0 +1,180 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes interpreted drawings in a compact, versioned binary format
+ * so that expensive renders can be reopened without generating or interpreting
+ * the L-System again.
+ *
+ * Layout (all values little-endian):
+ *
+ * <pre>
+ * header   int magic "LSGF", int version, int segmentCount, int styleCount,
+ *          int maxDepth, float minX, float minY, float maxX, float maxY
+ * styles   int argb[styleCount], float width[styleCount]
+ * columns  float x1[n], float y1[n], float x2[n], float y2[n],
+ *          int style[n], int depth[n]
+ * </pre>
+ *
+ * Every block is written and read through memory-mapped regions, one region per
+ * column, so drawings with tens of millions of segments are copied in bulk
+ * rather than value by value.
+ */
+public class GeometryFile {
+
+	public static final int FORMAT_VERSION = 1;
+	public static final String EXTENSION = "lsg";
+
+	private static final int MAGIC = 0x4647534C; // "LSGF" in little-endian order
+	private static final int HEADER_BYTES = 5 * 4 + 4 * 4;
+
+	private GeometryFile() {
+	}
+
+	/**
+	 * Writes the given geometry to a file, replacing any existing content. The
+	 * drawing is written to a temporary file in the same directory first and then
+	 * moved over the target once it is flushed to disk, so a failed save or a crash
+	 * leaves the previous file intact and readers never see a partial one.
+	 */
+	public static void save(SegmentBuffer geometry, Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				write(geometry, channel);
+				// The mappings are flushed by write(); this also syncs the file's size and metadata
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			// Only left over when writing or moving failed
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void write(SegmentBuffer geometry, FileChannel channel) throws IOException {
+		int n = geometry.size();
+		int styles = geometry.getStyleCount();
+		long columnBytes = 4L * n;
+		long total = HEADER_BYTES + 8L * styles + 6 * columnBytes;
+
+		MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 8L * styles);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(styles).putInt(geometry.getMaxDepth());
+		Rectangle2D.Float bounds = geometry.getBounds();
+		header.putFloat(bounds.x).putFloat(bounds.y).putFloat(bounds.x + bounds.width)
+				.putFloat(bounds.y + bounds.height);
+		for (int i = 0; i < styles; i++) {
+			header.putInt(geometry.getStyleArgb(i));
+		}
+		for (int i = 0; i < styles; i++) {
+			header.putFloat(geometry.getStyleWidth(i));
+		}
+		header.force();
+
+		long offset = HEADER_BYTES + 8L * styles;
+		float[][] floatColumns = { geometry.x1Column(), geometry.y1Column(), geometry.x2Column(),
+				geometry.y2Column() };
+		for (float[] column : floatColumns) {
+			MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, offset, columnBytes);
+			buffer.asFloatBuffer().put(column, 0, n);
+			buffer.force();
+			offset += columnBytes;
+		}
+		MappedByteBuffer style = map(channel, FileChannel.MapMode.READ_WRITE, offset, columnBytes);
+		style.asIntBuffer().put(geometry.styleColumn(), 0, n);
+		style.force();
+		offset += columnBytes;
+		MappedByteBuffer depth = map(channel, FileChannel.MapMode.READ_WRITE, offset, columnBytes);
+		depth.asIntBuffer().put(geometry.depthColumn(), 0, n);
+		depth.force();
+
+		if (offset + columnBytes != total) {
+			throw new IllegalStateException("Geometry file layout mismatch.");
+		}
+	}
+
+	/**
+	 * Loads a drawing previously written by {@link #save(SegmentBuffer, Path)}.
+	 *
+	 * @throws IOException if the file is not a geometry file, uses an unsupported
+	 *                     version or is truncated
+	 */
+	public static SegmentBuffer load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException("Not a geometry file: " + file.getFileName());
+			}
+			MappedByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("Not a geometry file: " + file.getFileName());
+			}
+			int version = header.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported geometry file version: " + version);
+			}
+			int n = header.getInt();
+			int styles = header.getInt();
+			int maxDepth = header.getInt();
+			float minX = header.getFloat();
+			float minY = header.getFloat();
+			Rectangle2D.Float bounds = new Rectangle2D.Float(minX, minY, header.getFloat() - minX,
+					header.getFloat() - minY);
+			long columnBytes = 4L * n;
+			if (n < 0 || styles < 0 || size != HEADER_BYTES + 8L * styles + 6 * columnBytes) {
+				throw new IOException("Geometry file is truncated or damaged: " + file.getFileName());
+			}
+
+			int[] styleArgb = new int[styles];
+			float[] styleWidth = new float[styles];
+			MappedByteBuffer styleBlock = map(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 8L * styles);
+			styleBlock.asIntBuffer().get(styleArgb);
+			styleBlock.position(4 * styles);
+			styleBlock.asFloatBuffer().get(styleWidth);
+
+			long offset = HEADER_BYTES + 8L * styles;
+			float[][] floatColumns = new float[4][n];
+			for (float[] column : floatColumns) {
+				map(channel, FileChannel.MapMode.READ_ONLY, offset, columnBytes).asFloatBuffer().get(column);
+				offset += columnBytes;
+			}
+			int[] style = new int[n];
+			map(channel, FileChannel.MapMode.READ_ONLY, offset, columnBytes).asIntBuffer().get(style);
+			offset += columnBytes;
+			int[] depth = new int[n];
+			map(channel, FileChannel.MapMode.READ_ONLY, offset, columnBytes).asIntBuffer().get(depth);
+
+			for (int s : style) {
+				if (s < 0 || s >= styles) {
+					throw new IOException("Geometry file references an unknown style: " + s);
+				}
+			}
+			return new SegmentBuffer(n, floatColumns[0], floatColumns[1], floatColumns[2], floatColumns[3], style,
+					depth, styleArgb, styleWidth, bounds, maxDepth);
+		}
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long length)
+			throws IOException {
+		MappedByteBuffer buffer = channel.map(mode, offset, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+}
@@ -0,0 +1,436 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * GrammarCatalog gives access to catalogs of L-Systems kept in preset files,
+ * one entry per line in the form
+ *
+ * new PredefinedLSystem("Name", "axiom", "rules", angle, step, iterations)
+ *
+ * optionally followed by the thickness; other lines are ignored. The files are
+ * not parsed up front: {@link #reload()} only indexes the name, position and
+ * length of every entry, and an entry is read from its file and parsed when it
+ * is {@link #load loaded}. Names can be searched by prefix in the sorted index,
+ * and reloading re-reads only files whose size or modification time changed.
+ *
+ * The catalog may also hold the preset file bundled with the application,
+ * read once from the class path and kept in memory; its entries come before
+ * those of the files. Entries with the same name as an earlier one (in the
+ * order of the files) are left out. The index is replaced atomically, so
+ * searching and loading are safe while a reload runs on another thread.
+ */
+public class GrammarCatalog {
+
+	private static final Pattern NAME = Pattern.compile("^\\s*new\\s+PredefinedLSystem\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+	private static final String STRING = "\"((?:[^\"\\\\]|\\\\.)*)\"\\s*,\\s*";
+	private static final Pattern ENTRY = Pattern.compile("^\\s*new\\s+PredefinedLSystem\\(\\s*" + STRING + STRING
+			+ STRING + "([-+]?[0-9]*\\.?[0-9]+)\\s*,\\s*(\\d+)\\s*,\\s*(\\d+)(?:\\s*,\\s*(\\d+))?\\s*\\)");
+	private static final int LOADED_CAPACITY = 256;
+	private static final String BUNDLED_PRESETS = "/resources/Predefined L Systems.txt";
+
+	/**
+	 * An indexed entry: its name and where it is found.
+	 */
+	public static final class Entry {
+		private final String name;
+		private final Path file;
+		private final long offset;
+		private final int length;
+
+		Entry(String name, Path file, long offset, int length) {
+			this.name = name;
+			this.file = file;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the file of the entry, or null for an entry of the bundled
+		 * presets.
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/*
+	 * The entries of one file, in file order, with the state the file was
+	 * indexed in.
+	 */
+	private static final class FileIndex {
+		final long modified;
+		final long size;
+		final String[] names;
+		final long[] offsets;
+		final int[] lengths;
+
+		FileIndex(long modified, long size, String[] names, long[] offsets, int[] lengths) {
+			this.modified = modified;
+			this.size = size;
+			this.names = names;
+			this.offsets = offsets;
+			this.lengths = lengths;
+		}
+	}
+
+	/*
+	 * The sorted index: keys[i] is the lower-case name of entries[i]. Both arrays
+	 * are published together and never changed.
+	 */
+	private static final class Snapshot {
+		final String[] keys;
+		final Entry[] entries;
+
+		Snapshot(String[] keys, Entry[] entries) {
+			this.keys = keys;
+			this.entries = entries;
+		}
+	}
+
+	private final byte[] bundled;
+	private final List<Path> sources;
+	private final Map<Path, FileIndex> files = new HashMap<>();
+	private FileIndex bundledIndex;
+
+	// Replaced as a whole by reload()
+	private volatile Snapshot snapshot = new Snapshot(new String[0], new Entry[0]);
+
+	private final Map<Entry, PredefinedLSystem> loaded = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Entry, PredefinedLSystem> eldest) {
+			return size() > LOADED_CAPACITY;
+		}
+	};
+	private int loads;
+
+	/**
+	 * Creates an empty catalog of the given preset files; directories stand for
+	 * all .txt files in them. Nothing is read until {@link #reload()}.
+	 */
+	public GrammarCatalog(List<Path> sources) {
+		this(null, sources);
+	}
+
+	/**
+	 * Creates an empty catalog of the given preset file content followed by the
+	 * given preset files.
+	 *
+	 * @param bundled content of a preset file kept in memory, or null
+	 */
+	public GrammarCatalog(byte[] bundled, List<Path> sources) {
+		this.bundled = bundled == null ? null : bundled.clone();
+		this.sources = List.copyOf(sources);
+	}
+
+	/**
+	 * Returns a catalog of the preset file bundled on the class path and of the
+	 * files and directories listed in the "lsystem.catalog" system property,
+	 * separated by the path separator.
+	 */
+	public static GrammarCatalog defaultCatalog() {
+		byte[] bundled = null;
+		try (InputStream in = GrammarCatalog.class.getResourceAsStream(BUNDLED_PRESETS)) {
+			if (in == null) {
+				System.err.println("Bundled presets '" + BUNDLED_PRESETS + "' are missing from the class path.");
+			} else {
+				bundled = in.readAllBytes();
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read bundled presets: " + e.getMessage());
+		}
+		List<Path> sources = new ArrayList<>();
+		String extra = System.getProperty("lsystem.catalog", "");
+		for (String path : extra.split(Pattern.quote(java.io.File.pathSeparator))) {
+			if (!path.isBlank()) {
+				sources.add(Paths.get(path.trim()));
+			}
+		}
+		return new GrammarCatalog(bundled, sources);
+	}
+
+	/**
+	 * Brings the index up to date: files that are new or whose size or
+	 * modification time changed are indexed again, files that disappeared are
+	 * dropped and all others keep their index.
+	 *
+	 * @return the number of files that were indexed
+	 */
+	public synchronized int reload() {
+		List<Path> paths = new ArrayList<>();
+		for (Path source : sources) {
+			if (Files.isDirectory(source)) {
+				try (var listing = Files.list(source)) {
+					listing.filter(path -> path.toString().endsWith(".txt")).sorted().forEach(paths::add);
+				} catch (IOException e) {
+					System.err.println("Could not list catalog directory '" + source + "': " + e.getMessage());
+				}
+			} else if (Files.isRegularFile(source)) {
+				paths.add(source);
+			}
+		}
+
+		int indexed = 0;
+		if (bundled != null && bundledIndex == null) {
+			try {
+				bundledIndex = index(new ByteArrayInputStream(bundled), 0, bundled.length);
+				indexed++;
+			} catch (IOException e) {
+				throw new IllegalStateException("Reading from memory cannot fail.", e);
+			}
+		}
+		Set<Path> present = new HashSet<>(paths);
+		boolean changed = files.keySet().retainAll(present);
+		for (Path path : paths) {
+			try {
+				long modified = Files.getLastModifiedTime(path).toMillis();
+				long size = Files.size(path);
+				FileIndex index = files.get(path);
+				if (index == null || index.modified != modified || index.size != size) {
+					files.put(path, index(path, modified, size));
+					indexed++;
+				}
+			} catch (IOException e) {
+				System.err.println("Could not index catalog file '" + path + "': " + e.getMessage());
+				changed |= files.remove(path) != null;
+			}
+		}
+		if (indexed > 0 || changed) {
+			rebuild(paths);
+		}
+		synchronized (loaded) {
+			loaded.keySet().removeIf(entry -> entry.file != null && !present.contains(entry.file));
+		}
+		return indexed;
+	}
+
+	/*
+	 * Records the name and byte range of every entry line of a file.
+	 */
+	private static FileIndex index(Path path, long modified, long size) throws IOException {
+		try (InputStream in = Files.newInputStream(path)) {
+			return index(in, modified, size);
+		}
+	}
+
+	private static FileIndex index(InputStream source, long modified, long size) throws IOException {
+		List<String> names = new ArrayList<>();
+		long[] offsets = new long[64];
+		int[] lengths = new int[64];
+		byte[] line = new byte[256];
+		try (InputStream in = new BufferedInputStream(source, 1 << 16)) {
+			long offset = 0;
+			long lineStart = 0;
+			int lineLength = 0;
+			int b;
+			while (true) {
+				b = in.read();
+				if (b == '\n' || b == -1) {
+					Matcher matcher = NAME.matcher(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+					if (matcher.find()) {
+						int n = names.size();
+						if (n == offsets.length) {
+							offsets = Arrays.copyOf(offsets, n * 2);
+							lengths = Arrays.copyOf(lengths, n * 2);
+						}
+						names.add(unescape(matcher.group(1)));
+						offsets[n] = lineStart;
+						lengths[n] = lineLength;
+					}
+					if (b == -1) {
+						break;
+					}
+					lineStart = offset + 1;
+					lineLength = 0;
+				} else {
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, lineLength * 2);
+					}
+					line[lineLength++] = (byte) b;
+				}
+				offset++;
+			}
+		}
+		int n = names.size();
+		return new FileIndex(modified, size, names.toArray(new String[0]), Arrays.copyOf(offsets, n),
+				Arrays.copyOf(lengths, n));
+	}
+
+	/*
+	 * Merges the file indexes into a new sorted snapshot.
+	 */
+	private void rebuild(List<Path> paths) {
+		List<Entry> merged = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		if (bundledIndex != null) {
+			for (int i = 0; i < bundledIndex.names.length; i++) {
+				if (seen.add(key(bundledIndex.names[i]))) {
+					merged.add(new Entry(bundledIndex.names[i], null, bundledIndex.offsets[i],
+							bundledIndex.lengths[i]));
+				}
+			}
+		}
+		for (Path path : paths) {
+			FileIndex index = files.get(path);
+			if (index == null) {
+				continue;
+			}
+			for (int i = 0; i < index.names.length; i++) {
+				if (seen.add(key(index.names[i]))) {
+					merged.add(new Entry(index.names[i], path, index.offsets[i], index.lengths[i]));
+				}
+			}
+		}
+		Entry[] sorted = merged.toArray(new Entry[0]);
+		Arrays.sort(sorted, (a, b) -> key(a.name).compareTo(key(b.name)));
+		String[] sortedKeys = new String[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			sortedKeys[i] = key(sorted[i].name);
+		}
+		snapshot = new Snapshot(sortedKeys, sorted);
+	}
+
+	private static String key(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Returns the number of indexed entries.
+	 */
+	public int size() {
+		return snapshot.entries.length;
+	}
+
+	/**
+	 * Returns the entries whose names start with the given prefix, ignoring
+	 * case, in name order.
+	 *
+	 * @param limit the most entries to return
+	 */
+	public List<Entry> search(String prefix, int limit) {
+		Snapshot snapshot = this.snapshot;
+		String[] keys = snapshot.keys;
+		Entry[] entries = snapshot.entries;
+		String key = key(prefix);
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keys[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		List<Entry> found = new ArrayList<>();
+		for (int i = low; i < keys.length && found.size() < limit && keys[i].startsWith(key); i++) {
+			found.add(entries[i]);
+		}
+		return found;
+	}
+
+	/**
+	 * Reads and parses an entry, or returns it from the entries loaded last.
+	 *
+	 * @throws IllegalStateException if the entry cannot be read or parsed, e.g.
+	 *                               because its file changed since it was
+	 *                               indexed
+	 */
+	public PredefinedLSystem load(Entry entry) {
+		synchronized (loaded) {
+			PredefinedLSystem preset = loaded.get(entry);
+			if (preset != null) {
+				return preset;
+			}
+		}
+		byte[] line = new byte[entry.length];
+		if (entry.file == null) {
+			System.arraycopy(bundled, (int) entry.offset, line, 0, entry.length);
+		} else {
+			try (RandomAccessFile file = new RandomAccessFile(entry.file.toFile(), "r")) {
+				file.seek(entry.offset);
+				file.readFully(line);
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read catalog entry '" + entry.name + "': " + e.getMessage(),
+						e);
+			}
+		}
+		PredefinedLSystem preset = parse(new String(line, StandardCharsets.UTF_8));
+		if (preset == null || !preset.getName().equals(entry.name)) {
+			throw new IllegalStateException(
+					"Catalog entry '" + entry.name + "' is invalid or its file has changed; please reload.");
+		}
+		synchronized (loaded) {
+			loaded.put(entry, preset);
+			loads++;
+		}
+		return preset;
+	}
+
+	/**
+	 * Parses one entry line.
+	 *
+	 * @return the preset, or null if the line is not a valid entry
+	 */
+	public static PredefinedLSystem parse(String line) {
+		Matcher matcher = ENTRY.matcher(line);
+		if (!matcher.find()) {
+			return null;
+		}
+		try {
+			int thickness = matcher.group(7) != null ? Integer.parseInt(matcher.group(7)) : 1;
+			return new PredefinedLSystem(unescape(matcher.group(1)), unescape(matcher.group(2)),
+					unescape(matcher.group(3)), Double.parseDouble(matcher.group(4)),
+					Integer.parseInt(matcher.group(5)), Integer.parseInt(matcher.group(6)), thickness, Color.BLACK);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String unescape(String literal) {
+		return literal.indexOf('\\') < 0 ? literal : literal.replaceAll("\\\\(.)", "$1");
+	}
+
+	/**
+	 * Returns how many entries have been read from their files so far.
+	 */
+	public int getLoads() {
+		synchronized (loaded) {
+			return loads;
+		}
+	}
+}
@@ -0,0 +1,603 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * GrammarEvolution searches for new plant shapes by evolving the productions
+ * of a deterministic L-System, written in the format of
+ * {@link LSystemParser#parseRules}. Productions are mutated (symbols, turns and
+ * whole branches are inserted, removed or flipped, always keeping the brackets
+ * balanced) and recombined (productions are taken from either parent and
+ * branches are grafted from one parent into the other); the rule symbols
+ * themselves never change.
+ *
+ * Candidates are scored without drawing anything: a turtle walk feeds
+ * {@link ShapeMetrics}, from which four objectives are taken, all of which are
+ * maximised:
+ *
+ * 0. how close the aspect of the bounding box is to the target aspect,
+ * 1. the symmetry about the stem,
+ * 2. the deepest branch,
+ * 3. how close the segment count is to the target count.
+ *
+ * The length of every candidate is predicted from its {@link GrowthTable}
+ * before it is expanded, so candidates above the size cap are rejected without
+ * being generated. Each generation is evaluated in parallel on a work-stealing
+ * {@link ForkJoinPool}, whose idle workers take over the remaining candidates
+ * when some take longer than others. All random choices are made on the calling
+ * thread, so a search with the same seed gives the same result on any number of
+ * threads.
+ *
+ * The best trade-offs found so far are kept in a Pareto front: no candidate in
+ * it is dominated by any other candidate evaluated. When the front grows beyond
+ * its limit, the candidate closest to another in objective space is dropped.
+ */
+public class GrammarEvolution {
+
+	public static final int OBJECTIVES = 4;
+	private static final int MAX_PRODUCTION_LENGTH = 48;
+	private static final int FRONT_LIMIT = 64;
+	private static final double CROSSOVER_RATE = 0.3;
+	private static final int MUTATION_ATTEMPTS = 8;
+	private static final int STEP = 10;
+
+	/**
+	 * Receives the progress of a search. Called on the thread running the search.
+	 */
+	public interface Listener {
+		void generationFinished(int generation, List<Candidate> front, double candidatesPerSecond);
+	}
+
+	/**
+	 * An evaluated set of productions.
+	 */
+	public static final class Candidate {
+		private final String axiom;
+		private final Map<Character, String> productions;
+		private final String rules;
+		private final long length;
+		private final ShapeMetrics metrics;
+		private final double[] objectives;
+
+		Candidate(String axiom, Map<Character, String> productions, long length, ShapeMetrics metrics,
+				double[] objectives) {
+			this.axiom = axiom;
+			this.productions = productions;
+			this.rules = format(productions);
+			this.length = length;
+			this.metrics = metrics;
+			this.objectives = objectives;
+		}
+
+		public String getAxiom() {
+			return axiom;
+		}
+
+		/**
+		 * Returns the rules in the format read by {@link LSystemParser}.
+		 */
+		public String getRules() {
+			return rules;
+		}
+
+		/**
+		 * Returns the predicted number of symbols, or 0 if the rules are invalid.
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * Returns the shape metrics, or null if the candidate was rejected.
+		 */
+		public ShapeMetrics getMetrics() {
+			return metrics;
+		}
+
+		public double getObjective(int objective) {
+			return objectives[objective];
+		}
+
+		/**
+		 * Returns true if the candidate was drawn, i.e. it was within the size cap
+		 * and drew at least one segment.
+		 */
+		public boolean isValid() {
+			return metrics != null;
+		}
+
+		/**
+		 * Returns true if this candidate is at least as good as the other in every
+		 * objective and better in at least one.
+		 */
+		public boolean dominates(Candidate other) {
+			boolean better = false;
+			for (int i = 0; i < OBJECTIVES; i++) {
+				if (objectives[i] < other.objectives[i]) {
+					return false;
+				}
+				better |= objectives[i] > other.objectives[i];
+			}
+			return better;
+		}
+
+		@Override
+		public String toString() {
+			if (!isValid()) {
+				return "rejected: " + rules;
+			}
+			return String.format("depth %d, symmetry %.2f, aspect %.2f, %d segments: %s", metrics.getMaxDepth(),
+					metrics.getSymmetry(), metrics.getAspect(), metrics.getSegments(), rules);
+		}
+	}
+
+	private final String axiom;
+	private final Map<Character, String> seedProductions;
+	private final int iterations;
+	private final double angle;
+	private final long maxLength;
+	private final double targetAspect;
+	private final long targetSegments;
+	private final SplittableRandom random;
+	private final char[] letters; // drawing symbols that may be inserted
+
+	private final List<Candidate> front = new ArrayList<>();
+	private long evaluations;
+	private long evaluationNanos;
+
+	/**
+	 * Creates a search starting from the given L-System.
+	 *
+	 * @param maxLength      the most symbols a candidate may expand into
+	 * @param targetAspect   the height to width ratio aimed for
+	 * @param targetSegments the number of segments aimed for
+	 * @throws IllegalArgumentException if the rules are invalid or not
+	 *                                  deterministic, or use symbols without a
+	 *                                  predefined command
+	 */
+	public GrammarEvolution(String axiom, String rules, int iterations, double angle, long maxLength,
+			double targetAspect, long targetSegments, long seed) {
+		LSystemParser parser = new LSystemParser(axiom, rules, iterations);
+		if (!parser.hasFixedProductions()) {
+			throw new IllegalArgumentException("Only rules with a single production per symbol can be evolved.");
+		}
+		if (maxLength < 1 || targetAspect <= 0 || targetSegments < 1) {
+			throw new IllegalArgumentException("Size cap, target aspect and target segments must be positive.");
+		}
+		this.axiom = axiom;
+		this.seedProductions = new TreeMap<>(parser.getRules());
+		this.iterations = iterations;
+		this.angle = angle;
+		this.maxLength = maxLength;
+		this.targetAspect = targetAspect;
+		this.targetSegments = targetSegments;
+		this.random = new SplittableRandom(seed);
+
+		TreeSet<Character> drawing = new TreeSet<>(seedProductions.keySet());
+		String symbols = axiom + String.join("", seedProductions.values());
+		for (char symbol : symbols.toCharArray()) {
+			TurtleCommand command = TurtleCommand.PREDEFINED_COMMANDS.get(symbol);
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + symbol + "'");
+			}
+			if (command == TurtleCommand.MOVE) {
+				drawing.add(symbol);
+			}
+		}
+		this.letters = new char[drawing.size()];
+		int i = 0;
+		for (char letter : drawing) {
+			letters[i++] = letter;
+		}
+	}
+
+	/**
+	 * Runs the search: the seed and its mutants form the first generation, each
+	 * following generation is bred from the better half of parents and
+	 * offspring.
+	 *
+	 * @param listener notified after every generation, may be null
+	 * @return the Pareto front
+	 */
+	public List<Candidate> run(int generations, int populationSize, ForkJoinPool pool, Listener listener) {
+		if (populationSize < 2) {
+			throw new IllegalArgumentException("The population needs at least two candidates.");
+		}
+		List<Map<Character, String>> genomes = new ArrayList<>();
+		genomes.add(seedProductions);
+		while (genomes.size() < populationSize) {
+			genomes.add(mutate(seedProductions));
+		}
+		List<Candidate> population = select(evaluate(genomes, pool), populationSize);
+		report(listener, 0);
+
+		for (int generation = 1; generation <= generations; generation++) {
+			List<Map<Character, String>> offspring = new ArrayList<>();
+			for (int i = 0; i < populationSize; i++) {
+				Map<Character, String> child = tournament(population).productions;
+				if (random.nextDouble() < CROSSOVER_RATE) {
+					child = crossover(child, tournament(population).productions);
+				}
+				offspring.add(mutate(child));
+			}
+			List<Candidate> combined = new ArrayList<>(population);
+			combined.addAll(evaluate(offspring, pool));
+			population = select(combined, populationSize);
+			report(listener, generation);
+		}
+		return getFront();
+	}
+
+	private void report(Listener listener, int generation) {
+		if (listener != null) {
+			listener.generationFinished(generation, getFront(), getCandidatesPerSecond());
+		}
+	}
+
+	/*
+	 * Evaluates the genomes on the pool, returning the candidates in the order
+	 * of the genomes, and adds them to the front.
+	 */
+	private List<Candidate> evaluate(List<Map<Character, String>> genomes, ForkJoinPool pool) {
+		long start = System.nanoTime();
+		List<ForkJoinTask<Candidate>> tasks = new ArrayList<>(genomes.size());
+		for (Map<Character, String> genome : genomes) {
+			tasks.add(pool.submit(() -> evaluate(genome)));
+		}
+		List<Candidate> candidates = new ArrayList<>(genomes.size());
+		for (ForkJoinTask<Candidate> task : tasks) {
+			candidates.add(task.join());
+		}
+		evaluationNanos += System.nanoTime() - start;
+		evaluations += candidates.size();
+		for (Candidate candidate : candidates) {
+			addToFront(candidate);
+		}
+		return candidates;
+	}
+
+	/*
+	 * Scores one genome. Runs on the pool's workers.
+	 */
+	private Candidate evaluate(Map<Character, String> productions) {
+		double[] rejected = new double[OBJECTIVES];
+		Arrays.fill(rejected, Double.NEGATIVE_INFINITY);
+		long length;
+		LSystemParser parser;
+		try {
+			parser = new LSystemParser(axiom, format(productions), iterations);
+			length = parser.getGrowthTable().length(iterations);
+		} catch (IllegalArgumentException e) {
+			return new Candidate(axiom, productions, 0, null, rejected);
+		}
+		if (length > maxLength) {
+			return new Candidate(axiom, productions, length, null, rejected);
+		}
+		String symbols;
+		try {
+			symbols = parser.generateLSystemString();
+		} catch (IllegalStateException e) {
+			// The governor refused the memory, e.g. while other candidates hold theirs
+			return new Candidate(axiom, productions, length, null, rejected);
+		}
+		ShapeMetrics metrics = new ShapeMetrics(0);
+		new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, angle, STEP, 1, Color.BLACK)
+				.interpret(symbols, new Turtle(metrics, 0, 0));
+		if (metrics.getSegments() == 0) {
+			return new Candidate(axiom, productions, length, null, rejected);
+		}
+		double[] objectives = {
+				-Math.abs(Math.log(Math.max(metrics.getAspect(), 1e-3) / targetAspect)),
+				metrics.getSymmetry(),
+				metrics.getMaxDepth(),
+				-Math.abs(Math.log((double) metrics.getSegments() / targetSegments)) };
+		return new Candidate(axiom, productions, length, metrics, objectives);
+	}
+
+	/*
+	 * Keeps the candidates dominated by the fewest others, in that order; ties
+	 * keep their order.
+	 */
+	private static List<Candidate> select(List<Candidate> candidates, int size) {
+		int[] dominatedBy = new int[candidates.size()];
+		for (int i = 0; i < candidates.size(); i++) {
+			for (Candidate other : candidates) {
+				if (other.dominates(candidates.get(i))) {
+					dominatedBy[i]++;
+				}
+			}
+		}
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			order.add(i);
+		}
+		order.sort(Comparator.comparingInt(i -> dominatedBy[i]));
+		List<Candidate> selected = new ArrayList<>(size);
+		for (int i = 0; i < Math.min(size, order.size()); i++) {
+			selected.add(candidates.get(order.get(i)));
+		}
+		return selected;
+	}
+
+	/*
+	 * Binary tournament; the population is sorted best first.
+	 */
+	private Candidate tournament(List<Candidate> population) {
+		int a = random.nextInt(population.size());
+		int b = random.nextInt(population.size());
+		return population.get(Math.min(a, b));
+	}
+
+	private void addToFront(Candidate candidate) {
+		if (!candidate.isValid()) {
+			return;
+		}
+		for (Candidate member : front) {
+			if (member.dominates(candidate) || member.rules.equals(candidate.rules)) {
+				return;
+			}
+		}
+		front.removeIf(candidate::dominates);
+		front.add(candidate);
+		if (front.size() > FRONT_LIMIT) {
+			front.remove(mostCrowded());
+		}
+	}
+
+	/*
+	 * Returns the index of the front member nearest to another one, with every
+	 * objective scaled to the range it spans on the front.
+	 */
+	private int mostCrowded() {
+		double[] min = new double[OBJECTIVES];
+		double[] range = new double[OBJECTIVES];
+		for (int k = 0; k < OBJECTIVES; k++) {
+			double low = Double.POSITIVE_INFINITY, high = Double.NEGATIVE_INFINITY;
+			for (Candidate member : front) {
+				low = Math.min(low, member.objectives[k]);
+				high = Math.max(high, member.objectives[k]);
+			}
+			min[k] = low;
+			range[k] = high > low ? high - low : 1;
+		}
+		int crowded = 0;
+		double nearest = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < front.size(); i++) {
+			for (int j = 0; j < front.size(); j++) {
+				if (i == j) {
+					continue;
+				}
+				double distance = 0;
+				for (int k = 0; k < OBJECTIVES; k++) {
+					double d = (front.get(i).objectives[k] - front.get(j).objectives[k]) / range[k];
+					distance += d * d;
+				}
+				if (distance < nearest) {
+					nearest = distance;
+					crowded = i;
+				}
+			}
+		}
+		return crowded;
+	}
+
+	/*
+	 * Changes one production; a change that yields an empty or too long
+	 * production is retried a few times before the genome is returned unchanged.
+	 */
+	private Map<Character, String> mutate(Map<Character, String> genome) {
+		Map<Character, String> mutant = new TreeMap<>(genome);
+		List<Character> keys = new ArrayList<>(mutant.keySet());
+		char key = keys.get(random.nextInt(keys.size()));
+		String production = mutant.get(key);
+		for (int attempt = 0; attempt < MUTATION_ATTEMPTS; attempt++) {
+			String mutated = mutateProduction(production);
+			if (!mutated.isEmpty() && mutated.length() <= MAX_PRODUCTION_LENGTH && !mutated.equals(production)) {
+				mutant.put(key, mutated);
+				break;
+			}
+		}
+		return mutant;
+	}
+
+	private String mutateProduction(String production) {
+		StringBuilder mutated = new StringBuilder(production);
+		int at = random.nextInt(production.length() + 1);
+		switch (random.nextInt(5)) {
+		case 0 -> mutated.insert(at, letter());
+		case 1 -> mutated.insert(at, turn());
+		case 2 -> mutated.insert(at, "[" + turn() + letter() + "]");
+		case 3 -> {
+			// Remove a symbol, or a whole branch if a bracket was picked
+			int i = random.nextInt(production.length());
+			char symbol = production.charAt(i);
+			if (symbol == '[') {
+				mutated.delete(i, matchingClose(production, i) + 1);
+			} else if (symbol == ']') {
+				mutated.delete(matchingOpen(production, i), i + 1);
+			} else {
+				mutated.deleteCharAt(i);
+			}
+		}
+		default -> {
+			// Flip the direction of a turn
+			int i = random.nextInt(production.length());
+			for (int n = 0; n < production.length(); n++, i = (i + 1) % production.length()) {
+				char symbol = production.charAt(i);
+				if (symbol == '+' || symbol == '-') {
+					mutated.setCharAt(i, symbol == '+' ? '-' : '+');
+					break;
+				}
+			}
+		}
+		}
+		return mutated.toString();
+	}
+
+	/*
+	 * Takes every production from either parent, then possibly grafts a branch
+	 * of the second parent into one production.
+	 */
+	private Map<Character, String> crossover(Map<Character, String> first, Map<Character, String> second) {
+		Map<Character, String> child = new TreeMap<>(first);
+		for (char key : first.keySet()) {
+			if (random.nextBoolean()) {
+				child.put(key, second.get(key));
+			}
+		}
+		List<Character> keys = new ArrayList<>(child.keySet());
+		char key = keys.get(random.nextInt(keys.size()));
+		String donor = second.get(keys.get(random.nextInt(keys.size())));
+		List<Integer> opens = new ArrayList<>();
+		for (int i = 0; i < donor.length(); i++) {
+			if (donor.charAt(i) == '[') {
+				opens.add(i);
+			}
+		}
+		if (!opens.isEmpty()) {
+			int open = opens.get(random.nextInt(opens.size()));
+			String branch = donor.substring(open, matchingClose(donor, open) + 1);
+			String production = child.get(key);
+			if (production.length() + branch.length() <= MAX_PRODUCTION_LENGTH) {
+				int at = random.nextInt(production.length() + 1);
+				child.put(key, production.substring(0, at) + branch + production.substring(at));
+			}
+		}
+		return child;
+	}
+
+	private char letter() {
+		return letters[random.nextInt(letters.length)];
+	}
+
+	private char turn() {
+		return random.nextBoolean() ? '+' : '-';
+	}
+
+	/*
+	 * Productions of the seed may have unbalanced brackets; an unmatched bracket
+	 * is paired with the end or the start of the production.
+	 */
+	private static int matchingClose(String production, int open) {
+		int depth = 0;
+		for (int i = open; i < production.length(); i++) {
+			char symbol = production.charAt(i);
+			if (symbol == '[') {
+				depth++;
+			} else if (symbol == ']' && --depth == 0) {
+				return i;
+			}
+		}
+		return production.length() - 1;
+	}
+
+	private static int matchingOpen(String production, int close) {
+		int depth = 0;
+		for (int i = close; i >= 0; i--) {
+			char symbol = production.charAt(i);
+			if (symbol == ']') {
+				depth++;
+			} else if (symbol == '[' && --depth == 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	private static String format(Map<Character, String> productions) {
+		StringBuilder rules = new StringBuilder();
+		for (Map.Entry<Character, String> production : productions.entrySet()) {
+			if (rules.length() > 0) {
+				rules.append(", ");
+			}
+			rules.append(production.getKey()).append('→').append(production.getValue());
+		}
+		return rules.toString();
+	}
+
+	/**
+	 * Returns the Pareto front, best symmetry first.
+	 */
+	public List<Candidate> getFront() {
+		List<Candidate> sorted = new ArrayList<>(front);
+		sorted.sort(Comparator.comparingDouble((Candidate candidate) -> -candidate.getObjective(1)));
+		return sorted;
+	}
+
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * Returns the number of candidates evaluated per second of evaluation time.
+	 */
+	public double getCandidatesPerSecond() {
+		return evaluationNanos == 0 ? 0 : evaluations * 1e9 / evaluationNanos;
+	}
+
+	/**
+	 * Runs a search from the command line and prints the progress and the
+	 * resulting Pareto front.
+	 *
+	 * Usage: evolve [--axiom X] [--rules "X→F[+X][-X]FX, F→FF"] [--iterations 5]
+	 * [--angle 25] [--generations 20] [--population 64] [--threads n]
+	 * [--max-symbols 200000] [--aspect 1.5] [--segments 2000] [--seed 1]
+	 */
+	public static void main(String[] args) {
+		String axiom = "X";
+		String rules = "X→F[+X][-X]FX, F→FF";
+		int iterations = 5;
+		double angle = 25;
+		int generations = 20;
+		int population = 64;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long maxSymbols = 200_000;
+		double aspect = 1.5;
+		long segments = 2000;
+		long seed = 1;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--axiom" -> axiom = args[++i];
+			case "--rules" -> rules = args[++i];
+			case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+			case "--angle" -> angle = Double.parseDouble(args[++i]);
+			case "--generations" -> generations = Integer.parseInt(args[++i]);
+			case "--population" -> population = Integer.parseInt(args[++i]);
+			case "--threads" -> threads = Integer.parseInt(args[++i]);
+			case "--max-symbols" -> maxSymbols = Long.parseLong(args[++i]);
+			case "--aspect" -> aspect = Double.parseDouble(args[++i]);
+			case "--segments" -> segments = Long.parseLong(args[++i]);
+			case "--seed" -> seed = Long.parseLong(args[++i]);
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		GrammarEvolution evolution = new GrammarEvolution(axiom, rules, iterations, angle, maxSymbols, aspect,
+				segments, seed);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Candidate> front = evolution.run(generations, population, pool,
+					(generation, current, perSecond) -> System.out.printf(
+							"generation %d: front of %d, %.0f candidates/s%n", generation, current.size(), perSecond));
+			System.out.printf("%d candidates evaluated, %.0f candidates/s on %d threads%n",
+					evolution.getEvaluations(), evolution.getCandidatesPerSecond(), threads);
+			for (Candidate candidate : front) {
+				System.out.println(candidate);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GrowthAnimation describes the frames of a growth sequence: the iteration
+ * depth steps from a first to a last depth and, at every depth, the angle
+ * factor steps through a list of values. Every frame is drawn with the same
+ * effective angle, step, thickness and colour formulas as the main window (see
+ * {@link RenderSettings}), so frame settings only differ from the base settings
+ * in their depth and angle factor.
+ *
+ * Frames are produced in order, depth first. The expansion of a depth is
+ * compiled into a {@link TurtleProgram}, which is replayed for every angle
+ * factor and kept only until the first frame of the next depth, so producing
+ * frames one after another holds at most one expansion in memory. Parametric
+ * expansions cannot be compiled and are interpreted as modules instead.
+ *
+ * All frames share one view, {@link #getBounds()}, so a fixed point of the
+ * drawing stays on the same pixel while the plant grows. Where the grammar can
+ * be instanced, the view is the union of the bounds of every frame, which
+ * {@link InstancedGeometry} works out from the rules without expanding any
+ * string. Otherwise it is the union of the frames of the last depth, which
+ * holds the earlier depths of a plant that grows outwards; frames reaching
+ * beyond it are clipped.
+ */
+public class GrowthAnimation {
+
+	private final String axiom;
+	private final String rules;
+	private final Map<Character, TurtleCommand> commandMap;
+	private final RenderSettings base;
+	private final int fromDepth;
+	private final int toDepth;
+	private final double[] angleFactors;
+
+	// Expansion of the most recently requested depth: compiled, or as modules if parametric
+	private int expandedDepth = -1;
+	private TurtleProgram program;
+	private CharSequence modules;
+	private Rectangle2D.Float bounds;
+
+	public GrowthAnimation(String axiom, String rules, Map<Character, TurtleCommand> commandMap, RenderSettings base,
+			int fromDepth, int toDepth, double[] angleFactors) {
+		if (fromDepth < 0 || toDepth < fromDepth) {
+			throw new IllegalArgumentException("Animation depths must run from 0 or more up to the last depth.");
+		}
+		if (angleFactors.length == 0) {
+			throw new IllegalArgumentException("An animation needs at least one angle factor.");
+		}
+		this.axiom = axiom;
+		this.rules = rules;
+		this.commandMap = commandMap;
+		this.base = base;
+		this.fromDepth = fromDepth;
+		this.toDepth = toDepth;
+		this.angleFactors = angleFactors.clone();
+	}
+
+	public int getFrameCount() {
+		return (toDepth - fromDepth + 1) * angleFactors.length;
+	}
+
+	/**
+	 * Returns the iteration depth of a frame.
+	 */
+	public int depthAt(int frame) {
+		return fromDepth + frame / angleFactors.length;
+	}
+
+	/**
+	 * Returns the settings a frame is drawn with.
+	 */
+	public RenderSettings settingsAt(int frame) {
+		if (frame < 0 || frame >= getFrameCount()) {
+			throw new IllegalArgumentException("Frame " + frame + " is outside the animation.");
+		}
+		return base.withIterations(depthAt(frame)).with(RenderSettings.Parameter.ANGLE_FACTOR,
+				angleFactors[frame % angleFactors.length]);
+	}
+
+	/**
+	 * Returns the number of symbols the longest frame expands into, without
+	 * expanding it.
+	 */
+	public long getMaxLength() {
+		return new LSystemParser(axiom, rules, toDepth, base.getSeed()).getGrowthTable().length(toDepth);
+	}
+
+	/**
+	 * Returns the view all frames are fitted to (see the class comment). Not
+	 * thread-safe, like {@link #geometryAt}.
+	 */
+	public Rectangle2D.Float getBounds() {
+		if (bounds == null) {
+			LSystemParser parser = new LSystemParser(axiom, rules, toDepth, base.getSeed());
+			boolean instanced = parser.hasFixedProductions()
+					&& InstancedGeometry.isInstanceable(parser.getRules(), commandMap);
+			BoundsSink sink = new BoundsSink();
+			for (int frame = instanced ? 0 : getFrameCount() - angleFactors.length; frame < getFrameCount(); frame++) {
+				RenderSettings settings = settingsAt(frame);
+				if (instanced) {
+					InstancedGeometry geometry = InstancedGeometry.build(axiom, parser.getRules(),
+							settings.getIterations(), commandMap, settings.effectiveAngle(), settings.effectiveStep());
+					if (geometry.getSegmentCount() > 0) {
+						Rectangle2D.Float frameBounds = geometry.getBounds();
+						sink.segment(frameBounds.x, frameBounds.y, frameBounds.x + frameBounds.width,
+								frameBounds.y + frameBounds.height, null, 0, 0);
+					}
+				} else {
+					walk(settings, new Turtle(sink, 0, 0));
+				}
+			}
+			bounds = sink.minX > sink.maxX ? new Rectangle2D.Float()
+					: new Rectangle2D.Float(sink.minX, sink.minY, sink.maxX - sink.minX, sink.maxY - sink.minY);
+		}
+		return (Rectangle2D.Float) bounds.clone();
+	}
+
+	/**
+	 * Interprets a frame into geometry. Not thread-safe; frames are meant to be
+	 * produced in order by a single thread.
+	 */
+	public SegmentBuffer geometryAt(int frame) {
+		RenderSettings settings = settingsAt(frame);
+		SegmentBuffer geometry = new SegmentBuffer();
+		walk(settings, new Turtle(geometry, 0, 0));
+		DepthStyle depthStyle = settings.depthStyle();
+		return depthStyle != null ? depthStyle.apply(geometry) : geometry;
+	}
+
+	private void walk(RenderSettings settings, Turtle turtle) {
+		expand(settings.getIterations());
+		TurtleInterpreter interpreter = new TurtleInterpreter(commandMap, settings.effectiveAngle(),
+				settings.effectiveStep(), settings.effectiveThickness(), settings.effectiveColour());
+		if (program != null) {
+			interpreter.interpret(program, turtle);
+		} else {
+			interpreter.interpret(modules, turtle);
+		}
+	}
+
+	private void expand(int depth) {
+		if (depth == expandedDepth) {
+			return;
+		}
+		// Let the previous expansion go before generating the next one
+		program = null;
+		modules = null;
+		expandedDepth = -1;
+		LSystemParser parser = new LSystemParser(axiom, rules, depth, base.getSeed());
+		if (parser.isParametric()) {
+			MemoryGovernor governor = new MemoryGovernor();
+			modules = parser.generate(parser.plan(governor, Set.of(), false), governor);
+		} else {
+			program = TurtleProgram.compile(parser.generateLSystemString(), commandMap);
+		}
+		expandedDepth = depth;
+	}
+
+	/*
+	 * Records the extent of the segments, as SegmentBuffer#getBounds would.
+	 */
+	private static final class BoundsSink implements SegmentSink {
+		private float minX = Float.POSITIVE_INFINITY;
+		private float minY = Float.POSITIVE_INFINITY;
+		private float maxX = Float.NEGATIVE_INFINITY;
+		private float maxY = Float.NEGATIVE_INFINITY;
+
+		@Override
+		public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth) {
+			minX = Math.min(minX, Math.min(x1, x2));
+			minY = Math.min(minY, Math.min(y1, y2));
+			maxX = Math.max(maxX, Math.max(x1, x2));
+			maxY = Math.max(maxY, Math.max(y1, y2));
+		}
+	}
+}
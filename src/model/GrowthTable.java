@@ -0,0 +1,199 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GrowthTable predicts the size of an L-System expansion without performing
+ * it. For every symbol of the alphabet and every depth up to the requested
+ * number of iterations it stores how many symbols that single symbol expands
+ * into. Lengths saturate at {@link Long#MAX_VALUE} instead of overflowing.
+ *
+ * The table also exposes the productions as arrays of symbol indices so that
+ * expansions can be traversed lazily (see {@link StreamingSymbolSequence}).
+ */
+public class GrowthTable {
+
+	private final int maxDepth;
+	private final char[] symbols;
+	private final int[][] productions; // null entry when a symbol has no rule
+	private final int[] axiom;
+	private final long[][] lengths; // [depth][symbol]
+	private final boolean latin1;
+
+	public GrowthTable(String axiom, Map<Character, String> rules, int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("Iterations cannot be negative.");
+		}
+		this.maxDepth = maxDepth;
+
+		// Collect the alphabet from the axiom and both sides of every rule
+		Map<Character, Integer> index = new HashMap<>();
+		StringBuilder alphabet = new StringBuilder();
+		StringBuilder all = new StringBuilder(axiom);
+		for (Map.Entry<Character, String> rule : rules.entrySet()) {
+			all.append(rule.getKey()).append(rule.getValue());
+		}
+		for (int i = 0; i < all.length(); i++) {
+			char c = all.charAt(i);
+			if (!index.containsKey(c)) {
+				index.put(c, alphabet.length());
+				alphabet.append(c);
+			}
+		}
+		this.symbols = alphabet.toString().toCharArray();
+
+		this.productions = new int[symbols.length][];
+		for (int s = 0; s < symbols.length; s++) {
+			String production = rules.get(symbols[s]);
+			if (production != null) {
+				productions[s] = toIndices(production, index);
+			}
+		}
+		this.axiom = toIndices(axiom, index);
+
+		this.lengths = new long[maxDepth + 1][symbols.length];
+		Arrays.fill(lengths[0], 1);
+		for (int d = 1; d <= maxDepth; d++) {
+			for (int s = 0; s < symbols.length; s++) {
+				lengths[d][s] = productions[s] == null ? 1 : sum(lengths[d - 1], productions[s]);
+			}
+		}
+
+		boolean fits = true;
+		for (char c : symbols) {
+			fits &= c <= 0xFF;
+		}
+		this.latin1 = fits;
+	}
+
+	/**
+	 * Returns the number of symbols the axiom expands into after the given number
+	 * of iterations.
+	 */
+	public long length(int depth) {
+		return sum(lengths[checkDepth(depth)], axiom);
+	}
+
+	/**
+	 * Returns the number of symbols a single symbol (given by its index) expands
+	 * into after the given number of iterations.
+	 */
+	public long length(int symbol, int depth) {
+		return lengths[checkDepth(depth)][symbol];
+	}
+
+	/**
+	 * Returns how many of the symbols produced after the given number of
+	 * iterations belong to the given set, e.g. how many will draw a segment.
+	 */
+	public long count(Set<Character> counted, int depth) {
+		checkDepth(depth);
+		long[] weights = new long[symbols.length];
+		for (int s = 0; s < symbols.length; s++) {
+			weights[s] = counted.contains(symbols[s]) ? 1 : 0;
+		}
+		for (int d = 1; d <= depth; d++) {
+			long[] next = new long[symbols.length];
+			for (int s = 0; s < symbols.length; s++) {
+				next[s] = productions[s] == null ? weights[s] : sum(weights, productions[s]);
+			}
+			weights = next;
+		}
+		return sum(weights, axiom);
+	}
+
+	/**
+	 * Returns true if every symbol of the alphabet fits into a single Latin-1
+	 * byte.
+	 */
+	public boolean isLatin1() {
+		return latin1;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public int getAlphabetSize() {
+		return symbols.length;
+	}
+
+	/**
+	 * Returns the approximate heap footprint of this table in bytes.
+	 */
+	public long estimatedBytes() {
+		return 8L * lengths.length * symbols.length + 4L * axiom.length + 64L * symbols.length;
+	}
+
+	/**
+	 * Returns a production that bounds a choice between several alternatives:
+	 * it holds every symbol as often as the alternative containing it most
+	 * often. Since it contains at least as many of each symbol as any of the
+	 * alternatives, a table built from such productions bounds the length of
+	 * every possible expansion, and the number of any symbol in it, from above.
+	 */
+	public static String boundingProduction(Collection<String> alternatives) {
+		Map<Character, Integer> counts = new LinkedHashMap<>();
+		for (String alternative : alternatives) {
+			Map<Character, Integer> own = new HashMap<>();
+			for (int i = 0; i < alternative.length(); i++) {
+				own.merge(alternative.charAt(i), 1, Integer::sum);
+			}
+			own.forEach((symbol, count) -> counts.merge(symbol, count, Math::max));
+		}
+		StringBuilder production = new StringBuilder();
+		counts.forEach((symbol, count) -> production.append(String.valueOf(symbol).repeat(count)));
+		return production.toString();
+	}
+
+	// Index-based access used by lazy traversals
+	char symbol(int index) {
+		return symbols[index];
+	}
+
+	int[] production(int index) {
+		return productions[index];
+	}
+
+	int[] axiom() {
+		return axiom;
+	}
+
+	private int checkDepth(int depth) {
+		if (depth < 0 || depth > maxDepth) {
+			throw new IllegalArgumentException("Depth " + depth + " outside of table range 0.." + maxDepth);
+		}
+		return depth;
+	}
+
+	private static int[] toIndices(String text, Map<Character, Integer> index) {
+		int[] result = new int[text.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = index.get(text.charAt(i));
+		}
+		return result;
+	}
+
+	/*
+	 * Sums the per-symbol values for a sequence of symbols, saturating at
+	 * Long.MAX_VALUE.
+	 */
+	private static long sum(long[] values, int[] sequence) {
+		long total = 0;
+		for (int s : sequence) {
+			if (values[s] > Long.MAX_VALUE - total) {
+				return Long.MAX_VALUE;
+			}
+			total += values[s];
+		}
+		return total;
+	}
+}
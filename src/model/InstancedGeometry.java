@@ -0,0 +1,416 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * InstancedGeometry interprets an L-System directly from its grammar without
+ * expanding the string. Every occurrence of a symbol expanded to the same
+ * remaining depth draws the same shape, so the shape of each (symbol, remaining
+ * depth) pair is interpreted once, in local coordinates, and later occurrences
+ * are placed by a transform of that display list. The work to build the
+ * drawing grows with the number of distinct pairs, roughly linearly in the
+ * depth, instead of with the length of the expansion.
+ *
+ * The turtle moves in whole pixels and truncates each step along its current
+ * heading, so a rotated copy of a shape is not pixel-identical to the shape
+ * drawn at the rotated heading, and headings that differ only in their last
+ * bit can already truncate differently. To reproduce the turtle exactly, pairs
+ * are therefore also keyed by the exact heading at which they start, which is
+ * accumulated turn by turn just as the turtle does, and are placed by integer
+ * translations only.
+ *
+ * Grammars that rewrite the bracket symbols themselves, or whose productions
+ * do not close every branch they open, cannot be split into independent
+ * shapes; {@link #build} returns null for them.
+ */
+public class InstancedGeometry {
+
+	// Instances with at most this many segments are drawn as one cached path
+	private static final int PATH_SEGMENTS = 4096;
+
+	private final Instance root;
+	private final int instanceCount;
+
+	/*
+	 * Display list of one (symbol, remaining depth, start heading). A
+	 * leaf holds the single segment of a move; any other instance places its
+	 * children at integer offsets and bracket depths relative to its start.
+	 */
+	private static class Instance {
+		int endX;
+		int endY;
+		double endHeading;
+		boolean segment;
+		Instance[] children = new Instance[0];
+		int[] childX = new int[0];
+		int[] childY = new int[0];
+		int[] childDepth = new int[0];
+		long segmentCount;
+		int maxDepth;
+		int minX;
+		int minY;
+		int maxX;
+		int maxY;
+		volatile Path2D.Float path;
+	}
+
+	private InstancedGeometry(Instance root, int instanceCount) {
+		this.root = root;
+		this.instanceCount = instanceCount;
+	}
+
+	/**
+	 * Builds the display lists for the axiom expanded to the given depth.
+	 *
+	 * @return the instanced drawing, or null if the grammar cannot be instanced
+	 * @throws IllegalArgumentException if a symbol that is drawn has no command
+	 */
+	public static InstancedGeometry build(String axiom, Map<Character, String> rules, int iterations,
+			Map<Character, TurtleCommand> commandMap, double angle, double step) {
+		if (!isInstanceable(rules, commandMap)) {
+			return null;
+		}
+		Builder builder = new Builder(rules, commandMap, angle, step);
+		Instance root = builder.walk(axiom, iterations, Math.PI / 2.0); // Turtle.turnNorth()
+		return new InstancedGeometry(root, builder.instances.size());
+	}
+
+	/*
+	 * Every production must be balanced on its own and no bracket symbol may be
+	 * rewritten, otherwise a shape would pop state pushed by its caller.
+	 */
+	static boolean isInstanceable(Map<Character, String> rules, Map<Character, TurtleCommand> commandMap) {
+		for (Map.Entry<Character, String> rule : rules.entrySet()) {
+			if (isBracket(commandMap.get(rule.getKey()))) {
+				return false;
+			}
+			int depth = 0;
+			for (int i = 0; i < rule.getValue().length(); i++) {
+				TurtleCommand command = commandMap.get(rule.getValue().charAt(i));
+				if (command == TurtleCommand.PUSH) {
+					depth++;
+				} else if (command == TurtleCommand.POP && --depth < 0) {
+					return false;
+				}
+			}
+			if (depth != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isBracket(TurtleCommand command) {
+		return command == TurtleCommand.PUSH || command == TurtleCommand.POP;
+	}
+
+	/*
+	 * Interprets the grammar pair by pair, memoizing every instance.
+	 */
+	private static class Builder {
+		private final Map<Character, String> rules;
+		private final Map<Character, TurtleCommand> commandMap;
+		private final double radians;
+		private final double step;
+		private final Map<Key, Instance> instances = new HashMap<>();
+
+		Builder(Map<Character, String> rules, Map<Character, TurtleCommand> commandMap, double angle, double step) {
+			this.rules = rules;
+			this.commandMap = commandMap;
+			this.radians = angle * 2 * Math.PI / 360.0; // as in Turtle.left()
+			this.step = step;
+		}
+
+		Instance instance(char symbol, int depth, double heading) {
+			if (depth > 0 && !rules.containsKey(symbol)) {
+				depth = 0; // unchanged by rewriting, so the same at every depth
+			}
+			Key key = new Key(symbol, depth, heading);
+			Instance instance = instances.get(key);
+			if (instance == null) {
+				instance = depth == 0 ? leaf(symbol, heading) : walk(rules.get(symbol), depth - 1, heading);
+				instances.put(key, instance);
+			}
+			return instance;
+		}
+
+		/*
+		 * A single symbol: one move exactly as the turtle computes it, or a turn.
+		 */
+		private Instance leaf(char symbol, double heading) {
+			TurtleCommand command = commandMap.get(symbol);
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + symbol + "'");
+			}
+			Instance leaf = new Instance();
+			leaf.endHeading = heading;
+			switch (command) {
+			case MOVE -> {
+				leaf.endX = (int) (Math.cos(heading) * step);
+				leaf.endY = -(int) (Math.sin(heading) * step);
+				leaf.segment = true;
+				leaf.segmentCount = 1;
+				leaf.minX = Math.min(0, leaf.endX);
+				leaf.minY = Math.min(0, leaf.endY);
+				leaf.maxX = Math.max(0, leaf.endX);
+				leaf.maxY = Math.max(0, leaf.endY);
+			}
+			case TURNLEFT -> leaf.endHeading = turn(heading, radians);
+			case TURNRIGHT -> leaf.endHeading = turn(heading, -radians);
+			case TURNAROUND -> leaf.endHeading = turn(heading, 180 * 2 * Math.PI / 360.0);
+			case PITCHDOWN, PITCHUP, ROLLLEFT, ROLLRIGHT -> {
+				// No effect in the plane, as in TurtleInterpreter
+			}
+			case PUSH, POP -> throw new IllegalStateException("Brackets are handled by the enclosing walk.");
+			}
+			return leaf;
+		}
+
+		/*
+		 * Same arithmetic as Turtle.left(), including its wrap-around check.
+		 */
+		private static double turn(double heading, double radians) {
+			heading += radians;
+			if (heading >= 360.0)
+				heading -= 360.0;
+			return heading;
+		}
+
+		/*
+		 * Walks a sequence of symbols (a production or the axiom) whose children
+		 * are expanded to the given depth, like a turtle would, but placing
+		 * instances instead of executing every symbol.
+		 */
+		Instance walk(String symbols, int depth, double startHeading) {
+			List<Instance> children = new ArrayList<>();
+			List<int[]> placements = new ArrayList<>();
+			Deque<double[]> stack = new ArrayDeque<>();
+			int x = 0;
+			int y = 0;
+			double heading = startHeading;
+			for (int i = 0; i < symbols.length(); i++) {
+				char symbol = symbols.charAt(i);
+				TurtleCommand command = commandMap.get(symbol);
+				if (command == TurtleCommand.PUSH) {
+					stack.push(new double[] { x, y, heading });
+				} else if (command == TurtleCommand.POP) {
+					// Like Turtle.pop(), an unmatched pop is ignored
+					if (!stack.isEmpty()) {
+						double[] saved = stack.pop();
+						x = (int) saved[0];
+						y = (int) saved[1];
+						heading = saved[2];
+					}
+				} else {
+					Instance child = instance(symbol, depth, heading);
+					if (child.segmentCount > 0) {
+						children.add(child);
+						placements.add(new int[] { x, y, stack.size() });
+					}
+					x += child.endX;
+					y += child.endY;
+					heading = child.endHeading;
+				}
+			}
+
+			Instance instance = new Instance();
+			instance.endX = x;
+			instance.endY = y;
+			instance.endHeading = heading;
+			instance.children = children.toArray(new Instance[0]);
+			instance.childX = new int[children.size()];
+			instance.childY = new int[children.size()];
+			instance.childDepth = new int[children.size()];
+			instance.minX = instance.minY = Integer.MAX_VALUE;
+			instance.maxX = instance.maxY = Integer.MIN_VALUE;
+			for (int c = 0; c < children.size(); c++) {
+				Instance child = children.get(c);
+				int[] placement = placements.get(c);
+				instance.childX[c] = placement[0];
+				instance.childY[c] = placement[1];
+				instance.childDepth[c] = placement[2];
+				instance.segmentCount = saturatingAdd(instance.segmentCount, child.segmentCount);
+				instance.maxDepth = Math.max(instance.maxDepth, placement[2] + child.maxDepth);
+				instance.minX = Math.min(instance.minX, placement[0] + child.minX);
+				instance.minY = Math.min(instance.minY, placement[1] + child.minY);
+				instance.maxX = Math.max(instance.maxX, placement[0] + child.maxX);
+				instance.maxY = Math.max(instance.maxY, placement[1] + child.maxY);
+			}
+			return instance;
+		}
+
+		private static long saturatingAdd(long a, long b) {
+			return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+		}
+	}
+
+	/*
+	 * Identifies an instance; headings are compared bit for bit.
+	 */
+	private static final class Key {
+		private final char symbol;
+		private final int depth;
+		private final long heading;
+
+		Key(char symbol, int depth, double heading) {
+			this.symbol = symbol;
+			this.depth = depth;
+			this.heading = Double.doubleToLongBits(heading);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key key && key.symbol == symbol && key.depth == depth
+					&& key.heading == heading;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * symbol + depth) * 31 + Long.hashCode(heading);
+		}
+	}
+
+	/**
+	 * Returns the number of segments the drawing consists of.
+	 */
+	public long getSegmentCount() {
+		return root.segmentCount;
+	}
+
+	/**
+	 * Returns the number of distinct display lists the drawing was built from.
+	 */
+	public int getInstanceCount() {
+		return instanceCount;
+	}
+
+	public int getMaxDepth() {
+		return root.maxDepth;
+	}
+
+	/**
+	 * Returns the bounding box of all segments relative to the turtle's start
+	 * point, or an empty rectangle if nothing is drawn.
+	 */
+	public Rectangle2D.Float getBounds() {
+		if (root.segmentCount == 0) {
+			return new Rectangle2D.Float();
+		}
+		return new Rectangle2D.Float(root.minX, root.minY, root.maxX - root.minX, root.maxY - root.minY);
+	}
+
+	/**
+	 * Sends every segment to the sink, in the order the turtle would draw them,
+	 * with the turtle starting at the origin. Branch events are not replayed.
+	 */
+	public void flatten(SegmentSink sink, Color colour, float thickness) {
+		flatten(root, 0, 0, 0, sink, colour, thickness);
+	}
+
+	/**
+	 * Sends the segments that reach into the given region to the sink, in the
+	 * order the turtle would draw them. An instance whose bounding box lies
+	 * outside the region is skipped as a whole, so the work grows with the part
+	 * of the drawing inside the region rather than with the whole drawing.
+	 */
+	public void flatten(SegmentSink sink, Color colour, float thickness, Rectangle2D region) {
+		flatten(root, 0, 0, 0, sink, colour, thickness, region.getMinX(), region.getMinY(), region.getMaxX(),
+				region.getMaxY());
+	}
+
+	private static void flatten(Instance instance, int x, int y, int depth, SegmentSink sink, Color colour,
+			float thickness) {
+		flatten(instance, x, y, depth, sink, colour, thickness, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	private static void flatten(Instance instance, int x, int y, int depth, SegmentSink sink, Color colour,
+			float thickness, double minX, double minY, double maxX, double maxY) {
+		if (instance.segmentCount == 0 || x + instance.maxX < minX || x + instance.minX > maxX
+				|| y + instance.maxY < minY || y + instance.minY > maxY) {
+			return;
+		}
+		if (instance.segment) {
+			sink.segment(x, y, x + instance.endX, y + instance.endY, colour, thickness, depth);
+			return;
+		}
+		for (int c = 0; c < instance.children.length; c++) {
+			flatten(instance.children[c], x + instance.childX[c], y + instance.childY[c],
+					depth + instance.childDepth[c], sink, colour, thickness, minX, minY, maxX, maxY);
+		}
+	}
+
+	/**
+	 * Returns the drawing as retained geometry, presized to its exact length.
+	 *
+	 * @throws IllegalStateException if there are more segments than an array can
+	 *                               hold
+	 */
+	public SegmentBuffer toSegmentBuffer(Color colour, float thickness) {
+		if (root.segmentCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("The drawing has too many segments to be retained.");
+		}
+		SegmentBuffer geometry = new SegmentBuffer((int) root.segmentCount);
+		flatten(geometry, colour, thickness);
+		return geometry;
+	}
+
+	/**
+	 * Draws the display lists with the turtle starting at the origin of the
+	 * graphics context. Small instances are drawn as one cached path each,
+	 * placed by translating the context.
+	 */
+	public void draw(Graphics2D g2, Color colour, float thickness) {
+		Graphics2D g = (Graphics2D) g2.create();
+		try {
+			g.setStroke(new BasicStroke(thickness));
+			g.setColor(colour);
+			draw(g, root, g.getTransform(), 0, 0);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private static void draw(Graphics2D g, Instance instance, AffineTransform base, int x, int y) {
+		if (instance.segmentCount <= PATH_SEGMENTS) {
+			AffineTransform placed = new AffineTransform(base);
+			placed.translate(x, y);
+			g.setTransform(placed);
+			g.draw(path(instance));
+			return;
+		}
+		for (int c = 0; c < instance.children.length; c++) {
+			draw(g, instance.children[c], base, x + instance.childX[c], y + instance.childY[c]);
+		}
+	}
+
+	/*
+	 * Built on first use; concurrent first uses build equal paths.
+	 */
+	private static Path2D.Float path(Instance instance) {
+		Path2D.Float path = instance.path;
+		if (path == null) {
+			Path2D.Float built = new Path2D.Float(Path2D.WIND_NON_ZERO, (int) instance.segmentCount * 2);
+			flatten(instance, 0, 0, 0, (x1, y1, x2, y2, colour, thickness, depth) -> {
+				built.moveTo(x1, y1);
+				built.lineTo(x2, y2);
+			}, null, 0);
+			instance.path = path = built;
+		}
+		return path;
+	}
+}
@@ -3,8 +3,12 @@
  */
 package model;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * LSystemParser is responsible for parsing and generating L-System strings
@@ -16,30 +20,197 @@ public class LSystemParser {
 	private int iterations;
 	private String axiom;
 	private Map<Character, String> rules;
-	private final int MAX_STRING_LENGTH = 50_000_000;
+	private StochasticGrammar stochastic;
+	private ContextSensitiveGrammar contextSensitive;
+	private ParametricGrammar parametric;
+	private long seed;
+	private GrowthTable growthTable;
 
 	public LSystemParser(String axiom, String rulesInput, int iterations) {
+		this(axiom, rulesInput, iterations, 0);
+	}
+
+	/**
+	 * @param seed seed of the random choices if the rules contain weighted
+	 *             alternatives (see {@link StochasticGrammar}); ignored otherwise
+	 */
+	public LSystemParser(String axiom, String rulesInput, int iterations, long seed) {
 		this.iterations = iterations;
-		this.rules = parseRules(rulesInput);
+		this.seed = seed;
 		this.axiom = axiom;
-
+		if (ParametricGrammar.isParametric(axiom, rulesInput)) {
+			// Planning only needs the symbols; the parameters live in the grammar
+			this.parametric = ParametricGrammar.parse(axiom, rulesInput);
+			this.rules = parametric.boundingProductions();
+			this.axiom = parametric.getAxiomSymbols();
+			return;
+		}
+		this.rules = parseRules(rulesInput);
+		this.contextSensitive = ContextSensitiveGrammar.parse(rulesInput);
+		if (contextSensitive != null) {
+			this.rules = contextSensitive.boundingProductions();
+		} else {
+			this.stochastic = StochasticGrammar.parse(rulesInput);
+			if (stochastic != null) {
+				this.rules = stochastic.boundingProductions();
+			}
+		}
 	}
 
 	/**
 	 * Generates the L-System string by applying production rules iteratively.
+	 * Before anything is allocated the {@link MemoryGovernor} checks that the
+	 * result fits into the heap as a String.
 	 *
-	 * @return the final L-System string after all iterations
+	 * @return the final L-System string after all iterations; for parametric
+	 *         L-Systems the modules are written with their parameters (see
+	 *         {@link ModuleString#format()})
 	 */
 	public String generateLSystemString() {
+		ExpansionPlan plan = plan(new MemoryGovernor(), Set.of(), false);
+		if (plan.getStrategy() != ExecutionStrategy.MATERIALIZED) {
+			throw new IllegalStateException("Generated string does not fit into memory. \n" + plan.getExplanation());
+		}
+		return parametric != null ? parametric.expand(iterations).format() : materialize();
+	}
+
+	/**
+	 * Asks the governor how the expansion of this L-System should be held.
+	 *
+	 * @param drawnSymbols   symbols that draw a segment
+	 * @param retainGeometry whether the interpreted segments are kept as well
+	 */
+	public ExpansionPlan plan(MemoryGovernor governor, Set<Character> drawnSymbols, boolean retainGeometry) {
+		ExpansionPlan plan = governor.plan(getGrowthTable(), iterations, drawnSymbols, retainGeometry);
+		if (!hasFixedProductions() && !plan.isRefused() && plan.getStrategy() != ExecutionStrategy.MATERIALIZED) {
+			// The compact strategies replay fixed productions, which these rules do not have
+			return new ExpansionPlan(ExecutionStrategy.REFUSED, plan.getPredictedLength(),
+					plan.getPredictedSegments(), plan.getEstimatedBytes(), plan.getAvailableBytes(),
+					(stochastic != null ? "Stochastic" : contextSensitive != null ? "Context-sensitive" : "Parametric")
+							+ " grammars can only be expanded in memory, and this one may need up to "
+							+ plan.getPredictedLength() + " symbols. Please reduce the iterations.");
+		}
+		if (parametric != null && plan.getStrategy() == ExecutionStrategy.MATERIALIZED) {
+			// Previous generation and the next one, which may be up to twice its length while growing
+			long bytes = plan.getEstimatedBytes() + 3 * plan.getPredictedLength() * parametric.getBytesPerModule();
+			if (bytes > plan.getAvailableBytes()) {
+				return new ExpansionPlan(ExecutionStrategy.REFUSED, plan.getPredictedLength(),
+						plan.getPredictedSegments(), bytes, plan.getAvailableBytes(),
+						"The modules of this parametric L-System and their parameters may need up to " + bytes
+								+ " bytes, more than the available memory. Please reduce the iterations.");
+			}
+			return new ExpansionPlan(plan.getStrategy(), plan.getPredictedLength(), plan.getPredictedSegments(),
+					bytes, plan.getAvailableBytes(), plan.getExplanation());
+		}
+		return plan;
+	}
+
+	/**
+	 * Generates the L-System symbols using the strategy chosen by the given plan.
+	 *
+	 * @return the expansion, which may be a String, a {@link ModuleString} or a
+	 *         more compact sequence
+	 * @throws IllegalStateException if the plan was refused
+	 */
+	public CharSequence generate(ExpansionPlan plan, MemoryGovernor governor) {
+		return switch (plan.getStrategy()) {
+		case MATERIALIZED -> parametric != null ? parametric.expand(iterations) : materialize();
+		case COMPRESSED -> new ByteSymbolSequence(expandToBytes());
+		case DISK_BACKED -> spill(governor);
+		case STREAMING -> new StreamingSymbolSequence(getGrowthTable(), iterations);
+		case REFUSED -> throw new IllegalStateException(plan.getExplanation());
+		};
+	}
+
+	/*
+	 * Writes the expansion to a memory-mapped file without materializing it.
+	 */
+	private CharSequence spill(MemoryGovernor governor) {
+		try {
+			return MappedSymbolSequence.spill(new StreamingSymbolSequence(getGrowthTable(), iterations),
+					governor.getSpillDirectory());
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not spill expansion to disk: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the parsed production rules. For stochastic, context-sensitive and
+	 * parametric rules these are not real productions but the bounding ones used
+	 * to plan the expansion (see {@link GrowthTable#boundingProduction}).
+	 */
+	public Map<Character, String> getRules() {
+		return Collections.unmodifiableMap(rules);
+	}
+
+	/**
+	 * Returns whether the rules contain weighted alternatives.
+	 */
+	public boolean isStochastic() {
+		return stochastic != null;
+	}
+
+	/**
+	 * Returns whether the rules contain context-sensitive productions.
+	 */
+	public boolean isContextSensitive() {
+		return contextSensitive != null;
+	}
+
+	/**
+	 * Returns whether the modules carry parameters (see
+	 * {@link ParametricGrammar}).
+	 */
+	public boolean isParametric() {
+		return parametric != null;
+	}
+
+	/**
+	 * Returns whether every symbol is always replaced by the same production,
+	 * i.e. the rules are neither stochastic, context-sensitive nor parametric.
+	 * Only then can an expansion be replayed lazily or instanced.
+	 */
+	public boolean hasFixedProductions() {
+		return stochastic == null && contextSensitive == null && parametric == null;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the growth table predicting the size of every generation. For
+	 * stochastic rules the sizes are upper bounds.
+	 */
+	public GrowthTable getGrowthTable() {
 		validateInput(axiom, "Axiom input cannot be null or empty.");
+		if (growthTable == null) {
+			growthTable = new GrowthTable(axiom, rules, iterations);
+		}
+		return growthTable;
+	}
+
+	/*
+	 * Expands into Strings, presizing each generation from the growth table.
+	 */
+	private String materialize() {
+		GrowthTable table = getGrowthTable();
+		if (stochastic != null) {
+			return stochastic.expand(axiom, iterations, seed);
+		}
+		if (contextSensitive != null) {
+			return contextSensitive.expand(axiom, iterations);
+		}
 		String result = axiom;
 		for (int i = 0; i < iterations; i++) {
-			StringBuilder newResult = new StringBuilder(result.length());
-			for (char c : result.toCharArray()) {
-				newResult.append(rules.getOrDefault(c, String.valueOf(c)));
-				if (newResult.length() > MAX_STRING_LENGTH) {
-					throw new IllegalStateException("Generated string exceeds maximum allowed length ("
-							+ MAX_STRING_LENGTH + "). \nPlease reduce the number of iterations.");
+			StringBuilder newResult = new StringBuilder((int) table.length(i + 1));
+			for (int j = 0; j < result.length(); j++) {
+				char c = result.charAt(j);
+				String replacement = rules.get(c);
+				if (replacement == null) {
+					newResult.append(c);
+				} else {
+					newResult.append(replacement);
 				}
 			}
 			result = newResult.toString();
@@ -47,6 +218,34 @@ public class LSystemParser {
 		return result;
 	}
 
+	/*
+	 * Expands into exactly sized Latin-1 byte arrays, keeping only the previous
+	 * and the current generation alive.
+	 */
+	private byte[] expandToBytes() {
+		GrowthTable table = getGrowthTable();
+		byte[][] productions = new byte[256][];
+		for (Map.Entry<Character, String> rule : rules.entrySet()) {
+			productions[rule.getKey()] = rule.getValue().getBytes(StandardCharsets.ISO_8859_1);
+		}
+		byte[] current = axiom.getBytes(StandardCharsets.ISO_8859_1);
+		for (int i = 0; i < iterations; i++) {
+			byte[] next = new byte[(int) table.length(i + 1)];
+			int position = 0;
+			for (byte symbol : current) {
+				byte[] production = productions[symbol & 0xFF];
+				if (production == null) {
+					next[position++] = symbol;
+				} else {
+					System.arraycopy(production, 0, next, position, production.length);
+					position += production.length;
+				}
+			}
+			current = next;
+		}
+		return current;
+	}
+
 	/**
 	 * Parses the production rules from a user-provided input string. Example
 	 * format: "F→FF,X→XY"
@@ -60,11 +259,17 @@ public class LSystemParser {
 		// Remove whiteSpace and Split into rule pairs
 		String[] rulePairs = rulesInput.replaceAll("\\s+", "").split(",");
 		for (String pair : rulePairs) {
+			if (ContextSensitiveGrammar.isDirective(pair)) {
+				continue;
+			}
 			// Split each rule into "key→value" pairs
 			String[] parts = pair.split("→");
 			if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
 				throw new IllegalArgumentException("Invalid rule format: " + pair);
 			}
+			if (ContextSensitiveGrammar.hasContext(parts[0])) {
+				continue; // see ContextSensitiveGrammar
+			}
 			char key = parts[0].charAt(0);
 			rules.putIfAbsent(key, parts[1]);
 		}
@@ -120,6 +325,11 @@ public class LSystemParser {
 		case "TURNLEFT" -> TurtleCommand.TURNLEFT;
 		case "PUSH" -> TurtleCommand.PUSH;
 		case "POP" -> TurtleCommand.POP;
+		case "PITCHDOWN" -> TurtleCommand.PITCHDOWN;
+		case "PITCHUP" -> TurtleCommand.PITCHUP;
+		case "ROLLLEFT" -> TurtleCommand.ROLLLEFT;
+		case "ROLLRIGHT" -> TurtleCommand.ROLLRIGHT;
+		case "TURNAROUND" -> TurtleCommand.TURNAROUND;
 		default -> throw new IllegalArgumentException("Invalid command encountered: " + command);
 		};
 	}
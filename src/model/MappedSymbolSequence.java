@@ -0,0 +1,90 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only sequence of Latin-1 L-System symbols backed by a memory-mapped
+ * file. The symbols live outside of the Java heap, so expansions far larger
+ * than the available heap can still be walked at close to in-memory speed.
+ */
+public class MappedSymbolSequence implements CharSequence {
+
+	private final MappedByteBuffer buffer;
+	private final int offset;
+	private final int length;
+
+	private MappedSymbolSequence(MappedByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * Writes the given symbols into a spill file in the given directory and maps
+	 * it. The file is removed as soon as it is mapped where the platform allows
+	 * it, and on exit otherwise.
+	 *
+	 * @throws IOException if the file cannot be written or mapped
+	 */
+	public static MappedSymbolSequence spill(CharSequence symbols, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		Path file = Files.createTempFile(directory, "expansion", ".spill");
+		try {
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+				for (int i = 0; i < symbols.length(); i++) {
+					out.write(symbols.charAt(i));
+				}
+			}
+			MappedByteBuffer mapped;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, symbols.length());
+			}
+			return new MappedSymbolSequence(mapped, 0, symbols.length());
+		} finally {
+			try {
+				Files.deleteIfExists(file); // the mapping stays valid on POSIX systems
+			} catch (IOException e) {
+				file.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + (length - 1));
+		}
+		return (char) (buffer.get(offset + index) & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Invalid range " + start + ".." + end);
+		}
+		return new MappedSymbolSequence(buffer, offset + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		byte[] bytes = new byte[length];
+		buffer.get(offset, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+/**
+ * MemoryGovernor decides, before anything is allocated, how an L-System
+ * expansion should be held in memory. It predicts the length of the expansion
+ * and the number of segments it will draw with a {@link GrowthTable}, estimates
+ * the peak footprint of each strategy and picks the cheapest-to-walk strategy
+ * that fits into the heap that is currently available:
+ *
+ * MATERIALIZED, then COMPRESSED, then DISK_BACKED and finally STREAMING. When
+ * the expansion cannot be addressed at all the plan is REFUSED with an
+ * explanation of the numbers involved.
+ */
+public class MemoryGovernor {
+
+	// Fraction of the free heap the pipeline may claim; the rest is left to Swing and the GC
+	private static final double HEAP_HEADROOM = 0.75;
+	// Bytes per retained segment: four float coordinates and two int columns
+	public static final int BYTES_PER_SEGMENT = 6 * 4;
+	// Working memory of a disk-backed expansion besides the table (write buffer)
+	private static final long SPILL_BUFFER_BYTES = 1 << 16;
+
+	private final long availableBytes;
+	private final Path spillDirectory;
+
+	/**
+	 * Creates a governor for the heap currently available to this JVM, as
+	 * reported by the platform MemoryMXBean.
+	 */
+	public MemoryGovernor() {
+		this(availableHeap(), defaultSpillDirectory());
+	}
+
+	/**
+	 * Creates a governor with an explicit heap budget, e.g. for tests.
+	 */
+	public MemoryGovernor(long availableBytes, Path spillDirectory) {
+		this.availableBytes = availableBytes;
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Returns the heap that can still be allocated: the maximum heap size minus
+	 * what is currently in use.
+	 */
+	public static long availableHeap() {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long max = heap.getMax() > 0 ? heap.getMax() : Runtime.getRuntime().maxMemory();
+		return Math.max(0, max - heap.getUsed());
+	}
+
+	public static Path defaultSpillDirectory() {
+		return Paths.get(System.getProperty("java.io.tmpdir"), "lsystem-spill");
+	}
+
+	public Path getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/*
+	 * Asks the file system for the space left in the spill directory, or in its
+	 * closest existing parent. Only done when spilling is actually considered,
+	 * as it is a system call.
+	 */
+	private long usableDiskBytes() {
+		File existing = spillDirectory.toFile();
+		while (existing != null && !existing.exists()) {
+			existing = existing.getParentFile();
+		}
+		return existing == null ? 0 : existing.getUsableSpace();
+	}
+
+	/**
+	 * Plans an expansion.
+	 *
+	 * @param table          growth table of the grammar
+	 * @param iterations     number of iterations to expand
+	 * @param drawnSymbols   symbols that draw a segment, used to predict the
+	 *                       geometry size
+	 * @param retainGeometry whether the interpreted segments will be kept in
+	 *                       memory as well
+	 */
+	public ExpansionPlan plan(GrowthTable table, int iterations, Set<Character> drawnSymbols, boolean retainGeometry) {
+		long length = table.length(iterations);
+		long previous = iterations > 0 ? table.length(iterations - 1) : 0;
+		long segments = table.count(drawnSymbols, iterations);
+		long budget = (long) (availableBytes * HEAP_HEADROOM);
+		long geometry = retainGeometry ? multiply(segments, BYTES_PER_SEGMENT) : 0;
+		long index = table.estimatedBytes();
+
+		if (length > Integer.MAX_VALUE) {
+			return new ExpansionPlan(ExecutionStrategy.REFUSED, length, segments, Long.MAX_VALUE, budget,
+					String.format("%d iterations produce %s symbols, more than the %,d a drawing can address. "
+							+ "Please reduce the number of iterations.", iterations, format(length),
+							Integer.MAX_VALUE));
+		}
+
+		int charBytes = table.isLatin1() ? 1 : 2;
+		// Previous generation + presized builder + String copy made by toString()
+		long materialized = add(multiply(previous, charBytes), multiply(length, 2L * charBytes), geometry, index);
+		if (materialized <= budget) {
+			return plan(ExecutionStrategy.MATERIALIZED, length, segments, materialized, budget,
+					"fits into the heap as a String");
+		}
+
+		if (table.isLatin1()) {
+			// Previous and current generation, one byte per symbol
+			long compressed = add(previous, length, geometry, index);
+			if (compressed <= budget) {
+				return plan(ExecutionStrategy.COMPRESSED, length, segments, compressed, budget,
+						"fits into the heap at one byte per symbol");
+			}
+			long diskBacked = add(SPILL_BUFFER_BYTES, geometry, index, 0);
+			if (diskBacked <= budget && length < usableDiskBytes()) {
+				return plan(ExecutionStrategy.DISK_BACKED, length, segments, diskBacked, budget,
+						"is spilled to a memory-mapped file in " + spillDirectory);
+			}
+		}
+
+		long streaming = add(geometry, index, 0, 0);
+		if (streaming <= budget) {
+			return plan(ExecutionStrategy.STREAMING, length, segments, streaming, budget,
+					"is derived on demand while drawing");
+		}
+		return new ExpansionPlan(ExecutionStrategy.REFUSED, length, segments, streaming, budget,
+				String.format("%d iterations produce %s symbols and %s segments needing %s of geometry, "
+						+ "but only %s of heap is available. Please reduce the number of iterations.", iterations,
+						format(length), format(segments), formatBytes(streaming), formatBytes(budget)));
+	}
+
+	private static ExpansionPlan plan(ExecutionStrategy strategy, long length, long segments, long bytes, long budget,
+			String reason) {
+		return new ExpansionPlan(strategy, length, segments, bytes, budget, String.format(
+				"%s symbols (%s estimated, %s available) %s.", format(length), formatBytes(bytes),
+				formatBytes(budget), reason));
+	}
+
+	private static long multiply(long a, long b) {
+		return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+	}
+
+	private static long add(long a, long b, long c, long d) {
+		long total = 0;
+		for (long value : new long[] { a, b, c, d }) {
+			if (value > Long.MAX_VALUE - total) {
+				return Long.MAX_VALUE;
+			}
+			total += value;
+		}
+		return total;
+	}
+
+	private static String format(long value) {
+		return value == Long.MAX_VALUE ? "more than 9.2e18" : String.format("%,d", value);
+	}
+
+	private static String formatBytes(long bytes) {
+		if (bytes == Long.MAX_VALUE) {
+			return "an unbounded amount";
+		}
+		if (bytes < 1024 * 1024) {
+			return String.format("%,d KB", bytes / 1024);
+		}
+		return String.format("%,d MB", bytes / (1024 * 1024));
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.Arrays;
+
+/**
+ * ModuleString is one generation of a parametric L-System, held as a symbol
+ * tape with flat parameter columns rather than as one object per module: the
+ * k-th parameter of module i is {@code columns[k][i]} and only the first
+ * {@code arity[i]} columns are used by it.
+ *
+ * As a CharSequence it presents the symbols alone, so everything that works on
+ * an expanded string also works on a ModuleString; the
+ * {@link TurtleInterpreter} additionally reads the parameters of every module.
+ * {@link #format()} writes the modules with their parameters.
+ */
+public final class ModuleString implements CharSequence {
+
+	/**
+	 * The most parameters a module may have.
+	 */
+	public static final int MAX_PARAMETERS = 8;
+
+	private int length;
+	private char[] symbols;
+	private byte[] arity;
+	private double[][] columns = new double[0][];
+
+	ModuleString(int capacity) {
+		capacity = Math.max(capacity, 16);
+		symbols = new char[capacity];
+		arity = new byte[capacity];
+	}
+
+	/**
+	 * Appends a module and returns its index; its parameters are set with
+	 * {@link #setParameter}.
+	 *
+	 * @throws IllegalArgumentException if the module has too many parameters
+	 */
+	int add(char symbol, int parameters) {
+		if (parameters > MAX_PARAMETERS) {
+			throw new IllegalArgumentException(
+					"A module may have at most " + MAX_PARAMETERS + " parameters: " + symbol);
+		}
+		if (length == symbols.length) {
+			grow(length * 2);
+		}
+		if (parameters > columns.length) {
+			double[][] wider = Arrays.copyOf(columns, parameters);
+			for (int k = columns.length; k < parameters; k++) {
+				wider[k] = new double[symbols.length];
+			}
+			columns = wider;
+		}
+		symbols[length] = symbol;
+		arity[length] = (byte) parameters;
+		return length++;
+	}
+
+	void setParameter(int module, int k, double value) {
+		columns[k][module] = value;
+	}
+
+	/**
+	 * Returns the number of parameters of a module.
+	 */
+	public int getArity(int module) {
+		return arity[module];
+	}
+
+	/**
+	 * Returns the k-th parameter of a module.
+	 */
+	public double getParameter(int module, int k) {
+		if (k >= arity[module]) {
+			throw new IndexOutOfBoundsException("Module " + module + " has " + arity[module] + " parameters.");
+		}
+		return columns[k][module];
+	}
+
+	/**
+	 * Returns the parameter column k, indexed by module. Entries of modules with
+	 * fewer parameters are undefined.
+	 */
+	double[] column(int k) {
+		return columns[k];
+	}
+
+	/**
+	 * Returns the number of parameter columns, i.e. the largest arity.
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index >= length) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return symbols[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	/**
+	 * Returns the symbols without their parameters.
+	 */
+	@Override
+	public String toString() {
+		return new String(symbols, 0, length);
+	}
+
+	/**
+	 * Writes the modules with their parameters, e.g. "F(10,2)+(45)".
+	 */
+	public String format() {
+		StringBuilder text = new StringBuilder(length * 2);
+		for (int i = 0; i < length; i++) {
+			text.append(symbols[i]);
+			if (arity[i] > 0) {
+				text.append('(');
+				for (int k = 0; k < arity[i]; k++) {
+					if (k > 0) {
+						text.append(',');
+					}
+					double value = columns[k][i];
+					if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+						text.append((long) value);
+					} else {
+						text.append(value);
+					}
+				}
+				text.append(')');
+			}
+		}
+		return text.toString();
+	}
+
+	private void grow(int capacity) {
+		if (capacity < 0 || capacity > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("The next generation is too long to expand in memory.");
+		}
+		symbols = Arrays.copyOf(symbols, capacity);
+		arity = Arrays.copyOf(arity, capacity);
+		for (int k = 0; k < columns.length; k++) {
+			columns[k] = Arrays.copyOf(columns[k], capacity);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * ParameterSweep interprets one already generated L-System expansion with a
+ * grid of different drawing parameters. Two parameters are varied, one along
+ * the columns and one along the rows; everything else is taken from the base
+ * settings.
+ *
+ * The symbols are expanded once and shared read-only by all workers. Each
+ * worker only allocates the geometry of the variant it is interpreting and
+ * hands it to the listener as soon as it is finished, so results can be shown
+ * in any order while the rest of the grid is still being computed.
+ *
+ * Unless the symbols are streamed from disk or have parameters, they are
+ * compiled into a {@link TurtleProgram} once and every worker replays it. The
+ * symbols can be given as a supplier; expanding and compiling them is then
+ * done by the first worker while the others wait for it, so none of it runs
+ * on the thread that starts the sweep.
+ */
+public class ParameterSweep {
+
+	/**
+	 * Receives finished variants. Called on the worker threads.
+	 */
+	public interface Listener {
+		void cellReady(int row, int column, RenderSettings settings, SegmentBuffer geometry);
+
+		default void cellFailed(int row, int column, Exception e) {
+		}
+	}
+
+	/*
+	 * The symbols and their compiled program, or a null program if they are
+	 * interpreted directly.
+	 */
+	private static final class Expansion {
+		final CharSequence symbols;
+		final TurtleProgram program;
+
+		Expansion(CharSequence symbols, TurtleProgram program) {
+			this.symbols = symbols;
+			this.program = program;
+		}
+	}
+
+	private final Supplier<CharSequence> symbols;
+	private final Map<Character, TurtleCommand> commandMap;
+	private final RenderSettings base;
+	private final RenderSettings.Parameter columnParameter;
+	private final double[] columnValues;
+	private final RenderSettings.Parameter rowParameter;
+	private final double[] rowValues;
+
+	public ParameterSweep(CharSequence symbols, Map<Character, TurtleCommand> commandMap, RenderSettings base,
+			RenderSettings.Parameter columnParameter, double[] columnValues, RenderSettings.Parameter rowParameter,
+			double[] rowValues) {
+		this(() -> symbols, commandMap, base, columnParameter, columnValues, rowParameter, rowValues);
+	}
+
+	/**
+	 * Creates a sweep whose symbols are asked for by the first worker that runs.
+	 */
+	public ParameterSweep(Supplier<CharSequence> symbols, Map<Character, TurtleCommand> commandMap,
+			RenderSettings base, RenderSettings.Parameter columnParameter, double[] columnValues,
+			RenderSettings.Parameter rowParameter, double[] rowValues) {
+		if (columnValues.length == 0 || rowValues.length == 0) {
+			throw new IllegalArgumentException("Sweep ranges cannot be empty.");
+		}
+		this.symbols = symbols;
+		this.commandMap = commandMap;
+		this.base = base;
+		this.columnParameter = columnParameter;
+		this.columnValues = columnValues;
+		this.rowParameter = rowParameter;
+		this.rowValues = rowValues;
+	}
+
+	/**
+	 * Returns the values from start to end (inclusive) in the given increments.
+	 */
+	public static double[] range(double from, double to, double increment) {
+		if (increment <= 0) {
+			throw new IllegalArgumentException("Sweep increment must be positive.");
+		}
+		if (to < from) {
+			throw new IllegalArgumentException("Sweep range end must not be below its start.");
+		}
+		int count = (int) Math.floor((to - from) / increment + 1e-9) + 1;
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = from + i * increment;
+		}
+		return values;
+	}
+
+	public int getRows() {
+		return rowValues.length;
+	}
+
+	public int getColumns() {
+		return columnValues.length;
+	}
+
+	/**
+	 * Returns the settings of a single grid cell.
+	 */
+	public RenderSettings settingsAt(int row, int column) {
+		return base.with(columnParameter, columnValues[column]).with(rowParameter, rowValues[row]);
+	}
+
+	/**
+	 * Submits one task per grid cell to the given pool.
+	 *
+	 * @return the submitted tasks, which may be cancelled when the sweep is
+	 *         superseded
+	 */
+	public List<Future<?>> run(ExecutorService pool, Listener listener) {
+		FutureTask<Expansion> expansion = new FutureTask<>(this::expand);
+		List<Future<?>> tasks = new ArrayList<>();
+		for (int row = 0; row < rowValues.length; row++) {
+			for (int column = 0; column < columnValues.length; column++) {
+				int r = row;
+				int c = column;
+				tasks.add(pool.submit(() -> interpretCell(r, c, expansion, listener)));
+			}
+		}
+		return tasks;
+	}
+
+	private Expansion expand() {
+		CharSequence expanded = symbols.get();
+		TurtleProgram program = expanded instanceof StreamingSymbolSequence || expanded instanceof ModuleString ? null
+				: TurtleProgram.compile(expanded, commandMap);
+		return new Expansion(expanded, program);
+	}
+
+	private void interpretCell(int row, int column, FutureTask<Expansion> expansion, Listener listener) {
+		if (Thread.currentThread().isInterrupted()) {
+			return;
+		}
+		Expansion shared;
+		try {
+			// Only the first cell expands; run() returns at once while another cell is expanding
+			expansion.run();
+			shared = expansion.get();
+		} catch (InterruptedException e) {
+			return; // superseded
+		} catch (ExecutionException e) {
+			listener.cellFailed(row, column, e.getCause() instanceof Exception cause ? cause : e);
+			return;
+		}
+		try {
+			RenderSettings settings = settingsAt(row, column);
+			TurtleInterpreter interpreter = new TurtleInterpreter(commandMap, settings.effectiveAngle(),
+					settings.effectiveStep(), settings.effectiveThickness(), settings.effectiveColour());
+			SegmentBuffer geometry = shared.program != null ? interpreter.interpret(shared.program, 0, 0)
+					: interpreter.interpret(sharedView(shared.symbols), 0, 0);
+			DepthStyle depthStyle = settings.depthStyle();
+			if (depthStyle != null) {
+				geometry = depthStyle.apply(geometry);
+			}
+			listener.cellReady(row, column, settings, geometry);
+		} catch (RuntimeException e) {
+			listener.cellFailed(row, column, e);
+		}
+	}
+
+	/*
+	 * Strings and byte or mapped sequences are immutable and can be read by all
+	 * workers at once; a streaming sequence keeps a cursor, so each worker gets
+	 * its own view.
+	 */
+	private static CharSequence sharedView(CharSequence symbols) {
+		if (symbols instanceof StreamingSymbolSequence streaming) {
+			return streaming.copy();
+		}
+		return symbols;
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ParametricExpression is an arithmetic expression of a parametric production,
+ * such as "l*0.6" or "w>1", compiled once into a small stack bytecode. It is
+ * evaluated on primitive doubles only, so rewriting millions of modules does
+ * not box a single value.
+ *
+ * Supported are numbers, the formal parameters of the production, parentheses
+ * and the operators + - * / ^ (power) as well as the comparisons &lt; &gt;
+ * &lt;= &gt;= == !=, which evaluate to 1 or 0.
+ */
+public final class ParametricExpression {
+
+	// Opcodes; PUSH and LOAD are followed by an operand
+	private static final int PUSH = 0;
+	private static final int LOAD = 1;
+	private static final int ADD = 2;
+	private static final int SUB = 3;
+	private static final int MUL = 4;
+	private static final int DIV = 5;
+	private static final int POW = 6;
+	private static final int NEG = 7;
+	private static final int LT = 8;
+	private static final int GT = 9;
+	private static final int LE = 10;
+	private static final int GE = 11;
+	private static final int EQ = 12;
+	private static final int NE = 13;
+
+	private final String source;
+	private final int[] code;
+	private final double[] constants;
+	private final int maxStack;
+
+	private ParametricExpression(String source, int[] code, double[] constants, int maxStack) {
+		this.source = source;
+		this.code = code;
+		this.constants = constants;
+		this.maxStack = maxStack;
+	}
+
+	/**
+	 * Compiles an expression over the given formal parameters.
+	 *
+	 * @throws IllegalArgumentException if the expression is malformed or uses an
+	 *                                  unknown parameter
+	 */
+	public static ParametricExpression compile(String source, List<String> parameters) {
+		Compiler compiler = new Compiler(source, parameters);
+		compiler.comparison();
+		if (compiler.position != source.length()) {
+			throw new IllegalArgumentException("Unexpected '" + source.charAt(compiler.position)
+					+ "' in expression: " + source);
+		}
+		return new ParametricExpression(source, Arrays.copyOf(compiler.code, compiler.codeLength),
+				Arrays.copyOf(compiler.constants, compiler.constantCount), compiler.maxStack);
+	}
+
+	/**
+	 * Returns the number of stack slots {@link #evaluate} needs.
+	 */
+	public int getMaxStack() {
+		return maxStack;
+	}
+
+	/**
+	 * Returns whether the expression does not depend on any parameter.
+	 */
+	public boolean isConstant() {
+		return code.length == 2 && code[0] == PUSH;
+	}
+
+	/**
+	 * Evaluates the expression.
+	 *
+	 * @param arguments values of the formal parameters, in declaration order
+	 * @param stack     scratch space of at least {@link #getMaxStack()} slots
+	 */
+	public double evaluate(double[] arguments, double[] stack) {
+		int top = -1;
+		int pc = 0;
+		while (pc < code.length) {
+			switch (code[pc++]) {
+			case PUSH -> stack[++top] = constants[code[pc++]];
+			case LOAD -> stack[++top] = arguments[code[pc++]];
+			case ADD -> stack[--top] += stack[top + 1];
+			case SUB -> stack[--top] -= stack[top + 1];
+			case MUL -> stack[--top] *= stack[top + 1];
+			case DIV -> stack[--top] /= stack[top + 1];
+			case POW -> {
+				top--;
+				stack[top] = Math.pow(stack[top], stack[top + 1]);
+			}
+			case NEG -> stack[top] = -stack[top];
+			case LT -> stack[--top] = stack[top] < stack[top + 1] ? 1 : 0;
+			case GT -> stack[--top] = stack[top] > stack[top + 1] ? 1 : 0;
+			case LE -> stack[--top] = stack[top] <= stack[top + 1] ? 1 : 0;
+			case GE -> stack[--top] = stack[top] >= stack[top + 1] ? 1 : 0;
+			case EQ -> stack[--top] = stack[top] == stack[top + 1] ? 1 : 0;
+			case NE -> stack[--top] = stack[top] != stack[top + 1] ? 1 : 0;
+			default -> throw new IllegalStateException("Unknown opcode in expression: " + source);
+			}
+		}
+		return stack[0];
+	}
+
+	@Override
+	public String toString() {
+		return source;
+	}
+
+	/**
+	 * Recursive descent compiler emitting postfix code.
+	 */
+	private static class Compiler {
+
+		private final String source;
+		private final List<String> parameters;
+		private int position;
+
+		private int[] code = new int[16];
+		private int codeLength;
+		private double[] constants = new double[4];
+		private int constantCount;
+		private int stack;
+		private int maxStack;
+
+		Compiler(String source, List<String> parameters) {
+			if (source.isEmpty()) {
+				throw new IllegalArgumentException("Expression cannot be empty.");
+			}
+			this.source = source;
+			this.parameters = parameters;
+		}
+
+		void comparison() {
+			additive();
+			int op = -1;
+			if (accept("<=")) {
+				op = LE;
+			} else if (accept(">=")) {
+				op = GE;
+			} else if (accept("==")) {
+				op = EQ;
+			} else if (accept("!=")) {
+				op = NE;
+			} else if (accept("<")) {
+				op = LT;
+			} else if (accept(">")) {
+				op = GT;
+			}
+			if (op >= 0) {
+				additive();
+				emit(op, -1);
+			}
+		}
+
+		private void additive() {
+			term();
+			while (true) {
+				if (accept("+")) {
+					term();
+					emit(ADD, -1);
+				} else if (accept("-")) {
+					term();
+					emit(SUB, -1);
+				} else {
+					return;
+				}
+			}
+		}
+
+		private void term() {
+			unary();
+			while (true) {
+				if (accept("*")) {
+					unary();
+					emit(MUL, -1);
+				} else if (accept("/")) {
+					unary();
+					emit(DIV, -1);
+				} else {
+					return;
+				}
+			}
+		}
+
+		private void unary() {
+			if (accept("-")) {
+				unary();
+				emit(NEG, 0);
+			} else {
+				power();
+			}
+		}
+
+		// Right-associative: 2^3^2 = 2^(3^2)
+		private void power() {
+			primary();
+			if (accept("^")) {
+				unary();
+				emit(POW, -1);
+			}
+		}
+
+		private void primary() {
+			if (accept("(")) {
+				comparison();
+				if (!accept(")")) {
+					throw error("Missing ')'");
+				}
+				return;
+			}
+			int start = position;
+			if (position < source.length() && isNumberStart(source.charAt(position))) {
+				while (position < source.length()
+						&& (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+					position++;
+				}
+				double value;
+				try {
+					value = Double.parseDouble(source.substring(start, position));
+				} catch (NumberFormatException e) {
+					throw error("Invalid number '" + source.substring(start, position) + "'");
+				}
+				pushConstant(value);
+				return;
+			}
+			while (position < source.length() && Character.isLetterOrDigit(source.charAt(position))) {
+				position++;
+			}
+			if (start == position) {
+				throw error(position < source.length() ? "Unexpected '" + source.charAt(position) + "'"
+						: "Unexpected end");
+			}
+			String name = source.substring(start, position);
+			int index = parameters.indexOf(name);
+			if (index < 0) {
+				throw error("Unknown parameter '" + name + "'");
+			}
+			emit(LOAD, 1);
+			code[codeLength++] = index;
+		}
+
+		private static boolean isNumberStart(char c) {
+			return Character.isDigit(c) || c == '.';
+		}
+
+		private void pushConstant(double value) {
+			if (constantCount == constants.length) {
+				constants = Arrays.copyOf(constants, constantCount * 2);
+			}
+			constants[constantCount] = value;
+			emit(PUSH, 1);
+			code[codeLength++] = constantCount++;
+		}
+
+		private boolean accept(String token) {
+			if (source.startsWith(token, position)) {
+				position += token.length();
+				return true;
+			}
+			return false;
+		}
+
+		private void emit(int op, int stackEffect) {
+			if (codeLength + 2 > code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[codeLength++] = op;
+			stack += stackEffect;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " in expression: " + source);
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * ParametricGrammar holds a parametric L-System, whose modules carry numeric
+ * parameters, e.g. axiom "A(100,8)" with the rule
+ * "A(l,w):l>2→F(l,w)[+(30)A(l*0.6,w*0.7)][-(30)A(l*0.6,w*0.7)]". A rule applies
+ * to a module with the same symbol and number of parameters if its optional
+ * condition after ':' holds; the rules of a symbol are tried in the order they
+ * were written and a module no rule applies to is kept with its parameters.
+ *
+ * Generations are {@link ModuleString}s, and the conditions and parameter
+ * expressions are compiled once into {@link ParametricExpression}s, so the
+ * rewriting loop works on primitive arrays only.
+ */
+public class ParametricGrammar {
+
+	// A rule whose predecessor is a symbol followed by '(' at the start of an entry
+	private static final Pattern PARAMETRIC_RULE = Pattern.compile("(?:^|,)\\s*[^\\s,→]\\(");
+
+	/**
+	 * A production with its formal parameters and compiled expressions.
+	 */
+	private static class Rule {
+		final int arity;
+		final ParametricExpression condition; // null when the rule always applies
+		final char[] successor;
+		final ParametricExpression[][] arguments;
+
+		Rule(int arity, ParametricExpression condition, char[] successor, ParametricExpression[][] arguments) {
+			this.arity = arity;
+			this.condition = condition;
+			this.successor = successor;
+			this.arguments = arguments;
+		}
+	}
+
+	private final ModuleString axiom;
+	private final Map<Character, List<Rule>> rules;
+	private final Rule[][] ruleTable;
+	private final int maxStack;
+	private final int maxArity;
+
+	private ParametricGrammar(ModuleString axiom, Map<Character, List<Rule>> rules) {
+		this.axiom = axiom;
+		this.rules = rules;
+		int size = 0;
+		for (char symbol : rules.keySet()) {
+			size = Math.max(size, symbol + 1);
+		}
+		ruleTable = new Rule[size][];
+		int stack = 1;
+		int arity = axiom.getColumnCount();
+		for (Map.Entry<Character, List<Rule>> entry : rules.entrySet()) {
+			ruleTable[entry.getKey()] = entry.getValue().toArray(new Rule[0]);
+			for (Rule rule : entry.getValue()) {
+				if (rule.condition != null) {
+					stack = Math.max(stack, rule.condition.getMaxStack());
+				}
+				for (ParametricExpression[] arguments : rule.arguments) {
+					arity = Math.max(arity, arguments.length);
+					for (ParametricExpression argument : arguments) {
+						stack = Math.max(stack, argument.getMaxStack());
+					}
+				}
+			}
+		}
+		this.maxStack = stack;
+		this.maxArity = arity;
+	}
+
+	/**
+	 * Returns whether the axiom or a rule has parameters, i.e. whether the
+	 * L-System has to be parsed as a parametric one.
+	 */
+	public static boolean isParametric(String axiom, String rulesInput) {
+		return (axiom != null && axiom.indexOf('(') >= 0)
+				|| (rulesInput != null && PARAMETRIC_RULE.matcher(rulesInput).find());
+	}
+
+	/**
+	 * Parses a parametric L-System. Rules are separated by commas outside of
+	 * parentheses.
+	 *
+	 * @throws IllegalArgumentException if the axiom or a rule is malformed
+	 */
+	public static ParametricGrammar parse(String axiomInput, String rulesInput) {
+		if (axiomInput == null || axiomInput.isBlank()) {
+			throw new IllegalArgumentException("Axiom input cannot be null or empty.");
+		}
+		if (rulesInput == null || rulesInput.isBlank()) {
+			throw new IllegalArgumentException("Rules input cannot be null or empty.");
+		}
+		ModuleString axiom = parseAxiom(axiomInput.replaceAll("\\s+", ""));
+		Map<Character, List<Rule>> rules = new LinkedHashMap<>();
+		for (String entry : split(rulesInput.replaceAll("\\s+", ""), ',')) {
+			String[] parts = entry.split("→");
+			if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+				throw new IllegalArgumentException("Invalid rule format: " + entry);
+			}
+			parseRule(parts[0], parts[1], rules);
+		}
+		return new ParametricGrammar(axiom, rules);
+	}
+
+	private static ModuleString parseAxiom(String input) {
+		ModuleString axiom = new ModuleString(input.length());
+		double[] stack = new double[16];
+		int i = 0;
+		while (i < input.length()) {
+			char symbol = input.charAt(i++);
+			List<String> arguments = List.of();
+			if (i < input.length() && input.charAt(i) == '(') {
+				int close = closingParenthesis(input, i);
+				arguments = split(input.substring(i + 1, close), ',');
+				i = close + 1;
+			}
+			int module = axiom.add(symbol, arguments.size());
+			for (int k = 0; k < arguments.size(); k++) {
+				ParametricExpression value = ParametricExpression.compile(arguments.get(k), List.of());
+				if (value.getMaxStack() > stack.length) {
+					stack = new double[value.getMaxStack()];
+				}
+				axiom.setParameter(module, k, value.evaluate(null, stack));
+			}
+		}
+		return axiom;
+	}
+
+	private static void parseRule(String predecessor, String successor, Map<Character, List<Rule>> rules) {
+		String conditionSource = null;
+		int colon = predecessor.indexOf(':');
+		if (colon >= 0) {
+			conditionSource = predecessor.substring(colon + 1);
+			predecessor = predecessor.substring(0, colon);
+		}
+		char symbol = predecessor.charAt(0);
+		List<String> parameters = List.of();
+		if (predecessor.length() > 1) {
+			if (predecessor.charAt(1) != '(' || closingParenthesis(predecessor, 1) != predecessor.length() - 1) {
+				throw new IllegalArgumentException("Invalid predecessor: " + predecessor);
+			}
+			parameters = split(predecessor.substring(2, predecessor.length() - 1), ',');
+			for (String parameter : parameters) {
+				if (parameter.isEmpty() || !Character.isLetter(parameter.charAt(0))
+						|| !parameter.chars().allMatch(Character::isLetterOrDigit)) {
+					throw new IllegalArgumentException("Invalid parameter name '" + parameter + "' in: " + predecessor);
+				}
+			}
+		}
+		if (parameters.size() > ModuleString.MAX_PARAMETERS) {
+			throw new IllegalArgumentException(
+					"A module may have at most " + ModuleString.MAX_PARAMETERS + " parameters: " + predecessor);
+		}
+		ParametricExpression condition = conditionSource == null ? null
+				: ParametricExpression.compile(conditionSource, parameters);
+
+		StringBuilder symbols = new StringBuilder();
+		List<ParametricExpression[]> arguments = new ArrayList<>();
+		int i = 0;
+		while (i < successor.length()) {
+			symbols.append(successor.charAt(i++));
+			ParametricExpression[] compiled = new ParametricExpression[0];
+			if (i < successor.length() && successor.charAt(i) == '(') {
+				int close = closingParenthesis(successor, i);
+				List<String> sources = split(successor.substring(i + 1, close), ',');
+				if (sources.size() > ModuleString.MAX_PARAMETERS) {
+					throw new IllegalArgumentException(
+							"A module may have at most " + ModuleString.MAX_PARAMETERS + " parameters: " + successor);
+				}
+				compiled = new ParametricExpression[sources.size()];
+				for (int k = 0; k < compiled.length; k++) {
+					compiled[k] = ParametricExpression.compile(sources.get(k), parameters);
+				}
+				i = close + 1;
+			}
+			arguments.add(compiled);
+		}
+		rules.computeIfAbsent(symbol, k -> new ArrayList<>()).add(new Rule(parameters.size(), condition,
+				symbols.toString().toCharArray(), arguments.toArray(new ParametricExpression[0][])));
+	}
+
+	/*
+	 * Splits at the separator where it is outside of parentheses.
+	 */
+	private static List<String> split(String input, char separator) {
+		List<String> parts = new ArrayList<>();
+		int depth = 0;
+		int start = 0;
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (c == separator && depth == 0) {
+				parts.add(input.substring(start, i));
+				start = i + 1;
+			}
+		}
+		parts.add(input.substring(start));
+		return parts;
+	}
+
+	private static int closingParenthesis(String input, int open) {
+		int depth = 0;
+		for (int i = open; i < input.length(); i++) {
+			if (input.charAt(i) == '(') {
+				depth++;
+			} else if (input.charAt(i) == ')' && --depth == 0) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Missing ')' in: " + input);
+	}
+
+	/**
+	 * Returns the symbols of the axiom without their parameters.
+	 */
+	public String getAxiomSymbols() {
+		return axiom.toString();
+	}
+
+	/**
+	 * Returns how many bytes a module of an expanded generation occupies at
+	 * most: its symbol, its arity and one double per parameter column.
+	 */
+	public int getBytesPerModule() {
+		return 3 + 8 * maxArity;
+	}
+
+	/**
+	 * Returns a production per symbol that bounds all its rules and keeping the
+	 * module (see {@link GrowthTable#boundingProduction}), for planning the
+	 * expansion. Parameters are left out.
+	 */
+	public Map<Character, String> boundingProductions() {
+		Map<Character, String> bounding = new HashMap<>();
+		rules.forEach((symbol, list) -> {
+			List<String> alternatives = new ArrayList<>();
+			alternatives.add(String.valueOf(symbol));
+			for (Rule rule : list) {
+				alternatives.add(new String(rule.successor));
+			}
+			bounding.put(symbol, GrowthTable.boundingProduction(alternatives));
+		});
+		return bounding;
+	}
+
+	/**
+	 * Rewrites the axiom the given number of times.
+	 *
+	 * @throws IllegalStateException if a generation does not fit into memory
+	 */
+	public ModuleString expand(int iterations) {
+		ModuleString current = axiom;
+		double[] arguments = new double[ModuleString.MAX_PARAMETERS];
+		double[] stack = new double[maxStack];
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			ModuleString previous = current;
+			current = new ModuleString((int) Math.min(previous.length() * 2L, Integer.MAX_VALUE - 8));
+			for (int i = 0; i < previous.length(); i++) {
+				char symbol = previous.charAt(i);
+				int arity = previous.getArity(i);
+				for (int k = 0; k < arity; k++) {
+					arguments[k] = previous.column(k)[i];
+				}
+				Rule rule = symbol < ruleTable.length ? select(ruleTable[symbol], arity, arguments, stack) : null;
+				if (rule == null) {
+					int module = current.add(symbol, arity);
+					for (int k = 0; k < arity; k++) {
+						current.setParameter(module, k, arguments[k]);
+					}
+					continue;
+				}
+				for (int j = 0; j < rule.successor.length; j++) {
+					ParametricExpression[] expressions = rule.arguments[j];
+					int module = current.add(rule.successor[j], expressions.length);
+					for (int k = 0; k < expressions.length; k++) {
+						current.setParameter(module, k, expressions[k].evaluate(arguments, stack));
+					}
+				}
+			}
+		}
+		return current;
+	}
+
+	private static Rule select(Rule[] candidates, int arity, double[] arguments, double[] stack) {
+		if (candidates == null) {
+			return null;
+		}
+		for (Rule rule : candidates) {
+			if (rule.arity == arity && (rule.condition == null || rule.condition.evaluate(arguments, stack) != 0)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+}
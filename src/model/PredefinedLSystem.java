@@ -66,11 +66,20 @@ public class PredefinedLSystem {
 		return colour;
 	}
 
+	// Built and sorted once; callers get a copy of the array
+	private static final PredefinedLSystem[] PREDEFINED = createPredefined();
+
 	/**
 	 * Returns a sorted array of predefined L-System configurations. Each instance
-	 * represents a well-known fractal or plant pattern.
+	 * represents a well-known fractal or plant pattern. Every call returns the
+	 * same instances in a new array. Larger collections of presets are read from
+	 * files by a {@link GrammarCatalog}.
 	 */
 	public static PredefinedLSystem[] predefinedLSystems() {
+		return PREDEFINED.clone();
+	}
+
+	private static PredefinedLSystem[] createPredefined() {
 		PredefinedLSystem[] predefined = {
 				new PredefinedLSystem("Weed", "Y", "X→X[-FFF][+FFF]FX, Y→YFX[+Y][-Y]", 25.7, 5, 5, 1, Color.BLACK),
 				new PredefinedLSystem("Plant3", "X", "X→F[-X][X]F[-X]+FX,F→FF", 20, 5, 5, 1, Color.BLACK),
@@ -0,0 +1,328 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * RenderPipeline turns the user's inputs into a drawing in stages, each of
+ * which is only recomputed when its own inputs change:
+ *
+ * grammar (axiom, rules, iterations, seed) → symbols, symbols + (commands,
+ * angle, step) → geometry, geometry + (colour, thickness, depth styling) →
+ * styled geometry. Grammars using spatial commands are interpreted into
+ * {@link SpatialGeometry} instead, with one more stage: 3D geometry + camera
+ * orbit → geometry, so orbiting the camera only re-projects it.
+ *
+ * Changing the colour or thickness therefore only restyles the retained
+ * geometry, and changing the angle or step only re-interprets the grammar. The
+ * last stage, rasterising the styled geometry, is memoized by the DrawingPanel
+ * on the zoom level.
+ *
+ * The geometry is interpreted at unit thickness, so the style stage scales
+ * the widths rather than replacing them and the relative widths of parametric
+ * modules survive restyling.
+ *
+ * Where the grammar allows it, the geometry is interpreted with
+ * {@link InstancedGeometry} straight from the rules and the string is never
+ * expanded; {@link #getSymbols()} expands it on demand. Drawings too large to
+ * retain their geometry make {@link #render} return null and are drawn from
+ * {@link #getInstances()}, or directly from the symbols if the grammar cannot
+ * be instanced; those are drawn in the single effective style even when depth
+ * styling is on.
+ */
+public class RenderPipeline {
+
+	private final GenerationCache cache;
+
+	// Stage inputs are compared with equals(); a recomputed stage clears the keys of the stages after it
+	private List<Object> grammarKey;
+	private List<Object> geometryKey;
+	private List<Object> projectionKey;
+	private List<Object> styleKey;
+
+	private String axiom;
+	private String rules;
+	private int iterations;
+	private LSystemParser lSystem;
+	private MemoryGovernor governor;
+	private ExpansionPlan plan;
+	private boolean retainGeometry;
+	private boolean spatial;
+	private CharSequence symbols;
+	private InstancedGeometry instances;
+	private SpatialGeometry spatialGeometry;
+	private SegmentBuffer geometry;
+	private SegmentBuffer styled;
+
+	private int generations;
+	private int interpretations;
+	private int projections;
+	private int restylings;
+
+	/**
+	 * @param cache cache used for expansions that are materialized as strings, or
+	 *              null to always expand
+	 */
+	public RenderPipeline(GenerationCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Brings every stage up to date with the given inputs.
+	 *
+	 * @return the styled geometry, or null if the drawing is too large for its
+	 *         geometry to be retained
+	 * @throws IllegalStateException    if the expansion does not fit into memory
+	 *                                  at all
+	 * @throws IllegalArgumentException if a symbol has no command
+	 */
+	public SegmentBuffer render(String axiom, String rules, Map<Character, TurtleCommand> commandMap,
+			RenderSettings settings) {
+		List<Object> grammar = List.of(axiom, rules, settings.getIterations());
+		// The seed only changes the expansion of stochastic grammars
+		if (!grammar.equals(grammarKey) || lSystem.isStochastic() && lSystem.getSeed() != settings.getSeed()) {
+			prepare(axiom, rules, settings.getIterations(), settings.getSeed(), commandMap);
+			grammarKey = grammar;
+			geometryKey = null;
+		}
+
+		List<Object> interpretation = List.of(commandMap, settings.effectiveAngle(), settings.effectiveStep());
+		if (!interpretation.equals(geometryKey)) {
+			interpret(commandMap, settings.effectiveAngle(), settings.effectiveStep());
+			interpretations++;
+			geometryKey = interpretation;
+			projectionKey = null;
+			styleKey = null;
+		}
+		if (spatialGeometry != null) {
+			List<Object> view = List.of(settings.getCameraYaw(), settings.getCameraPitch());
+			if (!view.equals(projectionKey)) {
+				geometry = new Camera(settings.getCameraYaw(), settings.getCameraPitch()).project(spatialGeometry);
+				projections++;
+				projectionKey = view;
+				styleKey = null;
+			}
+		}
+		if (geometry == null) {
+			styled = null;
+			return null;
+		}
+
+		List<Object> style = List.of(settings.effectiveColour(), settings.effectiveThickness(),
+				settings.isDepthStyled());
+		if (!style.equals(styleKey)) {
+			DepthStyle depthStyle = settings.depthStyle();
+			styled = depthStyle != null ? depthStyle.apply(geometry)
+					: geometry.rescaled(settings.effectiveColour(), (float) settings.effectiveThickness());
+			restylings++;
+			styleKey = style;
+		}
+		return styled;
+	}
+
+	/*
+	 * Plans the expansion with its geometry retained if possible, otherwise
+	 * without. Nothing is expanded yet.
+	 */
+	private void prepare(String axiom, String rules, int iterations, long seed,
+			Map<Character, TurtleCommand> commandMap) {
+		LSystemParser lSystem = new LSystemParser(axiom, rules, iterations, seed);
+		MemoryGovernor governor = new MemoryGovernor();
+		Set<Character> drawn = drawingSymbols(commandMap);
+		ExpansionPlan plan = lSystem.plan(governor, drawn, true);
+		boolean retain = !plan.isRefused();
+		boolean spatial = TurtleCommand.anySpatial(usedSymbols(axiom, lSystem), commandMap);
+		if (!retain && spatial) {
+			throw new IllegalStateException("3D drawings are projected from retained geometry, which does not fit "
+					+ "into memory: " + plan.getExplanation() + " Please reduce the number of iterations.");
+		}
+		if (!retain) {
+			plan = lSystem.plan(governor, drawn, false);
+			if (plan.isRefused()) {
+				throw new IllegalStateException(plan.getExplanation());
+			}
+		}
+		synchronized (this) {
+			this.axiom = axiom;
+			this.rules = rules;
+			this.iterations = iterations;
+			this.lSystem = lSystem;
+			this.governor = governor;
+			this.plan = plan;
+			this.symbols = null;
+		}
+		this.retainGeometry = retain;
+		this.spatial = spatial;
+		generations++;
+	}
+
+	/*
+	 * Interprets in a neutral style; the real one is applied by the last stage.
+	 */
+	private void interpret(Map<Character, TurtleCommand> commandMap, double angle, double step) {
+		if (spatial) {
+			spatialGeometry = new SpatialInterpreter(commandMap, angle, step, 1, Color.BLACK).interpret(getSymbols());
+			instances = null;
+			geometry = null; // projected by the next stage
+			return;
+		}
+		spatialGeometry = null;
+		// Without fixed productions a symbol expands differently at every position, so it cannot be instanced
+		InstancedGeometry instanced = !lSystem.hasFixedProductions() ? null
+				: InstancedGeometry.build(axiom, lSystem.getRules(), iterations, commandMap, angle, step);
+		SegmentBuffer interpreted = null;
+		if (retainGeometry) {
+			interpreted = instanced != null ? instanced.toSegmentBuffer(Color.BLACK, 1)
+					: new TurtleInterpreter(commandMap, angle, step, 1, Color.BLACK).interpret(getSymbols(), 0, 0);
+		}
+		instances = instanced;
+		geometry = interpreted;
+	}
+
+	/**
+	 * Returns whether rendering the grammar reads its expanded string, i.e. it
+	 * is drawn in 3D or cannot be instanced. Other grammars are drawn straight
+	 * from their rules and only expand the string when {@link #getSymbols()} is
+	 * asked for it.
+	 */
+	public static boolean readsSymbols(String axiom, String rules, int iterations,
+			Map<Character, TurtleCommand> commandMap) {
+		LSystemParser lSystem = new LSystemParser(axiom, rules, iterations);
+		return !lSystem.hasFixedProductions()
+				|| !InstancedGeometry.isInstanceable(lSystem.getRules(), commandMap)
+				|| TurtleCommand.anySpatial(usedSymbols(axiom, lSystem), commandMap);
+	}
+
+	private static Set<Character> usedSymbols(String axiom, LSystemParser lSystem) {
+		Set<Character> used = new HashSet<>(lSystem.getRules().keySet());
+		lSystem.getRules().values().forEach(production -> production.chars().forEach(c -> used.add((char) c)));
+		axiom.chars().forEach(c -> used.add((char) c));
+		return used;
+	}
+
+	/**
+	 * Returns the symbols that draw a segment under the given command map.
+	 */
+	public static Set<Character> drawingSymbols(Map<Character, TurtleCommand> commandMap) {
+		Set<Character> symbols = new HashSet<>();
+		commandMap.forEach((symbol, command) -> {
+			if (command == TurtleCommand.MOVE) {
+				symbols.add(symbol);
+			}
+		});
+		return symbols;
+	}
+
+	/**
+	 * Returns the expanded string of the current grammar, expanding it (or
+	 * reading it from the cache) on first use.
+	 */
+	public CharSequence getSymbols() {
+		return symbols().get();
+	}
+
+	/**
+	 * Returns a supplier of the expanded string of the current grammar, so that
+	 * the expansion can run on another thread. The supplier expands the grammar
+	 * that was current when it was created; its expansion is kept for
+	 * {@link #getSymbols()} only if the grammar has not changed since.
+	 */
+	public Supplier<CharSequence> symbols() {
+		String axiom;
+		String rules;
+		int iterations;
+		LSystemParser lSystem;
+		MemoryGovernor governor;
+		ExpansionPlan plan;
+		CharSequence expanded;
+		synchronized (this) {
+			axiom = this.axiom;
+			rules = this.rules;
+			iterations = this.iterations;
+			lSystem = this.lSystem;
+			governor = this.governor;
+			plan = this.plan;
+			expanded = symbols;
+		}
+		if (expanded != null || lSystem == null) {
+			return () -> expanded;
+		}
+		return () -> {
+			synchronized (this) {
+				if (this.lSystem == lSystem && symbols != null) {
+					return symbols;
+				}
+			}
+			// The cache holds plain strings; parametric modules are expanded with their parameters each time
+			CharSequence generated = cache != null && plan.getStrategy() == ExecutionStrategy.MATERIALIZED
+					&& !lSystem.isParametric() ? cache.getOrGenerate(axiom, rules, iterations, lSystem.getSeed())
+							: lSystem.generate(plan, governor);
+			synchronized (this) {
+				if (this.lSystem == lSystem && symbols == null) {
+					symbols = generated;
+				}
+			}
+			return generated;
+		};
+	}
+
+	/**
+	 * Returns the retained geometry of the current drawing in a neutral style,
+	 * projected by the camera for 3D grammars, or null if it is too large to be
+	 * retained.
+	 */
+	public SegmentBuffer getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * Returns the display lists of the current interpretation, or null if the
+	 * grammar cannot be instanced.
+	 */
+	public InstancedGeometry getInstances() {
+		return instances;
+	}
+
+	/**
+	 * Returns how often the grammar stage has been recomputed.
+	 */
+	public int getGenerations() {
+		return generations;
+	}
+
+	/**
+	 * Returns how often the geometry stage has interpreted the symbols.
+	 */
+	public int getInterpretations() {
+		return interpretations;
+	}
+
+	/**
+	 * Returns whether the current grammar uses spatial commands and is drawn
+	 * through a {@link Camera}.
+	 */
+	public boolean isSpatial() {
+		return spatial;
+	}
+
+	/**
+	 * Returns how often 3D geometry has been projected.
+	 */
+	public int getProjections() {
+		return projections;
+	}
+
+	/**
+	 * Returns how often the style stage has restyled the geometry.
+	 */
+	public int getRestylings() {
+		return restylings;
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+
+/**
+ * RenderSettings holds the drawing parameters chosen by the user (angle, step,
+ * thickness, colour and their factors) together with the iteration depth, the
+ * seed of stochastic grammars and the camera orbit of 3D drawings, and derives
+ * the effective values the turtle draws with. None of the drawing parameters
+ * change the generated L-System string.
+ */
+public class RenderSettings {
+
+	/**
+	 * Parameters that can be varied without regenerating the string.
+	 */
+	public enum Parameter {
+		ANGLE("Angle"),
+		ANGLE_FACTOR("Angle Factor"),
+		STEP("Step Length"),
+		STEP_FACTOR("Step Factor"),
+		THICKNESS("Thickness"),
+		THICKNESS_FACTOR("Thickness Factor"),
+		COLOUR_FACTOR("Colour Factor");
+
+		private final String label;
+
+		Parameter(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private final double angle;
+	private final double step;
+	private final double thickness;
+	private final Color colour;
+	private final int iterations;
+	private final double angleFactor;
+	private final double stepFactor;
+	private final double thicknessFactor;
+	private final double colourFactor;
+	private final boolean depthStyled;
+	private final long seed;
+	private final double cameraYaw;
+	private final double cameraPitch;
+
+	public RenderSettings(double angle, double step, double thickness, Color colour, int iterations,
+			double angleFactor, double stepFactor, double thicknessFactor, double colourFactor) {
+		this(angle, step, thickness, colour, iterations, angleFactor, stepFactor, thicknessFactor, colourFactor, false);
+	}
+
+	/**
+	 * @param depthStyled whether segments are styled by their branch depth (see
+	 *                    {@link #depthStyle()}) rather than all alike
+	 */
+	public RenderSettings(double angle, double step, double thickness, Color colour, int iterations,
+			double angleFactor, double stepFactor, double thicknessFactor, double colourFactor, boolean depthStyled) {
+		this(angle, step, thickness, colour, iterations, angleFactor, stepFactor, thicknessFactor, colourFactor,
+				depthStyled, 0, 0, 0);
+	}
+
+	private RenderSettings(double angle, double step, double thickness, Color colour, int iterations,
+			double angleFactor, double stepFactor, double thicknessFactor, double colourFactor, boolean depthStyled,
+			long seed, double cameraYaw, double cameraPitch) {
+		this.angle = angle;
+		this.step = step;
+		this.thickness = thickness;
+		this.colour = colour;
+		this.iterations = iterations;
+		this.angleFactor = angleFactor;
+		this.stepFactor = stepFactor;
+		this.thicknessFactor = thicknessFactor;
+		this.colourFactor = colourFactor;
+		this.depthStyled = depthStyled;
+		this.seed = seed;
+		this.cameraYaw = cameraYaw;
+		this.cameraPitch = cameraPitch;
+	}
+
+	/**
+	 * Returns a copy with one parameter replaced.
+	 */
+	public RenderSettings with(Parameter parameter, double value) {
+		return new RenderSettings(parameter == Parameter.ANGLE ? value : angle,
+				parameter == Parameter.STEP ? value : step,
+				parameter == Parameter.THICKNESS ? value : thickness,
+				colour, iterations,
+				parameter == Parameter.ANGLE_FACTOR ? value : angleFactor,
+				parameter == Parameter.STEP_FACTOR ? value : stepFactor,
+				parameter == Parameter.THICKNESS_FACTOR ? value : thicknessFactor,
+				parameter == Parameter.COLOUR_FACTOR ? value : colourFactor,
+				depthStyled, seed, cameraYaw, cameraPitch);
+	}
+
+	/**
+	 * Returns a copy with the seed of stochastic grammars replaced.
+	 */
+	public RenderSettings withSeed(long seed) {
+		return new RenderSettings(angle, step, thickness, colour, iterations, angleFactor, stepFactor,
+				thicknessFactor, colourFactor, depthStyled, seed, cameraYaw, cameraPitch);
+	}
+
+	/**
+	 * Returns a copy at another iteration depth, e.g. for the frames of a growth
+	 * animation.
+	 */
+	public RenderSettings withIterations(int iterations) {
+		return new RenderSettings(angle, step, thickness, colour, iterations, angleFactor, stepFactor,
+				thicknessFactor, colourFactor, depthStyled, seed, cameraYaw, cameraPitch);
+	}
+
+	/**
+	 * Returns a copy with the camera orbit of 3D drawings replaced (see
+	 * {@link Camera}).
+	 */
+	public RenderSettings withCamera(double yaw, double pitch) {
+		return new RenderSettings(angle, step, thickness, colour, iterations, angleFactor, stepFactor,
+				thicknessFactor, colourFactor, depthStyled, seed, yaw, pitch);
+	}
+
+	/**
+	 * Returns the current value of a parameter.
+	 */
+	public double get(Parameter parameter) {
+		return switch (parameter) {
+		case ANGLE -> angle;
+		case ANGLE_FACTOR -> angleFactor;
+		case STEP -> step;
+		case STEP_FACTOR -> stepFactor;
+		case THICKNESS -> thickness;
+		case THICKNESS_FACTOR -> thicknessFactor;
+		case COLOUR_FACTOR -> colourFactor;
+		};
+	}
+
+	/**
+	 * Multiplies the angle by an exponentially increasing factor per iteration:
+	 * iterations = 0 → baseAngle, 1 → baseAngle * factor, 2 → baseAngle *
+	 * factor^2, etc. The sign toggles on even iterations ("toggling" growth).
+	 */
+	public double effectiveAngle() {
+		double effectiveAngle = angle * Math.pow(angleFactor, Math.max(0, iterations - 1));
+		//double effectiveAngle = angle + iterations * angleFactor; // linearly (slower growth)
+		if (iterations % 2 == 0) { // toggle on even iterations
+			effectiveAngle *= -1;
+		}
+		return effectiveAngle;
+	}
+
+	public double effectiveStep() {
+		return step * Math.pow(stepFactor, Math.max(0, iterations - 1));
+		//return step + iterations * stepFactor;
+	}
+
+	public double effectiveThickness() {
+		return thickness * Math.pow(thicknessFactor, Math.max(0, iterations - 1));
+		//return thickness + iterations * thicknessFactor;
+	}
+
+	/**
+	 * Returns the colour with its hue shifted by the colour factor.
+	 */
+	public Color effectiveColour() {
+		return nextShade(colour, (float) colourFactor);
+	}
+
+	/**
+	 * Returns the trunk-to-tip style derived from the effective colour and
+	 * thickness, or null if the drawing is not styled by depth.
+	 */
+	public DepthStyle depthStyle() {
+		return depthStyled ? DepthStyle.taper(effectiveColour(), (float) effectiveThickness()) : null;
+	}
+
+	// Getters
+	public double getAngle() {
+		return angle;
+	}
+
+	public double getStep() {
+		return step;
+	}
+
+	public double getThickness() {
+		return thickness;
+	}
+
+	public Color getColour() {
+		return colour;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public double getAngleFactor() {
+		return angleFactor;
+	}
+
+	public double getStepFactor() {
+		return stepFactor;
+	}
+
+	public double getThicknessFactor() {
+		return thicknessFactor;
+	}
+
+	public double getColourFactor() {
+		return colourFactor;
+	}
+
+	public boolean isDepthStyled() {
+		return depthStyled;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public double getCameraYaw() {
+		return cameraYaw;
+	}
+
+	public double getCameraPitch() {
+		return cameraPitch;
+	}
+
+	/**
+	 * Helper method to get the next colour with gradient change controlled by factor
+	 */
+	private static Color nextShade(Color current, float factor) {
+		// Convert RGB to HSB
+		float[] hsb = Color.RGBtoHSB(current.getRed(), current.getGreen(), current.getBlue(), null);
+
+		// Increment hue by step (wrap around at 1.0)
+		float newHue = (hsb[0] + factor) % 1.0f;
+
+		// Create new color with same saturation & brightness
+		return Color.getHSBColor(newHue, hsb[1], hsb[2]);
+	}
+}
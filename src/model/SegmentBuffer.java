@@ -0,0 +1,456 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * SegmentBuffer retains the geometry of an interpreted L-System drawing in
+ * primitive, column-oriented arrays: one float column per coordinate, one int
+ * column referencing a small style table (colour and stroke width) and one int
+ * column holding the bracket depth at which each segment was drawn.
+ *
+ * Keeping the geometry in flat arrays means it can be redrawn, saved or
+ * analysed without walking the L-System string again.
+ */
+public class SegmentBuffer implements SegmentSink {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int DRAW_BATCH = 1 << 16;
+	// The Vector API kernels are used when the JVM resolved the incubating module and its shapes suit them
+	private static final boolean VECTOR_KERNELS = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& VectorKernels.isSupported();
+
+	private int size;
+	private float[] x1;
+	private float[] y1;
+	private float[] x2;
+	private float[] y2;
+	private int[] style;
+	private int[] depth;
+
+	private int styleCount;
+	private int[] styleArgb = new int[4];
+	private float[] styleWidth = new float[4];
+	private int lastStyle = -1;
+
+	private float minX = Float.POSITIVE_INFINITY;
+	private float minY = Float.POSITIVE_INFINITY;
+	private float maxX = Float.NEGATIVE_INFINITY;
+	private float maxY = Float.NEGATIVE_INFINITY;
+	private int maxDepth;
+
+	public SegmentBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public SegmentBuffer(int capacity) {
+		capacity = Math.max(capacity, 1);
+		x1 = new float[capacity];
+		y1 = new float[capacity];
+		x2 = new float[capacity];
+		y2 = new float[capacity];
+		style = new int[capacity];
+		depth = new int[capacity];
+	}
+
+	/**
+	 * Creates a buffer directly from existing columns, e.g. when loading a saved
+	 * drawing. The arrays are used as they are, not copied, and the bounds and
+	 * maximum depth are taken from the caller rather than recomputed.
+	 */
+	SegmentBuffer(int size, float[] x1, float[] y1, float[] x2, float[] y2, int[] style, int[] depth,
+			int[] styleArgb, float[] styleWidth, Rectangle2D.Float bounds, int maxDepth) {
+		this.size = size;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.x2 = x2;
+		this.y2 = y2;
+		this.style = style;
+		this.depth = depth;
+		this.styleCount = styleArgb.length;
+		this.styleArgb = styleArgb;
+		this.styleWidth = styleWidth;
+		this.maxDepth = maxDepth;
+		if (size > 0) {
+			includeInBounds(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height);
+		}
+	}
+
+	@Override
+	public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth) {
+		add(x1, y1, x2, y2, styleIndex(colour.getRGB(), thickness), depth);
+	}
+
+	/**
+	 * Appends a segment that uses an existing entry of the style table.
+	 */
+	public void add(float x1, float y1, float x2, float y2, int styleIndex, int depth) {
+		if (size == this.x1.length) {
+			grow();
+		}
+		this.x1[size] = x1;
+		this.y1[size] = y1;
+		this.x2[size] = x2;
+		this.y2[size] = y2;
+		this.style[size] = styleIndex;
+		this.depth[size] = depth;
+		size++;
+		includeInBounds(x1, y1, x2, y2);
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	/**
+	 * Returns the index of the given style in the style table, adding it if it is
+	 * not yet present. Drawings use only a handful of styles, so a linear search
+	 * (short-circuited by the last style used) is sufficient.
+	 */
+	public int styleIndex(int argb, float width) {
+		if (lastStyle >= 0 && styleArgb[lastStyle] == argb && styleWidth[lastStyle] == width) {
+			return lastStyle;
+		}
+		for (int i = 0; i < styleCount; i++) {
+			if (styleArgb[i] == argb && styleWidth[i] == width) {
+				lastStyle = i;
+				return i;
+			}
+		}
+		if (styleCount == styleArgb.length) {
+			styleArgb = Arrays.copyOf(styleArgb, styleCount * 2);
+			styleWidth = Arrays.copyOf(styleWidth, styleCount * 2);
+		}
+		styleArgb[styleCount] = argb;
+		styleWidth[styleCount] = width;
+		lastStyle = styleCount;
+		return styleCount++;
+	}
+
+	/**
+	 * Returns a view of this geometry drawn in a single style. The coordinate and
+	 * depth columns are shared rather than copied, so restyling costs nothing
+	 * per segment; neither buffer may be added to afterwards.
+	 */
+	public SegmentBuffer restyled(Color colour, float width) {
+		int[] styleArgb = new int[Math.max(styleCount, 1)];
+		float[] styleWidth = new float[styleArgb.length];
+		Arrays.fill(styleArgb, colour.getRGB());
+		Arrays.fill(styleWidth, width);
+		return new SegmentBuffer(size, x1, y1, x2, y2, style, depth, styleArgb, styleWidth, getBounds(), maxDepth);
+	}
+
+	/**
+	 * Returns a view of this geometry drawn in a single colour, with every stroke
+	 * width multiplied by the given scale, so that relative widths (such as those
+	 * of parametric modules) are kept. Columns are shared as with
+	 * {@link #restyled}.
+	 */
+	public SegmentBuffer rescaled(Color colour, float scale) {
+		int[] styleArgb = new int[Math.max(styleCount, 1)];
+		float[] styleWidth = new float[styleArgb.length];
+		Arrays.fill(styleArgb, colour.getRGB());
+		Arrays.fill(styleWidth, scale);
+		for (int i = 0; i < styleCount; i++) {
+			styleWidth[i] = this.styleWidth[i] * scale;
+		}
+		return new SegmentBuffer(size, x1, y1, x2, y2, style, depth, styleArgb, styleWidth, getBounds(), maxDepth);
+	}
+
+	/**
+	 * Returns a view of this geometry with a new style column and style table.
+	 * As with {@link #restyled}, the coordinate and depth columns are shared.
+	 */
+	SegmentBuffer withStyles(int[] style, int[] styleArgb, float[] styleWidth) {
+		return new SegmentBuffer(size, x1, y1, x2, y2, style, depth, styleArgb, styleWidth, getBounds(), maxDepth);
+	}
+
+	/**
+	 * Removes all segments and styles while keeping the allocated capacity.
+	 */
+	public void clear() {
+		size = 0;
+		styleCount = 0;
+		lastStyle = -1;
+		maxDepth = 0;
+		minX = minY = Float.POSITIVE_INFINITY;
+		maxX = maxY = Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Draws all segments batched by style: the segments of each style are
+	 * collected into paths of at most {@value #DRAW_BATCH} segments and stroked
+	 * together, so stroke and colour are set once per style rather than per
+	 * segment. Styles are drawn in the order of the style table.
+	 */
+	public void draw(Graphics2D g2) {
+		draw(g2, false);
+	}
+
+	/**
+	 * Draws all segments like {@link #draw(Graphics2D)}, but with the thinnest
+	 * line the device can draw instead of the styled widths.
+	 */
+	public void drawHairlines(Graphics2D g2) {
+		draw(g2, true);
+	}
+
+	private void draw(Graphics2D g2, boolean hairlines) {
+		int[] counts = new int[styleCount];
+		for (int i = 0; i < size; i++) {
+			counts[style[i]]++;
+		}
+		for (int s = 0; s < styleCount; s++) {
+			if (counts[s] == 0) {
+				continue;
+			}
+			g2.setStroke(new BasicStroke(hairlines ? 0 : styleWidth[s]));
+			g2.setColor(new Color(styleArgb[s], true));
+			Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * Math.min(counts[s], DRAW_BATCH));
+			int batched = 0;
+			for (int i = 0; i < size; i++) {
+				if (style[i] != s) {
+					continue;
+				}
+				path.moveTo(x1[i], y1[i]);
+				path.lineTo(x2[i], y2[i]);
+				if (++batched == DRAW_BATCH) {
+					g2.draw(path);
+					path.reset();
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				g2.draw(path);
+			}
+		}
+	}
+
+	/**
+	 * Returns a reduced copy for previews: the plane is divided into square cells
+	 * of the given size and of all segments joining the same two cells only the
+	 * first is kept. At a cell size of one device pixel the result looks nearly
+	 * the same as the full geometry, but its size is bounded by the covered
+	 * pixels rather than by the number of segments. Cell pairs are compared by a
+	 * 64-bit hash, so on a rare collision a segment is dropped as well.
+	 *
+	 * @return a new buffer with its own columns, or this buffer if hardly
+	 *         anything would be removed
+	 * @throws IllegalArgumentException if the cell size is not positive
+	 */
+	public SegmentBuffer simplified(float cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive.");
+		}
+		float scale = 1 / cellSize;
+		long[] seen = new long[Integer.highestOneBit(Math.max(size, 4)) * 4];
+		int mask = seen.length - 1;
+		int[] kept = new int[size];
+		int keptCount = 0;
+		for (int i = 0; i < size; i++) {
+			long from = cell(x1[i] * scale, y1[i] * scale);
+			long to = cell(x2[i] * scale, y2[i] * scale);
+			long key = mix(Math.min(from, to) * 31 + mix(Math.max(from, to)));
+			if (key == 0) {
+				key = 1; // 0 marks an empty slot
+			}
+			int slot = (int) key & mask;
+			while (seen[slot] != 0 && seen[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if (seen[slot] == 0) {
+				seen[slot] = key;
+				kept[keptCount++] = i;
+			}
+		}
+		if (keptCount > size * 0.9) {
+			return this;
+		}
+
+		float[] x1 = new float[keptCount];
+		float[] y1 = new float[keptCount];
+		float[] x2 = new float[keptCount];
+		float[] y2 = new float[keptCount];
+		int[] style = new int[keptCount];
+		int[] depth = new int[keptCount];
+		for (int k = 0; k < keptCount; k++) {
+			int i = kept[k];
+			x1[k] = this.x1[i];
+			y1[k] = this.y1[i];
+			x2[k] = this.x2[i];
+			y2[k] = this.y2[i];
+			style[k] = this.style[i];
+			depth[k] = this.depth[i];
+		}
+		return new SegmentBuffer(keptCount, x1, y1, x2, y2, style, depth, Arrays.copyOf(styleArgb, styleCount),
+				Arrays.copyOf(styleWidth, styleCount), getBounds(), maxDepth);
+	}
+
+	/**
+	 * Writes the end points moved to (translateX + scale * x, translateY + scale
+	 * * y), e.g. device coordinates, into the given arrays, which must hold at
+	 * least {@link #size()} values each. The columns are transformed one after
+	 * another in plain loops over the arrays, which the JIT compiles to SIMD
+	 * instructions, rather than point by point through an
+	 * {@link java.awt.geom.AffineTransform}. The arithmetic is done in float, like
+	 * the columns themselves, since converting to double keeps the loops from
+	 * being vectorized. When the JVM runs with --add-modules
+	 * jdk.incubator.vector the columns go through {@link VectorKernels} instead,
+	 * with the same results.
+	 */
+	public void transform(double scale, double translateX, double translateY, float[] x1, float[] y1, float[] x2,
+			float[] y2) {
+		transformColumn(this.x1, x1, size, scale, translateX);
+		transformColumn(this.y1, y1, size, scale, translateY);
+		transformColumn(this.x2, x2, size, scale, translateX);
+		transformColumn(this.y2, y2, size, scale, translateY);
+	}
+
+	/**
+	 * Transforms the end points like {@link #transform} and moves them to the
+	 * centre of the pixel they fall in, as Java2D's default stroke control does.
+	 */
+	public void transformToPixelCentres(double scale, double translateX, double translateY, float[] x1, float[] y1,
+			float[] x2, float[] y2) {
+		pixelCentreColumn(this.x1, x1, size, scale, translateX);
+		pixelCentreColumn(this.y1, y1, size, scale, translateY);
+		pixelCentreColumn(this.x2, x2, size, scale, translateX);
+		pixelCentreColumn(this.y2, y2, size, scale, translateY);
+	}
+
+	private static void transformColumn(float[] from, float[] to, int size, double scale, double translate) {
+		if (VECTOR_KERNELS) {
+			VectorKernels.transformColumn(from, to, size, scale, translate);
+			return;
+		}
+		float s = (float) scale;
+		float t = (float) translate;
+		for (int i = 0; i < size; i++) {
+			to[i] = t + s * from[i];
+		}
+	}
+
+	private static void pixelCentreColumn(float[] from, float[] to, int size, double scale, double translate) {
+		if (VECTOR_KERNELS) {
+			VectorKernels.pixelCentreColumn(from, to, size, scale, translate);
+			return;
+		}
+		// In double and in the order of an AffineTransform, so points on a pixel edge snap like Java2D's
+		for (int i = 0; i < size; i++) {
+			to[i] = (float) Math.floor(from[i] * scale + translate) + 0.5f;
+		}
+	}
+
+	private static long cell(float x, float y) {
+		return ((long) (int) Math.floor(x) << 32) | ((int) Math.floor(y) & 0xFFFFFFFFL);
+	}
+
+	// SplitMix64 finalizer
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// Getters
+	public int size() {
+		return size;
+	}
+
+	public float getX1(int i) {
+		return x1[i];
+	}
+
+	public float getY1(int i) {
+		return y1[i];
+	}
+
+	public float getX2(int i) {
+		return x2[i];
+	}
+
+	public float getY2(int i) {
+		return y2[i];
+	}
+
+	public int getStyle(int i) {
+		return style[i];
+	}
+
+	public int getDepth(int i) {
+		return depth[i];
+	}
+
+	public int getStyleCount() {
+		return styleCount;
+	}
+
+	public int getStyleArgb(int styleIndex) {
+		return styleArgb[styleIndex];
+	}
+
+	public float getStyleWidth(int styleIndex) {
+		return styleWidth[styleIndex];
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the bounding box of all segments, or an empty rectangle when the
+	 * buffer holds no segments.
+	 */
+	public Rectangle2D.Float getBounds() {
+		if (size == 0) {
+			return new Rectangle2D.Float();
+		}
+		return new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	// Column access for bulk operations within the model package
+	float[] x1Column() {
+		return x1;
+	}
+
+	float[] y1Column() {
+		return y1;
+	}
+
+	float[] x2Column() {
+		return x2;
+	}
+
+	float[] y2Column() {
+		return y2;
+	}
+
+	int[] styleColumn() {
+		return style;
+	}
+
+	int[] depthColumn() {
+		return depth;
+	}
+
+	private void includeInBounds(float x1, float y1, float x2, float y2) {
+		minX = Math.min(minX, Math.min(x1, x2));
+		minY = Math.min(minY, Math.min(y1, y2));
+		maxX = Math.max(maxX, Math.max(x1, x2));
+		maxY = Math.max(maxY, Math.max(y1, y2));
+	}
+
+	private void grow() {
+		int capacity = Math.max(x1.length * 2, INITIAL_CAPACITY);
+		x1 = Arrays.copyOf(x1, capacity);
+		y1 = Arrays.copyOf(y1, capacity);
+		x2 = Arrays.copyOf(x2, capacity);
+		y2 = Arrays.copyOf(y2, capacity);
+		style = Arrays.copyOf(style, capacity);
+		depth = Arrays.copyOf(depth, capacity);
+	}
+}
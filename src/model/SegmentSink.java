@@ -0,0 +1,33 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+
+/**
+ * Receives the line segments produced by a turtle walk. Implementations can
+ * retain the geometry, analyse it or forward it elsewhere without the walk
+ * having to know about a Graphics context.
+ */
+public interface SegmentSink {
+
+	/**
+	 * Called for every segment drawn while the pen is down.
+	 *
+	 * @param depth the bracket (branch) depth at which the segment was drawn
+	 */
+	void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth);
+
+	/**
+	 * Called when the turtle saves its state, i.e. a new branch begins.
+	 */
+	default void push(int depth) {
+	}
+
+	/**
+	 * Called when the turtle restores a saved state, i.e. a branch ends.
+	 */
+	default void pop(int depth) {
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+
+/**
+ * ShapeMetrics measures the shape of a turtle walk as it is drawn, without
+ * retaining or rasterizing its segments: the number of segments, the deepest
+ * branch, the bounding box and how evenly the drawing is spread to both sides
+ * of the vertical line through the turtle's start point.
+ */
+public class ShapeMetrics implements SegmentSink {
+
+	private final float originX;
+	private long segments;
+	private int maxDepth;
+	private float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+	private float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+	// Sums of the horizontal offsets of the segment midpoints from the start point
+	private double offsetSum;
+	private double absoluteOffsetSum;
+
+	/**
+	 * @param originX the x coordinate the turtle starts at
+	 */
+	public ShapeMetrics(float originX) {
+		this.originX = originX;
+	}
+
+	@Override
+	public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth) {
+		segments++;
+		maxDepth = Math.max(maxDepth, depth);
+		minX = Math.min(minX, Math.min(x1, x2));
+		minY = Math.min(minY, Math.min(y1, y2));
+		maxX = Math.max(maxX, Math.max(x1, x2));
+		maxY = Math.max(maxY, Math.max(y1, y2));
+		double offset = (x1 + x2) / 2.0 - originX;
+		offsetSum += offset;
+		absoluteOffsetSum += Math.abs(offset);
+	}
+
+	public long getSegments() {
+		return segments;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public float getWidth() {
+		return segments == 0 ? 0 : maxX - minX;
+	}
+
+	public float getHeight() {
+		return segments == 0 ? 0 : maxY - minY;
+	}
+
+	/**
+	 * Returns the height of the bounding box divided by its width; a drawing
+	 * without width counts as one unit wide.
+	 */
+	public double getAspect() {
+		return getHeight() / Math.max(1.0, getWidth());
+	}
+
+	/**
+	 * Returns 1 if the segments balance out on both sides of the start point and
+	 * 0 if they all lie on one side.
+	 */
+	public double getSymmetry() {
+		return absoluteOffsetSum == 0 ? 1 : 1 - Math.abs(offsetSum) / absoluteOffsetSum;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.Arrays;
+
+/**
+ * SpatialGeometry retains the segments of a 3D turtle walk in primitive,
+ * column-oriented arrays, like {@link SegmentBuffer} does for the plane: one
+ * float column per coordinate, a style column referencing a small style table
+ * and the bracket depth of every segment.
+ *
+ * It is projected onto the plane by a {@link Camera}; the projected
+ * SegmentBuffers share the style and depth columns, so the geometry must not be
+ * added to once it has been projected.
+ */
+public class SpatialGeometry {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int size;
+	private float[] x1;
+	private float[] y1;
+	private float[] z1;
+	private float[] x2;
+	private float[] y2;
+	private float[] z2;
+	private int[] style;
+	private int[] depth;
+
+	private int styleCount;
+	private int[] styleArgb = new int[4];
+	private float[] styleWidth = new float[4];
+	private int lastStyle = -1;
+	private int maxDepth;
+
+	public SpatialGeometry() {
+		x1 = new float[INITIAL_CAPACITY];
+		y1 = new float[INITIAL_CAPACITY];
+		z1 = new float[INITIAL_CAPACITY];
+		x2 = new float[INITIAL_CAPACITY];
+		y2 = new float[INITIAL_CAPACITY];
+		z2 = new float[INITIAL_CAPACITY];
+		style = new int[INITIAL_CAPACITY];
+		depth = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Appends a segment.
+	 */
+	public void add(float x1, float y1, float z1, float x2, float y2, float z2, int argb, float width, int depth) {
+		if (size == this.x1.length) {
+			grow();
+		}
+		this.x1[size] = x1;
+		this.y1[size] = y1;
+		this.z1[size] = z1;
+		this.x2[size] = x2;
+		this.y2[size] = y2;
+		this.z2[size] = z2;
+		this.style[size] = styleIndex(argb, width);
+		this.depth[size] = depth;
+		size++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	/*
+	 * Same lookup as SegmentBuffer.styleIndex(): drawings use only a handful of
+	 * styles.
+	 */
+	private int styleIndex(int argb, float width) {
+		if (lastStyle >= 0 && styleArgb[lastStyle] == argb && styleWidth[lastStyle] == width) {
+			return lastStyle;
+		}
+		for (int i = 0; i < styleCount; i++) {
+			if (styleArgb[i] == argb && styleWidth[i] == width) {
+				lastStyle = i;
+				return i;
+			}
+		}
+		if (styleCount == styleArgb.length) {
+			styleArgb = Arrays.copyOf(styleArgb, styleCount * 2);
+			styleWidth = Arrays.copyOf(styleWidth, styleCount * 2);
+		}
+		styleArgb[styleCount] = argb;
+		styleWidth[styleCount] = width;
+		lastStyle = styleCount;
+		return styleCount++;
+	}
+
+	// Getters
+	public int size() {
+		return size;
+	}
+
+	public float getX1(int i) {
+		return x1[i];
+	}
+
+	public float getY1(int i) {
+		return y1[i];
+	}
+
+	public float getZ1(int i) {
+		return z1[i];
+	}
+
+	public float getX2(int i) {
+		return x2[i];
+	}
+
+	public float getY2(int i) {
+		return y2[i];
+	}
+
+	public float getZ2(int i) {
+		return z2[i];
+	}
+
+	public int getDepth(int i) {
+		return depth[i];
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	// Column access for the projection within the model package
+	float[] x1Column() {
+		return x1;
+	}
+
+	float[] y1Column() {
+		return y1;
+	}
+
+	float[] z1Column() {
+		return z1;
+	}
+
+	float[] x2Column() {
+		return x2;
+	}
+
+	float[] y2Column() {
+		return y2;
+	}
+
+	float[] z2Column() {
+		return z2;
+	}
+
+	int[] styleColumn() {
+		return style;
+	}
+
+	int[] depthColumn() {
+		return depth;
+	}
+
+	int[] styleArgbTable() {
+		return Arrays.copyOf(styleArgb, styleCount);
+	}
+
+	float[] styleWidthTable() {
+		return Arrays.copyOf(styleWidth, styleCount);
+	}
+
+	private void grow() {
+		int capacity = x1.length * 2;
+		x1 = Arrays.copyOf(x1, capacity);
+		y1 = Arrays.copyOf(y1, capacity);
+		z1 = Arrays.copyOf(z1, capacity);
+		x2 = Arrays.copyOf(x2, capacity);
+		y2 = Arrays.copyOf(y2, capacity);
+		z2 = Arrays.copyOf(z2, capacity);
+		style = Arrays.copyOf(style, capacity);
+		depth = Arrays.copyOf(depth, capacity);
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * SpatialInterpreter walks a sequence of L-System symbols with a turtle in 3D
+ * space and records the segments into a {@link SpatialGeometry}. It is the 3D
+ * counterpart of {@link TurtleInterpreter} and interprets the same commands,
+ * plus pitching (&amp; ^) and rolling (\ /).
+ *
+ * The turtle's orientation is the rotation matrix of its heading H, left L and
+ * up U vectors, kept together with the position in primitive locals; a push
+ * copies these twelve doubles onto a flat double[] stack. The turtle starts at
+ * the origin heading up (+y) with its up vector towards the viewer (+z), so a
+ * walk without spatial commands lies in the plane z = 0 and, seen by the
+ * default {@link Camera}, looks like the 2D drawing. As in
+ * {@link TurtleInterpreter}, modules of a {@link ModuleString} take their step
+ * length, thickness and angle from their parameters.
+ */
+public class SpatialInterpreter {
+
+	private static final int STATE = 12; // position, H, L and U
+
+	private final Map<Character, TurtleCommand> commandMap;
+	private final double angle;
+	private final double step;
+	private final double thickness;
+	private final Color colour;
+
+	public SpatialInterpreter(Map<Character, TurtleCommand> commandMap, double angle, double step, double thickness,
+			Color colour) {
+		this.commandMap = commandMap;
+		this.angle = angle;
+		this.step = step;
+		this.thickness = thickness;
+		this.colour = colour;
+	}
+
+	/**
+	 * Interprets the symbols into 3D geometry.
+	 *
+	 * @throws IllegalArgumentException if a symbol has no command
+	 */
+	public SpatialGeometry interpret(CharSequence symbols) {
+		SpatialGeometry geometry = new SpatialGeometry();
+		ModuleString modules = symbols instanceof ModuleString moduleString ? moduleString : null;
+		int argb = colour.getRGB();
+
+		double x = 0, y = 0, z = 0;
+		double hx = 0, hy = 1, hz = 0;
+		double lx = -1, ly = 0, lz = 0;
+		double ux = 0, uy = 0, uz = 1;
+		double[] stack = new double[STATE * 16];
+		int depth = 0;
+		// Rotation by the angle in degrees, as in Turtle.left()
+		double radians = angle * 2 * Math.PI / 360.0;
+		double turnCos = Math.cos(radians);
+		double turnSin = Math.sin(radians);
+
+		for (int i = 0; i < symbols.length(); i++) {
+			char ch = symbols.charAt(i);
+			TurtleCommand command = commandMap.get(ch);
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + ch + "'");
+			}
+			boolean parametric = modules != null && modules.getArity(i) > 0;
+			double value = parametric ? modules.column(0)[i] : command == TurtleCommand.MOVE ? step : angle;
+			double cos = turnCos;
+			double sin = turnSin;
+			if (parametric && command != TurtleCommand.MOVE && command != TurtleCommand.PUSH
+					&& command != TurtleCommand.POP) {
+				// A parametric turn by its own angle
+				double turn = value * 2 * Math.PI / 360.0;
+				cos = Math.cos(turn);
+				sin = Math.sin(turn);
+			}
+			switch (command) {
+			case MOVE -> {
+				double width = parametric && modules.getArity(i) > 1 ? thickness * modules.column(1)[i] : thickness;
+				double nx = x + hx * value;
+				double ny = y + hy * value;
+				double nz = z + hz * value;
+				geometry.add((float) x, (float) y, (float) z, (float) nx, (float) ny, (float) nz, argb,
+						(float) width, depth);
+				x = nx;
+				y = ny;
+				z = nz;
+			}
+			case TURNLEFT, TURNRIGHT, TURNAROUND -> {
+				// Rotation about U; turning left moves H towards L
+				if (command == TurtleCommand.TURNRIGHT) {
+					sin = -sin;
+				} else if (command == TurtleCommand.TURNAROUND) {
+					cos = -1;
+					sin = 0;
+				}
+				double nhx = hx * cos + lx * sin, nhy = hy * cos + ly * sin, nhz = hz * cos + lz * sin;
+				lx = lx * cos - hx * sin;
+				ly = ly * cos - hy * sin;
+				lz = lz * cos - hz * sin;
+				hx = nhx;
+				hy = nhy;
+				hz = nhz;
+			}
+			case PITCHDOWN, PITCHUP -> {
+				// Rotation about L; pitching down moves H away from U
+				if (command == TurtleCommand.PITCHUP) {
+					sin = -sin;
+				}
+				double nhx = hx * cos - ux * sin, nhy = hy * cos - uy * sin, nhz = hz * cos - uz * sin;
+				ux = ux * cos + hx * sin;
+				uy = uy * cos + hy * sin;
+				uz = uz * cos + hz * sin;
+				hx = nhx;
+				hy = nhy;
+				hz = nhz;
+			}
+			case ROLLLEFT, ROLLRIGHT -> {
+				// Rotation about H; rolling left moves L towards U
+				if (command == TurtleCommand.ROLLRIGHT) {
+					sin = -sin;
+				}
+				double nlx = lx * cos + ux * sin, nly = ly * cos + uy * sin, nlz = lz * cos + uz * sin;
+				ux = ux * cos - lx * sin;
+				uy = uy * cos - ly * sin;
+				uz = uz * cos - lz * sin;
+				lx = nlx;
+				ly = nly;
+				lz = nlz;
+			}
+			case PUSH -> {
+				if ((depth + 1) * STATE > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				int base = depth * STATE;
+				stack[base] = x;
+				stack[base + 1] = y;
+				stack[base + 2] = z;
+				stack[base + 3] = hx;
+				stack[base + 4] = hy;
+				stack[base + 5] = hz;
+				stack[base + 6] = lx;
+				stack[base + 7] = ly;
+				stack[base + 8] = lz;
+				stack[base + 9] = ux;
+				stack[base + 10] = uy;
+				stack[base + 11] = uz;
+				depth++;
+			}
+			case POP -> {
+				// Like Turtle.pop(), an unmatched pop is ignored
+				if (depth > 0) {
+					depth--;
+					int base = depth * STATE;
+					x = stack[base];
+					y = stack[base + 1];
+					z = stack[base + 2];
+					hx = stack[base + 3];
+					hy = stack[base + 4];
+					hz = stack[base + 5];
+					lx = stack[base + 6];
+					ly = stack[base + 7];
+					lz = stack[base + 8];
+					ux = stack[base + 9];
+					uy = stack[base + 10];
+					uz = stack[base + 11];
+				}
+			}
+			}
+		}
+		return geometry;
+	}
+}
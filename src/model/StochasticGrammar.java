@@ -0,0 +1,214 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * StochasticGrammar holds productions with several weighted right-hand sides
+ * per symbol, written with the weight in parentheses in front of each
+ * alternative, e.g. "F→(0.3)F[+F]F, F→(0.7)F[-F]F". Weights are relative and
+ * need not add up to 1.
+ *
+ * Every random choice is derived from the seed, the iteration being produced
+ * and the position of the symbol in the previous generation alone, using a
+ * SplitMix64 hash. No random generator state is carried from one symbol to the
+ * next, so the expansion can be split into chunks that are expanded in
+ * parallel and still equals the sequential one symbol for symbol; a generation
+ * is fully reproducible from its seed.
+ */
+public class StochasticGrammar {
+
+	private static final Pattern WEIGHTED = Pattern.compile("\\(([0-9]*\\.?[0-9]+)\\)(.+)");
+
+	private final Map<Character, List<String>> alternatives;
+
+	// Lookup by symbol for the expansion loop; null when a symbol has no rule
+	private final char[][][] productionTable;
+	private final double[][] cumulativeTable;
+
+	private StochasticGrammar(Map<Character, List<String>> alternatives, Map<Character, double[]> weights) {
+		this.alternatives = alternatives;
+		int size = 0;
+		for (char symbol : alternatives.keySet()) {
+			size = Math.max(size, symbol + 1);
+		}
+		productionTable = new char[size][][];
+		cumulativeTable = new double[size][];
+		for (Map.Entry<Character, List<String>> entry : alternatives.entrySet()) {
+			List<String> productions = entry.getValue();
+			double[] weight = weights.get(entry.getKey());
+			char[][] chars = new char[productions.size()][];
+			double[] cumulative = new double[productions.size()];
+			double total = 0;
+			for (double w : weight) {
+				total += w;
+			}
+			double sum = 0;
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = productions.get(i).toCharArray();
+				sum += weight[i];
+				cumulative[i] = sum / total;
+			}
+			cumulative[chars.length - 1] = 1; // guards against rounding
+			productionTable[entry.getKey()] = chars;
+			cumulativeTable[entry.getKey()] = cumulative;
+		}
+	}
+
+	/**
+	 * Parses rules that may contain weighted alternatives. Symbols with a single
+	 * unweighted rule keep it as their only alternative; as in
+	 * {@link LSystemParser#parseRules(String)}, further unweighted rules for the
+	 * same symbol are ignored.
+	 *
+	 * @return the grammar, or null if no rule carries a weight
+	 * @throws IllegalArgumentException if a rule is malformed, a weight is not
+	 *                                  positive or a symbol mixes weighted and
+	 *                                  unweighted rules
+	 */
+	public static StochasticGrammar parse(String rulesInput) {
+		if (rulesInput == null || rulesInput.isBlank()) {
+			throw new IllegalArgumentException("Rules input cannot be null or empty.");
+		}
+		Map<Character, List<String>> alternatives = new LinkedHashMap<>();
+		Map<Character, List<Double>> weightLists = new HashMap<>();
+		Map<Character, Boolean> weighted = new HashMap<>();
+		boolean anyWeighted = false;
+		for (String pair : rulesInput.replaceAll("\\s+", "").split(",")) {
+			if (ContextSensitiveGrammar.isDirective(pair)) {
+				continue;
+			}
+			String[] parts = pair.split("→");
+			if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+				throw new IllegalArgumentException("Invalid rule format: " + pair);
+			}
+			char key = parts[0].charAt(0);
+			Matcher matcher = WEIGHTED.matcher(parts[1]);
+			boolean isWeighted = matcher.matches();
+			Boolean previous = weighted.putIfAbsent(key, isWeighted);
+			if (previous != null && previous != isWeighted) {
+				throw new IllegalArgumentException("Rules for " + key + " mix weighted and unweighted alternatives.");
+			}
+			if (!isWeighted) {
+				alternatives.putIfAbsent(key, new ArrayList<>(List.of(parts[1])));
+				weightLists.putIfAbsent(key, new ArrayList<>(List.of(1.0)));
+				continue;
+			}
+			double weight = Double.parseDouble(matcher.group(1));
+			if (!(weight > 0)) {
+				throw new IllegalArgumentException("Weight must be positive: " + pair);
+			}
+			anyWeighted = true;
+			alternatives.computeIfAbsent(key, k -> new ArrayList<>()).add(matcher.group(2));
+			weightLists.computeIfAbsent(key, k -> new ArrayList<>()).add(weight);
+		}
+		if (!anyWeighted) {
+			return null;
+		}
+		Map<Character, double[]> weights = new HashMap<>();
+		weightLists.forEach((key, list) -> weights.put(key, list.stream().mapToDouble(Double::doubleValue).toArray()));
+		return new StochasticGrammar(alternatives, weights);
+	}
+
+	/**
+	 * Returns whether the right-hand side of a rule starts with a weight.
+	 */
+	public static boolean isWeighted(String production) {
+		return WEIGHTED.matcher(production).matches();
+	}
+
+	/**
+	 * Returns a production per symbol that bounds all of its alternatives (see
+	 * {@link GrowthTable#boundingProduction}), for planning the expansion.
+	 */
+	public Map<Character, String> boundingProductions() {
+		Map<Character, String> bounding = new HashMap<>();
+		alternatives.forEach((key, list) -> bounding.put(key, GrowthTable.boundingProduction(list)));
+		return bounding;
+	}
+
+	/**
+	 * Returns the alternatives of a symbol, in the order they were written.
+	 */
+	public List<String> getAlternatives(char symbol) {
+		List<String> list = alternatives.get(symbol);
+		return list == null ? List.of() : List.copyOf(list);
+	}
+
+	/**
+	 * Returns the index of the alternative chosen for the symbol at the given
+	 * position of the previous generation while producing the given iteration,
+	 * or -1 if the symbol has no rule.
+	 */
+	public int choose(char symbol, long seed, int iteration, long position) {
+		double[] cumulative = symbol < cumulativeTable.length ? cumulativeTable[symbol] : null;
+		return cumulative == null ? -1 : choose(cumulative, seed, iteration, position);
+	}
+
+	/**
+	 * Expands the axiom; long generations are expanded in parallel chunks (see
+	 * {@link ChunkedRewriter}) with the same result.
+	 *
+	 * @throws IllegalStateException if a generation does not fit into a String
+	 */
+	public String expand(String axiom, int iterations, long seed) {
+		return expand(axiom, iterations, seed, true);
+	}
+
+	/**
+	 * Expands the axiom on the calling thread only.
+	 */
+	public String expandSequentially(String axiom, int iterations, long seed) {
+		return expand(axiom, iterations, seed, false);
+	}
+
+	private String expand(String axiom, int iterations, long seed, boolean parallel) {
+		char[] current = axiom.toCharArray();
+		for (int iteration = 1; iteration <= iterations; iteration++) {
+			char[] previous = current;
+			int generation = iteration;
+			current = ChunkedRewriter.rewrite(previous, position -> {
+				char symbol = previous[position];
+				char[][] productions = symbol < productionTable.length ? productionTable[symbol] : null;
+				return productions == null ? null
+						: productions[choose(cumulativeTable[symbol], seed, generation, position)];
+			}, parallel);
+		}
+		return new String(current);
+	}
+
+	private static int choose(double[] cumulative, long seed, int iteration, long position) {
+		if (cumulative.length == 1) {
+			return 0;
+		}
+		double u = (random(seed, iteration, position) >>> 11) * 0x1.0p-53;
+		int i = 0;
+		while (u >= cumulative[i]) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the random value for one symbol: a SplitMix64 hash chained over
+	 * the seed, the iteration and the position.
+	 */
+	static long random(long seed, int iteration, long position) {
+		return mix(mix(mix(seed) + iteration) + position);
+	}
+
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+/**
+ * A read-only view of an L-System expansion that is never materialized. The
+ * symbols are produced on demand by walking the derivation tree, so the memory
+ * needed is proportional to the number of iterations rather than to the length
+ * of the result.
+ *
+ * Sequential access (index i followed by i + 1, as in a turtle walk) costs
+ * amortized constant time. Any other access seeks from the root using the
+ * precomputed subtree lengths of the {@link GrowthTable}, which costs time
+ * proportional to the number of iterations.
+ *
+ * Instances keep a cursor and are therefore not thread-safe; use
+ * {@link #copy()} to give each thread its own view.
+ */
+public class StreamingSymbolSequence implements CharSequence {
+
+	private final GrowthTable table;
+	private final int iterations;
+	private final int length;
+
+	// Cursor: one production (or the axiom) per level of the derivation tree
+	private final int[][] levelSymbols;
+	private final int[] levelPosition;
+	private int level = -1;
+	private int cursor = -1;
+
+	public StreamingSymbolSequence(GrowthTable table, int iterations) {
+		long total = table.length(iterations);
+		if (total > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Expansion of " + total + " symbols cannot be addressed.");
+		}
+		this.table = table;
+		this.iterations = iterations;
+		this.length = (int) total;
+		this.levelSymbols = new int[iterations + 1][];
+		this.levelPosition = new int[iterations + 1];
+	}
+
+	/**
+	 * Returns an independent view with its own cursor over the same expansion.
+	 */
+	public StreamingSymbolSequence copy() {
+		return new StreamingSymbolSequence(table, iterations);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + (length - 1));
+		}
+		if (index == cursor + 1 && cursor >= 0) {
+			advance();
+		} else if (index != cursor) {
+			seek(index);
+		}
+		cursor = index;
+		return table.symbol(levelSymbols[level][levelPosition[level]]);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Invalid range " + start + ".." + end);
+		}
+		StringBuilder builder = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			builder.append(charAt(i));
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length).toString();
+	}
+
+	/*
+	 * Positions the cursor on the given index by descending from the axiom and
+	 * skipping whole subtrees whose lengths are known.
+	 */
+	private void seek(int index) {
+		long remaining = index;
+		level = 0;
+		levelSymbols[0] = table.axiom();
+		while (true) {
+			int[] symbols = levelSymbols[level];
+			int depth = iterations - level;
+			int position = 0;
+			long subtree = table.length(symbols[0], depth);
+			while (remaining >= subtree) {
+				remaining -= subtree;
+				position++;
+				subtree = table.length(symbols[position], depth);
+			}
+			levelPosition[level] = position;
+			int[] production = table.production(symbols[position]);
+			if (depth == 0 || production == null) {
+				return;
+			}
+			level++;
+			levelSymbols[level] = production;
+		}
+	}
+
+	/*
+	 * Moves the cursor to the next leaf of the derivation tree.
+	 */
+	private void advance() {
+		// Climb until a level still has symbols to the right
+		while (levelPosition[level] + 1 >= levelSymbols[level].length) {
+			level--;
+		}
+		levelPosition[level]++;
+		descendToFirstLeaf();
+	}
+
+	private void descendToFirstLeaf() {
+		while (true) {
+			int depth = iterations - level;
+			int[] production = table.production(levelSymbols[level][levelPosition[level]]);
+			if (depth == 0 || production == null) {
+				return;
+			}
+			level++;
+			levelSymbols[level] = production;
+			levelPosition[level] = 0;
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.util.*;
  */
 public class Turtle {
 	private Graphics g;
+	private SegmentSink sink;
 	private State state;
 	private Stack<State> stateStack;
 
@@ -32,16 +33,37 @@ public class Turtle {
 		liftPen();
 	}
 
+	/**
+	 * Creates a turtle that records its segments into the given sink instead of
+	 * drawing them.
+	 */
+	public Turtle(SegmentSink sink, int startX, int startY) {
+		this((Graphics) null, startX, startY);
+		this.sink = sink;
+	}
+
 	public void move(double step, double thickness, Color colour) {
-		Graphics2D g2 = (Graphics2D) this.g; // To accommodate stroke thickness
-		g2.setStroke(new BasicStroke((float)thickness));
-		
-		int dx = (int) (Math.cos(state.angle) * step);
-		int dy = (int) (Math.sin(state.angle) * step);
+		move(step, 1, thickness, colour);
+	}
+
+	/**
+	 * Moves the given number of steps in one straight segment. It ends where as
+	 * many single moves would, as each step is rounded the same way.
+	 */
+	public void move(double step, int count, double thickness, Color colour) {
+		int dx = (int) (Math.cos(state.angle) * step) * count;
+		int dy = (int) (Math.sin(state.angle) * step) * count;
 		dy = -dy;
 		if (state.pendown) {
-			g2.setColor(colour);
-			g2.drawLine(state.x, state.y, state.x + dx, state.y + dy);
+			if (sink != null) {
+				sink.segment(state.x, state.y, state.x + dx, state.y + dy, colour, (float) thickness,
+						stateStack.size());
+			} else {
+				Graphics2D g2 = (Graphics2D) this.g; // To accommodate stroke thickness
+				g2.setStroke(new BasicStroke((float)thickness));
+				g2.setColor(colour);
+				g2.drawLine(state.x, state.y, state.x + dx, state.y + dy);
+			}
 		}
 		state.x += dx;
 		state.y += dy;
@@ -92,14 +114,19 @@ public class Turtle {
 		s.y = state.y;
 		s.angle = state.angle;
 		stateStack.push(s);
+		if (sink != null)
+			sink.push(stateStack.size());
 	}
 
 	/**
 	 * Activates the last saved state.
 	 */
 	public void pop() {
-		if (!stateStack.empty())
+		if (!stateStack.empty()) {
 			state = (State)stateStack.pop();
+			if (sink != null)
+				sink.pop(stateStack.size());
+		}
 	}
 
 	public class State {
@@ -4,6 +4,7 @@
 package model;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Enum representing turtle graphics commands used to interpret and draw an
@@ -14,21 +15,52 @@ public enum TurtleCommand {
 	TURNRIGHT,  // Turn right by the current angle
 	TURNLEFT,   // Turn left by the current angle
 	PUSH,       // Save the current drawing state 
-	POP;        // Restore the last saved drawing state
+	POP,        // Restore the last saved drawing state
+	PITCHDOWN,  // Pitch down by the current angle (3D)
+	PITCHUP,    // Pitch up by the current angle (3D)
+	ROLLLEFT,   // Roll left by the current angle (3D)
+	ROLLRIGHT,  // Roll right by the current angle (3D)
+	TURNAROUND; // Turn by 180 degrees
 
 	/**
 	 * A predefined mapping of characters to turtle commands for common L-system
 	 * usage. This allows automatic interpretation of characters included here.
 	 */
-	public static final Map<Character, TurtleCommand> PREDEFINED_COMMANDS = Map.of(
-			'A', TurtleCommand.MOVE, 
-			'B', TurtleCommand.MOVE, 
-			'F', TurtleCommand.MOVE,
-			'G', TurtleCommand.MOVE, 
-			'X', TurtleCommand.MOVE, 
-			'Y', TurtleCommand.MOVE, 
-			'+', TurtleCommand.TURNRIGHT, 
-			'-', TurtleCommand.TURNLEFT,
-			'[', TurtleCommand.PUSH, 
-			']', TurtleCommand.POP);
+	public static final Map<Character, TurtleCommand> PREDEFINED_COMMANDS = Map.ofEntries(
+			Map.entry('A', TurtleCommand.MOVE), 
+			Map.entry('B', TurtleCommand.MOVE), 
+			Map.entry('F', TurtleCommand.MOVE),
+			Map.entry('G', TurtleCommand.MOVE), 
+			Map.entry('X', TurtleCommand.MOVE), 
+			Map.entry('Y', TurtleCommand.MOVE), 
+			Map.entry('+', TurtleCommand.TURNRIGHT), 
+			Map.entry('-', TurtleCommand.TURNLEFT),
+			Map.entry('[', TurtleCommand.PUSH), 
+			Map.entry(']', TurtleCommand.POP),
+			Map.entry('&', TurtleCommand.PITCHDOWN),
+			Map.entry('^', TurtleCommand.PITCHUP),
+			Map.entry('\\', TurtleCommand.ROLLLEFT),
+			Map.entry('/', TurtleCommand.ROLLRIGHT),
+			Map.entry('|', TurtleCommand.TURNAROUND));
+
+	/**
+	 * Returns whether the command leaves the drawing plane, i.e. needs the 3D
+	 * interpreter (see {@link SpatialInterpreter}).
+	 */
+	public boolean isSpatial() {
+		return this == PITCHDOWN || this == PITCHUP || this == ROLLLEFT || this == ROLLRIGHT;
+	}
+
+	/**
+	 * Returns whether any of the given symbols is mapped to a spatial command.
+	 */
+	public static boolean anySpatial(Set<Character> symbols, Map<Character, TurtleCommand> commandMap) {
+		for (char symbol : symbols) {
+			TurtleCommand command = commandMap.get(symbol);
+			if (command != null && command.isSpatial()) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,125 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.util.Map;
+
+/**
+ * TurtleInterpreter walks a sequence of L-System symbols and executes the
+ * turtle command mapped to each of them. It holds the drawing parameters so the
+ * same walk can be used for the screen, for offscreen renders and for recording
+ * geometry.
+ *
+ * When the symbols are a {@link ModuleString}, modules with parameters take
+ * their own values instead: the first parameter of a move is its step length
+ * and the second scales the thickness, and the first parameter of a turn is
+ * its angle in degrees.
+ *
+ * The walk stays in the plane: pitching and rolling have no effect here (see
+ * {@link SpatialInterpreter}), turning around turns by 180 degrees.
+ */
+public class TurtleInterpreter {
+
+	private final Map<Character, TurtleCommand> commandMap;
+	private final double angle;
+	private final double step;
+	private final double thickness;
+	private final Color colour;
+
+	public TurtleInterpreter(Map<Character, TurtleCommand> commandMap, double angle, double step, double thickness,
+			Color colour) {
+		this.commandMap = commandMap;
+		this.angle = angle;
+		this.step = step;
+		this.thickness = thickness;
+		this.colour = colour;
+	}
+
+	/**
+	 * Executes the command of every symbol with the given turtle. The pen is
+	 * lowered before the walk starts.
+	 *
+	 * @throws IllegalArgumentException if a symbol has no command
+	 */
+	public void interpret(CharSequence symbols, Turtle turtle) {
+		turtle.dropPen();
+		ModuleString modules = symbols instanceof ModuleString moduleString ? moduleString : null;
+		// Index the sequence directly; it may be far larger than a char[] copy could be
+		for (int i = 0; i < symbols.length(); i++) {
+			char ch = symbols.charAt(i);
+			TurtleCommand command = commandMap.get(ch);
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + ch + "'");
+			}
+			if (modules != null && modules.getArity(i) > 0) {
+				execute(turtle, command, modules, i);
+			} else {
+				execute(turtle, command);
+			}
+		}
+	}
+
+	/**
+	 * Runs a compiled program with the given turtle, with this interpreter's
+	 * drawing parameters. The pen is lowered before the walk starts.
+	 */
+	public void interpret(TurtleProgram program, Turtle turtle) {
+		turtle.dropPen();
+		program.run(turtle, angle, step, thickness, colour);
+	}
+
+	/**
+	 * Runs a compiled program into retained geometry, starting at the given
+	 * point.
+	 */
+	public SegmentBuffer interpret(TurtleProgram program, int startX, int startY) {
+		SegmentBuffer geometry = new SegmentBuffer();
+		interpret(program, new Turtle(geometry, startX, startY));
+		return geometry;
+	}
+
+	/**
+	 * Interprets the symbols into retained geometry, starting at the given point.
+	 */
+	public SegmentBuffer interpret(CharSequence symbols, int startX, int startY) {
+		SegmentBuffer geometry = new SegmentBuffer();
+		interpret(symbols, new Turtle(geometry, startX, startY));
+		return geometry;
+	}
+
+	/**
+	 * Executes a turtle instruction based on the provided command.
+	 */
+	private void execute(Turtle turtle, TurtleCommand command) {
+		switch (command) {
+		case MOVE -> turtle.move(step, thickness, colour);
+		case TURNRIGHT -> turtle.right(angle);
+		case TURNLEFT -> turtle.left(angle);
+		case PUSH -> turtle.push();
+		case POP -> turtle.pop();
+		case TURNAROUND -> turtle.left(180);
+		case PITCHDOWN, PITCHUP, ROLLLEFT, ROLLRIGHT -> {
+		}
+		}
+	}
+
+	/**
+	 * Executes a turtle instruction with the parameters of a module.
+	 */
+	private void execute(Turtle turtle, TurtleCommand command, ModuleString modules, int module) {
+		double first = modules.column(0)[module];
+		switch (command) {
+		case MOVE -> turtle.move(first, modules.getArity(module) > 1 ? thickness * modules.column(1)[module] : thickness,
+				colour);
+		case TURNRIGHT -> turtle.right(first);
+		case TURNLEFT -> turtle.left(first);
+		case PUSH -> turtle.push();
+		case POP -> turtle.pop();
+		case TURNAROUND -> turtle.left(180);
+		case PITCHDOWN, PITCHUP, ROLLLEFT, ROLLRIGHT -> {
+		}
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * TurtleProgram is a symbol string compiled into a compact array of turtle
+ * instructions, so that a string which is walked again and again (on every
+ * paint, or once per sweep cell) is looked up in the command map only once.
+ *
+ * While compiling, a peephole pass shortens the program:
+ * <ul>
+ * <li>a run of moves becomes one move over the whole distance; it ends at
+ * exactly the same point, as every step is still rounded like a single move
+ * (see {@link Turtle#move(double, int, double, Color)})</li>
+ * <li>a run of turns becomes one net turn, and turns that cancel out are
+ * dropped; when replayed, the net turn is taken modulo 360 degrees, so a run
+ * that turns all the way round is skipped as well</li>
+ * <li>turns just before a pop, and at the very end, are dropped as nothing
+ * sees them; so is a push directly followed by its pop, and a pop without a
+ * push</li>
+ * <li>pitching and rolling, which have no effect in the plane, are dropped</li>
+ * </ul>
+ * The program draws the same picture with fewer, longer segments. It does not
+ * depend on the angle or step, so it can be replayed with any of them.
+ *
+ * Each instruction is one int: the opcode in the low bits and its operand (the
+ * number of steps, or the net number of right turns) above them.
+ */
+public class TurtleProgram {
+
+	private static final int MOVE = 0;
+	private static final int TURN = 1;
+	private static final int TURNAROUND = 2;
+	private static final int PUSH = 3;
+	private static final int POP = 4;
+	private static final int OPCODE_BITS = 3;
+	private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+	private static final int MAX_OPERAND = (1 << (31 - OPCODE_BITS)) - 1;
+
+	private final int[] code;
+	private final long symbols;
+
+	private TurtleProgram(int[] code, long symbols) {
+		this.code = code;
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Compiles the symbols with the given command map.
+	 *
+	 * @throws IllegalArgumentException if a symbol has no command, or the symbols
+	 *                                  are modules with parameters, which need
+	 *                                  the {@link TurtleInterpreter}
+	 */
+	public static TurtleProgram compile(CharSequence symbols, Map<Character, TurtleCommand> commandMap) {
+		if (symbols instanceof ModuleString) {
+			throw new IllegalArgumentException("Parametric modules cannot be compiled.");
+		}
+		// One lookup per distinct symbol rather than per occurrence
+		TurtleCommand[] commands = new TurtleCommand[Character.MAX_VALUE + 1];
+		for (Map.Entry<Character, TurtleCommand> entry : commandMap.entrySet()) {
+			commands[entry.getKey()] = entry.getValue();
+		}
+
+		Compiler compiler = new Compiler(Math.max(16, symbols.length() / 4));
+		for (int i = 0; i < symbols.length(); i++) {
+			char ch = symbols.charAt(i);
+			TurtleCommand command = commands[ch];
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + ch + "'");
+			}
+			switch (command) {
+			case MOVE -> compiler.move();
+			case TURNRIGHT -> compiler.turns++;
+			case TURNLEFT -> compiler.turns--;
+			case TURNAROUND -> compiler.halfTurns ^= 1;
+			case PUSH -> compiler.push();
+			case POP -> compiler.pop();
+			case PITCHDOWN, PITCHUP, ROLLLEFT, ROLLRIGHT -> {
+			}
+			}
+		}
+		return new TurtleProgram(compiler.finish(), symbols.length());
+	}
+
+	/*
+	 * Emits instructions, holding back moves and turns until the run they belong
+	 * to has ended. The emitted pushes and pops are balanced, so a push at the
+	 * end of the code is always the one the next pop closes.
+	 */
+	private static final class Compiler {
+		private int[] code;
+		private int length;
+		private int steps; // pending run of moves
+		private long turns; // pending net right turns
+		private int halfTurns; // pending turn around, 0 or 1
+		private int depth;
+
+		private Compiler(int capacity) {
+			code = new int[capacity];
+		}
+
+		private void move() {
+			if (turns != 0 || halfTurns != 0) {
+				flush();
+			}
+			if (steps == MAX_OPERAND) {
+				flushMoves();
+			}
+			steps++;
+		}
+
+		private void push() {
+			flush();
+			emit(PUSH, 0);
+			depth++;
+		}
+
+		private void pop() {
+			if (depth == 0) {
+				// The turtle ignores a pop without a push
+				return;
+			}
+			depth--;
+			flushMoves();
+			// The pop restores the heading, so the turns before it are never seen
+			turns = 0;
+			halfTurns = 0;
+			dropTrailingTurns();
+			if (length > 0 && opcode(length - 1) == PUSH) {
+				// Nothing was drawn since the push, so a move before it may go on
+				length--;
+				if (length > 0 && opcode(length - 1) == MOVE) {
+					steps = code[--length] >> OPCODE_BITS;
+				}
+			} else {
+				emit(POP, 0);
+			}
+		}
+
+		private void dropTrailingTurns() {
+			while (length > 0 && (opcode(length - 1) == TURN || opcode(length - 1) == TURNAROUND)) {
+				length--;
+			}
+		}
+
+		private int opcode(int index) {
+			return code[index] & OPCODE_MASK;
+		}
+
+		private void flush() {
+			flushMoves();
+			flushTurns();
+		}
+
+		private void flushMoves() {
+			if (steps > 0) {
+				emit(MOVE, steps);
+				steps = 0;
+			}
+		}
+
+		private void flushTurns() {
+			// A net turn is only ever a few whole turns; larger ones are split
+			while (turns != 0) {
+				int chunk = (int) Math.max(-MAX_OPERAND, Math.min(MAX_OPERAND, turns));
+				emit(TURN, chunk);
+				turns -= chunk;
+			}
+			if (halfTurns != 0) {
+				emit(TURNAROUND, 0);
+				halfTurns = 0;
+			}
+		}
+
+		private void emit(int opcode, int operand) {
+			if (length == code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[length++] = operand << OPCODE_BITS | opcode;
+		}
+
+		private int[] finish() {
+			flushMoves();
+			// Turns at the end are never seen
+			dropTrailingTurns();
+			return Arrays.copyOf(code, length);
+		}
+	}
+
+	/**
+	 * Runs the program with the given turtle and drawing parameters.
+	 */
+	public void run(Turtle turtle, double angle, double step, double thickness, Color colour) {
+		for (int instruction : code) {
+			int operand = instruction >> OPCODE_BITS;
+			switch (instruction & OPCODE_MASK) {
+			case MOVE -> turtle.move(step, operand, thickness, colour);
+			case TURN -> {
+				double degrees = operand * angle % 360;
+				if (degrees != 0) {
+					turtle.right(degrees);
+				}
+			}
+			case TURNAROUND -> turtle.left(180);
+			case PUSH -> turtle.push();
+			case POP -> turtle.pop();
+			default -> throw new IllegalStateException("Invalid instruction: " + instruction);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of instructions.
+	 */
+	public int getLength() {
+		return code.length;
+	}
+
+	/**
+	 * Returns the number of symbols the program was compiled from.
+	 */
+	public long getSymbols() {
+		return symbols;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The column kernels of {@link SegmentBuffer#transform} and
+ * {@link SegmentBuffer#transformToPixelCentres} written with the incubating
+ * Vector API, so they use the widest SIMD registers of the machine whether or
+ * not the JIT manages to vectorize the plain loops.
+ *
+ * The module is only resolved when the JVM is started with --add-modules
+ * jdk.incubator.vector; SegmentBuffer checks for it and otherwise keeps to its
+ * scalar loops, so this class must not be loaded without it. It also keeps to
+ * them when {@link #isSupported()} is false. Both kernels give bit for bit the
+ * results of the scalar loops.
+ */
+public final class VectorKernels {
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	// Floats as many as DOUBLES has lanes, to be widened to and narrowed from it; null if no shape is that small
+	private static final VectorSpecies<Float> NARROW_FLOATS = narrowFloats();
+	// From here on every double is a whole number, which is its own floor
+	private static final double INTEGRAL = 0x1p52;
+
+	private VectorKernels() {
+	}
+
+	/*
+	 * With vectors of a single double, e.g. under -XX:MaxVectorSize=8, there is
+	 * no shape of half that size.
+	 */
+	private static VectorSpecies<Float> narrowFloats() {
+		try {
+			return VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether the machine's vector shapes suit the kernels. If not,
+	 * neither kernel may be called.
+	 */
+	public static boolean isSupported() {
+		return NARROW_FLOATS != null;
+	}
+
+	/**
+	 * Writes translate + scale * from[i] in float arithmetic for the first size
+	 * values.
+	 */
+	public static void transformColumn(float[] from, float[] to, int size, double scale, double translate) {
+		float s = (float) scale;
+		float t = (float) translate;
+		int i = 0;
+		for (int bound = FLOATS.loopBound(size); i < bound; i += FLOATS.length()) {
+			FloatVector.fromArray(FLOATS, from, i).mul(s).add(t).intoArray(to, i);
+		}
+		for (; i < size; i++) {
+			to[i] = t + s * from[i];
+		}
+	}
+
+	/**
+	 * Writes floor(from[i] * scale + translate) + 0.5 for the first size values,
+	 * the transform in double like an AffineTransform.
+	 */
+	public static void pixelCentreColumn(float[] from, float[] to, int size, double scale, double translate) {
+		int i = 0;
+		for (int bound = DOUBLES.loopBound(size); i < bound; i += DOUBLES.length()) {
+			DoubleVector device = ((DoubleVector) FloatVector.fromArray(NARROW_FLOATS, from, i)
+					.convertShape(VectorOperators.F2D, DOUBLES, 0)).mul(scale).add(translate);
+			floor(device).convertShape(VectorOperators.D2F, NARROW_FLOATS, 0).reinterpretAsFloats().add(0.5f)
+					.intoArray(to, i);
+		}
+		for (; i < size; i++) {
+			to[i] = (float) Math.floor(from[i] * scale + translate) + 0.5f;
+		}
+	}
+
+	/*
+	 * Math.floor lane by lane. Adding and subtracting 2^52 rounds the magnitude
+	 * to a whole number; where that rounded up, one is taken off. Lanes too
+	 * large to have a fraction, and NaNs, are kept as they are.
+	 */
+	private static DoubleVector floor(DoubleVector values) {
+		DoubleVector magnitude = values.abs();
+		DoubleVector rounded = magnitude.add(INTEGRAL).sub(INTEGRAL);
+		rounded = rounded.blend(rounded.neg(), values.compare(VectorOperators.LT, 0));
+		DoubleVector floored = rounded.sub(1, rounded.compare(VectorOperators.GT, values));
+		VectorMask<Double> kept = magnitude.compare(VectorOperators.GE, INTEGRAL)
+				.or(values.test(VectorOperators.IS_NAN));
+		return floored.blend(values, kept);
+	}
+}
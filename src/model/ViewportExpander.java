@@ -0,0 +1,383 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package model;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ViewportExpander draws an L-System to any depth by expanding only the parts
+ * that are visible. It walks the grammar rather than an expanded string, and
+ * before a symbol is expanded it checks a conservative bound of everything the
+ * symbol will draw:
+ * <ul>
+ * <li>a subtree whose bound lies outside the viewport is skipped; the turtle
+ * is moved and turned to where the subtree ends without expanding it</li>
+ * <li>a subtree whose bound is smaller than the feature size on screen is
+ * drawn as a single segment from its start to its end</li>
+ * </ul>
+ * Zoomed into one branch, only the few subtrees around the viewport are
+ * expanded to full depth, so detail is generated on demand however deep the
+ * grammar is expanded. The number of segments is capped: when a view would
+ * need more, the feature size is doubled until it fits.
+ *
+ * The bound of a (symbol, remaining depth) pair is the radius of a circle
+ * around its start point, computed once per pair from the radii of the symbols
+ * of its production. A circle does not change when the turtle turns, so one
+ * radius serves every heading; see {@link InstancedGeometry} for the same
+ * per-pair idea applied to whole drawings.
+ *
+ * Unlike the {@link Turtle}, which moves in whole pixels, the walk is done in
+ * double precision, as a deep zoom shows details far smaller than a pixel of
+ * the unzoomed drawing. Segments are stored relative to an origin near the
+ * viewport (see {@link Result#getOriginX()}), so the float coordinates of the
+ * geometry keep their precision at any zoom. Only grammars whose productions
+ * are fixed and close every branch they open can be expanded this way.
+ */
+public class ViewportExpander {
+
+	private final String axiom;
+	private final Map<Character, String> rules;
+	private final Map<Character, TurtleCommand> commandMap;
+	private final double radians;
+	private final double step;
+	private final int iterations;
+	private final Map<Long, Summary> summaries = new HashMap<>();
+
+	/*
+	 * What a (symbol, remaining depth) pair does in its own frame: the turtle
+	 * starts at the origin heading along x with a unit step.
+	 */
+	private static final class Summary {
+		double endX;
+		double endY;
+		double turn;
+		double radius;
+		boolean draws;
+	}
+
+	/**
+	 * @param rules      fixed productions, e.g. from
+	 *                   {@link LSystemParser#getRules()}
+	 * @param angle      the turning angle in degrees
+	 * @param step       the length of a move in drawing units
+	 * @param iterations the depth the axiom is expanded to
+	 * @throws IllegalArgumentException if a production opens a branch it does
+	 *                                  not close, or rewrites a bracket
+	 */
+	public ViewportExpander(String axiom, Map<Character, String> rules, Map<Character, TurtleCommand> commandMap,
+			double angle, double step, int iterations) {
+		if (!InstancedGeometry.isInstanceable(rules, commandMap)) {
+			throw new IllegalArgumentException(
+					"Only grammars whose productions close every branch they open can be expanded on demand.");
+		}
+		if (iterations < 0) {
+			throw new IllegalArgumentException("Iterations cannot be negative.");
+		}
+		this.axiom = axiom;
+		this.rules = rules;
+		this.commandMap = commandMap;
+		this.radians = Math.toRadians(angle);
+		this.step = step;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * The geometry of one view and how it was obtained.
+	 */
+	public static class Result {
+		private final SegmentBuffer geometry;
+		private final double originX;
+		private final double originY;
+		private final double featurePixels;
+		private final long culled;
+		private final long coarsened;
+
+		private Result(SegmentBuffer geometry, double originX, double originY, double featurePixels, long culled,
+				long coarsened) {
+			this.geometry = geometry;
+			this.originX = originX;
+			this.originY = originY;
+			this.featurePixels = featurePixels;
+			this.culled = culled;
+			this.coarsened = coarsened;
+		}
+
+		/**
+		 * Returns the segments, relative to the origin.
+		 */
+		public SegmentBuffer getGeometry() {
+			return geometry;
+		}
+
+		/**
+		 * Returns the x coordinate, relative to the turtle's start, that the
+		 * geometry's coordinates are relative to.
+		 */
+		public double getOriginX() {
+			return originX;
+		}
+
+		public double getOriginY() {
+			return originY;
+		}
+
+		/**
+		 * Returns the size in pixels below which subtrees were drawn as single
+		 * segments.
+		 */
+		public double getFeaturePixels() {
+			return featurePixels;
+		}
+
+		/**
+		 * Returns the number of subtrees skipped because they were out of view.
+		 */
+		public long getCulled() {
+			return culled;
+		}
+
+		/**
+		 * Returns the number of subtrees drawn as single segments.
+		 */
+		public long getCoarsened() {
+			return coarsened;
+		}
+	}
+
+	/**
+	 * Returns a square around the turtle's start that contains the whole
+	 * drawing.
+	 */
+	public Rectangle2D.Double getBounds() {
+		double radius = 0;
+		double x = 0, y = 0, heading = 0;
+		Deque<double[]> stack = new ArrayDeque<>();
+		for (int i = 0; i < axiom.length(); i++) {
+			char symbol = axiom.charAt(i);
+			TurtleCommand command = commandMap.get(symbol);
+			if (command == TurtleCommand.PUSH) {
+				stack.push(new double[] { x, y, heading });
+			} else if (command == TurtleCommand.POP) {
+				if (!stack.isEmpty()) {
+					double[] saved = stack.pop();
+					x = saved[0];
+					y = saved[1];
+					heading = saved[2];
+				}
+			} else {
+				Summary summary = summary(symbol, iterations);
+				radius = Math.max(radius, Math.hypot(x, y) + summary.radius);
+				x += Math.cos(heading) * summary.endX - Math.sin(heading) * summary.endY;
+				y += Math.sin(heading) * summary.endX + Math.cos(heading) * summary.endY;
+				heading += summary.turn;
+			}
+		}
+		radius *= step;
+		return new Rectangle2D.Double(-radius, -radius, 2 * radius, 2 * radius);
+	}
+
+	/**
+	 * Expands the parts of the drawing that intersect the viewport.
+	 *
+	 * @param viewport      the visible area, in drawing units relative to the
+	 *                      turtle's start (y pointing down, as on screen)
+	 * @param pixelsPerUnit the zoom level
+	 * @param featurePixels the smallest subtree, in pixels, that is expanded
+	 * @param maxSegments   the most segments the result may have
+	 * @throws IllegalStateException if even coarse detail needs more segments
+	 */
+	public Result expand(Rectangle2D viewport, double pixelsPerUnit, double featurePixels, int maxSegments,
+			Color colour, float thickness) {
+		if (pixelsPerUnit <= 0 || featurePixels <= 0 || maxSegments <= 0) {
+			throw new IllegalArgumentException("Zoom level, feature size and segment limit must be positive.");
+		}
+		// Snapped to whole units so nearby views share an origin
+		double originX = Math.floor(viewport.getCenterX());
+		double originY = Math.floor(viewport.getCenterY());
+		// Once features are as large as the whole drawing, only the axiom is left
+		double drawingUnits = getBounds().getWidth();
+		while (true) {
+			Walk walk = new Walk(viewport, featurePixels / pixelsPerUnit, maxSegments, originX, originY, colour,
+					thickness);
+			if (walk.run()) {
+				return new Result(walk.geometry, originX, originY, featurePixels, walk.culled, walk.coarsened);
+			}
+			if (featurePixels / pixelsPerUnit > drawingUnits) {
+				throw new IllegalStateException("The view needs more than " + maxSegments + " segments.");
+			}
+			featurePixels *= 2;
+		}
+	}
+
+	/*
+	 * Returns the summary of a pair, computing it from the summaries of its
+	 * production one level down.
+	 */
+	private Summary summary(char symbol, int depth) {
+		if (depth > 0 && !rules.containsKey(symbol)) {
+			depth = 0; // unchanged by rewriting, so the same at every depth
+		}
+		long key = (long) depth << 16 | symbol;
+		Summary summary = summaries.get(key);
+		if (summary != null) {
+			return summary;
+		}
+		summary = new Summary();
+		if (depth == 0) {
+			TurtleCommand command = commandMap.get(symbol);
+			if (command == null) {
+				throw new IllegalArgumentException("No command provided for character: '" + symbol + "'");
+			}
+			switch (command) {
+			case MOVE -> {
+				summary.endX = 1;
+				summary.radius = 1;
+				summary.draws = true;
+			}
+			case TURNLEFT -> summary.turn = radians;
+			case TURNRIGHT -> summary.turn = -radians;
+			case TURNAROUND -> summary.turn = Math.PI;
+			case PITCHDOWN, PITCHUP, ROLLLEFT, ROLLRIGHT -> {
+				// No effect in the plane, as in TurtleInterpreter
+			}
+			case PUSH, POP -> throw new IllegalStateException("Brackets are handled by the enclosing walk.");
+			}
+		} else {
+			String production = rules.get(symbol);
+			double x = 0, y = 0, heading = 0;
+			Deque<double[]> stack = new ArrayDeque<>();
+			for (int i = 0; i < production.length(); i++) {
+				char child = production.charAt(i);
+				TurtleCommand command = commandMap.get(child);
+				if (command == TurtleCommand.PUSH) {
+					stack.push(new double[] { x, y, heading });
+				} else if (command == TurtleCommand.POP) {
+					double[] saved = stack.pop();
+					x = saved[0];
+					y = saved[1];
+					heading = saved[2];
+				} else {
+					Summary part = summary(child, depth - 1);
+					if (part.draws) {
+						summary.radius = Math.max(summary.radius, Math.hypot(x, y) + part.radius);
+						summary.draws = true;
+					}
+					x += Math.cos(heading) * part.endX - Math.sin(heading) * part.endY;
+					y += Math.sin(heading) * part.endX + Math.cos(heading) * part.endY;
+					heading += part.turn;
+				}
+			}
+			summary.endX = x;
+			summary.endY = y;
+			summary.turn = heading;
+		}
+		summaries.put(key, summary);
+		return summary;
+	}
+
+	/*
+	 * One expansion of a view. The turtle's heading is measured
+	 * counterclockwise from east, starting north as in Turtle.turnNorth(), and y
+	 * points down.
+	 */
+	private final class Walk {
+		private final double minX, minY, maxX, maxY;
+		private final double featureUnits;
+		private final int maxSegments;
+		private final double originX, originY;
+		private final SegmentBuffer geometry = new SegmentBuffer();
+		private final int style;
+		private long culled;
+		private long coarsened;
+
+		// The turtle after the last symbol
+		private double x, y, heading;
+
+		Walk(Rectangle2D viewport, double featureUnits, int maxSegments, double originX, double originY,
+				Color colour, float thickness) {
+			// Strokes reach half their width past the segments
+			double pad = thickness / 2.0;
+			minX = viewport.getMinX() - pad;
+			minY = viewport.getMinY() - pad;
+			maxX = viewport.getMaxX() + pad;
+			maxY = viewport.getMaxY() + pad;
+			this.featureUnits = featureUnits;
+			this.maxSegments = maxSegments;
+			this.originX = originX;
+			this.originY = originY;
+			this.style = geometry.styleIndex(colour.getRGB(), thickness);
+		}
+
+		/*
+		 * Walks the axiom from the turtle's start. Returns false once the segment
+		 * limit is exceeded.
+		 */
+		boolean run() {
+			heading = Math.PI / 2;
+			return walk(axiom, iterations, 0);
+		}
+
+		private boolean walk(String symbols, int depth, int branchDepth) {
+			Deque<double[]> stack = new ArrayDeque<>();
+			for (int i = 0; i < symbols.length(); i++) {
+				char symbol = symbols.charAt(i);
+				TurtleCommand command = commandMap.get(symbol);
+				if (command == TurtleCommand.PUSH) {
+					stack.push(new double[] { x, y, heading });
+				} else if (command == TurtleCommand.POP) {
+					// Like Turtle.pop(), an unmatched pop is ignored
+					if (!stack.isEmpty()) {
+						double[] saved = stack.pop();
+						x = saved[0];
+						y = saved[1];
+						heading = saved[2];
+					}
+				} else if (!symbol(symbol, depth, branchDepth + stack.size())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean symbol(char symbol, int depth, int branchDepth) {
+			Summary summary = summary(symbol, depth);
+			double cos = Math.cos(heading);
+			double sin = Math.sin(heading);
+			double endX = x + step * (cos * summary.endX - sin * summary.endY);
+			double endY = y - step * (sin * summary.endX + cos * summary.endY);
+			boolean expandable = depth > 0 && rules.containsKey(symbol);
+			if (summary.draws) {
+				double radius = step * summary.radius;
+				if (x + radius < minX || x - radius > maxX || y + radius < minY || y - radius > maxY) {
+					culled++;
+				} else if (!expandable || 2 * radius < featureUnits) {
+					if (expandable) {
+						coarsened++;
+					}
+					if (geometry.size() == maxSegments) {
+						return false;
+					}
+					geometry.add((float) (x - originX), (float) (y - originY), (float) (endX - originX),
+							(float) (endY - originY), style, branchDepth);
+				} else {
+					double startHeading = heading;
+					if (!walk(rules.get(symbol), depth - 1, branchDepth)) {
+						return false;
+					}
+					// Continue from the summary's end, which the walk reached up to rounding
+					heading = startHeading;
+				}
+			}
+			x = endX;
+			y = endY;
+			heading += summary.turn;
+			return true;
+		}
+	}
+}
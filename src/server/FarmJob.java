@@ -0,0 +1,94 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package server;
+
+import java.awt.Color;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import model.RenderSettings;
+
+/**
+ * FarmJob describes a poster rendered by a {@link RenderFarm}: the grammar,
+ * the settings it is drawn with and the size of the image. It is sent to every
+ * worker with each request, so workers keep no state between requests and any
+ * worker can render any tile.
+ */
+public class FarmJob {
+
+	private final String axiom;
+	private final String rules;
+	private final RenderSettings settings;
+	private final int width;
+	private final int height;
+	private final Color background;
+
+	public FarmJob(String axiom, String rules, RenderSettings settings, int width, int height, Color background) {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("The image must be at least one pixel wide and high.");
+		}
+		this.axiom = axiom;
+		this.rules = rules;
+		this.settings = settings;
+		this.width = width;
+		this.height = height;
+		this.background = background;
+	}
+
+	public String getAxiom() {
+		return axiom;
+	}
+
+	public String getRules() {
+		return rules;
+	}
+
+	public RenderSettings getSettings() {
+		return settings;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public Color getBackground() {
+		return background;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeUTF(axiom);
+		out.writeUTF(rules);
+		out.writeDouble(settings.getAngle());
+		out.writeDouble(settings.getStep());
+		out.writeDouble(settings.getThickness());
+		out.writeInt(settings.getColour().getRGB());
+		out.writeInt(settings.getIterations());
+		out.writeDouble(settings.getAngleFactor());
+		out.writeDouble(settings.getStepFactor());
+		out.writeDouble(settings.getThicknessFactor());
+		out.writeDouble(settings.getColourFactor());
+		out.writeLong(settings.getSeed());
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(background.getRGB());
+	}
+
+	static FarmJob read(DataInputStream in) throws IOException {
+		String axiom = in.readUTF();
+		String rules = in.readUTF();
+		double angle = in.readDouble();
+		double step = in.readDouble();
+		double thickness = in.readDouble();
+		Color colour = new Color(in.readInt(), true);
+		int iterations = in.readInt();
+		RenderSettings settings = new RenderSettings(angle, step, thickness, colour, iterations, in.readDouble(),
+				in.readDouble(), in.readDouble(), in.readDouble()).withSeed(in.readLong());
+		return new FarmJob(axiom, rules, settings, in.readInt(), in.readInt(), new Color(in.readInt(), true));
+	}
+}
@@ -0,0 +1,491 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package server;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import model.RenderSettings;
+import view.GeometryRenderer;
+
+/**
+ * RenderFarm renders posters too large for one JVM by splitting them into
+ * tiles and handing the tiles to {@link TileWorker}s over TCP. Each worker
+ * regenerates the L-System on its own heap and draws only its tile, and the
+ * tiles are stitched into the final image here. The poster is fitted to the
+ * image like {@link GeometryRenderer#render} does, so it looks the same as a
+ * render in one piece; only the drawing's bounds are needed for that, and one
+ * worker measures them first.
+ *
+ * Every worker has its own connection and takes the next tile as soon as it
+ * has returned the previous one, so faster workers take more tiles. A tile
+ * whose worker fails, or does not answer within the timeout, goes back to the
+ * queue for another worker; the worker is reconnected for its next tile and
+ * dropped after repeated failures. A worker that refuses a tile for lack of
+ * heap counts as failing in the same way, since another worker may have more.
+ * A tile that failed on several workers, or an error in the job itself, fails
+ * the whole render.
+ *
+ * For testing on one machine, {@link #startLocalWorkers} starts worker
+ * processes with the same class path.
+ */
+public class RenderFarm implements AutoCloseable {
+
+	public static final int DEFAULT_TILE_SIZE = 512;
+	private static final int MAX_TILE_ATTEMPTS = 3;
+	private static final int MAX_WORKER_FAILURES = 2;
+
+	private final List<InetSocketAddress> workers;
+	private final int tileSize;
+	private final int timeoutMillis;
+	private final List<Process> processes = new ArrayList<>();
+
+	/**
+	 * Tile progress, called on the worker threads.
+	 */
+	public interface Listener {
+		void tileRendered(int tile, int tiles, InetSocketAddress worker);
+	}
+
+	/**
+	 * @param workers       addresses of running workers
+	 * @param tileSize      width and height of a tile in pixels
+	 * @param timeoutMillis how long a worker may take for one tile before it is
+	 *                      given to another worker
+	 */
+	public RenderFarm(List<InetSocketAddress> workers, int tileSize, int timeoutMillis) {
+		if (workers.isEmpty()) {
+			throw new IllegalArgumentException("A render farm needs at least one worker.");
+		}
+		if (tileSize < 1 || timeoutMillis < 1) {
+			throw new IllegalArgumentException("Tile size and timeout must be positive.");
+		}
+		this.workers = new ArrayList<>(workers);
+		this.tileSize = tileSize;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Starts worker processes on this machine with the class path of this JVM
+	 * and returns a farm using them. Closing the farm stops the processes.
+	 *
+	 * @param heapMegabytes maximum heap of each worker, 0 for the JVM default
+	 */
+	public static RenderFarm startLocalWorkers(int count, int heapMegabytes, int tileSize, int timeoutMillis)
+			throws IOException {
+		if (count < 1) {
+			throw new IllegalArgumentException("A render farm needs at least one worker.");
+		}
+		List<Process> processes = new ArrayList<>();
+		List<InetSocketAddress> addresses = new ArrayList<>();
+		try {
+			String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			for (int i = 0; i < count; i++) {
+				List<String> command = new ArrayList<>(List.of(java, "-Djava.awt.headless=true"));
+				if (heapMegabytes > 0) {
+					command.add("-Xmx" + heapMegabytes + "m");
+				}
+				command.addAll(List.of("-cp", System.getProperty("java.class.path"), TileWorker.class.getName(),
+						"--exit-with-input"));
+				processes.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+			}
+			for (Process process : processes) {
+				addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), readPort(process)));
+			}
+		} catch (IOException | RuntimeException e) {
+			processes.forEach(Process::destroyForcibly);
+			throw e;
+		}
+		RenderFarm farm = new RenderFarm(addresses, tileSize, timeoutMillis);
+		farm.processes.addAll(processes);
+		return farm;
+	}
+
+	/*
+	 * Reads the port from the line a worker prints once it is listening.
+	 */
+	private static int readPort(Process process) throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line = reader.readLine();
+		if (line == null || !line.contains("port ")) {
+			throw new IOException("Tile worker did not start: " + line);
+		}
+		return Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1).trim());
+	}
+
+	/**
+	 * Renders the job into a new image.
+	 *
+	 * @throws IllegalArgumentException if the job cannot be rendered, e.g. its
+	 *                                  rules are malformed
+	 * @throws IllegalStateException    if workers kept failing
+	 */
+	public BufferedImage render(FarmJob job, Listener listener) throws InterruptedException {
+		BufferedImage image = new BufferedImage(job.getWidth(), job.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+		float[] bounds = measure(job);
+		if (bounds == null) {
+			// Nothing is drawn
+			Arrays.fill(pixels, job.getBackground().getRGB());
+			return image;
+		}
+		// The same arithmetic as for the bounds of a SegmentBuffer, so tiles line up with a render in one piece
+		Rectangle2D.Float box = new Rectangle2D.Float(bounds[0], bounds[1], bounds[2] - bounds[0],
+				bounds[3] - bounds[1]);
+		double scale = GeometryRenderer.fittedScale(box, job.getWidth(), job.getHeight());
+		double translateX = job.getWidth() / 2.0 - scale * box.getCenterX();
+		double translateY = job.getHeight() / 2.0 - scale * box.getCenterY();
+
+		LinkedBlockingDeque<Tile> queue = new LinkedBlockingDeque<>();
+		for (int y = 0; y < job.getHeight(); y += tileSize) {
+			for (int x = 0; x < job.getWidth(); x += tileSize) {
+				queue.add(new Tile(queue.size(), x, y, Math.min(tileSize, job.getWidth() - x),
+						Math.min(tileSize, job.getHeight() - y)));
+			}
+		}
+		Progress progress = new Progress(queue.size());
+		List<Thread> threads = new ArrayList<>();
+		for (InetSocketAddress worker : workers) {
+			Thread thread = new Thread(() -> renderTiles(worker, job, scale, translateX, translateY, queue, pixels,
+					progress, listener), "render-farm-" + worker.getPort());
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+		try {
+			progress.await();
+		} finally {
+			progress.fail(null); // stops the remaining threads
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+		}
+		return image;
+	}
+
+	/*
+	 * Asks the workers in turn for the drawing's bounds until one answers.
+	 * Returns null if nothing is drawn.
+	 */
+	private float[] measure(FarmJob job) {
+		IOException last = null;
+		for (int attempt = 0; attempt < MAX_TILE_ATTEMPTS * workers.size(); attempt++) {
+			InetSocketAddress worker = workers.get(attempt % workers.size());
+			try (Connection connection = new Connection(worker, timeoutMillis)) {
+				connection.out.writeInt(TileWorker.MAGIC);
+				connection.out.writeByte(TileWorker.BOUNDS);
+				job.write(connection.out);
+				connection.out.flush();
+				connection.readStatus();
+				float[] bounds = { connection.in.readFloat(), connection.in.readFloat(), connection.in.readFloat(),
+						connection.in.readFloat() };
+				long segments = connection.in.readLong();
+				return segments == 0 ? null : bounds;
+			} catch (IOException e) {
+				last = e;
+			}
+		}
+		throw new IllegalStateException("No worker could measure the drawing: " + last.getMessage());
+	}
+
+	/*
+	 * Takes tiles from the queue and renders them on one worker until the queue
+	 * is empty or the render has failed.
+	 */
+	private void renderTiles(InetSocketAddress worker, FarmJob job, double scale, double translateX,
+			double translateY, LinkedBlockingDeque<Tile> queue, int[] pixels, Progress progress, Listener listener) {
+		Connection connection = null;
+		int failures = 0;
+		try {
+			while (!progress.isFinished()) {
+				Tile tile = queue.poll(50, TimeUnit.MILLISECONDS);
+				if (tile == null) {
+					continue; // a tile may still come back from a failing worker
+				}
+				try {
+					if (connection == null) {
+						connection = new Connection(worker, timeoutMillis);
+					}
+					int[] tilePixels = connection.renderTile(job, scale, translateX, translateY, tile);
+					for (int row = 0; row < tile.height; row++) {
+						System.arraycopy(tilePixels, row * tile.width, pixels, (tile.y + row) * job.getWidth() + tile.x,
+								tile.width);
+					}
+					failures = 0;
+					if (listener != null) {
+						listener.tileRendered(tile.index, progress.tiles, worker);
+					}
+					progress.tileDone();
+				} catch (IOException e) {
+					// A broken or timed out connection cannot be reused
+					close(connection);
+					connection = null;
+					if (++tile.attempts >= MAX_TILE_ATTEMPTS) {
+						progress.fail(new IllegalStateException("Tile " + tile.index + " failed " + tile.attempts
+								+ " times, last on " + worker + ": " + e.getMessage()));
+						return;
+					}
+					queue.addFirst(tile);
+					if (++failures >= MAX_WORKER_FAILURES) {
+						progress.workerLost(worker, e);
+						return;
+					}
+				} catch (RuntimeException e) {
+					progress.fail(e);
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			// The render has finished or failed
+		} finally {
+			close(connection);
+		}
+	}
+
+	private static void close(Connection connection) {
+		if (connection != null) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Stops the worker processes started by {@link #startLocalWorkers}.
+	 */
+	@Override
+	public void close() {
+		for (Process process : processes) {
+			process.destroy();
+		}
+		for (Process process : processes) {
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+		processes.clear();
+	}
+
+	private static class Tile {
+		final int index;
+		final int x;
+		final int y;
+		final int width;
+		final int height;
+		int attempts;
+
+		Tile(int index, int x, int y, int width, int height) {
+			this.index = index;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/*
+	 * Counts finished tiles and live workers, and holds the first failure.
+	 */
+	private final class Progress {
+		final int tiles;
+		private int done;
+		private int lostWorkers;
+		private boolean finished;
+		private RuntimeException failure;
+
+		Progress(int tiles) {
+			this.tiles = tiles;
+		}
+
+		synchronized void tileDone() {
+			if (++done == tiles) {
+				finished = true;
+				notifyAll();
+			}
+		}
+
+		synchronized void workerLost(InetSocketAddress worker, IOException cause) {
+			if (++lostWorkers == workers.size()) {
+				fail(new IllegalStateException("All workers failed, the last one " + worker + ": "
+						+ cause.getMessage()));
+			}
+		}
+
+		synchronized void fail(RuntimeException e) {
+			if (!finished) {
+				failure = e;
+				finished = true;
+				notifyAll();
+			}
+		}
+
+		synchronized boolean isFinished() {
+			return finished;
+		}
+
+		synchronized void await() throws InterruptedException {
+			while (!finished) {
+				wait();
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/*
+	 * One connection to a worker, used for one request after another.
+	 */
+	private static class Connection implements AutoCloseable {
+		final Socket socket;
+		final DataInputStream in;
+		final DataOutputStream out;
+
+		Connection(InetSocketAddress worker, int timeoutMillis) throws IOException {
+			socket = new Socket();
+			try {
+				socket.connect(worker, timeoutMillis);
+				socket.setSoTimeout(timeoutMillis);
+				in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+
+		int[] renderTile(FarmJob job, double scale, double translateX, double translateY, Tile tile)
+				throws IOException {
+			out.writeInt(TileWorker.MAGIC);
+			out.writeByte(TileWorker.TILE);
+			job.write(out);
+			out.writeDouble(scale);
+			out.writeDouble(translateX);
+			out.writeDouble(translateY);
+			out.writeInt(tile.x);
+			out.writeInt(tile.y);
+			out.writeInt(tile.width);
+			out.writeInt(tile.height);
+			out.flush();
+			readStatus();
+			int[] pixels = new int[tile.width * tile.height];
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] = in.readInt();
+			}
+			return pixels;
+		}
+
+		/*
+		 * Throws the worker's error as an IllegalArgumentException, as it would
+		 * fail on any worker, and a refusal as an IOException, so the request is
+		 * retried elsewhere.
+		 */
+		void readStatus() throws IOException {
+			byte status = in.readByte();
+			if (status == TileWorker.ERROR) {
+				throw new IllegalArgumentException(in.readUTF());
+			}
+			if (status == TileWorker.REFUSED) {
+				throw new IOException("Worker refused: " + in.readUTF());
+			}
+			if (status != TileWorker.OK) {
+				throw new IOException("Invalid response from worker: " + status);
+			}
+		}
+
+		@Override
+		public void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Nothing left to release
+			}
+		}
+	}
+
+	/**
+	 * Renders a poster with local worker processes from the command line:
+	 *
+	 * farm --out poster.png [--axiom A] [--rules R] [--iterations N] [--angle D]
+	 * [--step S] [--thickness T] [--width W] [--height H] [--workers N] [--tile
+	 * N] [--worker-heap MB] [--timeout SECONDS] [--seed N]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String out = null;
+		String axiom = "F";
+		String rules = "F→F[+F]F[-F]F";
+		int iterations = 6;
+		double angle = 25.7;
+		double step = 10;
+		double thickness = 1;
+		int width = 4096;
+		int height = 4096;
+		int workerCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+		int tile = DEFAULT_TILE_SIZE;
+		int workerHeap = 0;
+		int timeoutSeconds = 120;
+		long seed = 0;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--out" -> out = args[++i];
+			case "--axiom" -> axiom = args[++i];
+			case "--rules" -> rules = args[++i];
+			case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+			case "--angle" -> angle = Double.parseDouble(args[++i]);
+			case "--step" -> step = Double.parseDouble(args[++i]);
+			case "--thickness" -> thickness = Double.parseDouble(args[++i]);
+			case "--width" -> width = Integer.parseInt(args[++i]);
+			case "--height" -> height = Integer.parseInt(args[++i]);
+			case "--workers" -> workerCount = Integer.parseInt(args[++i]);
+			case "--tile" -> tile = Integer.parseInt(args[++i]);
+			case "--worker-heap" -> workerHeap = Integer.parseInt(args[++i]);
+			case "--timeout" -> timeoutSeconds = Integer.parseInt(args[++i]);
+			case "--seed" -> seed = Long.parseLong(args[++i]);
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("Missing --out file.png.");
+		}
+		RenderSettings settings = new RenderSettings(angle, step, thickness, Color.BLACK, iterations, 1, 1, 1, 0)
+				.withSeed(seed);
+		FarmJob job = new FarmJob(axiom, rules, settings, width, height, Color.WHITE);
+		long start = System.nanoTime();
+		try (RenderFarm farm = startLocalWorkers(workerCount, workerHeap, tile, timeoutSeconds * 1000)) {
+			BufferedImage image = farm.render(job, (index, tiles, worker) -> System.out.printf("tile %d of %d on %s%n",
+					index + 1, tiles, worker));
+			Path file = Paths.get(out);
+			ImageIO.write(image, "png", file.toFile());
+			System.out.printf("%dx%d poster in %.1f s, written to %s%n", width, height,
+					(System.nanoTime() - start) / 1e9, file.toAbsolutePath());
+		}
+	}
+}
@@ -0,0 +1,440 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package server;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.ExpansionPlan;
+import model.GenerationCache;
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import view.GeometryRenderer;
+import view.SvgWriter;
+
+/**
+ * RenderServer renders L-Systems over HTTP for tools that cannot embed Swing.
+ * It listens on the loopback interface only and answers
+ *
+ * GET /render?axiom=F&rules=F→F[+F]F[-F]F&iterations=4&angle=25.7&format=png
+ *
+ * with a PNG or SVG image. Optional parameters are step, thickness, colour
+ * (hex RRGGBB), the four factors (angleFactor, stepFactor, thicknessFactor,
+ * colourFactor), seed (for rules with weighted alternatives), width and height.
+ * Query values are URL decoded, so a '+' in a rule must be sent as %2B.
+ *
+ * Responses are content addressed: the hash of the normalised request is the
+ * cache key and the ETag, identical requests are answered from an in-memory
+ * LRU cache, and concurrent identical requests share a single computation.
+ * Every render reserves its estimated memory from a fixed budget before it
+ * starts; requests that do not fit right now are rejected with 503 and
+ * requests that can never fit are rejected with 413.
+ */
+public class RenderServer {
+
+	public static final int DEFAULT_PORT = 8765;
+	private static final int MAX_IMAGE_SIZE = 4096;
+	private static final int MAX_ITERATIONS = 30;
+	private static final int RENDERER_VERSION = 1;
+	private static final Color BACKGROUND = new Color(200, 200, 164);
+
+	private final HttpServer server;
+	private final ExecutorService pool;
+	private final long memoryBudget;
+	private final AtomicLong reserved = new AtomicLong();
+	private final AtomicLong renderCount = new AtomicLong();
+	private final ResponseCache cache;
+	private final Map<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a server on the loopback interface.
+	 *
+	 * @param port         port to listen on, 0 for any free port
+	 * @param threads      number of requests handled at the same time
+	 * @param memoryBudget bytes all concurrent renders may use together
+	 * @param cacheBytes   size of the response cache
+	 */
+	public RenderServer(int port, int threads, long memoryBudget, long cacheBytes) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The server needs at least one thread.");
+		}
+		this.memoryBudget = memoryBudget;
+		this.cache = new ResponseCache(cacheBytes);
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "render-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(pool);
+		server.createContext("/render", this::handleRender);
+		server.createContext("/health", exchange -> send(exchange, 200, "text/plain", "ok\n"));
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits up to the given number of seconds for
+	 * running renders to finish.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		pool.shutdownNow();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns how many renders were actually computed, i.e. requests that were
+	 * neither cache hits nor coalesced with a running render.
+	 */
+	public long getRenderCount() {
+		return renderCount.get();
+	}
+
+	private void handleRender(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				send(exchange, 405, "text/plain", "Only GET is supported.\n");
+				return;
+			}
+			RenderRequest request = RenderRequest.parse(exchange.getRequestURI().getRawQuery());
+			String key = request.key();
+			exchange.getResponseHeaders().set("ETag", "\"" + key + "\"");
+			if (("\"" + key + "\"").equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			Response response = cache.get(key);
+			String source = "HIT";
+			if (response == null) {
+				CompletableFuture<Response> pending = new CompletableFuture<>();
+				CompletableFuture<Response> running = inFlight.putIfAbsent(key, pending);
+				if (running != null) {
+					source = "COALESCED";
+					response = join(running);
+				} else {
+					try {
+						// A render of the same key may have finished between the lookup and putIfAbsent
+						response = cache.get(key);
+						if (response == null) {
+							source = "MISS";
+							response = render(request);
+							// Cached before it leaves inFlight, so a later winner finds it above
+							cache.put(key, response);
+						}
+						pending.complete(response);
+					} catch (RuntimeException e) {
+						pending.completeExceptionally(e);
+						throw e;
+					} finally {
+						inFlight.remove(key, pending);
+					}
+				}
+			}
+			exchange.getResponseHeaders().set("X-Cache", source);
+			exchange.getResponseHeaders().set("Cache-Control", "public, max-age=31536000, immutable");
+			send(exchange, 200, response.contentType, response.body);
+		} catch (IllegalArgumentException e) {
+			send(exchange, 400, "text/plain", e.getMessage() + "\n");
+		} catch (RejectedException e) {
+			if (e.status == 503) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+			}
+			send(exchange, e.status, "text/plain", e.getMessage() + "\n");
+		} catch (RuntimeException e) {
+			send(exchange, 500, "text/plain", "Error rendering L-System: " + e.getMessage() + "\n");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static Response join(CompletableFuture<Response> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/*
+	 * Plans the expansion against the whole budget, reserves the estimated
+	 * footprint plus the raster and only then generates, interprets and encodes.
+	 */
+	private Response render(RenderRequest request) {
+		LSystemParser lSystem = new LSystemParser(request.axiom, request.rules, request.iterations,
+				request.settings.getSeed());
+		MemoryGovernor governor = new MemoryGovernor(memoryBudget, MemoryGovernor.defaultSpillDirectory());
+		ExpansionPlan plan = lSystem.plan(governor,
+				RenderPipeline.drawingSymbols(TurtleCommand.PREDEFINED_COMMANDS), true);
+		if (plan.isRefused()) {
+			throw new RejectedException(413, plan.getExplanation());
+		}
+		long estimate = plan.getEstimatedBytes() + 4L * request.width * request.height;
+		if (estimate > memoryBudget) {
+			throw new RejectedException(413, String.format("The render needs about %,d bytes, more than the "
+					+ "server's budget of %,d bytes. Please reduce the iterations or image size.", estimate,
+					memoryBudget));
+		}
+		if (!reserve(estimate)) {
+			throw new RejectedException(503, "The server is busy; please retry.");
+		}
+		try {
+			renderCount.incrementAndGet();
+			CharSequence symbols = lSystem.generate(plan, governor);
+			RenderSettings settings = request.settings;
+			SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS,
+					settings.effectiveAngle(), settings.effectiveStep(), settings.effectiveThickness(),
+					settings.effectiveColour()).interpret(symbols, 0, 0);
+
+			if (request.format.equals("svg")) {
+				return new Response("image/svg+xml",
+						SvgWriter.write(geometry, request.width, request.height, BACKGROUND)
+								.getBytes(StandardCharsets.UTF_8));
+			}
+			BufferedImage image = GeometryRenderer.render(geometry, request.width, request.height, BACKGROUND,
+					false);
+			ByteArrayOutputStream png = new ByteArrayOutputStream();
+			ImageIO.write(image, "png", png);
+			return new Response("image/png", png.toByteArray());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			reserved.addAndGet(-estimate);
+		}
+	}
+
+	private boolean reserve(long bytes) {
+		while (true) {
+			long current = reserved.get();
+			if (current + bytes > memoryBudget) {
+				return false;
+			}
+			if (reserved.compareAndSet(current, current + bytes)) {
+				return true;
+			}
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+		send(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Starts a server from the command line:
+	 *
+	 * serve [--port N] [--threads N] [--memory MB] [--cache MB]
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long memory = MemoryGovernor.availableHeap() / 2;
+		long cacheBytes = 64L << 20;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--port" -> port = Integer.parseInt(args[++i]);
+			case "--threads" -> threads = Integer.parseInt(args[++i]);
+			case "--memory" -> memory = Long.parseLong(args[++i]) << 20;
+			case "--cache" -> cacheBytes = Long.parseLong(args[++i]) << 20;
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		RenderServer server = new RenderServer(port, threads, memory, cacheBytes);
+		server.start();
+		System.out.println("Rendering on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+				+ server.getPort() + "/render");
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+		try {
+			// Request threads are daemons; keep the JVM alive until it is shut down
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * A validated and normalised render request.
+	 */
+	private static class RenderRequest {
+		String axiom;
+		String rules;
+		int iterations;
+		RenderSettings settings;
+		int width;
+		int height;
+		String format;
+
+		static RenderRequest parse(String rawQuery) {
+			Map<String, String> query = new HashMap<>();
+			if (rawQuery != null) {
+				for (String pair : rawQuery.split("&")) {
+					int equals = pair.indexOf('=');
+					if (equals > 0) {
+						query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+								URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+					}
+				}
+			}
+
+			RenderRequest request = new RenderRequest();
+			request.axiom = required(query, "axiom");
+			request.rules = required(query, "rules");
+			request.iterations = (int) number(query, "iterations", 4, 0, MAX_ITERATIONS);
+			request.width = (int) number(query, "width", 512, 1, MAX_IMAGE_SIZE);
+			request.height = (int) number(query, "height", 512, 1, MAX_IMAGE_SIZE);
+			request.format = query.getOrDefault("format", "png").toLowerCase();
+			if (!request.format.equals("png") && !request.format.equals("svg")) {
+				throw new IllegalArgumentException("Unsupported format: " + request.format);
+			}
+			Color colour;
+			try {
+				colour = Color.decode("#" + query.getOrDefault("colour", "000000").replace("#", ""));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid colour: " + query.get("colour"));
+			}
+			request.settings = new RenderSettings(number(query, "angle", 25, -360, 360),
+					number(query, "step", 5, 0, 1000), number(query, "thickness", 1, 0, 100), colour,
+					request.iterations, number(query, "angleFactor", 1, -100, 100),
+					number(query, "stepFactor", 1, -100, 100), number(query, "thicknessFactor", 1, -100, 100),
+					number(query, "colourFactor", 0, -100, 100))
+					.withSeed((long) number(query, "seed", 0, 0, Integer.MAX_VALUE));
+			return request;
+		}
+
+		/*
+		 * Everything that affects the response, in a fixed order, with the rules
+		 * normalised the same way as by the generation cache.
+		 */
+		String key() {
+			RenderSettings s = settings;
+			return GenerationCache.hash(RENDERER_VERSION + "|" + GenerationCache.key(axiom, rules, iterations) + "|"
+					+ s.getAngle() + "|" + s.getStep() + "|" + s.getThickness() + "|" + s.getColour().getRGB() + "|"
+					+ s.getAngleFactor() + "|" + s.getStepFactor() + "|" + s.getThicknessFactor() + "|"
+					+ s.getColourFactor() + "|" + s.getSeed() + "|" + width + "x" + height + "|" + format);
+		}
+
+		private static String required(Map<String, String> query, String name) {
+			String value = query.get(name);
+			if (value == null || value.isBlank()) {
+				throw new IllegalArgumentException("Missing parameter: " + name);
+			}
+			return value;
+		}
+
+		private static double number(Map<String, String> query, String name, double fallback, double min,
+				double max) {
+			String value = query.get(name);
+			if (value == null) {
+				return fallback;
+			}
+			double number;
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number for " + name + ": " + value);
+			}
+			if (!(number >= min && number <= max)) {
+				throw new IllegalArgumentException(name + " must be between " + min + " and " + max + ".");
+			}
+			return number;
+		}
+	}
+
+	private static class Response {
+		final String contentType;
+		final byte[] body;
+
+		Response(String contentType, byte[] body) {
+			this.contentType = contentType;
+			this.body = body;
+		}
+	}
+
+	private static class RejectedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		final int status;
+
+		RejectedException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/*
+	 * LRU cache of encoded responses, bounded by the total size of their bodies.
+	 */
+	private static class ResponseCache {
+		private final long maxBytes;
+		private final LinkedHashMap<String, Response> entries = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes;
+
+		ResponseCache(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized Response get(String key) {
+			return entries.get(key);
+		}
+
+		synchronized void put(String key, Response response) {
+			if (response.body.length > maxBytes) {
+				return;
+			}
+			Response previous = entries.put(key, response);
+			if (previous != null) {
+				bytes -= previous.body.length;
+			}
+			bytes += response.body.length;
+			Iterator<Response> eldest = entries.values().iterator();
+			while (bytes > maxBytes && eldest.hasNext()) {
+				bytes -= eldest.next().body.length;
+				eldest.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package server;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import model.ExpansionPlan;
+import model.InstancedGeometry;
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.SegmentSink;
+import model.Turtle;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import view.SoftwareRasterizer;
+
+/**
+ * TileWorker renders tiles of a poster for a {@link RenderFarm}. It listens on
+ * the loopback interface and answers requests over a simple binary protocol,
+ * one request after another on each connection:
+ *
+ * <pre>
+ * request   int magic, byte kind, job (see FarmJob), and for TILE requests
+ *           double scale, double translateX, double translateY,
+ *           int x, int y, int width, int height
+ * response  byte OK, then for BOUNDS float minX, minY, maxX, maxY, long segments
+ *                          for TILE   int pixels[width * height]
+ *           or byte ERROR or REFUSED, UTF message
+ * </pre>
+ *
+ * Every request interprets the L-System without retaining the drawing: a
+ * BOUNDS request only measures it, a TILE request keeps only the segments
+ * whose strokes reach the tile. A worker's memory therefore depends on the
+ * tile size, not on the size of the poster. Where the grammar allows it, the
+ * drawing is built as {@link InstancedGeometry} straight from the rules, and a
+ * tile skips every branch whose bounds lie outside it, so rendering all tiles
+ * does not walk the whole drawing once per tile. Other grammars are
+ * regenerated, streaming through a {@link MemoryGovernor} when they are too
+ * long for the heap, and walked in full.
+ *
+ * Errors in the job itself, such as malformed rules, are answered with ERROR;
+ * they would fail on every worker, so the coordinator does not retry them. A
+ * job the governor refuses for lack of heap is answered with REFUSED, as a
+ * worker with more memory may still render it.
+ */
+public class TileWorker {
+
+	static final int MAGIC = 0x4C53544C; // "LSTL"
+	static final byte BOUNDS = 1;
+	static final byte TILE = 2;
+	static final byte OK = 0;
+	static final byte ERROR = 1;
+	static final byte REFUSED = 2;
+
+	// Stroke reach past a segment's ends in pixels, as in SoftwareRasterizer, plus a pixel for rounding
+	private static final double REACH_FACTOR = 1.415;
+	private static final double REACH_PIXELS = 2;
+
+	private final ServerSocket server;
+	private final Thread acceptor;
+	private final Supplier<MemoryGovernor> governors;
+	private volatile boolean stopped;
+
+	/**
+	 * Creates a worker on the loopback interface that plans every expansion for
+	 * the heap available at the time.
+	 *
+	 * @param port port to listen on, 0 for any free port
+	 */
+	public TileWorker(int port) throws IOException {
+		this(port, MemoryGovernor::new);
+	}
+
+	/**
+	 * Creates a worker on the loopback interface that plans expansions with
+	 * governors from the given supplier, e.g. with a fixed heap budget for tests.
+	 *
+	 * @param port port to listen on, 0 for any free port
+	 */
+	public TileWorker(int port, Supplier<MemoryGovernor> governors) throws IOException {
+		this.governors = governors;
+		server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+		acceptor = new Thread(this::accept, "tile-worker");
+		acceptor.setDaemon(true);
+	}
+
+	public void start() {
+		acceptor.start();
+	}
+
+	public void stop() {
+		stopped = true;
+		try {
+			server.close();
+		} catch (IOException e) {
+			// Closing only fails if it is already closed
+		}
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	private void accept() {
+		while (!stopped) {
+			try {
+				Socket socket = server.accept();
+				Thread connection = new Thread(() -> serve(socket), "tile-worker-connection");
+				connection.setDaemon(true);
+				connection.start();
+			} catch (IOException e) {
+				if (!stopped) {
+					System.err.println("Tile worker stopped accepting: " + e.getMessage());
+				}
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Answers requests until the coordinator closes the connection.
+	 */
+	private void serve(Socket socket) {
+		try (socket;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			while (true) {
+				int magic;
+				try {
+					magic = in.readInt();
+				} catch (EOFException e) {
+					return;
+				}
+				if (magic != MAGIC) {
+					throw new IOException("Not a tile request.");
+				}
+				byte kind = in.readByte();
+				FarmJob job = FarmJob.read(in);
+				if (kind == BOUNDS) {
+					answerBounds(job, out);
+				} else if (kind == TILE) {
+					double scale = in.readDouble();
+					double translateX = in.readDouble();
+					double translateY = in.readDouble();
+					answerTile(job, scale, translateX, translateY, in.readInt(), in.readInt(), in.readInt(),
+							in.readInt(), out);
+				} else {
+					throw new IOException("Unknown request: " + kind);
+				}
+				out.flush();
+			}
+		} catch (SocketException e) {
+			// The coordinator gave up on this connection
+		} catch (IOException e) {
+			System.err.println("Tile worker connection failed: " + e.getMessage());
+		}
+	}
+
+	private void answerBounds(FarmJob job, DataOutputStream out) throws IOException {
+		float[] bounds = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+				Float.NEGATIVE_INFINITY };
+		long[] segments = new long[1];
+		try {
+			walk(job, null, new SegmentSink() {
+				@Override
+				public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness,
+						int depth) {
+					bounds[0] = Math.min(bounds[0], Math.min(x1, x2));
+					bounds[1] = Math.min(bounds[1], Math.min(y1, y2));
+					bounds[2] = Math.max(bounds[2], Math.max(x1, x2));
+					bounds[3] = Math.max(bounds[3], Math.max(y1, y2));
+					segments[0]++;
+				}
+			});
+		} catch (RuntimeException e) {
+			error(out, e);
+			return;
+		}
+		out.writeByte(OK);
+		for (float bound : bounds) {
+			out.writeFloat(bound);
+		}
+		out.writeLong(segments[0]);
+	}
+
+	private void answerTile(FarmJob job, double scale, double translateX, double translateY, int x, int y,
+			int width, int height, DataOutputStream out) throws IOException {
+		int[] pixels;
+		try {
+			if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Invalid tile size " + width + "x" + height + ".");
+			}
+			SegmentBuffer geometry = new SegmentBuffer();
+			// The tile in drawing units, widened by the reach of the strokes
+			double reach = (job.getSettings().effectiveThickness() * scale / 2 * REACH_FACTOR + REACH_PIXELS)
+					/ scale;
+			double minX = (x - translateX) / scale - reach;
+			double minY = (y - translateY) / scale - reach;
+			double maxX = (x + width - translateX) / scale + reach;
+			double maxY = (y + height - translateY) / scale + reach;
+			walk(job, new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY), new SegmentSink() {
+				@Override
+				public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness,
+						int depth) {
+					if (Math.max(x1, x2) >= minX && Math.min(x1, x2) <= maxX && Math.max(y1, y2) >= minY
+							&& Math.min(y1, y2) <= maxY) {
+						geometry.segment(x1, y1, x2, y2, colour, thickness, depth);
+					}
+				}
+			});
+			pixels = new int[width * height];
+			// An opaque background is the same in premultiplied form
+			Arrays.fill(pixels, job.getBackground().getRGB());
+			SoftwareRasterizer.draw(geometry, pixels, width, height, scale, translateX, translateY, x, y);
+		} catch (RuntimeException e) {
+			error(out, e);
+			return;
+		}
+		out.writeByte(OK);
+		for (int pixel : pixels) {
+			out.writeInt(pixel);
+		}
+	}
+
+	private static void error(DataOutputStream out, RuntimeException e) throws IOException {
+		out.writeByte(e instanceof RefusedException ? REFUSED : ERROR);
+		out.writeUTF(String.valueOf(e.getMessage()));
+	}
+
+	/*
+	 * Interprets the job's L-System with its effective settings. With a region,
+	 * instanced drawings skip the branches outside it; the sink may still get
+	 * segments outside the region and must cull them itself.
+	 */
+	private void walk(FarmJob job, Rectangle2D region, SegmentSink sink) {
+		RenderSettings settings = job.getSettings();
+		LSystemParser lSystem = new LSystemParser(job.getAxiom(), job.getRules(), settings.getIterations(),
+				settings.getSeed());
+		// Without fixed productions a symbol expands differently at every position, so it cannot be instanced
+		InstancedGeometry instances = !lSystem.hasFixedProductions() ? null
+				: InstancedGeometry.build(job.getAxiom(), lSystem.getRules(), settings.getIterations(),
+						TurtleCommand.PREDEFINED_COMMANDS, settings.effectiveAngle(), settings.effectiveStep());
+		if (instances != null) {
+			if (region == null) {
+				instances.flatten(sink, settings.effectiveColour(), (float) settings.effectiveThickness());
+			} else {
+				instances.flatten(sink, settings.effectiveColour(), (float) settings.effectiveThickness(), region);
+			}
+			return;
+		}
+
+		// Generated within the heap, spilling to disk if needed
+		MemoryGovernor governor = governors.get();
+		ExpansionPlan plan = lSystem.plan(governor, RenderPipeline.drawingSymbols(TurtleCommand.PREDEFINED_COMMANDS),
+				false);
+		if (plan.isRefused()) {
+			// More symbols than a drawing can address fail everywhere; too little heap only fails here
+			if (plan.getPredictedLength() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(plan.getExplanation());
+			}
+			throw new RefusedException(plan.getExplanation());
+		}
+		CharSequence symbols = lSystem.generate(plan, governor);
+		new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, settings.effectiveAngle(), settings.effectiveStep(),
+				settings.effectiveThickness(), settings.effectiveColour()).interpret(symbols, new Turtle(sink, 0, 0));
+	}
+
+	/*
+	 * The job does not fit into this worker's heap.
+	 */
+	private static class RefusedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		RefusedException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Starts a worker from the command line and prints the port it listens on:
+	 *
+	 * tile-worker [--port N] [--exit-with-input]
+	 *
+	 * With --exit-with-input the worker exits once its standard input is closed,
+	 * i.e. when the process that started it has gone.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = 0;
+		boolean exitWithInput = false;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--port" -> port = Integer.parseInt(args[++i]);
+			case "--exit-with-input" -> exitWithInput = true;
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		TileWorker worker = new TileWorker(port);
+		worker.start();
+		if (exitWithInput) {
+			Thread watcher = new Thread(() -> {
+				try {
+					while (System.in.read() >= 0) {
+						// Only the end of the input matters
+					}
+				} catch (IOException e) {
+					// A broken pipe means the parent has gone as well
+				}
+				System.exit(0);
+			}, "tile-worker-parent");
+			watcher.setDaemon(true);
+			watcher.start();
+		}
+		// The coordinator reads the port from this line
+		System.out.println("Tile worker listening on port " + worker.getPort());
+		System.out.flush();
+		try {
+			worker.acceptor.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
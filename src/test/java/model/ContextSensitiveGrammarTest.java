@@ -0,0 +1,90 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.ContextSensitiveGrammar;
+import model.LSystemParser;
+import model.MemoryGovernor;
+
+class ContextSensitiveGrammarTest {
+
+	private static final String SIGNAL = "b<a→b, b→a";
+
+	//tests for neighbours
+	@Test
+	void testExpand_SignalPropagates() {
+		ContextSensitiveGrammar grammar = ContextSensitiveGrammar.parse(SIGNAL);
+		assertEquals("abaaaaaaa", grammar.expand("baaaaaaaa", 1));
+		assertEquals("aaabaaaaa", grammar.expand("baaaaaaaa", 3));
+	}
+
+	@Test
+	void testExpand_LeftContextSkipsBranches() {
+		assertEquals("A[B]X", ContextSensitiveGrammar.parse("A<C→X").expand("A[B]C", 1));
+	}
+
+	@Test
+	void testExpand_BranchStartsFromItsParent() {
+		assertEquals("A[Y]C", ContextSensitiveGrammar.parse("A<B→Y").expand("A[B]C", 1));
+	}
+
+	@Test
+	void testExpand_RightContextStaysOnTheBranch() {
+		assertEquals("A[B]C", ContextSensitiveGrammar.parse("B>C→Z").expand("A[B]C", 1));
+		assertEquals("X[B]C", ContextSensitiveGrammar.parse("A>C→X").expand("A[B]C", 1));
+	}
+
+	@Test
+	void testExpand_MultiSymbolContexts() {
+		assertEquals("ABX", ContextSensitiveGrammar.parse("AB<C→X").expand("ABC", 1));
+		assertEquals("ABC", ContextSensitiveGrammar.parse("BA<C→X").expand("ABC", 1));
+		assertEquals("XBC", ContextSensitiveGrammar.parse("A>BC→X").expand("ABC", 1));
+	}
+
+	@Test
+	void testExpand_TurnsAreIgnored() {
+		assertEquals("A+X", ContextSensitiveGrammar.parse("A<B→X").expand("A+B", 1));
+		assertEquals("A+B", ContextSensitiveGrammar.parse("#ignore:, A<B→X").expand("A+B", 1));
+	}
+
+	@Test
+	void testExpand_ParallelMatchesSequential() {
+		ContextSensitiveGrammar grammar = ContextSensitiveGrammar.parse("F→F[-F]F, F<F>F→F[+F]F");
+		String parallel = grammar.expand("F", 10);
+		assertTrue(parallel.length() > 1 << 17, "too short to be expanded in parallel: " + parallel.length());
+		assertEquals(grammar.expandSequentially("F", 10), parallel);
+	}
+
+	@Test
+	void testExpand_UnbalancedBracketsThrow() {
+		ContextSensitiveGrammar grammar = ContextSensitiveGrammar.parse("A<B→X");
+		assertThrows(IllegalArgumentException.class, () -> grammar.expand("AB]", 1));
+		assertThrows(IllegalArgumentException.class, () -> grammar.expand("A[B", 1));
+	}
+
+	//tests for parsing
+	@Test
+	void testParse_WeightedContextRulesThrow() {
+		assertThrows(IllegalArgumentException.class, () -> ContextSensitiveGrammar.parse("A<B→(1)X"));
+	}
+
+	@Test
+	void testGenerate_ParserUsesContexts() {
+		LSystemParser parser = new LSystemParser("baaaaaaaa", SIGNAL, 3);
+		assertTrue(parser.isContextSensitive());
+		assertFalse(parser.hasFixedProductions());
+		assertEquals("aaabaaaaa", parser.generateLSystemString());
+		assertNull(ContextSensitiveGrammar.parse("F→FF"));
+	}
+
+	//tests for planning
+	@Test
+	void testPlan_RefusesCompactStrategies() {
+		MemoryGovernor governor = new MemoryGovernor(1_000_000, MemoryGovernor.defaultSpillDirectory());
+		assertTrue(new LSystemParser("F", "F→F[+F]F, F<F→F[+F]F", 11).plan(governor, Set.of('F'), false).isRefused());
+	}
+}
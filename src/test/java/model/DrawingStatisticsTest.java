@@ -0,0 +1,106 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import model.DrawingStatistics;
+import model.InstancedGeometry;
+import model.LSystemParser;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class DrawingStatisticsTest {
+
+	private static DrawingStatistics statistics(String axiom, String rules, int iterations, double angle,
+			double step) {
+		return DrawingStatistics.of(new LSystemParser(axiom, rules, iterations).generateLSystemString(),
+				TurtleCommand.PREDEFINED_COMMANDS, angle, step);
+	}
+
+	//tests for the streaming pass
+	@Test
+	void testOf_CountsAndBranchHistogram() {
+		DrawingStatistics statistics = DrawingStatistics.of("F[+FF][-F[+FF]F]", TurtleCommand.PREDEFINED_COMMANDS,
+				90, 10);
+		assertEquals(7, statistics.getSegments());
+		assertEquals(70.0, statistics.getPathLength(), 1e-9);
+		assertEquals(2, statistics.getMaxDepth());
+		// Branch lengths exclude sub-branches: 20, 20 (inner) and 20 (outer, F and F)
+		assertEquals(3, statistics.getBranches());
+		long[] histogram = statistics.getBranchHistogram();
+		assertEquals(3, histogram[4]);
+		assertEquals(0, histogram[3]);
+	}
+
+	@Test
+	void testOf_EmptyBranchesAreNotCounted() {
+		DrawingStatistics statistics = DrawingStatistics.of("F[+][-F]", TurtleCommand.PREDEFINED_COMMANDS, 90, 10);
+		assertEquals(1, statistics.getBranches());
+		assertEquals(1, statistics.getBranchHistogram()[3]);
+	}
+
+	private static void assertSameStatistics(DrawingStatistics expected, DrawingStatistics actual) {
+		assertEquals(expected.getSegments(), actual.getSegments());
+		assertEquals(expected.getPathLength(), actual.getPathLength(), 1e-6);
+		assertEquals(expected.getMaxDepth(), actual.getMaxDepth());
+		assertEquals(expected.getBranches(), actual.getBranches());
+		assertArrayEquals(expected.getBranchHistogram(), actual.getBranchHistogram());
+		assertArrayEquals(expected.getBoxCounts(), actual.getBoxCounts());
+	}
+
+	//tests for retained geometry
+	@Test
+	void testOf_RetainedGeometryMatchesTheWalk() {
+		String rules = "F→F[+F]F[-F]F";
+		String symbols = new LSystemParser("F", rules, 4).generateLSystemString();
+		SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 25.7, 10, 1, Color.BLACK)
+				.interpret(symbols, 0, 0);
+		assertSameStatistics(DrawingStatistics.of(symbols, TurtleCommand.PREDEFINED_COMMANDS, 25.7, 10),
+				DrawingStatistics.of(geometry));
+	}
+
+	@Test
+	void testOf_DisplayListsMatchTheWalk() {
+		String rules = "F→F[+F]F[-F]F";
+		LSystemParser parser = new LSystemParser("F", rules, 4);
+		InstancedGeometry instances = InstancedGeometry.build("F", parser.getRules(), 4,
+				TurtleCommand.PREDEFINED_COMMANDS, 90, 10);
+		assertSameStatistics(DrawingStatistics.of(parser.generateLSystemString(), TurtleCommand.PREDEFINED_COMMANDS,
+				90, 10), DrawingStatistics.of(instances));
+	}
+
+	//tests for box counting
+	@Test
+	void testBoxCounting_StraightLineIsOneDimensional() {
+		DrawingStatistics statistics = statistics("F", "F→FF", 8, 90, 10);
+		assertEquals(1.0, statistics.getBoxCountingDimension(), 0.05);
+	}
+
+	@Test
+	void testBoxCounting_KochCurve() {
+		DrawingStatistics statistics = statistics("F", "F→F+F--F+F", 5, 60, 100);
+		assertEquals(Math.log(4) / Math.log(3), statistics.getBoxCountingDimension(), 0.1);
+	}
+
+	@Test
+	void testBoxCounting_SpaceFillingCurve() {
+		DrawingStatistics statistics = statistics("X", "X→-YF+XFX+FY-, Y→+XF-YFY-FX+", 6, 90, 10);
+		assertTrue(statistics.getBoxCountingDimension() > 1.8);
+		// Every scale halves the box size
+		double[] sizes = statistics.getBoxSizes();
+		for (int k = 1; k < sizes.length; k++) {
+			assertEquals(sizes[k - 1] / 2, sizes[k], 1e-9);
+		}
+	}
+
+	@Test
+	void testBoxCounting_TooSmallToMeasure() {
+		DrawingStatistics statistics = DrawingStatistics.of("F", TurtleCommand.PREDEFINED_COMMANDS, 90, 10);
+		assertTrue(Double.isNaN(statistics.getBoxCountingDimension()));
+		assertEquals(0, statistics.getBoxCounts().length);
+	}
+}
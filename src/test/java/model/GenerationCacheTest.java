@@ -0,0 +1,132 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.GenerationCache;
+import model.LSystemParser;
+
+class GenerationCacheTest {
+
+	private static final int HEADER_BYTES = 21;
+
+	private Path directory;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("generation-cache");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private Path entry(String key) {
+		return directory.resolve(key + ".lsc");
+	}
+
+	private long files(String glob) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileSystem().getPathMatcher("glob:" + glob)
+					.matches(path.getFileName())).count();
+		}
+	}
+
+	//tests for reading and writing entries
+	@Test
+	void testGetOrGenerate_StoresAndReadsTheSameString() {
+		GenerationCache cache = new GenerationCache(directory, 1024 * 1024);
+		String expected = new LSystemParser("X", "F→FF, X→F[+X][-X]", 5).generateLSystemString();
+
+		assertEquals(expected, cache.getOrGenerate("X", "F→FF, X→F[+X][-X]", 5));
+		assertTrue(Files.isRegularFile(entry(GenerationCache.key("X", "F→FF, X→F[+X][-X]", 5))));
+		assertEquals(expected, cache.getOrGenerate("X", "F → FF,  X → F[+X][-X]", 5), "whitespace is ignored");
+	}
+
+	@Test
+	void testLoad_RoundTripsSymbolsOutsideLatin1() {
+		GenerationCache cache = new GenerationCache(directory, 1024 * 1024);
+		cache.store("wide", "F→Fα[+Fβ]");
+		assertEquals("F→Fα[+Fβ]", cache.load("wide"));
+		assertNull(cache.load("missing"));
+	}
+
+	@Test
+	void testLoad_DamagedEntryIsDiscardedAndRegenerated() throws IOException {
+		GenerationCache cache = new GenerationCache(directory, 1024 * 1024);
+		String expected = cache.getOrGenerate("F", "F→F[+F]F[-F]F", 3);
+		String key = GenerationCache.key("F", "F→F[+F]F[-F]F", 3);
+		// Flip a symbol without updating the checksum
+		try (FileChannel channel = FileChannel.open(entry(key), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 'G' }), HEADER_BYTES);
+		}
+
+		assertNull(cache.load(key));
+		assertFalse(Files.exists(entry(key)), "the damaged entry should be removed");
+		assertEquals(expected, cache.getOrGenerate("F", "F→F[+F]F[-F]F", 3));
+		assertEquals(expected, cache.load(key));
+	}
+
+	@Test
+	void testLoad_TruncatedEntryIsDiscarded() throws IOException {
+		GenerationCache cache = new GenerationCache(directory, 1024 * 1024);
+		cache.store("truncated", "F+F-F-F+F");
+		Files.write(entry("truncated"), new byte[] { 1, 2, 3 });
+		assertNull(cache.load("truncated"));
+		assertFalse(Files.exists(entry("truncated")));
+	}
+
+	@Test
+	void testStore_FailedMoveLeavesNoTemporaryFile() throws IOException {
+		GenerationCache cache = new GenerationCache(directory, 1024 * 1024);
+		// A non-empty directory in place of the entry cannot be replaced
+		Files.createDirectories(entry("blocked"));
+		Files.createFile(entry("blocked").resolve("occupied"));
+
+		cache.store("blocked", "FFF");
+		assertEquals(0, files("*.tmp"));
+		assertNull(cache.load("blocked"));
+	}
+
+	//tests for eviction
+	@Test
+	void testStore_EvictsTheLeastRecentlyUsedEntries() throws IOException {
+		String value = "F".repeat(100);
+		// Room for two entries but not for three
+		GenerationCache cache = new GenerationCache(directory, 2 * (HEADER_BYTES + value.length()) + 10);
+		long now = System.currentTimeMillis();
+		cache.store("first", value);
+		cache.store("second", value);
+		Files.setLastModifiedTime(entry("first"), FileTime.fromMillis(now - 30_000));
+		Files.setLastModifiedTime(entry("second"), FileTime.fromMillis(now - 20_000));
+		// A hit makes the first entry the most recently used one
+		assertEquals(value, cache.load("first"));
+
+		cache.store("third", value);
+		assertEquals(2, files("*.lsc"));
+		assertTrue(Files.exists(entry("first")));
+		assertFalse(Files.exists(entry("second")));
+		assertTrue(Files.exists(entry("third")));
+	}
+
+	@Test
+	void testConstructor_RejectsNonPositiveLimit() {
+		assertThrows(IllegalArgumentException.class, () -> new GenerationCache(directory, 0));
+	}
+}
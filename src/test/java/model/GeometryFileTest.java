@@ -0,0 +1,172 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.DepthStyle;
+import model.GeometryFile;
+import model.LSystemParser;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class GeometryFileTest {
+
+	private Path directory;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("geometry-file");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static SegmentBuffer plant() {
+		String symbols = new LSystemParser("X", "F→FF, X→F[+X][-X]FX", 4).generateLSystemString();
+		SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 25, 7, 1, Color.BLACK)
+				.interpret(symbols, 0, 0);
+		// Several styles, so the style block is not trivial
+		return new DepthStyle(Color.GREEN.darker(), 3, Color.GREEN, 0.5f).apply(geometry);
+	}
+
+	private Path saved(SegmentBuffer geometry) throws IOException {
+		Path file = directory.resolve("drawing." + GeometryFile.EXTENSION);
+		GeometryFile.save(geometry, file);
+		return file;
+	}
+
+	private static void overwriteInt(Path file, long position, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value), position);
+		}
+	}
+
+	//tests for round trips
+	@Test
+	void testLoad_ReturnsTheSavedGeometry() throws IOException {
+		SegmentBuffer geometry = plant();
+		SegmentBuffer loaded = GeometryFile.load(saved(geometry));
+
+		assertEquals(geometry.size(), loaded.size());
+		assertEquals(geometry.getMaxDepth(), loaded.getMaxDepth());
+		assertEquals(geometry.getBounds(), loaded.getBounds());
+		assertEquals(geometry.getStyleCount(), loaded.getStyleCount());
+		for (int s = 0; s < geometry.getStyleCount(); s++) {
+			assertEquals(geometry.getStyleArgb(s), loaded.getStyleArgb(s));
+			assertEquals(geometry.getStyleWidth(s), loaded.getStyleWidth(s));
+		}
+		for (int i = 0; i < geometry.size(); i++) {
+			assertEquals(geometry.getX1(i), loaded.getX1(i));
+			assertEquals(geometry.getY1(i), loaded.getY1(i));
+			assertEquals(geometry.getX2(i), loaded.getX2(i));
+			assertEquals(geometry.getY2(i), loaded.getY2(i));
+			assertEquals(geometry.getStyle(i), loaded.getStyle(i));
+			assertEquals(geometry.getDepth(i), loaded.getDepth(i));
+		}
+	}
+
+	@Test
+	void testLoad_EmptyGeometryRoundTrips() throws IOException {
+		SegmentBuffer loaded = GeometryFile.load(saved(new SegmentBuffer()));
+		assertEquals(0, loaded.size());
+		assertEquals(0, loaded.getStyleCount());
+	}
+
+	@Test
+	void testSave_ReplacesAnExistingFile() throws IOException {
+		Path file = saved(plant());
+		SegmentBuffer small = new SegmentBuffer();
+		small.add(0, 0, 1, 1, small.styleIndex(Color.RED.getRGB(), 1), 0);
+		GeometryFile.save(small, file);
+		assertEquals(1, GeometryFile.load(file).size());
+	}
+
+	@Test
+	void testSave_FailureKeepsThePreviousFile() throws IOException {
+		SegmentBuffer geometry = plant();
+		Path file = saved(geometry);
+		SegmentBuffer failing = new SegmentBuffer() {
+			@Override
+			public float getStyleWidth(int styleIndex) {
+				throw new IllegalStateException("failed halfway");
+			}
+		};
+		failing.add(0, 0, 1, 1, failing.styleIndex(Color.RED.getRGB(), 1), 0);
+
+		assertThrows(IllegalStateException.class, () -> GeometryFile.save(failing, file));
+		assertEquals(geometry.size(), GeometryFile.load(file).size());
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(1, files.count(), "no temporary file is left behind");
+		}
+	}
+
+	//tests for damaged files
+	@Test
+	void testLoad_RejectsFileShorterThanTheHeader() throws IOException {
+		Path file = directory.resolve("short.lsg");
+		Files.write(file, new byte[] { 'L', 'S', 'G' });
+		assertThrows(IOException.class, () -> GeometryFile.load(file));
+	}
+
+	@Test
+	void testLoad_RejectsOtherFiles() throws IOException {
+		Path file = saved(plant());
+		overwriteInt(file, 0, 0x12345678);
+		assertThrows(IOException.class, () -> GeometryFile.load(file));
+	}
+
+	@Test
+	void testLoad_RejectsUnknownVersion() throws IOException {
+		Path file = saved(plant());
+		overwriteInt(file, 4, GeometryFile.FORMAT_VERSION + 1);
+		IOException e = assertThrows(IOException.class, () -> GeometryFile.load(file));
+		assertTrue(e.getMessage().contains("version"), e.getMessage());
+	}
+
+	@Test
+	void testLoad_RejectsTruncatedColumns() throws IOException {
+		Path file = saved(plant());
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 4);
+		}
+		assertThrows(IOException.class, () -> GeometryFile.load(file));
+	}
+
+	@Test
+	void testLoad_RejectsCountsThatDoNotMatchTheSize() throws IOException {
+		Path file = saved(plant());
+		overwriteInt(file, 8, -1); // segment count
+		assertThrows(IOException.class, () -> GeometryFile.load(file));
+		Path other = saved(plant());
+		overwriteInt(other, 12, Integer.MAX_VALUE); // style count
+		assertThrows(IOException.class, () -> GeometryFile.load(other));
+	}
+
+	@Test
+	void testLoad_RejectsUnknownStyleIndex() throws IOException {
+		SegmentBuffer geometry = plant();
+		Path file = saved(geometry);
+		long styleColumn = 36 + 8L * geometry.getStyleCount() + 4L * 4 * geometry.size();
+		overwriteInt(file, styleColumn, geometry.getStyleCount());
+		assertThrows(IOException.class, () -> GeometryFile.load(file));
+	}
+}
@@ -0,0 +1,138 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import model.GrammarCatalog;
+import model.PredefinedLSystem;
+
+class GrammarCatalogTest {
+
+	private static Path catalogFile(String... lines) throws IOException {
+		Path file = Files.createTempFile("catalog", ".txt");
+		file.toFile().deleteOnExit();
+		Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	//tests for indexing and searching
+	@Test
+	void testSearch_PrefixIgnoresCaseAndSorts() throws IOException {
+		Path file = catalogFile("new PredefinedLSystem(\"Koch Curve\", \"F\", \"F→F+F-F-F+F\", 90, 5, 4),",
+				"// not an entry", "new PredefinedLSystem(\"Dragon Curve\", \"FX\", \"X→X+YF+, Y→-FX-Y\", 90, 5, 10),",
+				"new PredefinedLSystem(\"koch Island\", \"F-F-F-F\", \"F→F-F+F+FF-F-F+F\", 90, 5, 3),");
+		GrammarCatalog catalog = new GrammarCatalog(List.of(file));
+		assertEquals(0, catalog.size());
+		assertEquals(1, catalog.reload());
+		assertEquals(3, catalog.size());
+
+		List<GrammarCatalog.Entry> found = catalog.search("KOCH", 10);
+		assertEquals(2, found.size());
+		assertEquals("Koch Curve", found.get(0).getName());
+		assertEquals("koch Island", found.get(1).getName());
+		assertEquals(1, catalog.search("koch", 1).size());
+		assertEquals(3, catalog.search("", 10).size());
+		assertTrue(catalog.search("Levy", 10).isEmpty());
+	}
+
+	@Test
+	void testLoad_ReadsOnlyRequestedEntries() throws IOException {
+		Path file = catalogFile("new PredefinedLSystem(\"Lévy C Curve\", \"F\", \"F→+F--F+\", 45, 5, 10),",
+				"new PredefinedLSystem(\"Thick Plant\", \"X\", \"X→F[+X][-X]FX, F→FF\", 25.7, 4, 5, 3),");
+		GrammarCatalog catalog = new GrammarCatalog(List.of(file));
+		catalog.reload();
+		assertEquals(0, catalog.getLoads());
+
+		GrammarCatalog.Entry entry = catalog.search("thick", 10).get(0);
+		PredefinedLSystem preset = catalog.load(entry);
+		assertEquals(1, catalog.getLoads());
+		assertEquals("X", preset.getAxiom());
+		assertEquals("X→F[+X][-X]FX, F→FF", preset.getRules());
+		assertEquals(25.7, preset.getAngle());
+		assertEquals(4, preset.getStep());
+		assertEquals(5, preset.getIterations());
+		assertEquals(3, preset.getThickness());
+
+		// Loaded entries are kept
+		assertSame(preset, catalog.load(entry));
+		assertEquals(1, catalog.getLoads());
+
+		// Offsets count bytes, so entries after multi-byte names are read correctly
+		assertEquals("F→+F--F+", catalog.load(catalog.search("lévy", 10).get(0)).getRules());
+	}
+
+	@Test
+	void testReload_ReindexesOnlyChangedFiles() throws IOException {
+		Path first = catalogFile("new PredefinedLSystem(\"Tree\", \"F\", \"F→F[+F][-F]\", 15, 10, 6),");
+		Path second = catalogFile("new PredefinedLSystem(\"Bush\", \"F\", \"F→FF+[+F-F-F]-[-F+F+F]\", 22.5, 7, 4),");
+		GrammarCatalog catalog = new GrammarCatalog(List.of(first, second));
+		assertEquals(2, catalog.reload());
+		assertEquals(0, catalog.reload());
+
+		Files.write(second, List.of("new PredefinedLSystem(\"Bramble\", \"X\", \"X→F[+X]F[-X]+X, F→FF\", 20, 5, 6),"),
+				StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		assertEquals(1, catalog.reload());
+		assertEquals(3, catalog.size());
+		assertEquals("X→F[+X]F[-X]+X, F→FF", catalog.load(catalog.search("bra", 10).get(0)).getRules());
+
+		Files.delete(second);
+		assertEquals(0, catalog.reload());
+		assertEquals(1, catalog.size());
+		assertTrue(catalog.search("b", 10).isEmpty());
+	}
+
+	@Test
+	void testReload_EarlierFilesWinDuplicateNames() throws IOException {
+		Path first = catalogFile("new PredefinedLSystem(\"Tree\", \"F\", \"F→F[+F][-F]\", 15, 10, 6),");
+		Path second = catalogFile("new PredefinedLSystem(\"tree\", \"X\", \"X→F[+X][-X]\", 45, 10, 6),");
+		GrammarCatalog catalog = new GrammarCatalog(List.of(first, second));
+		catalog.reload();
+		assertEquals(1, catalog.size());
+		assertEquals("F", catalog.load(catalog.search("tree", 10).get(0)).getAxiom());
+	}
+
+	@Test
+	void testReload_BundledPresetsParse() {
+		GrammarCatalog catalog = GrammarCatalog.defaultCatalog();
+		catalog.reload();
+		assertTrue(catalog.size() > 0);
+		for (GrammarCatalog.Entry entry : catalog.search("", Integer.MAX_VALUE)) {
+			assertNull(entry.getFile(), "read from the class path, not the working directory");
+			assertEquals(entry.getName(), catalog.load(entry).getName());
+		}
+	}
+
+	@Test
+	void testReload_BundledPresetsWinOverFiles() throws IOException {
+		byte[] bundled = "new PredefinedLSystem(\"Tree\", \"F\", \"F→F[+F][-F]\", 15, 10, 6),\n"
+				.getBytes(StandardCharsets.UTF_8);
+		Path file = catalogFile("new PredefinedLSystem(\"tree\", \"X\", \"X→F[+X][-X]\", 45, 10, 6),",
+				"new PredefinedLSystem(\"Bush\", \"X\", \"X→F[+X]\", 20, 10, 5),");
+		GrammarCatalog catalog = new GrammarCatalog(bundled, List.of(file));
+		catalog.reload();
+		assertEquals(2, catalog.size());
+		assertEquals("F", catalog.load(catalog.search("tree", 10).get(0)).getAxiom());
+		assertEquals(file, catalog.search("bush", 10).get(0).getFile());
+	}
+
+	@Test
+	void testPredefinedLSystems_SortedCopiesOfTheSamePresets() {
+		PredefinedLSystem[] first = PredefinedLSystem.predefinedLSystems();
+		PredefinedLSystem[] second = PredefinedLSystem.predefinedLSystems();
+		assertNotSame(first, second);
+		for (int i = 0; i < first.length; i++) {
+			assertSame(first[i], second[i]);
+			if (i > 0) {
+				assertTrue(first[i - 1].getName().compareTo(first[i].getName()) <= 0);
+			}
+		}
+	}
+}
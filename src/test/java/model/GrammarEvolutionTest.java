@@ -0,0 +1,119 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import model.GrammarEvolution;
+import model.LSystemParser;
+import model.ShapeMetrics;
+import model.Turtle;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class GrammarEvolutionTest {
+
+	private static final String AXIOM = "X";
+	private static final String RULES = "X→F[+X][-X]FX, F→FF";
+
+	private static List<GrammarEvolution.Candidate> evolve(int threads, long maxLength) {
+		GrammarEvolution evolution = new GrammarEvolution(AXIOM, RULES, 4, 25, maxLength, 1.5, 500, 7);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return evolution.run(5, 16, pool, null);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//tests for the shape metrics
+	@Test
+	void testShapeMetrics_SymmetricTree() {
+		ShapeMetrics metrics = new ShapeMetrics(0);
+		new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 45, 10, 1, Color.BLACK)
+				.interpret(new LSystemParser("F", "F→F[+F][-F]", 3).generateLSystemString(), new Turtle(metrics, 0, 0));
+		assertEquals(27, metrics.getSegments());
+		assertEquals(3, metrics.getMaxDepth());
+		assertEquals(1.0, metrics.getSymmetry(), 1e-9);
+		assertTrue(metrics.getHeight() > 0 && metrics.getWidth() > 0);
+	}
+
+	@Test
+	void testShapeMetrics_OneSidedDrawing() {
+		ShapeMetrics metrics = new ShapeMetrics(0);
+		new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 90, 10, 1, Color.BLACK)
+				.interpret("+FFF", new Turtle(metrics, 0, 0));
+		assertEquals(0.0, metrics.getSymmetry(), 1e-9);
+		assertEquals(0, metrics.getMaxDepth());
+	}
+
+	//tests for the search
+	@Test
+	void testRun_FrontIsNonDominatedAndParses() {
+		List<GrammarEvolution.Candidate> front = evolve(2, 100_000);
+		assertFalse(front.isEmpty());
+		for (GrammarEvolution.Candidate candidate : front) {
+			assertTrue(candidate.isValid());
+			assertTrue(candidate.getLength() <= 100_000);
+			for (GrammarEvolution.Candidate other : front) {
+				assertFalse(other.dominates(candidate));
+			}
+			// The rules are in the parser's format and keep their symbols
+			assertEquals(2, new LSystemParser(AXIOM, candidate.getRules(), 4).getRules().size());
+		}
+	}
+
+	@Test
+	void testRun_SameResultOnAnyNumberOfThreads() {
+		List<GrammarEvolution.Candidate> single = evolve(1, 100_000);
+		List<GrammarEvolution.Candidate> parallel = evolve(4, 100_000);
+		assertEquals(single.size(), parallel.size());
+		for (int i = 0; i < single.size(); i++) {
+			assertEquals(single.get(i).getRules(), parallel.get(i).getRules());
+		}
+	}
+
+	@Test
+	void testRun_SizeCapRejectsWithoutExpanding() {
+		// The seed alone expands into more symbols than allowed
+		long seedLength = new LSystemParser(AXIOM, RULES, 4).getGrowthTable().length(4);
+		GrammarEvolution evolution = new GrammarEvolution(AXIOM, RULES, 4, 25, seedLength - 1, 1.5, 500, 7);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			List<GrammarEvolution.Candidate> front = evolution.run(3, 8, pool, null);
+			for (GrammarEvolution.Candidate candidate : front) {
+				assertTrue(candidate.getLength() < seedLength);
+			}
+			assertEquals(32, evolution.getEvaluations());
+			assertTrue(evolution.getCandidatesPerSecond() > 0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testRun_RefusedExpansionRejectsTheCandidate() {
+		// Far more symbols than the governor will hold, but within the size cap
+		GrammarEvolution evolution = new GrammarEvolution("F", "F→FFFFFFFFFF", 14, 25, Long.MAX_VALUE, 1.5, 500, 7);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			List<GrammarEvolution.Candidate> front = evolution.run(1, 4, pool, null);
+			for (GrammarEvolution.Candidate candidate : front) {
+				assertTrue(candidate.isValid());
+			}
+			assertEquals(8, evolution.getEvaluations());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testConstructor_RejectsWeightedRules() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new GrammarEvolution("F", "F→(1)F[+F], F→(1)F[-F]", 4, 25, 10_000, 1, 100, 1));
+	}
+}
@@ -0,0 +1,103 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.jupiter.api.Test;
+
+import model.GrowthAnimation;
+import model.LSystemParser;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class GrowthAnimationTest {
+
+	private static final RenderSettings BASE = new RenderSettings(25, 10, 2, Color.GREEN, 4, 1, 0.8, 0.9, 0.1);
+
+	private static GrowthAnimation animation() {
+		return new GrowthAnimation("F", "F→F[+F]F[-F]F", TurtleCommand.PREDEFINED_COMMANDS, BASE, 1, 3,
+				new double[] { 1, 1.1 });
+	}
+
+	//tests for the frame plan
+	@Test
+	void testSettingsAt_DepthFirstThenAngleFactor() {
+		GrowthAnimation animation = animation();
+		assertEquals(6, animation.getFrameCount());
+		assertEquals(1, animation.settingsAt(0).getIterations());
+		assertEquals(1.1, animation.settingsAt(1).getAngleFactor(), 1e-12);
+		assertEquals(2, animation.settingsAt(2).getIterations());
+		assertEquals(1.0, animation.settingsAt(2).getAngleFactor(), 1e-12);
+		assertEquals(3, animation.settingsAt(5).getIterations());
+		// The other parameters keep their base values
+		assertEquals(0.8, animation.settingsAt(5).getStepFactor(), 1e-12);
+		assertThrows(IllegalArgumentException.class, () -> animation.settingsAt(6));
+	}
+
+	@Test
+	void testGeometryAt_UsesEffectiveSettings() {
+		GrowthAnimation animation = animation();
+		for (int frame = 0; frame < animation.getFrameCount(); frame++) {
+			RenderSettings settings = animation.settingsAt(frame);
+			SegmentBuffer expected = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS,
+					settings.effectiveAngle(), settings.effectiveStep(), settings.effectiveThickness(),
+					settings.effectiveColour()).interpret(
+							new LSystemParser("F", "F→F[+F]F[-F]F", settings.getIterations()).generateLSystemString(),
+							0, 0);
+			SegmentBuffer actual = animation.geometryAt(frame);
+			assertEquals(expected.size(), actual.size());
+			assertEquals(expected.getX2(expected.size() - 1), actual.getX2(actual.size() - 1), 1e-6);
+			assertEquals(expected.getStyleWidth(0), actual.getStyleWidth(0), 1e-6);
+		}
+	}
+
+	@Test
+	void testGetBounds_IsTheUnionOfEveryFrame() {
+		GrowthAnimation animation = animation();
+		Rectangle2D.Float union = animation.geometryAt(0).getBounds();
+		for (int frame = 1; frame < animation.getFrameCount(); frame++) {
+			union.add(animation.geometryAt(frame).getBounds());
+		}
+		assertEquals(union, animation.getBounds());
+	}
+
+	@Test
+	void testGetBounds_WithoutInstancingIsTheUnionOfTheLastDepth() {
+		// Stochastic rules cannot be instanced
+		GrowthAnimation animation = new GrowthAnimation("F", "F→(0.5)F[+F]F, F→(0.5)F[-F]F",
+				TurtleCommand.PREDEFINED_COMMANDS, BASE, 1, 3, new double[] { 1, 1.1 });
+		Rectangle2D.Float union = animation.geometryAt(4).getBounds();
+		union.add(animation.geometryAt(5).getBounds());
+		assertEquals(union, animation.getBounds());
+	}
+
+	@Test
+	void testGeometryAt_ParametricModulesKeepTheirParameters() {
+		GrowthAnimation animation = new GrowthAnimation("A(100,8)",
+				"A(l,w):l>2→F(l,w)[+(30)A(l*0.6,w*0.7)][-(30)A(l*0.6,w*0.7)]", TurtleCommand.PREDEFINED_COMMANDS,
+				BASE, 2, 2, new double[] { 1 });
+		SegmentBuffer geometry = animation.geometryAt(0);
+		// The trunk is as long as its module says, not the base step
+		assertEquals(100, Math.hypot(geometry.getX2(0) - geometry.getX1(0), geometry.getY2(0) - geometry.getY1(0)),
+				1);
+		assertTrue(animation.getBounds().contains(geometry.getBounds()));
+	}
+
+	@Test
+	void testGetMaxLength_IsTheLastDepth() {
+		assertEquals(new LSystemParser("F", "F→F[+F]F[-F]F", 3).generateLSystemString().length(),
+				animation().getMaxLength());
+	}
+
+	@Test
+	void testConstructor_RejectsEmptyRanges() {
+		assertThrows(IllegalArgumentException.class, () -> new GrowthAnimation("F", "F→FF",
+				TurtleCommand.PREDEFINED_COMMANDS, BASE, 3, 2, new double[] { 1 }));
+		assertThrows(IllegalArgumentException.class, () -> new GrowthAnimation("F", "F→FF",
+				TurtleCommand.PREDEFINED_COMMANDS, BASE, 1, 2, new double[0]));
+	}
+}
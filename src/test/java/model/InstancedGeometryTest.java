@@ -0,0 +1,117 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.jupiter.api.Test;
+
+import model.InstancedGeometry;
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class InstancedGeometryTest {
+
+	private static InstancedGeometry build(String axiom, String rules, int iterations, double angle) {
+		LSystemParser parser = new LSystemParser(axiom, rules, iterations);
+		return InstancedGeometry.build(axiom, parser.getRules(), iterations, TurtleCommand.PREDEFINED_COMMANDS,
+				angle, 5);
+	}
+
+	private static SegmentBuffer walk(String axiom, String rules, int iterations, double angle) {
+		String symbols = new LSystemParser(axiom, rules, iterations).generateLSystemString();
+		return new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, angle, 5, 1, Color.BLACK).interpret(symbols,
+				0, 0);
+	}
+
+	private static void assertSameSegments(SegmentBuffer expected, SegmentBuffer actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getX1(i), actual.getX1(i), 0, "x1 of segment " + i);
+			assertEquals(expected.getY1(i), actual.getY1(i), 0, "y1 of segment " + i);
+			assertEquals(expected.getX2(i), actual.getX2(i), 0, "x2 of segment " + i);
+			assertEquals(expected.getY2(i), actual.getY2(i), 0, "y2 of segment " + i);
+			assertEquals(expected.getDepth(i), actual.getDepth(i), "depth of segment " + i);
+		}
+	}
+
+	//tests for equivalence with the turtle walk
+	@Test
+	void testBuild_MatchesTurtleForEveryPreset() {
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			for (int iterations = 0; iterations <= preset.getIterations(); iterations++) {
+				double angle = iterations % 2 == 0 ? -preset.getAngle() : preset.getAngle();
+				InstancedGeometry instanced = build(preset.getAxiom(), preset.getRules(), iterations, angle);
+				assertNotNull(instanced, preset.getName());
+				assertSameSegments(walk(preset.getAxiom(), preset.getRules(), iterations, angle),
+						instanced.toSegmentBuffer(Color.BLACK, 1));
+			}
+		}
+	}
+
+	@Test
+	void testBuild_MatchesTurtleForKochSnowflake() {
+		assertSameSegments(walk("F++F++F", "F→F-F++F-F", 5, 60),
+				build("F++F++F", "F→F-F++F-F", 5, 60).toSegmentBuffer(Color.BLACK, 1));
+	}
+
+	@Test
+	void testBuild_BoundsMatchFlattenedGeometry() {
+		InstancedGeometry instanced = build("X", "F→FF, X→F[+X]F[-X]+X", 5, 20);
+		assertEquals(instanced.toSegmentBuffer(Color.BLACK, 1).getBounds(), instanced.getBounds());
+	}
+
+	//tests for flattening a region
+	@Test
+	void testFlatten_RegionKeepsExactlyTheSegmentsReachingIt() {
+		InstancedGeometry instanced = build("X", "F→FF, X→F[+X]F[-X]+X", 6, 20);
+		SegmentBuffer all = instanced.toSegmentBuffer(Color.BLACK, 1);
+		Rectangle2D.Float bounds = all.getBounds();
+		Rectangle2D region = new Rectangle2D.Double(bounds.x + bounds.width * 0.6, bounds.y + bounds.height * 0.1,
+				bounds.width / 5, bounds.height / 5);
+
+		SegmentBuffer expected = new SegmentBuffer();
+		for (int i = 0; i < all.size(); i++) {
+			if (Math.max(all.getX1(i), all.getX2(i)) >= region.getMinX()
+					&& Math.min(all.getX1(i), all.getX2(i)) <= region.getMaxX()
+					&& Math.max(all.getY1(i), all.getY2(i)) >= region.getMinY()
+					&& Math.min(all.getY1(i), all.getY2(i)) <= region.getMaxY()) {
+				expected.segment(all.getX1(i), all.getY1(i), all.getX2(i), all.getY2(i), Color.BLACK, 1,
+						all.getDepth(i));
+			}
+		}
+		SegmentBuffer actual = new SegmentBuffer();
+		instanced.flatten(actual, Color.BLACK, 1, region);
+
+		assertTrue(expected.size() > 0 && expected.size() < all.size() / 4, "segments in region: " + expected.size());
+		assertSameSegments(expected, actual);
+	}
+
+	//tests for instance reuse
+	@Test
+	void testBuild_InstanceCountGrowsFarSlowerThanSegments() {
+		InstancedGeometry instanced = build("F++F++F", "F→F-F++F-F", 8, 60);
+		assertEquals(3 * (long) Math.pow(4, 8), instanced.getSegmentCount());
+		assertTrue(instanced.getInstanceCount() < 1000, "instances: " + instanced.getInstanceCount());
+	}
+
+	//tests for grammars that cannot be instanced
+	@Test
+	void testBuild_UnbalancedProductionIsNotInstanced() {
+		assertNull(build("F", "F→F[+F", 3, 20));
+	}
+
+	@Test
+	void testBuild_RewrittenBracketIsNotInstanced() {
+		assertNull(build("F[F]", "[→[+", 3, 20));
+	}
+
+	@Test
+	void testBuild_SymbolWithoutCommandThrows() {
+		assertThrows(IllegalArgumentException.class, () -> build("FZ", "F→FF", 2, 20));
+	}
+}
@@ -0,0 +1,224 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.SegmentSink;
+import model.Turtle;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import view.DrawingPanel;
+
+/**
+ * Performance regression tests: allocation and scaling bounds, and golden
+ * hashes of deep expansions, so that an optimisation which brings back
+ * per-symbol allocation or changes the output fails the build. The bounds are
+ * several times the measured values to stay stable on slow machines.
+ */
+class LSystemParserPerformanceTest {
+
+	// Measured at about 2.5 to 6.5 bytes per symbol for long strings
+	private static final double MAX_GENERATION_BYTES_PER_SYMBOL = 16;
+	// Measured at about 4 to 10 bytes per symbol, one saved state per push
+	private static final double MAX_WALK_BYTES_PER_SYMBOL = 24;
+	private static final long FIXED_ALLOCATION = 64 * 1024;
+
+	/*
+	 * Every preset one level deeper than its own depth: the length and hash of
+	 * the string, and the count and hash of the walked segments.
+	 */
+	private static final Object[][] GOLDEN = {
+			{ "Plant1", 7, 13956, "17f771b06bad0b4c", 6305, "904e78c2c873d3bf" },
+			{ "Plant2", 6, 27175, "bb6ca32ecbb7b2c0", 12160, "34e3957d0f26f39e" },
+			{ "Plant3", 6, 22429, "fcc74afaec6309dc", 10144, "a13a5031a689d963" },
+			{ "Seaweed", 5, 88940, "63688cd1b4eea259", 32768, "48364d5550bc788d" },
+			{ "Stick Plant", 5, 3851, "32902be969886821", 1805, "54e63ef9ec5471bf" },
+			{ "Tree1", 7, 8745, "f55ed0eddb27e29b", 2187, "43244047ef884962" },
+			{ "Tree2", 7, 1338, "1addf43103b5e155", 576, "7f9476f443eecd39" },
+			{ "Weed", 6, 7855, "bb9ec4f0e3898dc4", 3865, "db0e1cfbda6e7a27" },
+			{ "Weed Plant", 6, 4243, "d918291a8fd806f3", 2059, "cf7e9356eb41cef3" } };
+
+	private static final SegmentSink DISCARD = new SegmentSink() {
+		@Override
+		public void segment(float x1, float y1, float x2, float y2, Color colour, float thickness, int depth) {
+		}
+	};
+
+	/*
+	 * Returns the bytes allocated by this thread so far, or -1 if the JVM cannot
+	 * tell.
+	 */
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+				&& threads.isThreadAllocatedMemorySupported()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+			return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long fnv(long hash, long value, int bytes) {
+		for (int i = 0; i < bytes; i++) {
+			hash ^= (value >>> (8 * i)) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static String hash(CharSequence symbols) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < symbols.length(); i++) {
+			hash ^= symbols.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return String.format("%016x", hash);
+	}
+
+	private static String hash(SegmentBuffer geometry) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < geometry.size(); i++) {
+			hash = fnv(hash, Float.floatToIntBits(geometry.getX1(i)), 8);
+			hash = fnv(hash, Float.floatToIntBits(geometry.getY1(i)), 8);
+			hash = fnv(hash, Float.floatToIntBits(geometry.getX2(i)), 8);
+			hash = fnv(hash, Float.floatToIntBits(geometry.getY2(i)), 8);
+			hash = fnv(hash, geometry.getDepth(i), 8);
+		}
+		return String.format("%016x", hash);
+	}
+
+	//tests for determinism
+	@Test
+	void testGoldenHashes_EveryPresetOneLevelDeeper() {
+		Map<String, PredefinedLSystem> presets = new HashMap<>();
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			presets.put(preset.getName(), preset);
+		}
+		assertEquals(GOLDEN.length, presets.size(), "every preset needs a golden hash");
+		for (Object[] golden : GOLDEN) {
+			PredefinedLSystem preset = presets.get(golden[0]);
+			assertNotNull(preset, (String) golden[0]);
+			String symbols = new LSystemParser(preset.getAxiom(), preset.getRules(), (int) golden[1])
+					.generateLSystemString();
+			assertEquals((int) golden[2], symbols.length(), preset.getName());
+			assertEquals(golden[3], hash(symbols), preset.getName());
+
+			SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, preset.getAngle(),
+					preset.getStep(), 1, Color.BLACK).interpret(symbols, 0, 0);
+			assertEquals((int) golden[4], geometry.size(), preset.getName());
+			assertEquals(golden[5], hash(geometry), preset.getName());
+		}
+	}
+
+	//tests for allocation
+	@Test
+	void testGenerate_AllocationPerSymbolIsBounded() {
+		if (allocatedBytes() < 0) {
+			return;
+		}
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			LSystemParser parser = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations() + 1);
+			parser.generateLSystemString(); // warm up
+			long before = allocatedBytes();
+			String symbols = parser.generateLSystemString();
+			long allocated = allocatedBytes() - before;
+			assertTrue(allocated <= MAX_GENERATION_BYTES_PER_SYMBOL * symbols.length() + FIXED_ALLOCATION,
+					preset.getName() + " allocated " + allocated + " bytes for " + symbols.length() + " symbols");
+		}
+	}
+
+	@Test
+	void testWalk_AllocationPerSymbolIsBoundedAndDoesNotGrow() {
+		if (allocatedBytes() < 0) {
+			return;
+		}
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			String symbols = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations() + 1)
+					.generateLSystemString();
+			TurtleInterpreter interpreter = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS,
+					preset.getAngle(), preset.getStep(), 1, Color.BLACK);
+			long first = 0;
+			for (int walk = 0; walk < 5; walk++) {
+				long before = allocatedBytes();
+				interpreter.interpret(symbols, new Turtle(DISCARD, 0, 0));
+				long allocated = allocatedBytes() - before;
+				assertTrue(allocated <= MAX_WALK_BYTES_PER_SYMBOL * symbols.length() + FIXED_ALLOCATION,
+						preset.getName() + " allocated " + allocated + " bytes for " + symbols.length() + " symbols");
+				if (walk == 1) {
+					first = allocated;
+				} else if (walk > 1) {
+					assertTrue(allocated <= first + first / 10 + 1024, preset.getName() + " walk " + walk
+							+ " allocated " + allocated + " bytes, the second walk " + first);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testRepaint_AllocationDoesNotGrow() {
+		if (allocatedBytes() < 0) {
+			return;
+		}
+		PredefinedLSystem preset = PredefinedLSystem.predefinedLSystems()[0];
+		String symbols = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations())
+				.generateLSystemString();
+		// A string that is not retained is walked by the turtle on every paint
+		DrawingPanel panel = new DrawingPanel();
+		panel.setSize(600, 400);
+		panel.setAngle(preset.getAngle());
+		panel.setStep(preset.getStep());
+		panel.setThickness(preset.getThickness());
+		panel.setColour(preset.getColour());
+		panel.setCommandMap(TurtleCommand.PREDEFINED_COMMANDS);
+		panel.setLSystemString(symbols);
+		BufferedImage image = new BufferedImage(600, 400, BufferedImage.TYPE_INT_ARGB);
+
+		long second = 0;
+		for (int paint = 0; paint < 10; paint++) {
+			long before = allocatedBytes();
+			Graphics2D g2 = image.createGraphics();
+			panel.paint(g2);
+			g2.dispose();
+			long allocated = allocatedBytes() - before;
+			// The first paint compiles the string
+			if (paint == 1) {
+				second = allocated;
+			} else if (paint > 1) {
+				assertTrue(allocated <= second + second / 10 + 4096,
+						"paint " + paint + " allocated " + allocated + " bytes, the second paint " + second);
+			}
+		}
+	}
+
+	//tests for scaling
+	@Test
+	void testGenerate_TimeIsLinearInOutputLength() {
+		// Each level is four times longer; quadratic work would take sixteen times as long
+		double shortNanosPerSymbol = bestNanosPerSymbol(8);
+		double longNanosPerSymbol = bestNanosPerSymbol(10);
+		assertTrue(longNanosPerSymbol < 3 * shortNanosPerSymbol, String.format(
+				"%.1f ns per symbol at depth 10, %.1f ns at depth 8", longNanosPerSymbol, shortNanosPerSymbol));
+	}
+
+	private static double bestNanosPerSymbol(int depth) {
+		LSystemParser parser = new LSystemParser("F", "F→F+F--F+F", depth);
+		long best = Long.MAX_VALUE;
+		int length = 0;
+		for (int run = 0; run < 5; run++) {
+			long start = System.nanoTime();
+			length = parser.generateLSystemString().length();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return (double) best / length;
+	}
+}
@@ -0,0 +1,91 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.ExecutionStrategy;
+import model.ExpansionPlan;
+import model.GrowthTable;
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.StreamingSymbolSequence;
+
+class MemoryGovernorTest {
+
+	private static final Path SPILL = Paths.get(System.getProperty("java.io.tmpdir"), "lsystem-spill-test");
+
+	//tests for GrowthTable predictions
+	@Test
+	void testGrowthTable_PredictsLength() {
+		LSystemParser parser = new LSystemParser("X", "F→FF, X→F[+X]F[-X]+X", 6);
+		String result = parser.generateLSystemString();
+		assertEquals(result.length(), parser.getGrowthTable().length(6));
+	}
+
+	@Test
+	void testGrowthTable_CountsDrawnSymbols() {
+		LSystemParser parser = new LSystemParser("F", "F→F[+F][-F]", 4);
+		String result = parser.generateLSystemString();
+		long moves = result.chars().filter(c -> c == 'F').count();
+		assertEquals(moves, parser.getGrowthTable().count(Set.of('F'), 4));
+	}
+
+	@Test
+	void testGrowthTable_SaturatesInsteadOfOverflowing() {
+		LSystemParser parser = new LSystemParser("F", "F→FFFFFFFFFF", 40);
+		assertEquals(Long.MAX_VALUE, parser.getGrowthTable().length(40));
+	}
+
+	//tests for alternative representations
+	@Test
+	void testStreamingSequence_MatchesMaterialized() {
+		LSystemParser parser = new LSystemParser("Y", "X→X[-FFF][+FFF]FX, Y→YFX[+Y][-Y]", 4);
+		String expected = parser.generateLSystemString();
+		StreamingSymbolSequence streaming = new StreamingSymbolSequence(parser.getGrowthTable(), 4);
+		assertEquals(expected, streaming.toString());
+		// Random access must seek correctly as well
+		for (int i = expected.length() - 1; i >= 0; i -= 7) {
+			assertEquals(expected.charAt(i), streaming.charAt(i));
+		}
+	}
+
+	@Test
+	void testGenerate_AllStrategiesProduceSameSymbols() {
+		LSystemParser parser = new LSystemParser("X", "F→FF, X→F[+X][-X]", 6);
+		String expected = parser.generateLSystemString();
+		MemoryGovernor governor = new MemoryGovernor(Long.MAX_VALUE, SPILL);
+		for (ExecutionStrategy strategy : new ExecutionStrategy[] { ExecutionStrategy.MATERIALIZED,
+				ExecutionStrategy.COMPRESSED, ExecutionStrategy.DISK_BACKED, ExecutionStrategy.STREAMING }) {
+			ExpansionPlan plan = new ExpansionPlan(strategy, expected.length(), 0, 0, 0, "");
+			assertEquals(expected, parser.generate(plan, governor).toString(), strategy.name());
+		}
+	}
+
+	//tests for strategy selection
+	@Test
+	void testPlan_SmallExpansionIsMaterialized() {
+		LSystemParser parser = new LSystemParser("F", "F→F[+F][-F]", 3);
+		ExpansionPlan plan = parser.plan(new MemoryGovernor(64L * 1024 * 1024, SPILL), Set.of('F'), false);
+		assertEquals(ExecutionStrategy.MATERIALIZED, plan.getStrategy());
+	}
+
+	@Test
+	void testPlan_TightBudgetFallsBackToCompactStrategy() {
+		LSystemParser parser = new LSystemParser("F", "F→F[+F][-F]", 12); // about 2.1 million symbols
+		ExpansionPlan plan = parser.plan(new MemoryGovernor(5L * 1024 * 1024, SPILL), Set.of('F'), false);
+		assertEquals(ExecutionStrategy.COMPRESSED, plan.getStrategy());
+	}
+
+	@Test
+	void testPlan_RefusesUnaddressableExpansion() {
+		LSystemParser parser = new LSystemParser("F", "F→FF", 40);
+		ExpansionPlan plan = parser.plan(new MemoryGovernor(Long.MAX_VALUE, SPILL), Set.of('F'), false);
+		assertTrue(plan.isRefused());
+		assertTrue(plan.getExplanation().contains("reduce the number of iterations"));
+	}
+}
@@ -0,0 +1,154 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.ParameterSweep;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class ParameterSweepTest {
+
+	private static final RenderSettings BASE = new RenderSettings(25, 6, 1, Color.BLACK, 4, 1, 1, 1, 0);
+	private static final String SYMBOLS = new LSystemParser("X", "F→FF, X→F[+X][-X]FX", 4).generateLSystemString();
+
+	private static ParameterSweep sweep(double[] angles, double[] angleFactors) {
+		return new ParameterSweep(SYMBOLS, TurtleCommand.PREDEFINED_COMMANDS, BASE, RenderSettings.Parameter.ANGLE,
+				angles, RenderSettings.Parameter.ANGLE_FACTOR, angleFactors);
+	}
+
+	//tests for ranges
+	@Test
+	void testRange_IncludesBothEnds() {
+		double[] angles = ParameterSweep.range(15, 45, 1);
+		assertEquals(31, angles.length);
+		assertEquals(15, angles[0]);
+		assertEquals(45, angles[30]);
+	}
+
+	@Test
+	void testRange_FractionalStepsDoNotLoseTheLastValue() {
+		double[] factors = ParameterSweep.range(0.9, 1.1, 0.1);
+		assertEquals(3, factors.length);
+		assertEquals(1.1, factors[2], 1e-9);
+	}
+
+	@Test
+	void testRange_RejectsEmptyOrBackwardRanges() {
+		assertThrows(IllegalArgumentException.class, () -> ParameterSweep.range(1, 2, 0));
+		assertThrows(IllegalArgumentException.class, () -> ParameterSweep.range(2, 1, 0.5));
+		assertThrows(IllegalArgumentException.class, () -> sweep(new double[0], new double[] { 1 }));
+	}
+
+	//tests for the grid
+	@Test
+	void testSettingsAt_ColumnsAndRowsFollowTheirAxes() {
+		double[] angles = ParameterSweep.range(20, 30, 5);
+		double[] factors = ParameterSweep.range(0.9, 1.1, 0.1);
+		ParameterSweep sweep = sweep(angles, factors);
+
+		assertEquals(3, sweep.getColumns());
+		assertEquals(3, sweep.getRows());
+		for (int row = 0; row < sweep.getRows(); row++) {
+			for (int column = 0; column < sweep.getColumns(); column++) {
+				RenderSettings settings = sweep.settingsAt(row, column);
+				assertEquals(angles[column], settings.getAngle());
+				assertEquals(factors[row], settings.getAngleFactor());
+				// Everything else comes from the base settings
+				assertEquals(BASE.getStep(), settings.getStep());
+				assertEquals(BASE.getThickness(), settings.getThickness());
+				assertEquals(BASE.getIterations(), settings.getIterations());
+			}
+		}
+	}
+
+	@Test
+	void testRun_DeliversEveryCellOnceWithItsSettings() throws Exception {
+		ParameterSweep sweep = sweep(ParameterSweep.range(20, 35, 5), ParameterSweep.range(1, 2, 0.5));
+		Map<List<Integer>, RenderSettings> ready = new ConcurrentHashMap<>();
+		Map<List<Integer>, SegmentBuffer> geometries = new ConcurrentHashMap<>();
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<?>> tasks = sweep.run(pool, new ParameterSweep.Listener() {
+				@Override
+				public void cellReady(int row, int column, RenderSettings settings, SegmentBuffer geometry) {
+					assertNull(ready.put(List.of(row, column), settings), "cell " + row + ", " + column + " twice");
+					geometries.put(List.of(row, column), geometry);
+				}
+
+				@Override
+				public void cellFailed(int row, int column, Exception e) {
+					fail(e);
+				}
+			});
+			assertEquals(4 * 3, tasks.size());
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(12, ready.size());
+		for (int row = 0; row < 3; row++) {
+			for (int column = 0; column < 4; column++) {
+				RenderSettings settings = ready.get(List.of(row, column));
+				assertEquals(sweep.settingsAt(row, column).effectiveAngle(), settings.effectiveAngle());
+				// Each cell draws what interpreting the symbols on their own draws, with runs of moves fused
+				SegmentBuffer expected = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS,
+						settings.effectiveAngle(), settings.effectiveStep(), settings.effectiveThickness(),
+						settings.effectiveColour()).interpret(SYMBOLS, 0, 0);
+				SegmentBuffer actual = geometries.get(List.of(row, column));
+				assertTrue(actual.size() <= expected.size(), "cell " + row + ", " + column);
+				assertEquals(expected.getBounds(), actual.getBounds(), "cell " + row + ", " + column);
+			}
+		}
+	}
+
+	@Test
+	void testRun_SuppliedSymbolsAreExpandedOnceOnThePool() throws Exception {
+		Thread caller = Thread.currentThread();
+		AtomicInteger expansions = new AtomicInteger();
+		ParameterSweep sweep = new ParameterSweep(() -> {
+			expansions.incrementAndGet();
+			assertNotSame(caller, Thread.currentThread());
+			return SYMBOLS;
+		}, TurtleCommand.PREDEFINED_COMMANDS, BASE, RenderSettings.Parameter.ANGLE, ParameterSweep.range(20, 35, 5),
+				RenderSettings.Parameter.ANGLE_FACTOR, ParameterSweep.range(1, 2, 0.5));
+		AtomicInteger ready = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<?>> tasks = sweep.run(pool, new ParameterSweep.Listener() {
+				@Override
+				public void cellReady(int row, int column, RenderSettings settings, SegmentBuffer geometry) {
+					ready.incrementAndGet();
+				}
+
+				@Override
+				public void cellFailed(int row, int column, Exception e) {
+					fail(e);
+				}
+			});
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, expansions.get());
+		assertEquals(12, ready.get());
+	}
+}
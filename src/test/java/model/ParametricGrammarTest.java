@@ -0,0 +1,101 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.ModuleString;
+import model.ParametricExpression;
+import model.ParametricGrammar;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class ParametricGrammarTest {
+
+	private static final String TREE_AXIOM = "A(100,8)";
+	private static final String TREE_RULES = "A(l,w):l>2→F(l,w)[+(30)A(l*0.6,w*0.7)][-(30)A(l*0.6,w*0.7)]";
+
+	private static double evaluate(String source, double... arguments) {
+		ParametricExpression expression = ParametricExpression.compile(source, List.of("a", "b"));
+		return expression.evaluate(arguments, new double[expression.getMaxStack()]);
+	}
+
+	//tests for expressions
+	@Test
+	void testEvaluate_Arithmetic() {
+		assertEquals(14.0, evaluate("a*0.5+2^3", 12, 0));
+		assertEquals(-1.5, evaluate("-(a-b)/2", 5, 2));
+		assertEquals(512.0, evaluate("2^3^2", 0, 0));
+		assertEquals(1.0, evaluate("a>=b", 2, 2));
+		assertEquals(0.0, evaluate("a!=b", 2, 2));
+	}
+
+	@Test
+	void testCompile_InvalidExpressionsThrow() {
+		assertThrows(IllegalArgumentException.class, () -> ParametricExpression.compile("x+1", List.of("a")));
+		assertThrows(IllegalArgumentException.class, () -> ParametricExpression.compile("(a+1", List.of("a")));
+		assertThrows(IllegalArgumentException.class, () -> ParametricExpression.compile("a+", List.of("a")));
+	}
+
+	//tests for rewriting
+	@Test
+	void testExpand_EvaluatesParameters() {
+		ModuleString modules = ParametricGrammar.parse("A(1)", "A(x)→A(x+1)B(x*2)").expand(2);
+		assertEquals("A(3)B(4)B(2)", modules.format());
+		assertEquals("ABB", modules.toString());
+		assertEquals(4.0, modules.getParameter(1, 0));
+	}
+
+	@Test
+	void testExpand_ConditionsStopGrowth() {
+		ModuleString modules = ParametricGrammar.parse("A(0)", "A(x):x<3→A(x+1)").expand(10);
+		assertEquals("A(3)", modules.format());
+	}
+
+	@Test
+	void testExpand_RulesMatchTheArity() {
+		assertEquals("AB(1)", ParametricGrammar.parse("AB(1)", "B→C, A(x)→D").expand(1).format());
+	}
+
+	//tests for planning and interpretation
+	@Test
+	void testPlan_GrowthTableBoundsTheLength() {
+		LSystemParser parser = new LSystemParser(TREE_AXIOM, TREE_RULES, 8);
+		assertTrue(parser.isParametric());
+		assertFalse(parser.hasFixedProductions());
+		MemoryGovernor governor = new MemoryGovernor();
+		CharSequence modules = parser.generate(parser.plan(governor, Set.of('F'), true), governor);
+		assertTrue(modules instanceof ModuleString);
+		assertTrue(modules.length() <= parser.getGrowthTable().length(8));
+		assertFalse(new LSystemParser("F", "F→(0.5)FF, F→(0.5)F", 2).isParametric());
+	}
+
+	@Test
+	void testInterpret_ModulesCarryStepAndAngle() {
+		ModuleString modules = ParametricGrammar.parse("F(10,3)+(90)F(5)", "F(l)→F(l)").expand(0);
+		SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 0, 99, 2, Color.BLACK)
+				.interpret(modules, 0, 0);
+		assertEquals(2, geometry.size());
+		assertEquals(-10f, geometry.getY2(0) - geometry.getY1(0));
+		assertEquals(6f, geometry.getStyleWidth(geometry.getStyle(0)));
+		assertEquals(5f, geometry.getX2(1) - geometry.getX1(1));
+	}
+
+	@Test
+	void testRender_PipelineKeepsRelativeWidths() {
+		RenderSettings settings = new RenderSettings(20, 5, 2, Color.BLACK, 4, 1, 1, 1, 0);
+		SegmentBuffer styled = new RenderPipeline(null).render(TREE_AXIOM, TREE_RULES,
+				TurtleCommand.PREDEFINED_COMMANDS, settings);
+		assertEquals(16, styled.getStyleWidth(styled.getStyle(0)), 1e-4);
+		assertTrue(styled.getStyleWidth(styled.getStyle(styled.size() - 1)) < 16);
+	}
+}
@@ -0,0 +1,135 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+import model.DepthStyle;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+
+class RenderPipelineTest {
+
+	private static final String AXIOM = "X";
+	private static final String RULES = "F→FF, X→F[+X]F[-X]+X";
+
+	private static RenderSettings settings(double angle, double thickness, Color colour) {
+		return new RenderSettings(angle, 5, thickness, colour, 5, 1, 1, 1, 0);
+	}
+
+	private static SegmentBuffer render(RenderPipeline pipeline, RenderSettings settings) {
+		return pipeline.render(AXIOM, RULES, TurtleCommand.PREDEFINED_COMMANDS, settings);
+	}
+
+	//tests for stage invalidation
+	@Test
+	void testRender_ColourChangeOnlyRestyles() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		SegmentBuffer black = render(pipeline, settings(20, 1, Color.BLACK));
+		SegmentBuffer red = render(pipeline, settings(20, 1, Color.RED));
+
+		assertEquals(1, pipeline.getGenerations());
+		assertEquals(1, pipeline.getInterpretations());
+		assertEquals(2, pipeline.getRestylings());
+		assertEquals(black.size(), red.size());
+		assertEquals(Color.RED.getRGB(), red.getStyleArgb(red.getStyle(0)));
+		assertEquals(Color.BLACK.getRGB(), black.getStyleArgb(black.getStyle(0)));
+	}
+
+	@Test
+	void testRender_ThicknessChangeOnlyRestyles() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		render(pipeline, settings(20, 1, Color.BLACK));
+		SegmentBuffer thick = render(pipeline, settings(20, 3, Color.BLACK));
+
+		assertEquals(1, pipeline.getInterpretations());
+		assertEquals(3f, thick.getStyleWidth(thick.getStyle(0)));
+	}
+
+	@Test
+	void testRender_AngleChangeReinterpretsWithoutRegenerating() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		render(pipeline, settings(20, 1, Color.BLACK));
+		render(pipeline, settings(30, 1, Color.BLACK));
+
+		assertEquals(1, pipeline.getGenerations());
+		assertEquals(2, pipeline.getInterpretations());
+	}
+
+	@Test
+	void testRender_UnchangedInputsReuseEverything() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		SegmentBuffer first = render(pipeline, settings(20, 1, Color.BLACK));
+		SegmentBuffer second = render(pipeline, settings(20, 1, Color.BLACK));
+
+		assertSame(first, second);
+		assertEquals(1, pipeline.getRestylings());
+	}
+
+	@Test
+	void testRender_RuleChangeRegenerates() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		render(pipeline, settings(20, 1, Color.BLACK));
+		pipeline.render(AXIOM, "F→F, X→F[+X]F[-X]+X", TurtleCommand.PREDEFINED_COMMANDS,
+				settings(20, 1, Color.BLACK));
+
+		assertEquals(2, pipeline.getGenerations());
+		assertEquals(2, pipeline.getInterpretations());
+	}
+
+	@Test
+	void testRender_SeedChangeOnlyRegeneratesStochasticGrammars() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		render(pipeline, settings(20, 1, Color.BLACK));
+		render(pipeline, settings(20, 1, Color.BLACK).withSeed(42));
+		assertEquals(1, pipeline.getGenerations());
+
+		String stochastic = "F→(0.5)F[+F]F, F→(0.5)F[-F]F";
+		pipeline.render("F", stochastic, TurtleCommand.PREDEFINED_COMMANDS, settings(20, 1, Color.BLACK));
+		pipeline.render("F", stochastic, TurtleCommand.PREDEFINED_COMMANDS,
+				settings(20, 1, Color.BLACK).withSeed(42));
+		assertEquals(3, pipeline.getGenerations());
+	}
+
+	//tests for depth styling
+	@Test
+	void testRender_DepthStylingOnlyRestyles() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		SegmentBuffer plain = render(pipeline, settings(20, 1, Color.BLACK));
+		SegmentBuffer styled = render(pipeline,
+				new RenderSettings(20, 5, 1, Color.BLACK, 5, 1, 1, 1, 0, true));
+
+		assertEquals(1, pipeline.getInterpretations());
+		assertEquals(2, pipeline.getRestylings());
+		assertEquals(plain.size(), styled.size());
+		assertEquals(1, plain.getStyleCount());
+		assertEquals(styled.getMaxDepth() + 1, styled.getStyleCount());
+	}
+
+	@Test
+	void testRender_DepthStylingTapersFromTrunkToTips() {
+		SegmentBuffer styled = render(new RenderPipeline(null),
+				new RenderSettings(20, 5, 1, Color.BLACK, 5, 1, 1, 1, 0, true));
+		for (int i = 0; i < styled.size(); i++) {
+			float width = styled.getStyleWidth(styled.getStyle(i));
+			if (styled.getDepth(i) == 0) {
+				assertEquals(3f, width);
+			} else if (styled.getDepth(i) == styled.getMaxDepth()) {
+				assertEquals(1f, width);
+			}
+		}
+	}
+
+	@Test
+	void testDepthStyle_BucketsAreBounded() {
+		DepthStyle style = DepthStyle.taper(Color.BLACK, 1);
+		assertEquals(DepthStyle.MAX_BUCKETS, style.bucketCount(100));
+		assertEquals(0, style.bucket(0, 100));
+		assertEquals(DepthStyle.MAX_BUCKETS - 1, style.bucket(100, 100));
+		assertEquals(0, style.bucket(0, 0));
+	}
+}
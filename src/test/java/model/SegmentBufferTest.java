@@ -0,0 +1,95 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class SegmentBufferTest {
+
+	private static SegmentBuffer koch(int iterations, double step) {
+		String symbols = new LSystemParser("F++F++F", "F→F-F++F-F", iterations).generateLSystemString();
+		return new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 60, step, 1, Color.RED).interpret(symbols,
+				0, 0);
+	}
+
+	//tests for preview simplification
+	@Test
+	void testSimplified_KeepsOneSegmentPerCellPair() {
+		SegmentBuffer buffer = new SegmentBuffer();
+		int style = buffer.styleIndex(Color.RED.getRGB(), 2);
+		for (int i = 0; i < 100; i++) {
+			buffer.add(0.1f, 0.1f, 0.2f + i * 0.001f, 0.2f, style, 0);
+		}
+		buffer.add(0, 0, 5, 5, style, 1);
+
+		SegmentBuffer simplified = buffer.simplified(1);
+		assertEquals(2, simplified.size());
+		assertEquals(Color.RED.getRGB(), simplified.getStyleArgb(simplified.getStyle(1)));
+		assertEquals(2f, simplified.getStyleWidth(simplified.getStyle(1)));
+		assertEquals(1, simplified.getDepth(1));
+	}
+
+	@Test
+	void testSimplified_LargeCellsBoundSegmentCount() {
+		SegmentBuffer buffer = koch(6, 1);
+		SegmentBuffer simplified = buffer.simplified(8);
+		// Unit steps join a cell to itself or to one of its eight neighbours
+		long cells = (long) (buffer.getBounds().width / 8 + 2) * (long) (buffer.getBounds().height / 8 + 2);
+		assertTrue(simplified.size() < buffer.size() / 4, simplified.size() + " of " + buffer.size());
+		assertTrue(simplified.size() <= cells * 5, "more segments than cell pairs");
+	}
+
+	@Test
+	void testSimplified_FineCellsReturnSameBuffer() {
+		SegmentBuffer buffer = koch(3, 10);
+		assertSame(buffer, buffer.simplified(0.5f));
+	}
+
+	@Test
+	void testSimplified_NonPositiveCellThrows() {
+		assertThrows(IllegalArgumentException.class, () -> koch(1, 10).simplified(0));
+	}
+
+	//tests for batch transforms
+	@Test
+	void testTransform_MatchesAffineTransform() {
+		SegmentBuffer buffer = koch(3, 7);
+		int size = buffer.size();
+		float[] x1 = new float[size], y1 = new float[size], x2 = new float[size], y2 = new float[size];
+		buffer.transform(1.75, 320, -40.5, x1, y1, x2, y2);
+
+		AffineTransform transform = new AffineTransform(1.75, 0, 0, 1.75, 320, -40.5);
+		float[] points = new float[4];
+		for (int i = 0; i < size; i++) {
+			points[0] = buffer.getX1(i);
+			points[1] = buffer.getY1(i);
+			points[2] = buffer.getX2(i);
+			points[3] = buffer.getY2(i);
+			transform.transform(points, 0, points, 0, 2);
+			assertEquals(points[0], x1[i], 1e-3, "x1 of segment " + i);
+			assertEquals(points[1], y1[i], 1e-3, "y1 of segment " + i);
+			assertEquals(points[2], x2[i], 1e-3, "x2 of segment " + i);
+			assertEquals(points[3], y2[i], 1e-3, "y2 of segment " + i);
+		}
+	}
+
+	@Test
+	void testTransformToPixelCentres_RoundsDownToCentres() {
+		SegmentBuffer buffer = new SegmentBuffer();
+		buffer.segment(-0.25f, 0.25f, 1.5f, -2.75f, Color.BLACK, 1, 0);
+		float[] x1 = new float[1], y1 = new float[1], x2 = new float[1], y2 = new float[1];
+		buffer.transformToPixelCentres(2, 10, 20, x1, y1, x2, y2);
+		assertEquals(9.5f, x1[0]);
+		assertEquals(20.5f, y1[0]);
+		assertEquals(13.5f, x2[0]);
+		assertEquals(14.5f, y2[0]);
+	}
+}
@@ -0,0 +1,120 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+import model.Camera;
+import model.LSystemParser;
+import model.ParametricGrammar;
+import model.RenderPipeline;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.SpatialGeometry;
+import model.SpatialInterpreter;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+class SpatialInterpreterTest {
+
+	private static final String BUSH_AXIOM = "A";
+	private static final String BUSH_RULES = "A→F[&FA]/////[&FA]///////[&FA], F→FF";
+
+	private static SpatialGeometry interpret(CharSequence symbols, double angle) {
+		return new SpatialInterpreter(TurtleCommand.PREDEFINED_COMMANDS, angle, 10, 1, Color.BLACK)
+				.interpret(symbols);
+	}
+
+	//tests for the 3D turtle
+	@Test
+	void testProject_PlanarWalkMatches2D() {
+		String symbols = "F+F[-F]F-F";
+		SegmentBuffer flat = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 90, 10, 1, Color.BLACK)
+				.interpret(symbols, 0, 0);
+		SegmentBuffer projected = new Camera(0, 0).project(interpret(symbols, 90));
+		assertEquals(flat.size(), projected.size());
+		for (int i = 0; i < flat.size(); i++) {
+			assertEquals(flat.getX2(i), projected.getX2(i), 1e-4);
+			assertEquals(flat.getY2(i), projected.getY2(i), 1e-4);
+			assertEquals(flat.getDepth(i), projected.getDepth(i));
+		}
+	}
+
+	@Test
+	void testInterpret_PitchLeavesThePlane() {
+		SpatialGeometry geometry = interpret("&F", 90);
+		assertEquals(-10f, geometry.getZ2(0), 1e-4);
+		assertEquals(0f, geometry.getY2(0), 1e-4);
+		// Seen from the front it has no length, seen from the side it has its full length
+		SegmentBuffer front = new Camera(0, 0).project(geometry);
+		assertEquals(0f, front.getX2(0) - front.getX1(0), 1e-4);
+		SegmentBuffer side = new Camera(90, 0).project(geometry);
+		assertEquals(10f, Math.abs(side.getX2(0) - side.getX1(0)), 1e-4);
+	}
+
+	@Test
+	void testInterpret_RollTurnsAboutTheHeading() {
+		// After rolling by 90 degrees a turn no longer stays in the plane z = 0
+		SpatialGeometry geometry = interpret("\\+F", 90);
+		assertEquals(10f, Math.abs(geometry.getZ2(0)), 1e-4);
+		assertEquals(0f, geometry.getX2(0), 1e-4);
+	}
+
+	@Test
+	void testInterpret_TurnAroundAndBrackets() {
+		SpatialGeometry geometry = interpret("[&F]|F", 30);
+		assertEquals(1, geometry.getDepth(0));
+		assertEquals(0, geometry.getDepth(1));
+		assertEquals(-10f, geometry.getY2(1), 1e-4);
+		assertEquals(0f, geometry.getY1(1), 1e-4);
+	}
+
+	@Test
+	void testInterpret_ModulesCarryTheAngle() {
+		SpatialGeometry geometry = interpret(ParametricGrammar.parse("&(90)F(5)", "F(l)→F(l)").expand(0), 10);
+		assertEquals(-5f, geometry.getZ2(0), 1e-4);
+	}
+
+	//tests for the projection
+	@Test
+	void testProject_ParallelMatchesPointwise() {
+		SpatialGeometry geometry = interpret(new LSystemParser(BUSH_AXIOM, BUSH_RULES, 9).generateLSystemString(),
+				22.5);
+		assertTrue(geometry.size() > 1 << 15, "too small to be projected in parallel: " + geometry.size());
+		Camera camera = new Camera(35, -20);
+		SegmentBuffer projected = camera.project(geometry);
+		for (int i = 0; i < geometry.size(); i += 97) {
+			assertEquals(camera.screenX(geometry.getX1(i), geometry.getY1(i), geometry.getZ1(i)),
+					projected.getX1(i));
+			assertEquals(camera.screenY(geometry.getX2(i), geometry.getY2(i), geometry.getZ2(i)),
+					projected.getY2(i));
+		}
+		assertTrue(projected.getBounds().contains(projected.getX2(42), projected.getY2(42)));
+	}
+
+	@Test
+	void testRender_OrbitOnlyReprojects() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		RenderSettings settings = new RenderSettings(22.5, 5, 1, Color.BLACK, 4, 1, 1, 1, 0);
+		SegmentBuffer front = pipeline.render(BUSH_AXIOM, BUSH_RULES, TurtleCommand.PREDEFINED_COMMANDS, settings);
+		SegmentBuffer side = pipeline.render(BUSH_AXIOM, BUSH_RULES, TurtleCommand.PREDEFINED_COMMANDS,
+				settings.withCamera(90, 0));
+
+		assertTrue(pipeline.isSpatial());
+		assertEquals(1, pipeline.getInterpretations());
+		assertEquals(2, pipeline.getProjections());
+		assertEquals(front.size(), side.size());
+		assertNotEquals(front.getBounds(), side.getBounds());
+	}
+
+	@Test
+	void testRender_PlanarGrammarsAreNotProjected() {
+		RenderPipeline pipeline = new RenderPipeline(null);
+		RenderSettings settings = new RenderSettings(25, 5, 1, Color.BLACK, 3, 1, 1, 1, 0);
+		pipeline.render("X", "F→FF, X→F[+X]F[-X]+X", TurtleCommand.PREDEFINED_COMMANDS, settings.withCamera(90, 0));
+		assertFalse(pipeline.isSpatial());
+		assertEquals(0, pipeline.getProjections());
+	}
+}
@@ -0,0 +1,102 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.GenerationCache;
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.StochasticGrammar;
+
+class StochasticGrammarTest {
+
+	private static final String BUSH = "F→(0.3)F[+F]F, F→(0.3)F[-F]F, F→(0.4)FF";
+
+	//tests for reproducibility
+	@Test
+	void testExpand_ParallelMatchesSequential() {
+		StochasticGrammar grammar = StochasticGrammar.parse(BUSH);
+		String parallel = grammar.expand("F", 12, 42);
+		assertTrue(parallel.length() > 1 << 17, "too short to be expanded in parallel: " + parallel.length());
+		assertEquals(grammar.expandSequentially("F", 12, 42), parallel);
+	}
+
+	@Test
+	void testExpand_SameSeedSameResult() {
+		StochasticGrammar grammar = StochasticGrammar.parse(BUSH);
+		assertEquals(grammar.expand("F", 5, 7), StochasticGrammar.parse(BUSH).expand("F", 5, 7));
+		assertNotEquals(grammar.expand("F", 5, 7), grammar.expand("F", 5, 8));
+	}
+
+	@Test
+	void testGenerate_ParserUsesSeed() {
+		String expected = StochasticGrammar.parse(BUSH).expand("F", 4, 3);
+		assertEquals(expected, new LSystemParser("F", BUSH, 4, 3).generateLSystemString());
+	}
+
+	//tests for the random choices
+	@Test
+	void testChoose_FollowsWeights() {
+		StochasticGrammar grammar = StochasticGrammar.parse("A→(1)B, A→(3)C");
+		int second = 0;
+		for (int position = 0; position < 20_000; position++) {
+			second += grammar.choose('A', 1, 1, position);
+		}
+		assertEquals(0.75, second / 20_000.0, 0.02);
+	}
+
+	@Test
+	void testChoose_SymbolWithoutRule() {
+		assertEquals(-1, StochasticGrammar.parse(BUSH).choose('X', 1, 1, 0));
+	}
+
+	//tests for parsing
+	@Test
+	void testParse_UnweightedRulesAreNotStochastic() {
+		assertNull(StochasticGrammar.parse("F→FF, X→F[+X]"));
+		assertFalse(new LSystemParser("F", "F→FF", 2).isStochastic());
+	}
+
+	@Test
+	void testParse_UnweightedSymbolsKeepTheirRule() {
+		StochasticGrammar grammar = StochasticGrammar.parse("X→(1)F[+X], X→(1)F[-X], F→FF");
+		assertEquals(2, grammar.getAlternatives('X').size());
+		assertEquals("FF", grammar.getAlternatives('F').get(0));
+	}
+
+	@Test
+	void testParse_MixedWeightingThrows() {
+		assertThrows(IllegalArgumentException.class, () -> StochasticGrammar.parse("F→(0.5)FF, F→F"));
+	}
+
+	@Test
+	void testParse_ZeroWeightThrows() {
+		assertThrows(IllegalArgumentException.class, () -> StochasticGrammar.parse("F→(0)FF, F→(1)F"));
+	}
+
+	//tests for planning and caching
+	@Test
+	void testPlan_GrowthTableBoundsTheLength() {
+		LSystemParser parser = new LSystemParser("F", BUSH, 5, 11);
+		long bound = parser.getGrowthTable().length(5);
+		assertTrue(parser.generateLSystemString().length() <= bound);
+		// F[+F]F, F[-F]F and FF are bounded by three Fs and one of each other symbol
+		assertEquals(727, bound);
+	}
+
+	@Test
+	void testPlan_RefusesCompactStrategies() {
+		// Enough memory to hold the expansion compressed, but not as a String
+		MemoryGovernor governor = new MemoryGovernor(1_000_000, MemoryGovernor.defaultSpillDirectory());
+		assertFalse(new LSystemParser("F", "F→F[+F]F", 11).plan(governor, Set.of('F'), false).isRefused());
+		assertTrue(new LSystemParser("F", BUSH, 11, 1).plan(governor, Set.of('F'), false).isRefused());
+	}
+
+	@Test
+	void testKey_SeedOnlyMattersForStochasticRules() {
+		assertNotEquals(GenerationCache.key("F", BUSH, 4, 1), GenerationCache.key("F", BUSH, 4, 2));
+	}
+}
@@ -0,0 +1,129 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import model.TurtleProgram;
+
+class TurtleProgramTest {
+
+	private static TurtleProgram compile(String symbols) {
+		return TurtleProgram.compile(symbols, TurtleCommand.PREDEFINED_COMMANDS);
+	}
+
+	private static SegmentBuffer run(TurtleProgram program, double angle, double step) {
+		return new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, angle, step, 1, Color.BLACK).interpret(program,
+				0, 0);
+	}
+
+	private static double pathLength(SegmentBuffer geometry) {
+		double length = 0;
+		for (int i = 0; i < geometry.size(); i++) {
+			length += Math.hypot(geometry.getX2(i) - geometry.getX1(i), geometry.getY2(i) - geometry.getY1(i));
+		}
+		return length;
+	}
+
+	private static Set<Point> endpoints(SegmentBuffer geometry) {
+		Set<Point> points = new HashSet<>();
+		for (int i = 0; i < geometry.size(); i++) {
+			points.add(new Point((int) geometry.getX1(i), (int) geometry.getY1(i)));
+			points.add(new Point((int) geometry.getX2(i), (int) geometry.getY2(i)));
+		}
+		return points;
+	}
+
+	//tests for the peephole pass
+	@Test
+	void testCompile_FusesMovesIntoOneSegment() {
+		TurtleProgram program = compile("FFFF");
+		assertEquals(1, program.getLength());
+		SegmentBuffer geometry = run(program, 90, 10);
+		assertEquals(1, geometry.size());
+		assertEquals(-40f, geometry.getY2(0));
+	}
+
+	@Test
+	void testCompile_FusedMoveEndsWhereSingleMovesDo() {
+		// Every step is truncated to whole pixels, so three steps are not one long step
+		SegmentBuffer walked = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 30, 7, 1, Color.BLACK)
+				.interpret("+FFF", 0, 0);
+		SegmentBuffer compiled = run(compile("+FFF"), 30, 7);
+		assertEquals(walked.getX2(2), compiled.getX2(0));
+		assertEquals(walked.getY2(2), compiled.getY2(0));
+	}
+
+	@Test
+	void testCompile_FoldsAndCancelsTurns() {
+		assertEquals(3, compile("F+++--F").getLength());
+		// Opposite turns cancel and the moves around them fuse
+		assertEquals(1, compile("F+-F").getLength());
+		assertEquals(1, compile("F||F").getLength());
+		// Pitch and roll do nothing in the plane
+		assertEquals(1, compile("F&^\\/F").getLength());
+	}
+
+	@Test
+	void testCompile_CancelledTurnsLeaveOneFusedMove() {
+		SegmentBuffer geometry = run(compile("F+-F"), 25, 10);
+		assertEquals(1, geometry.size());
+		assertEquals(0f, geometry.getX2(0));
+		assertEquals(-20f, geometry.getY2(0));
+	}
+
+	@Test
+	void testRun_SkipsTurnsAllTheWayRound() {
+		// Four right angles are a full turn, so the second move goes on straight
+		SegmentBuffer geometry = run(compile("F++++F"), 90, 10);
+		assertEquals(2, geometry.size());
+		assertEquals(geometry.getX2(0), geometry.getX2(1));
+		assertEquals(-20f, geometry.getY2(1));
+	}
+
+	@Test
+	void testCompile_DropsUnseenInstructions() {
+		// Turns before a pop or at the end, and empty branches
+		assertEquals(1, compile("F[+][-[]]F+").getLength());
+		assertEquals(6, compile("F[+F-]F").getLength());
+		// A pop without a push is ignored by the turtle
+		assertEquals(1, compile("]F]F").getLength());
+	}
+
+	@Test
+	void testCompile_RejectsUnknownSymbols() {
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compile("F+Q"));
+		assertTrue(e.getMessage().contains("'Q'"));
+	}
+
+	//tests against the interpreter
+	@Test
+	void testRun_DrawsTheSameAsWalkingForEveryPreset() {
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			String symbols = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations())
+					.generateLSystemString();
+			SegmentBuffer walked = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, preset.getAngle(),
+					preset.getStep(), 1, Color.BLACK).interpret(symbols, 0, 0);
+			TurtleProgram program = compile(symbols);
+			SegmentBuffer compiled = run(program, preset.getAngle(), preset.getStep());
+
+			assertTrue(program.getLength() <= symbols.length(), preset.getName());
+			assertTrue(compiled.size() <= walked.size(), preset.getName());
+			assertEquals(walked.getBounds(), compiled.getBounds(), preset.getName());
+			// Fused moves start and end on points the plain walk passes through
+			assertTrue(endpoints(walked).containsAll(endpoints(compiled)), preset.getName());
+			assertEquals(pathLength(walked), pathLength(compiled), 1e-6 * pathLength(walked), preset.getName());
+			assertEquals(walked.getMaxDepth(), compiled.getMaxDepth(), preset.getName());
+		}
+	}
+}
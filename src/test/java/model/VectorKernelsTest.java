@@ -0,0 +1,62 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import model.VectorKernels;
+
+class VectorKernelsTest {
+
+	private static final int SIZE = 1037;
+
+	/*
+	 * Random coordinates mixed with ones that land on pixel edges, negative
+	 * fractions, zeros and values too large or not numbers at all.
+	 */
+	private static float[] coordinates() {
+		Random random = new Random(7);
+		float[] values = new float[SIZE];
+		float[] special = { 0f, -0f, -0.25f, 0.5f, -3f, 1e9f, -1e20f, Float.NaN, Float.POSITIVE_INFINITY };
+		for (int i = 0; i < SIZE; i++) {
+			values[i] = i < special.length ? special[i]
+					: i % 3 == 0 ? random.nextInt(2000) / 4f - 250 : (random.nextFloat() - 0.5f) * 2000;
+		}
+		return values;
+	}
+
+	//tests for the vector kernels
+	@Test
+	void testTransformColumn_MatchesScalarLoop() {
+		assumeTrue(VectorKernels.isSupported());
+		float[] from = coordinates();
+		for (int size : new int[] { 0, 1, 7, 8, 9, 31, SIZE }) {
+			float[] to = new float[SIZE];
+			VectorKernels.transformColumn(from, to, size, 1.75, -40.5);
+			for (int i = 0; i < SIZE; i++) {
+				float expected = i < size ? (float) -40.5 + (float) 1.75 * from[i] : 0;
+				assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(to[i]), "value " + i + " of " + size);
+			}
+		}
+	}
+
+	@Test
+	void testPixelCentreColumn_MatchesScalarLoop() {
+		assumeTrue(VectorKernels.isSupported());
+		float[] from = coordinates();
+		for (double scale : new double[] { 1, 2, 1.3, 0.37 }) {
+			for (int size : new int[] { 0, 1, 3, 4, 5, 17, SIZE }) {
+				float[] to = new float[SIZE];
+				VectorKernels.pixelCentreColumn(from, to, size, scale, 600.5);
+				for (int i = 0; i < SIZE; i++) {
+					float expected = i < size ? (float) Math.floor(from[i] * scale + 600.5) + 0.5f : 0;
+					assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(to[i]),
+							"value " + i + " of " + size + " at scale " + scale);
+				}
+			}
+		}
+	}
+}
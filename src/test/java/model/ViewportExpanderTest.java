@@ -0,0 +1,122 @@
+package test.java.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import model.ViewportExpander;
+
+class ViewportExpanderTest {
+
+	private static ViewportExpander expander(String axiom, String rules, int iterations, double angle) {
+		LSystemParser parser = new LSystemParser(axiom, rules, iterations);
+		return new ViewportExpander(axiom, parser.getRules(), TurtleCommand.PREDEFINED_COMMANDS, angle, 5,
+				iterations);
+	}
+
+	private static ViewportExpander.Result expand(ViewportExpander expander, Rectangle2D viewport,
+			double pixelsPerUnit, int maxSegments) {
+		return expander.expand(viewport, pixelsPerUnit, 1, maxSegments, Color.BLACK, 1);
+	}
+
+	//tests against the interpreter
+	@Test
+	void testExpand_WholeDrawingMatchesTheTurtle() {
+		// Right angles and whole steps, so the turtle's rounding loses nothing
+		String rules = "F→F+F-F-F+F";
+		SegmentBuffer walked = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, 90, 5, 1, Color.BLACK)
+				.interpret(new LSystemParser("F", rules, 4).generateLSystemString(), 0, 0);
+		ViewportExpander expander = expander("F", rules, 4, 90);
+		ViewportExpander.Result result = expand(expander, expander.getBounds(), 100, 1_000_000);
+		SegmentBuffer expanded = result.getGeometry();
+
+		assertEquals(walked.size(), expanded.size());
+		assertEquals(0, result.getCulled());
+		assertEquals(0, result.getCoarsened());
+		for (int i = 0; i < walked.size(); i++) {
+			assertEquals(walked.getX1(i), expanded.getX1(i) + result.getOriginX(), 1e-3, "x1 of segment " + i);
+			assertEquals(walked.getY1(i), expanded.getY1(i) + result.getOriginY(), 1e-3, "y1 of segment " + i);
+			assertEquals(walked.getDepth(i), expanded.getDepth(i), "depth of segment " + i);
+		}
+	}
+
+	@Test
+	void testExpand_EveryPresetHasTheSameSegmentsAndBounds() {
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			LSystemParser parser = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations());
+			SegmentBuffer walked = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, preset.getAngle(),
+					preset.getStep(), 1, Color.BLACK).interpret(parser.generateLSystemString(), 0, 0);
+			ViewportExpander expander = new ViewportExpander(preset.getAxiom(), parser.getRules(),
+					TurtleCommand.PREDEFINED_COMMANDS, preset.getAngle(), preset.getStep(), preset.getIterations());
+			Rectangle2D bounds = expander.getBounds();
+			SegmentBuffer expanded = expand(expander, bounds, 100, 1_000_000).getGeometry();
+
+			assertEquals(walked.size(), expanded.size(), preset.getName());
+			assertEquals(walked.getMaxDepth(), expanded.getMaxDepth(), preset.getName());
+			// The turtle truncates every step, so the exact drawing is a little larger
+			Rectangle2D.Float exact = expanded.getBounds();
+			assertTrue(exact.getWidth() >= walked.getBounds().getWidth(), preset.getName());
+			assertTrue(bounds.contains(exact), preset.getName());
+		}
+	}
+
+	//tests for culling and coarsening
+	@Test
+	void testExpand_ViewportAwayFromTheDrawingIsEmpty() {
+		ViewportExpander expander = expander("F", "F→F+F--F+F", 12, 60);
+		ViewportExpander.Result result = expand(expander, new Rectangle2D.Double(1e9, 1e9, 100, 100), 1, 1000);
+		assertEquals(0, result.getGeometry().size());
+		assertTrue(result.getCulled() > 0);
+	}
+
+	@Test
+	void testExpand_DeepZoomOnlyExpandsTheVisiblePart() {
+		// Four to the thirtieth segments in all, far too many to expand
+		ViewportExpander expander = expander("F", "F→F+F--F+F", 30, 60);
+		Rectangle2D.Double viewport = new Rectangle2D.Double(-50, -100, 100, 100);
+		ViewportExpander.Result result = expand(expander, viewport, 4, 100_000);
+		SegmentBuffer geometry = result.getGeometry();
+
+		assertTrue(geometry.size() > 0 && geometry.size() < 10_000, "" + geometry.size());
+		assertEquals(1.0, result.getFeaturePixels());
+		for (int i = 0; i < geometry.size(); i++) {
+			float x = geometry.getX1(i) + (float) result.getOriginX();
+			float y = geometry.getY1(i) + (float) result.getOriginY();
+			assertTrue(x > -60 && x < 60 && y > -110 && y < 10, "segment " + i + " starts at " + x + ", " + y);
+		}
+	}
+
+	@Test
+	void testExpand_SubPixelSubtreesBecomeSingleSegments() {
+		ViewportExpander expander = expander("F", "F→F+F--F+F", 8, 60);
+		Rectangle2D bounds = expander.getBounds();
+		ViewportExpander.Result fine = expand(expander, bounds, 10, 1_000_000);
+		ViewportExpander.Result coarse = expand(expander, bounds, 0.01, 1_000_000);
+		assertEquals(65536, fine.getGeometry().size());
+		assertTrue(coarse.getCoarsened() > 0);
+		assertTrue(coarse.getGeometry().size() <= 65536 / 16, "" + coarse.getGeometry().size());
+	}
+
+	@Test
+	void testExpand_StaysWithinTheSegmentLimit() {
+		ViewportExpander expander = expander("F", "F→F+F--F+F", 10, 60);
+		ViewportExpander.Result result = expand(expander, expander.getBounds(), 10, 5000);
+		assertTrue(result.getGeometry().size() <= 5000);
+		assertTrue(result.getFeaturePixels() > 1);
+	}
+
+	//tests for validation
+	@Test
+	void testConstructor_RejectsUnbalancedProductions() {
+		assertThrows(IllegalArgumentException.class, () -> expander("F", "F→F[+F", 3, 30));
+		assertThrows(IllegalArgumentException.class, () -> expander("F", "F→F]F", 3, 30));
+	}
+}
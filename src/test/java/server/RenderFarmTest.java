@@ -0,0 +1,183 @@
+package test.java.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.MemoryGovernor;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import server.FarmJob;
+import server.RenderFarm;
+import server.TileWorker;
+import view.GeometryRenderer;
+
+class RenderFarmTest {
+
+	private static final String AXIOM = "F";
+	private static final String RULES = "F→F[+F]F[-F]F";
+	private static final RenderSettings SETTINGS = new RenderSettings(25.7, 5, 2, Color.BLACK, 4, 1, 1, 1, 0);
+
+	private final List<TileWorker> workers = new ArrayList<>();
+	private final List<ServerSocket> fakes = new ArrayList<>();
+	private final List<Socket> held = new ArrayList<>();
+
+	@AfterEach
+	void stopWorkers() throws IOException {
+		workers.forEach(TileWorker::stop);
+		for (ServerSocket fake : fakes) {
+			fake.close();
+		}
+		for (Socket socket : held) {
+			socket.close();
+		}
+	}
+
+	private InetSocketAddress worker() throws IOException {
+		return worker(new TileWorker(0));
+	}
+
+	private InetSocketAddress worker(TileWorker worker) {
+		worker.start();
+		workers.add(worker);
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort());
+	}
+
+	/*
+	 * A worker that accepts connections and then either drops them or never
+	 * answers.
+	 */
+	private InetSocketAddress brokenWorker(boolean hang) throws IOException {
+		ServerSocket fake = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+		fakes.add(fake);
+		Thread thread = new Thread(() -> {
+			while (!fake.isClosed()) {
+				try {
+					Socket socket = fake.accept();
+					if (hang) {
+						synchronized (held) {
+							held.add(socket);
+						}
+					} else {
+						socket.close();
+					}
+				} catch (IOException e) {
+					return;
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), fake.getLocalPort());
+	}
+
+	private static BufferedImage renderInOnePiece(int width, int height) {
+		return renderInOnePiece(RULES, width, height);
+	}
+
+	private static BufferedImage renderInOnePiece(String rules, int width, int height) {
+		String symbols = new LSystemParser(AXIOM, rules, SETTINGS.getIterations()).generateLSystemString();
+		SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, SETTINGS.effectiveAngle(),
+				SETTINGS.effectiveStep(), SETTINGS.effectiveThickness(), SETTINGS.effectiveColour())
+				.interpret(symbols, 0, 0);
+		return GeometryRenderer.render(geometry, width, height, Color.WHITE, false);
+	}
+
+	private static int differingPixels(BufferedImage expected, BufferedImage actual) {
+		int differing = 0;
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+					differing++;
+				}
+			}
+		}
+		return differing;
+	}
+
+	//tests for stitching
+	@Test
+	void testRender_StitchedTilesMatchARenderInOnePiece() throws Exception {
+		FarmJob job = new FarmJob(AXIOM, RULES, SETTINGS, 300, 220, Color.WHITE);
+		Set<InetSocketAddress> used = ConcurrentHashMap.newKeySet();
+		RenderFarm farm = new RenderFarm(List.of(worker(), worker(), worker()), 64, 10_000);
+		BufferedImage poster = farm.render(job, (tile, tiles, worker) -> used.add(worker));
+
+		assertEquals(300, poster.getWidth());
+		assertEquals(220, poster.getHeight());
+		assertEquals(0, differingPixels(renderInOnePiece(300, 220), poster));
+		assertTrue(used.size() > 1, "tiles should be shared among the workers");
+	}
+
+	@Test
+	void testRender_EmptyDrawingIsBackground() throws Exception {
+		FarmJob job = new FarmJob("+", "F→FF", SETTINGS, 40, 30, Color.WHITE);
+		BufferedImage poster = new RenderFarm(List.of(worker()), 16, 10_000).render(job, null);
+		assertEquals(Color.WHITE.getRGB(), poster.getRGB(20, 15));
+	}
+
+	//tests for failures
+	@Test
+	void testRender_TilesOfAFailingWorkerAreReassigned() throws Exception {
+		FarmJob job = new FarmJob(AXIOM, RULES, SETTINGS, 200, 200, Color.WHITE);
+		RenderFarm farm = new RenderFarm(List.of(brokenWorker(false), worker()), 50, 10_000);
+		assertEquals(0, differingPixels(renderInOnePiece(200, 200), farm.render(job, null)));
+	}
+
+	@Test
+	void testRender_TilesOfASlowWorkerAreReassigned() throws Exception {
+		FarmJob job = new FarmJob(AXIOM, RULES, SETTINGS, 120, 120, Color.WHITE);
+		RenderFarm farm = new RenderFarm(List.of(worker(), brokenWorker(true)), 60, 1000);
+		assertEquals(0, differingPixels(renderInOnePiece(120, 120), farm.render(job, null)));
+	}
+
+	@Test
+	void testRender_FailsWhenEveryWorkerFails() throws IOException {
+		FarmJob job = new FarmJob(AXIOM, RULES, SETTINGS, 100, 100, Color.WHITE);
+		RenderFarm farm = new RenderFarm(List.of(brokenWorker(false), brokenWorker(false)), 50, 1000);
+		assertThrows(IllegalStateException.class, () -> farm.render(job, null));
+	}
+
+	@Test
+	void testRender_TilesAWorkerRefusesForLackOfHeapAreReassigned() throws Exception {
+		// The unbalanced production keeps the grammar from being instanced, so it is generated and planned
+		String rules = RULES + ", G→]";
+		FarmJob job = new FarmJob(AXIOM, rules, SETTINGS, 120, 120, Color.WHITE);
+		InetSocketAddress starved = worker(
+				new TileWorker(0, () -> new MemoryGovernor(1, MemoryGovernor.defaultSpillDirectory())));
+		RenderFarm farm = new RenderFarm(List.of(starved, worker()), 60, 10_000);
+		assertEquals(0, differingPixels(renderInOnePiece(rules, 120, 120), farm.render(job, null)));
+	}
+
+	@Test
+	void testRender_MalformedRulesAreNotRetried() throws IOException {
+		FarmJob job = new FarmJob(AXIOM, "F→FF, G", SETTINGS, 100, 100, Color.WHITE);
+		RenderFarm farm = new RenderFarm(List.of(worker()), 50, 10_000);
+		assertThrows(IllegalArgumentException.class, () -> farm.render(job, null));
+	}
+
+	//tests with worker processes
+	@Test
+	void testStartLocalWorkers_RendersWithSeparateProcesses() throws Exception {
+		FarmJob job = new FarmJob(AXIOM, RULES, SETTINGS, 160, 120, Color.WHITE);
+		try (RenderFarm farm = RenderFarm.startLocalWorkers(2, 64, 80, 30_000)) {
+			assertEquals(0, differingPixels(renderInOnePiece(160, 120), farm.render(job, null)));
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package test.java.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import server.RenderServer;
+
+class RenderServerTest {
+
+	private RenderServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = new RenderServer(0, 8, 256L << 20, 16L << 20);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	private HttpURLConnection get(String query) throws IOException {
+		URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+				"/render?" + query);
+		return (HttpURLConnection) url.openConnection();
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private static String treeQuery(String format) {
+		return "axiom=F&rules=" + encode("F→F[+F]F[-F]F") + "&iterations=4&angle=25.7&format=" + format;
+	}
+
+	private static byte[] body(HttpURLConnection connection) throws IOException {
+		try (InputStream in = connection.getInputStream()) {
+			return in.readAllBytes();
+		}
+	}
+
+	@Test
+	void testRender_ReturnsPng() throws IOException {
+		HttpURLConnection connection = get(treeQuery("png"));
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("image/png", connection.getContentType());
+		byte[] png = body(connection);
+		assertEquals((byte) 0x89, png[0]);
+		assertEquals((byte) 'P', png[1]);
+	}
+
+	@Test
+	void testRender_ReturnsSvg() throws IOException {
+		HttpURLConnection connection = get(treeQuery("svg"));
+		assertEquals(200, connection.getResponseCode());
+		String svg = new String(body(connection), StandardCharsets.UTF_8);
+		assertTrue(svg.startsWith("<svg"));
+		assertTrue(svg.contains("<path"));
+	}
+
+	@Test
+	void testRender_IdenticalRequestIsServedFromCache() throws IOException {
+		HttpURLConnection first = get(treeQuery("png"));
+		byte[] firstBody = body(first);
+		HttpURLConnection second = get(treeQuery("png"));
+		byte[] secondBody = body(second);
+
+		assertEquals("MISS", first.getHeaderField("X-Cache"));
+		assertEquals("HIT", second.getHeaderField("X-Cache"));
+		assertEquals(first.getHeaderField("ETag"), second.getHeaderField("ETag"));
+		assertArrayEquals(firstBody, secondBody);
+		assertEquals(1, server.getRenderCount());
+	}
+
+	@Test
+	void testRender_MatchingETagReturnsNotModified() throws IOException {
+		HttpURLConnection first = get(treeQuery("png"));
+		body(first);
+		HttpURLConnection second = get(treeQuery("png"));
+		second.setRequestProperty("If-None-Match", first.getHeaderField("ETag"));
+		assertEquals(304, second.getResponseCode());
+	}
+
+	@Test
+	void testRender_ConcurrentIdenticalRequestsAreCoalesced() throws Exception {
+		String query = "axiom=X&rules=" + encode("F→FF, X→F[+X][-X]FX") + "&iterations=9&format=png";
+		ExecutorService clients = Executors.newFixedThreadPool(6);
+		try {
+			List<Callable<byte[]>> requests = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				requests.add(() -> body(get(query)));
+			}
+			List<Future<byte[]>> responses = clients.invokeAll(requests);
+			byte[] expected = responses.get(0).get();
+			for (Future<byte[]> response : responses) {
+				assertArrayEquals(expected, response.get());
+			}
+		} finally {
+			clients.shutdown();
+		}
+		assertEquals(1, server.getRenderCount());
+	}
+
+	@Test
+	void testRender_MissingParameterIsBadRequest() throws IOException {
+		assertEquals(400, get("rules=" + encode("F→FF")).getResponseCode());
+	}
+
+	@Test
+	void testRender_ExpansionBeyondBudgetIsRejected() throws IOException {
+		HttpURLConnection connection = get("axiom=F&rules=" + encode("F→FFFFFFFFFF") + "&iterations=12");
+		assertEquals(413, connection.getResponseCode());
+	}
+}
@@ -0,0 +1,122 @@
+package test.java.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.Test;
+
+import view.AdaptiveQuality;
+
+class AdaptiveQualityTest {
+
+	private static final long MILLIS = 1_000_000;
+
+	private static AdaptiveQuality quality() {
+		AdaptiveQuality quality = new AdaptiveQuality(() -> {
+		});
+		quality.setTargetFrameMillis(16);
+		return quality;
+	}
+
+	//tests for the preview resolution
+	@Test
+	void testFrameRendered_SlowFramesLowerTheResolution() {
+		AdaptiveQuality quality = quality();
+		double before = quality.getResolutionScale();
+		quality.frameRendered(17 * MILLIS);
+		assertTrue(quality.getResolutionScale() < before);
+		assertEquals(17, quality.getLastFrameMillis(), 1e-9);
+	}
+
+	@Test
+	void testFrameRendered_FastFramesRaiseTheResolution() {
+		AdaptiveQuality quality = quality();
+		double before = quality.getResolutionScale();
+		quality.frameRendered(5 * MILLIS); // below a third of the target
+		assertTrue(quality.getResolutionScale() > before);
+	}
+
+	@Test
+	void testFrameRendered_FramesNearTheTargetKeepTheResolution() {
+		AdaptiveQuality quality = quality();
+		double before = quality.getResolutionScale();
+		quality.frameRendered(16 * MILLIS);
+		quality.frameRendered(6 * MILLIS);
+		assertEquals(before, quality.getResolutionScale());
+	}
+
+	@Test
+	void testFrameRendered_ResolutionStaysWithinItsLimits() {
+		AdaptiveQuality quality = quality();
+		for (int i = 0; i < 20; i++) {
+			quality.frameRendered(100 * MILLIS);
+		}
+		double lowest = quality.getResolutionScale();
+		assertTrue(lowest > 0 && lowest < 0.5, "" + lowest);
+		for (int i = 0; i < 20; i++) {
+			quality.frameRendered(MILLIS);
+		}
+		assertEquals(1, quality.getResolutionScale());
+	}
+
+	@Test
+	void testSetTargetFrameMillis_MovesTheThresholds() {
+		AdaptiveQuality quality = quality();
+		quality.setTargetFrameMillis(50);
+		double before = quality.getResolutionScale();
+		quality.frameRendered(30 * MILLIS); // slow for 16 ms, fine for 50 ms
+		assertEquals(before, quality.getResolutionScale());
+		assertThrows(IllegalArgumentException.class, () -> quality.setTargetFrameMillis(0));
+		assertThrows(IllegalArgumentException.class, () -> quality.setIdleDelayMillis(-1));
+	}
+
+	//tests for switching back to full quality
+	@Test
+	void testInputActive_PreviewsUntilTheInputIsIdle() throws Exception {
+		CountDownLatch rested = new CountDownLatch(1);
+		AdaptiveQuality[] quality = new AdaptiveQuality[1];
+		SwingUtilities.invokeAndWait(() -> {
+			quality[0] = new AdaptiveQuality(rested::countDown);
+			quality[0].setIdleDelayMillis(50);
+			quality[0].inputActive();
+		});
+		assertTrue(quality[0].isInteracting());
+		assertTrue(rested.await(5, TimeUnit.SECONDS), "full quality should return once the input is idle");
+		SwingUtilities.invokeAndWait(() -> assertFalse(quality[0].isInteracting()));
+	}
+
+	@Test
+	void testInputActive_FurtherInputPostponesFullQuality() throws Exception {
+		CountDownLatch rested = new CountDownLatch(1);
+		AdaptiveQuality[] quality = new AdaptiveQuality[1];
+		SwingUtilities.invokeAndWait(() -> {
+			quality[0] = new AdaptiveQuality(rested::countDown);
+			quality[0].setIdleDelayMillis(300);
+			quality[0].inputActive();
+		});
+		for (int i = 0; i < 4; i++) {
+			Thread.sleep(100);
+			SwingUtilities.invokeAndWait(quality[0]::inputActive);
+		}
+		// 400 ms after the first input, but only 100 ms after the last one
+		assertEquals(1, rested.getCount());
+		assertTrue(rested.await(5, TimeUnit.SECONDS));
+	}
+
+	//tests for the frame rate
+	@Test
+	void testGetFramesPerSecond_NeedsTwoFrames() throws Exception {
+		AdaptiveQuality quality = quality();
+		assertEquals(0, quality.getFramesPerSecond());
+		quality.frameRendered(MILLIS);
+		assertEquals(0, quality.getFramesPerSecond());
+		Thread.sleep(20);
+		quality.frameRendered(MILLIS);
+		double fps = quality.getFramesPerSecond();
+		assertTrue(fps > 0 && fps < 60, "" + fps);
+	}
+}
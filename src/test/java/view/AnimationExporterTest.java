@@ -0,0 +1,145 @@
+package test.java.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.GrowthAnimation;
+import model.RenderSettings;
+import model.TurtleCommand;
+import view.AnimationExporter;
+
+class AnimationExporterTest {
+
+	private Path directory;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("animation-export");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private static GrowthAnimation animation(String rules, int toDepth, double... angleFactors) {
+		RenderSettings settings = new RenderSettings(25, 10, 1, Color.BLACK, toDepth, 1, 1, 1, 0);
+		return new GrowthAnimation("F", rules, TurtleCommand.PREDEFINED_COMMANDS, settings, 1, toDepth,
+				angleFactors);
+	}
+
+	//tests for the output formats
+	@Test
+	void testExport_AnimatedGifHasEveryFrame() throws Exception {
+		Path file = directory.resolve("growth.gif");
+		List<Integer> written = new ArrayList<>();
+		new AnimationExporter(64, 48, Color.WHITE, 50).export(animation("F→F[+F]F[-F]F", 3, 1, 1.2),
+				AnimationExporter.Format.GIF, file, (frame, frames) -> written.add(frame));
+		assertEquals(List.of(0, 1, 2, 3, 4, 5), written);
+
+		ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+		try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+			reader.setInput(input);
+			assertEquals(6, reader.getNumImages(true));
+			BufferedImage first = reader.read(0);
+			assertEquals(64, first.getWidth());
+			assertEquals(48, first.getHeight());
+		} finally {
+			reader.dispose();
+		}
+	}
+
+	@Test
+	void testExport_PngSequenceIsNumberedInOrder() throws Exception {
+		Path frames = directory.resolve("frames");
+		new AnimationExporter(32, 32, null, 0).export(animation("F→FF", 4, 1), AnimationExporter.Format.PNG_SEQUENCE,
+				frames, null);
+		for (int frame = 1; frame <= 4; frame++) {
+			BufferedImage image = ImageIO.read(frames.resolve(String.format("frame_%04d.png", frame)).toFile());
+			assertEquals(32, image.getWidth());
+		}
+		try (Stream<Path> files = Files.list(frames)) {
+			assertEquals(4, files.count());
+		}
+	}
+
+	/*
+	 * Returns the middle of the lowest row that is not blank.
+	 */
+	private static Point lowestInk(BufferedImage image) {
+		for (int y = image.getHeight() - 1; y >= 0; y--) {
+			int first = -1;
+			int last = -1;
+			for (int x = 0; x < image.getWidth(); x++) {
+				if ((image.getRGB(x, y) & 0xffffff) != 0xffffff) {
+					last = x;
+					first = first < 0 ? x : first;
+				}
+			}
+			if (first >= 0) {
+				return new Point((first + last) / 2, y);
+			}
+		}
+		return null;
+	}
+
+	@Test
+	void testExport_FramesShareOneView() throws Exception {
+		// The branches all lean right, so fitting each frame on its own would move the root
+		Path frames = directory.resolve("frames");
+		new AnimationExporter(64, 64, Color.WHITE, 0).export(animation("F→F[+F]F", 4, 1),
+				AnimationExporter.Format.PNG_SEQUENCE, frames, null);
+		Point first = lowestInk(ImageIO.read(frames.resolve("frame_0001.png").toFile()));
+		Point last = lowestInk(ImageIO.read(frames.resolve("frame_0004.png").toFile()));
+		assertNotNull(first);
+		assertEquals(first.x, last.x, 1);
+		assertEquals(first.y, last.y, 1);
+	}
+
+	//tests for the pipeline
+	@Test
+	void testExport_ManyFramesThroughSingleSlotQueues() throws Exception {
+		List<Integer> written = new ArrayList<>();
+		GrowthAnimation animation = animation("F→F[+F]F", 3, 0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 1.1, 1.2, 1.3, 1.4);
+		new AnimationExporter(16, 16, Color.WHITE, 0, 1).export(animation, AnimationExporter.Format.PNG_SEQUENCE,
+				directory, (frame, frames) -> written.add(frame));
+		assertEquals(30, written.size());
+		for (int i = 0; i < written.size(); i++) {
+			assertEquals(i, (int) written.get(i));
+		}
+	}
+
+	@Test
+	void testExport_FailingStageStopsTheExport() {
+		// The malformed rule is only parsed when the first frame is generated
+		GrowthAnimation animation = animation("F→FF, G", 2, 1);
+		assertThrows(IllegalArgumentException.class, () -> new AnimationExporter(16, 16, Color.WHITE, 0)
+				.export(animation, AnimationExporter.Format.GIF, directory.resolve("broken.gif"), null));
+	}
+
+	@Test
+	void testExport_GifNeedsBackground() {
+		assertThrows(IllegalArgumentException.class, () -> new AnimationExporter(16, 16, null, 0)
+				.export(animation("F→FF", 2, 1), AnimationExporter.Format.GIF, directory.resolve("a.gif"), null));
+	}
+}
@@ -0,0 +1,143 @@
+package test.java.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+import view.SoftwareRasterizer;
+
+class SoftwareRasterizerTest {
+
+	private static final int WIDTH = 400;
+	private static final int HEIGHT = 300;
+
+	private static SegmentBuffer geometry(PredefinedLSystem preset) {
+		return new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, preset.getAngle(), preset.getStep(), 1,
+				Color.BLACK).interpret(new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations())
+						.generateLSystemString(), 0, 0);
+	}
+
+	private static BufferedImage whiteImage() {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.WHITE);
+		g2.fillRect(0, 0, WIDTH, HEIGHT);
+		g2.dispose();
+		return image;
+	}
+
+	//tests against Java2D
+	@Test
+	void testDraw_MatchesJava2DAntialiasing() {
+		for (PredefinedLSystem preset : PredefinedLSystem.predefinedLSystems()) {
+			for (float width : new float[] { 0, 1, 3 }) {
+				SegmentBuffer geometry = geometry(preset).restyled(new Color(30, 90, 20), width);
+				Rectangle2D.Float bounds = geometry.getBounds();
+				double scale = Math.min((WIDTH - 20) / Math.max(bounds.width, 1),
+						(HEIGHT - 20) / Math.max(bounds.height, 1));
+				double translateX = WIDTH / 2.0 - scale * bounds.getCenterX();
+				double translateY = HEIGHT / 2.0 - scale * bounds.getCenterY();
+
+				BufferedImage expected = whiteImage();
+				Graphics2D g2 = expected.createGraphics();
+				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				g2.translate(translateX, translateY);
+				g2.scale(scale, scale);
+				geometry.draw(g2);
+				g2.dispose();
+				BufferedImage actual = whiteImage();
+				SoftwareRasterizer.draw(geometry, actual, scale, translateX, translateY);
+
+				int inked = 0, close = 0, worst = 0;
+				for (int y = 0; y < HEIGHT; y++) {
+					for (int x = 0; x < WIDTH; x++) {
+						int a = expected.getRGB(x, y), b = actual.getRGB(x, y);
+						if ((a & 0xff) == 0xff && (b & 0xff) == 0xff) {
+							continue; // background in both
+						}
+						int d = 0;
+						for (int shift = 0; shift < 24; shift += 8) {
+							d = Math.max(d, Math.abs((a >> shift & 0xff) - (b >> shift & 0xff)));
+						}
+						inked++;
+						if (d <= 4) {
+							close++;
+						}
+						worst = Math.max(worst, d);
+					}
+				}
+				String name = preset.getName() + " at width " + width;
+				assertTrue(close >= 0.99 * inked, name + ": " + (inked - close) + " of " + inked + " pixels differ");
+				assertTrue(worst <= 16, name + ": a pixel differs by " + worst);
+			}
+		}
+	}
+
+	//tests for coverage
+	@Test
+	void testDraw_AxisAlignedStrokeCoversWholePixels() {
+		SegmentBuffer geometry = new SegmentBuffer();
+		geometry.segment(10, 20, 90, 20, Color.BLACK, 2, 0);
+		int[] pixels = new int[100 * 40];
+		SoftwareRasterizer.draw(geometry, pixels, 100, 40, 1, 0, 0);
+		// Snapped to the pixel centre at 20.5, the stroke covers rows 19.5 to 21.5
+		assertEquals(0xff000000, pixels[20 * 100 + 50]);
+		assertEquals(0, pixels[17 * 100 + 50]);
+		assertEquals(0, pixels[23 * 100 + 50]);
+		int partial = pixels[19 * 100 + 50] >>> 24;
+		assertTrue(partial > 0 && partial < 255);
+		// Square caps reach half the width past the end points
+		assertEquals(0, pixels[20 * 100 + 5]);
+		assertEquals(0, pixels[20 * 100 + 95]);
+	}
+
+	@Test
+	void testDraw_SegmentsOutsideTheImageAreClipped() {
+		SegmentBuffer geometry = new SegmentBuffer();
+		geometry.segment(-500, -500, -400, -300, Color.BLACK, 3, 0);
+		geometry.segment(-50, 10, 150, 10, Color.RED, 1, 0);
+		int[] pixels = new int[100 * 20];
+		SoftwareRasterizer.draw(geometry, pixels, 100, 20, 1, 0, 0);
+		assertEquals(0xffff0000, pixels[10 * 100]);
+		assertEquals(0xffff0000, pixels[10 * 100 + 99]);
+		assertEquals(0, pixels[0]);
+	}
+
+	@Test
+	void testDraw_LargeGeometryIsDeterministic() {
+		SegmentBuffer geometry = geometry(PredefinedLSystem.predefinedLSystems()[0]).restyled(Color.BLUE, 1.5f);
+		assertTrue(geometry.size() > 2048);
+		Rectangle2D.Float bounds = geometry.getBounds();
+		double scale = (HEIGHT - 20) / Math.max(bounds.width, bounds.height);
+		int[] first = new int[WIDTH * HEIGHT];
+		int[] second = new int[WIDTH * HEIGHT];
+		SoftwareRasterizer.draw(geometry, first, WIDTH, HEIGHT, scale, WIDTH / 2.0 - scale * bounds.getCenterX(),
+				HEIGHT / 2.0 - scale * bounds.getCenterY());
+		SoftwareRasterizer.draw(geometry, second, WIDTH, HEIGHT, scale, WIDTH / 2.0 - scale * bounds.getCenterX(),
+				HEIGHT / 2.0 - scale * bounds.getCenterY());
+		assertArrayEquals(first, second);
+		assertTrue(Arrays.stream(first).anyMatch(pixel -> pixel != 0));
+	}
+
+	@Test
+	void testDraw_EmptyGeometryLeavesPixelsUnchanged() {
+		int[] pixels = new int[16];
+		Arrays.fill(pixels, 0xff123456);
+		SoftwareRasterizer.draw(new SegmentBuffer(), pixels, 4, 4, 1, 0, 0);
+		for (int pixel : pixels) {
+			assertEquals(0xff123456, pixel);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package test.java.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import view.ThumbnailCache;
+
+class ThumbnailCacheTest {
+
+	private Path directory;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("thumbnail-cache");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private Path entry(String key) {
+		return directory.resolve(key + ".png");
+	}
+
+	private static BufferedImage thumbnail(int rgb) {
+		BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(3, 4, rgb);
+		return image;
+	}
+
+	//tests for reading and writing thumbnails
+	@Test
+	void testGet_ReadsThumbnailsWrittenByAnotherCache() {
+		new ThumbnailCache(directory, 1024 * 1024).put("plant", thumbnail(0x123456));
+
+		BufferedImage image = new ThumbnailCache(directory, 1024 * 1024).get("plant");
+		assertNotNull(image);
+		assertEquals(0x123456, image.getRGB(3, 4) & 0xFFFFFF);
+		assertNull(new ThumbnailCache(directory, 1024 * 1024).get("missing"));
+	}
+
+	//tests for eviction
+	@Test
+	void testPut_EvictsTheLeastRecentlyUsedThumbnails() throws IOException {
+		new ThumbnailCache(directory, 1024 * 1024).put("probe", thumbnail(0));
+		long size = Files.size(entry("probe"));
+		Files.delete(entry("probe"));
+
+		// Room for two thumbnails but not for three
+		long now = System.currentTimeMillis();
+		new ThumbnailCache(directory, 2 * size + size / 2).put("first", thumbnail(1));
+		new ThumbnailCache(directory, 2 * size + size / 2).put("second", thumbnail(1));
+		Files.setLastModifiedTime(entry("first"), FileTime.fromMillis(now - 30_000));
+		Files.setLastModifiedTime(entry("second"), FileTime.fromMillis(now - 20_000));
+		// A hit on disk makes the first thumbnail the most recently used one
+		ThumbnailCache cache = new ThumbnailCache(directory, 2 * size + size / 2);
+		assertNotNull(cache.get("first"));
+
+		cache.put("third", thumbnail(1));
+		assertTrue(Files.exists(entry("first")));
+		assertFalse(Files.exists(entry("second")));
+		assertTrue(Files.exists(entry("third")));
+	}
+
+	@Test
+	void testConstructor_RejectsNonPositiveLimit() {
+		assertThrows(IllegalArgumentException.class, () -> new ThumbnailCache(directory, 0));
+	}
+}
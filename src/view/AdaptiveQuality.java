@@ -0,0 +1,124 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import javax.swing.Timer;
+
+/**
+ * AdaptiveQuality decides how the DrawingPanel trades quality for frame rate.
+ * While the user is panning or zooming, frames are drawn as a fast preview at
+ * a reduced resolution, and the resolution is lowered or raised after every
+ * frame so that preview frames stay within the target frame time. Once no input
+ * has arrived for the idle delay the panel is told to render at full quality
+ * again.
+ *
+ * All methods must be called on the event dispatch thread.
+ */
+public class AdaptiveQuality {
+
+	/**
+	 * Resolutions of the preview back buffer relative to the panel, from best to
+	 * fastest.
+	 */
+	private static final double[] RESOLUTION_SCALES = { 1, 0.75, 0.5, 0.35, 0.25 };
+	private static final int FPS_WINDOW = 32;
+
+	private double targetFrameMillis = 16;
+	private final Timer idleTimer;
+
+	private boolean interacting;
+	private int level = 2;
+	private double lastFrameMillis;
+
+	// End times of the latest preview frames of the current interaction, as a ring
+	private final long[] frameEnds = new long[FPS_WINDOW];
+	private int frames;
+
+	/**
+	 * @param onRest called when the input has been idle for the idle delay
+	 */
+	public AdaptiveQuality(Runnable onRest) {
+		idleTimer = new Timer(250, e -> {
+			interacting = false;
+			onRest.run();
+		});
+		idleTimer.setRepeats(false);
+	}
+
+	/**
+	 * Records user input that moves the view; previews are drawn until the input
+	 * has been idle for the idle delay.
+	 */
+	public void inputActive() {
+		if (!interacting) {
+			interacting = true;
+			frames = 0;
+		}
+		idleTimer.restart();
+	}
+
+	/**
+	 * Records the time a preview frame took and adapts the preview resolution
+	 * for the next one.
+	 */
+	public void frameRendered(long nanos) {
+		lastFrameMillis = nanos / 1e6;
+		frameEnds[frames % FPS_WINDOW] = System.nanoTime();
+		frames++;
+		if (lastFrameMillis > targetFrameMillis && level < RESOLUTION_SCALES.length - 1) {
+			level++;
+		} else if (lastFrameMillis < targetFrameMillis / 3 && level > 0) {
+			level--;
+		}
+	}
+
+	/**
+	 * Returns the frame rate achieved by the latest preview frames, or 0 until
+	 * there are at least two of them.
+	 */
+	public double getFramesPerSecond() {
+		int count = Math.min(frames, FPS_WINDOW);
+		if (count < 2) {
+			return 0;
+		}
+		long newest = frameEnds[(frames - 1) % FPS_WINDOW];
+		long oldest = frameEnds[(frames - count) % FPS_WINDOW];
+		return newest == oldest ? 0 : (count - 1) * 1e9 / (newest - oldest);
+	}
+
+	public boolean isInteracting() {
+		return interacting;
+	}
+
+	public double getResolutionScale() {
+		return RESOLUTION_SCALES[level];
+	}
+
+	public double getLastFrameMillis() {
+		return lastFrameMillis;
+	}
+
+	public double getTargetFrameMillis() {
+		return targetFrameMillis;
+	}
+
+	public int getIdleDelayMillis() {
+		return idleTimer.getInitialDelay();
+	}
+
+	// Setters
+	public void setTargetFrameMillis(double targetFrameMillis) {
+		if (!(targetFrameMillis > 0)) {
+			throw new IllegalArgumentException("Target frame time must be positive.");
+		}
+		this.targetFrameMillis = targetFrameMillis;
+	}
+
+	public void setIdleDelayMillis(int idleDelayMillis) {
+		if (idleDelayMillis < 0) {
+			throw new IllegalArgumentException("Idle delay cannot be negative.");
+		}
+		idleTimer.setInitialDelay(idleDelayMillis);
+	}
+}
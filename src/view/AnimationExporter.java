@@ -0,0 +1,336 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import model.GrowthAnimation;
+import model.ParameterSweep;
+import model.RenderSettings;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+
+/**
+ * AnimationExporter writes the frames of a {@link GrowthAnimation} to an
+ * animated GIF or to a directory of numbered PNG files.
+ *
+ * Export runs as a pipeline of three stages on their own threads: the geometry
+ * of frame N+1 is interpreted while frame N is rasterized and frame N-1 is
+ * encoded. The stages hand frames on through bounded queues, so a fast stage
+ * waits for a slow one instead of running ahead, and memory stays flat however
+ * many frames there are.
+ *
+ * Every frame is fitted to the view of the whole animation (see
+ * {@link GrowthAnimation#getBounds()}), which the geometry stage works out
+ * before its first frame and hands on ahead of it. The plant grows in a fixed
+ * frame instead of being zoomed to fit at every step.
+ */
+public class AnimationExporter {
+
+	public enum Format {
+		GIF, PNG_SEQUENCE
+	}
+
+	/**
+	 * Receives progress. Called on the encoding thread after each frame.
+	 */
+	public interface Listener {
+		void frameWritten(int frame, int frames);
+	}
+
+	// Marks the end of the frames in a queue
+	private static final Object END = new Object();
+
+	// Carries a stage's failure, errors such as running out of memory included, down the pipeline
+	private static final class Failure {
+		private final Throwable cause;
+
+		private Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+	private final int width;
+	private final int height;
+	private final Color background;
+	private final int delayMillis;
+	private final int queueCapacity;
+
+	/**
+	 * @param background  the frames' background, or null for transparent PNG
+	 *                    frames; GIF frames need a background
+	 * @param delayMillis how long each GIF frame is shown
+	 */
+	public AnimationExporter(int width, int height, Color background, int delayMillis) {
+		this(width, height, background, delayMillis, 2);
+	}
+
+	/**
+	 * @param queueCapacity frames each stage may finish before the next stage
+	 *                      takes them
+	 */
+	public AnimationExporter(int width, int height, Color background, int delayMillis, int queueCapacity) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Frame size must be positive.");
+		}
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("Frame delay cannot be negative.");
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive.");
+		}
+		this.width = width;
+		this.height = height;
+		this.background = background;
+		this.delayMillis = delayMillis;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Writes all frames of the animation and returns once the last one is
+	 * encoded. Interrupting the calling thread stops the export.
+	 *
+	 * @param target the GIF file, or the directory of the PNG files (created if
+	 *               needed)
+	 */
+	public void export(GrowthAnimation animation, Format format, Path target, Listener listener)
+			throws IOException, InterruptedException {
+		if (format == Format.GIF && background == null) {
+			throw new IllegalArgumentException("GIF frames need a background colour.");
+		}
+		BlockingQueue<Object> geometries = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Object> images = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicInteger threads = new AtomicInteger();
+		ExecutorService stages = Executors.newFixedThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable,
+					threads.getAndIncrement() == 0 ? "animation-geometry" : "animation-raster");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			stages.execute(() -> interpretFrames(animation, geometries));
+			stages.execute(() -> rasterizeFrames(geometries, images));
+			int frames = animation.getFrameCount();
+			if (format == Format.GIF) {
+				encodeGif(images, target, frames, listener);
+			} else {
+				encodePngs(images, target, frames, listener);
+			}
+		} finally {
+			// Stops the other stages early if encoding failed or was interrupted
+			stages.shutdownNow();
+		}
+	}
+
+	private static void interpretFrames(GrowthAnimation animation, BlockingQueue<Object> geometries) {
+		try {
+			try {
+				geometries.put(animation.getBounds());
+				for (int frame = 0; frame < animation.getFrameCount(); frame++) {
+					geometries.put(animation.geometryAt(frame));
+				}
+				geometries.put(END);
+			} catch (RuntimeException | Error e) {
+				geometries.put(new Failure(e));
+			}
+		} catch (InterruptedException e) {
+			// The export was stopped
+		}
+	}
+
+	private void rasterizeFrames(BlockingQueue<Object> geometries, BlockingQueue<Object> images) {
+		try {
+			try {
+				Object first = geometries.take();
+				if (!(first instanceof Rectangle2D.Float bounds)) {
+					images.put(first); // a failure before any frame
+					return;
+				}
+				while (true) {
+					Object item = geometries.take();
+					if (!(item instanceof SegmentBuffer geometry)) {
+						images.put(item); // the end, or a failure
+						return;
+					}
+					images.put(GeometryRenderer.render(geometry, bounds, width, height, background, false));
+				}
+			} catch (RuntimeException | Error e) {
+				images.put(new Failure(e));
+			}
+		} catch (InterruptedException e) {
+			// The export was stopped
+		}
+	}
+
+	/*
+	 * Returns the next rasterized frame, or null after the last one.
+	 */
+	private static BufferedImage nextImage(BlockingQueue<Object> images) throws InterruptedException {
+		Object item = images.take();
+		if (item instanceof Failure failure) {
+			if (failure.cause instanceof Error error) {
+				throw error;
+			}
+			throw (RuntimeException) failure.cause;
+		}
+		return item == END ? null : (BufferedImage) item;
+	}
+
+	private static void encodePngs(BlockingQueue<Object> images, Path directory, int frames, Listener listener)
+			throws IOException, InterruptedException {
+		Files.createDirectories(directory);
+		String name = "frame_%0" + Math.max(4, String.valueOf(frames).length()) + "d.png";
+		BufferedImage image;
+		for (int frame = 0; (image = nextImage(images)) != null; frame++) {
+			ImageIO.write(image, "png", directory.resolve(String.format(name, frame + 1)).toFile());
+			if (listener != null) {
+				listener.frameWritten(frame, frames);
+			}
+		}
+	}
+
+	private void encodeGif(BlockingQueue<Object> images, Path file, int frames, Listener listener)
+			throws IOException, InterruptedException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+		try (OutputStream stream = Files.newOutputStream(file);
+				ImageOutputStream output = ImageIO.createImageOutputStream(stream)) {
+			writer.setOutput(output);
+			writer.prepareWriteSequence(null);
+			BufferedImage image;
+			for (int frame = 0; (image = nextImage(images)) != null; frame++) {
+				// The GIF palette is built from opaque RGB pixels
+				BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g2 = rgb.createGraphics();
+				g2.drawImage(image, 0, 0, null);
+				g2.dispose();
+				ImageWriteParam param = writer.getDefaultWriteParam();
+				writer.writeToSequence(new IIOImage(rgb, null, gifMetadata(writer, rgb, param, frame == 0)), param);
+				if (listener != null) {
+					listener.frameWritten(frame, frames);
+				}
+			}
+			writer.endWriteSequence();
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/*
+	 * Sets the frame delay, and on the first frame makes the animation loop
+	 * forever.
+	 */
+	private IIOMetadata gifMetadata(ImageWriter writer, BufferedImage image, ImageWriteParam param, boolean first)
+			throws IOException {
+		IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+				param);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+		IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+		control.setAttribute("disposalMethod", "none");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("delayTime", String.valueOf(Math.round(delayMillis / 10.0)));
+		control.setAttribute("transparentColorIndex", "0");
+		root.appendChild(control);
+
+		if (first) {
+			IIOMetadataNode application = new IIOMetadataNode("ApplicationExtension");
+			application.setAttribute("applicationID", "NETSCAPE");
+			application.setAttribute("authenticationCode", "2.0");
+			application.setUserObject(new byte[] { 1, 0, 0 }); // loop count 0: forever
+			IIOMetadataNode applications = new IIOMetadataNode("ApplicationExtensions");
+			applications.appendChild(application);
+			root.appendChild(applications);
+		}
+		metadata.setFromTree(format, root);
+		return metadata;
+	}
+
+	/**
+	 * Exports a growth animation from the command line. The output is a GIF if
+	 * its name ends in .gif, otherwise a directory of PNG files.
+	 *
+	 * Usage: animate --out growth.gif [--axiom F] [--rules "F→F[+F]F[-F]F"]
+	 * [--angle 25.7] [--step 10] [--thickness 1] [--step-factor 1]
+	 * [--thickness-factor 1] [--from-depth 1] [--to-depth 5]
+	 * [--angle-factor-from 1] [--angle-factor-to 1] [--angle-factor-step 0.05]
+	 * [--width 480] [--height 480] [--delay 100] [--seed 0]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String out = null;
+		String axiom = "F";
+		String rules = "F→F[+F]F[-F]F";
+		double angle = 25.7;
+		double step = 10;
+		double thickness = 1;
+		double stepFactor = 1;
+		double thicknessFactor = 1;
+		int fromDepth = 1;
+		int toDepth = 5;
+		double angleFactorFrom = 1;
+		double angleFactorTo = 1;
+		double angleFactorStep = 0.05;
+		int width = 480;
+		int height = 480;
+		int delay = 100;
+		long seed = 0;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--out" -> out = args[++i];
+			case "--axiom" -> axiom = args[++i];
+			case "--rules" -> rules = args[++i];
+			case "--angle" -> angle = Double.parseDouble(args[++i]);
+			case "--step" -> step = Double.parseDouble(args[++i]);
+			case "--thickness" -> thickness = Double.parseDouble(args[++i]);
+			case "--step-factor" -> stepFactor = Double.parseDouble(args[++i]);
+			case "--thickness-factor" -> thicknessFactor = Double.parseDouble(args[++i]);
+			case "--from-depth" -> fromDepth = Integer.parseInt(args[++i]);
+			case "--to-depth" -> toDepth = Integer.parseInt(args[++i]);
+			case "--angle-factor-from" -> angleFactorFrom = Double.parseDouble(args[++i]);
+			case "--angle-factor-to" -> angleFactorTo = Double.parseDouble(args[++i]);
+			case "--angle-factor-step" -> angleFactorStep = Double.parseDouble(args[++i]);
+			case "--width" -> width = Integer.parseInt(args[++i]);
+			case "--height" -> height = Integer.parseInt(args[++i]);
+			case "--delay" -> delay = Integer.parseInt(args[++i]);
+			case "--seed" -> seed = Long.parseLong(args[++i]);
+			default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("Missing --out file.gif or directory.");
+		}
+		RenderSettings settings = new RenderSettings(angle, step, thickness, Color.BLACK, toDepth, 1, stepFactor,
+				thicknessFactor, 0).withSeed(seed);
+		GrowthAnimation animation = new GrowthAnimation(axiom, rules, TurtleCommand.PREDEFINED_COMMANDS, settings,
+				fromDepth, toDepth, ParameterSweep.range(angleFactorFrom, angleFactorTo, angleFactorStep));
+		Format format = out.toLowerCase().endsWith(".gif") ? Format.GIF : Format.PNG_SEQUENCE;
+		long start = System.nanoTime();
+		new AnimationExporter(width, height, Color.WHITE, delay).export(animation, format, Paths.get(out),
+				(frame, frames) -> System.out.printf("frame %d/%d%n", frame + 1, frames));
+		System.out.printf("%d frames in %.1f s%n", animation.getFrameCount(), (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.GridLayout;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
+/**
+ * AnimationOptionsPanel holds the choices of a growth animation export: the
+ * range of iteration depths, the angle factors stepped through at each depth,
+ * the frame size and delay, and the output format. It is shown in a
+ * confirmation dialog.
+ */
+@SuppressWarnings("serial")
+public class AnimationOptionsPanel extends JPanel {
+
+	private JSpinner fromDepth;
+	private JSpinner toDepth;
+	private JSpinner angleFactorFrom;
+	private JSpinner angleFactorTo;
+	private JSpinner angleFactorStep;
+	private JSpinner frameWidth;
+	private JSpinner frameHeight;
+	private JSpinner delay;
+	private JComboBox<AnimationExporter.Format> format;
+
+	/**
+	 * Starts with the current depth and angle factor, so the default export grows
+	 * the current drawing from its first iteration.
+	 */
+	public AnimationOptionsPanel(int depth, double angleFactor) {
+		super(new GridLayout(0, 2, 5, 5));
+		fromDepth = new JSpinner(new SpinnerNumberModel(Math.min(1, depth), 0, 99, 1));
+		toDepth = new JSpinner(new SpinnerNumberModel(depth, 0, 99, 1));
+		angleFactorFrom = new JSpinner(new SpinnerNumberModel(angleFactor, -360.0, 360.0, 0.05));
+		angleFactorTo = new JSpinner(new SpinnerNumberModel(angleFactor, -360.0, 360.0, 0.05));
+		angleFactorStep = new JSpinner(new SpinnerNumberModel(0.05, 0.01, 360.0, 0.05));
+		frameWidth = new JSpinner(new SpinnerNumberModel(480, 16, 4096, 16));
+		frameHeight = new JSpinner(new SpinnerNumberModel(480, 16, 4096, 16));
+		delay = new JSpinner(new SpinnerNumberModel(100, 0, 10000, 10));
+		format = new JComboBox<>(AnimationExporter.Format.values());
+
+		add(new JLabel("From depth:"));
+		add(fromDepth);
+		add(new JLabel("To depth:"));
+		add(toDepth);
+		add(new JLabel("Angle factor from:"));
+		add(angleFactorFrom);
+		add(new JLabel("Angle factor to:"));
+		add(angleFactorTo);
+		add(new JLabel("Angle factor step:"));
+		add(angleFactorStep);
+		add(new JLabel("Frame width:"));
+		add(frameWidth);
+		add(new JLabel("Frame height:"));
+		add(frameHeight);
+		add(new JLabel("Frame delay (ms):"));
+		add(delay);
+		add(new JLabel("Format:"));
+		add(format);
+	}
+
+	// Getters
+	public int getFromDepth() {
+		return (int) fromDepth.getValue();
+	}
+
+	public int getToDepth() {
+		return (int) toDepth.getValue();
+	}
+
+	public double getAngleFactorFrom() {
+		return (double) angleFactorFrom.getValue();
+	}
+
+	public double getAngleFactorTo() {
+		return (double) angleFactorTo.getValue();
+	}
+
+	public double getAngleFactorStep() {
+		return (double) angleFactorStep.getValue();
+	}
+
+	public int getFrameWidth() {
+		return (int) frameWidth.getValue();
+	}
+
+	public int getFrameHeight() {
+		return (int) frameHeight.getValue();
+	}
+
+	public int getDelay() {
+		return (int) delay.getValue();
+	}
+
+	public AnimationExporter.Format getFormat() {
+		return (AnimationExporter.Format) format.getSelectedItem();
+	}
+}
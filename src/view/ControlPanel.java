@@ -10,7 +10,9 @@ import java.awt.Font;
 import java.awt.Insets;
 import java.awt.event.ActionListener;
 
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListCellRenderer;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JList;
@@ -44,10 +46,17 @@ public class ControlPanel extends JPanel {
 	private JSpinner stepSpinner;
 	private JSpinner stepFactorSpinner;
 	private JSpinner iterationSpinner;
+	private JSpinner seedSpinner;
 	private JSpinner thicknessSpinner;
 	private JSpinner thicknessFactorSpinner;
 	private JSpinner colourFactorSpinner;
+	private JCheckBox depthStyleCheckBox;
+	private JCheckBox viewportExpansionCheckBox;
 	private JComboBox<PredefinedLSystem> presetComboBox;
+	private JTextField catalogSearchField;
+	private boolean updatingPresets;
+	private PredefinedLSystem[] builtInPresets;
+	private PresetGallery presetGallery;
 	private JComboBox<Color> colourComboBox;
 	private JTextArea rules;
 
@@ -63,8 +72,10 @@ public class ControlPanel extends JPanel {
 		setBackground(Color.getHSBColor(0.55f, 0.75f, 0.75f));
 		setMaximumSize(new Dimension(50,screenSize.height));
 		
-		// Add drop down for presets
-		presetComboBox = new JComboBox<>(PredefinedLSystem.predefinedLSystems());
+		// Add drop down for presets; the gallery shares the same instances
+		PredefinedLSystem[] presets = PredefinedLSystem.predefinedLSystems();
+		builtInPresets = presets;
+		presetComboBox = new JComboBox<>(presets);
 		presetComboBox.setRenderer(new DefaultListCellRenderer() {
 			@Override
 			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
@@ -86,6 +97,20 @@ public class ControlPanel extends JPanel {
 		add(comboBoxLabel, "wrap, align left");
 		add(presetComboBox, "wrap,gapy 0 10, align center");
 
+		// Prefix search over the preset catalog; the matches replace the drop down's items
+		JLabel catalogSearchLabel = new JLabel("Search Catalog");
+		catalogSearchLabel.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(catalogSearchLabel, "wrap, align left");
+		catalogSearchField = new JTextField(13);
+		catalogSearchField.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(catalogSearchField, "wrap,gapy 0 10, align center");
+
+		// Thumbnail gallery of the presets, kept in sync with the drop down
+		presetGallery = new PresetGallery(presets);
+		presetGallery.addSelectionListener(this::selectGalleryPreset);
+		presetComboBox.addActionListener(e -> presetGallery.setSelectedPreset(getSelectedPreset()));
+		add(presetGallery, "wrap,gapy 0 10, align center");
+
 		// Axiom input
 		JLabel axiomLabel = new JLabel("Axiom");
 		axiomLabel.setFont(new Font("Arial Black", Font.BOLD, 20));
@@ -155,11 +180,21 @@ public class ControlPanel extends JPanel {
 		iterationLabel.setFont(new Font("Arial Black", Font.BOLD, 20));
 		add(iterationLabel, "split 2, alignx left");
 		iterationSpinner = new JSpinner();
-		iterationSpinner.setModel(new SpinnerNumberModel(5, 1, 20, 1));
+		iterationSpinner.setModel(new SpinnerNumberModel(5, 1, 40, 1));
 		iterationSpinner.setToolTipText("Enter Iteration Depth");
 		iterationSpinner.setFont(new Font("Arial Black", Font.BOLD, 20));
 		iterationSpinner.setSize(8,4);
 		add(iterationSpinner, "w 83, wrap,gapy 0 10, alignx right");
+
+		// Seed spinner, used by rules with weighted alternatives
+		JLabel seedLabel = new JLabel(" Random Seed: ");
+		seedLabel.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(seedLabel, "split 2, alignx left");
+		seedSpinner = new JSpinner();
+		seedSpinner.setModel(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+		seedSpinner.setToolTipText("Seed of stochastic rules such as F→(0.5)F[+F]F, F→(0.5)F[-F]F");
+		seedSpinner.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(seedSpinner, "w 83, wrap,gapy 0 10, alignx right");
 		
 		// Thickness spinner
 		JLabel thicknessLabel = new JLabel(" Stroke Thickness: ");
@@ -237,6 +272,19 @@ public class ControlPanel extends JPanel {
 		colourFactorSpinner.setToolTipText("Enter Factor");
 		colourFactorSpinner.setFont(new Font("Arial Black", Font.BOLD, 20));
 		add(colourFactorSpinner, "w 83, wrap,gapy 0 10, alignx right");
+
+		// Depth styling check box
+		depthStyleCheckBox = new JCheckBox("Style by Depth");
+		depthStyleCheckBox.setToolTipText("Draw trunks thick and dark and branch tips thin and light");
+		depthStyleCheckBox.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(depthStyleCheckBox, "wrap,gapy 0 10, alignx left");
+
+		// Viewport expansion check box
+		viewportExpansionCheckBox = new JCheckBox("Expand Visible Only");
+		viewportExpansionCheckBox
+				.setToolTipText("Expand only what is on screen, so that deep iterations can be zoomed into");
+		viewportExpansionCheckBox.setFont(new Font("Arial Black", Font.BOLD, 20));
+		add(viewportExpansionCheckBox, "wrap,gapy 0 10, alignx left");
 	}
 
 	// Getters
@@ -283,6 +331,14 @@ public class ControlPanel extends JPanel {
 	public JSpinner getIterationSpinner() {
 		return iterationSpinner;
 	}
+
+	public JSpinner getSeedSpinner() {
+		return seedSpinner;
+	}
+
+	public long getSeed() {
+		return (int) seedSpinner.getValue();
+	}
 	
 	public JSpinner getThicknessSpinner() {
 		return thicknessSpinner;
@@ -308,10 +364,34 @@ public class ControlPanel extends JPanel {
 		return (double) colourFactorSpinner.getValue();
 	}
 
+	public JCheckBox getDepthStyleCheckBox() {
+		return depthStyleCheckBox;
+	}
+
+	public boolean isDepthStyled() {
+		return depthStyleCheckBox.isSelected();
+	}
+
+	public JCheckBox getViewportExpansionCheckBox() {
+		return viewportExpansionCheckBox;
+	}
+
+	public boolean isViewportExpansion() {
+		return viewportExpansionCheckBox.isSelected();
+	}
+
 	public int getIteration() {
 		return (int) iterationSpinner.getValue();
 	}
 
+	public JTextField getCatalogSearchField() {
+		return catalogSearchField;
+	}
+
+	public String getCatalogSearch() {
+		return catalogSearchField.getText();
+	}
+
 	public PredefinedLSystem getSelectedPreset() {
 		return (PredefinedLSystem) presetComboBox.getSelectedItem();
 	}
@@ -369,8 +449,59 @@ public class ControlPanel extends JPanel {
 		presetComboBox.setSelectedItem(preset);
 	}
 
+	/**
+	 * Replaces the presets offered by the drop down. The selected preset stays
+	 * selected and no preset listener is notified.
+	 */
+	public void setPresets(PredefinedLSystem[] presets) {
+		Object selected = presetComboBox.getSelectedItem();
+		DefaultComboBoxModel<PredefinedLSystem> model = new DefaultComboBoxModel<>(presets);
+		model.setSelectedItem(selected);
+		updatingPresets = true;
+		try {
+			presetComboBox.setModel(model);
+		} finally {
+			updatingPresets = false;
+		}
+	}
+
+	/*
+	 * Selects the preset picked in the gallery in the drop down. The drop down
+	 * may be showing catalog search results without it, so the search is then
+	 * cleared, and if that does not bring it back the built-in presets are
+	 * offered again. Presets are matched by name, since the drop down may hold
+	 * other instances of them.
+	 */
+	private void selectGalleryPreset(PredefinedLSystem preset) {
+		PredefinedLSystem item = presetNamed(preset.getName());
+		if (item == null && !catalogSearchField.getText().isEmpty()) {
+			catalogSearchField.setText("");
+			item = presetNamed(preset.getName());
+		}
+		if (item == null) {
+			setPresets(builtInPresets);
+			item = preset;
+		}
+		if (item != presetComboBox.getSelectedItem()) {
+			presetComboBox.setSelectedItem(item);
+		}
+	}
+
+	private PredefinedLSystem presetNamed(String name) {
+		for (int i = 0; i < presetComboBox.getItemCount(); i++) {
+			if (presetComboBox.getItemAt(i).getName().equals(name)) {
+				return presetComboBox.getItemAt(i);
+			}
+		}
+		return null;
+	}
+
 	// Add listeners
 	public void addPresetComboBoxListener(ActionListener listener) {
-		presetComboBox.addActionListener(listener);
+		presetComboBox.addActionListener(e -> {
+			if (!updatingPresets) {
+				listener.actionPerformed(e);
+			}
+		});
 	}
 }
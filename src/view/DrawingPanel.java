@@ -5,41 +5,92 @@ package view;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
+import model.InstancedGeometry;
+import model.ModuleString;
+import model.SegmentBuffer;
 import model.Turtle;
 import model.TurtleCommand;
+import model.TurtleInterpreter;
+import model.TurtleProgram;
 
 /**
  * The DrawingPanel is responsible for rendering the L-System pattern using
  * turtle graphics. It supports interactive zooming, panning, and saving the
- * rendered image.
+ * rendered image. While the view is moving, retained drawings are shown as a
+ * fast preview (see {@link AdaptiveQuality}) and redrawn at full quality once
+ * the input is idle. 3D drawings are orbited by dragging with the right mouse
+ * button or with Shift held down.
  */
 public class DrawingPanel extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
 	// Core drawing parameters
-	private String lSystemString;
+	private CharSequence lSystemString;
 	private double angle;
 	private double step;
 	private double thickness;
 	private Color colour;
 	private Map<Character, TurtleCommand> commandMap = new HashMap<>();
 
+	// The walked string compiled once and replayed on every paint, or null until the next walk
+	private TurtleProgram program;
+
+	// Retained geometry shown instead of walking an L-System string, drawn with its origin at the turtle start
+	private SegmentBuffer geometry;
+	// Where the geometry's coordinates start, relative to the turtle start
+	private double geometryOriginX;
+	private double geometryOriginY;
+
+	// Display lists of a drawing too large to retain, drawn with its origin at the turtle start
+	private InstancedGeometry instances;
+	private Color instancesColour;
+	private float instancesThickness;
+
+	// Full quality raster of the drawing at the current zoom level, reused while panning
+	private static final long MAX_RASTER_PIXELS = 8_000_000;
+	private BufferedImage raster;
+	private List<Object> rasterKey;
+	private volatile List<Object> pendingKey;
+
+	// Shared by all panels; a daemon thread so it never keeps the application alive
+	private static final ExecutorService RASTER_RENDERER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "raster-renderer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// Fast preview drawn while the view is moving
+	private final AdaptiveQuality quality = new AdaptiveQuality(this::viewRested);
+	private BufferedImage previewBuffer;
+	private SegmentBuffer previewGeometry;
+	private List<Object> previewKey;
+
 	// View transformation parameters
 	private double scalingFactor = 1.0;
 	private final double SCALE_STEP = 0.1;
@@ -48,6 +99,16 @@ public class DrawingPanel extends JPanel {
 	private double offsetY = 0;
 	private Point lastMousePosition;
 
+	// Camera orbit of 3D drawings, changed by dragging and applied by the orbit listeners
+	private final double ORBIT_DEGREES_PER_PIXEL = 0.5;
+	private boolean orbitEnabled;
+	private double cameraYaw;
+	private double cameraPitch;
+	private final List<ChangeListener> orbitListeners = new ArrayList<>();
+
+	// Notified when the view has come to rest after panning or zooming
+	private final List<ChangeListener> viewListeners = new ArrayList<>();
+
 	// Flag to prevent repeated error message dialog
 	private boolean errorDisplayed = false;
 
@@ -69,42 +130,368 @@ public class DrawingPanel extends JPanel {
 	protected void paintComponent(Graphics g) {
 		super.paintComponent(g);
 
-		if (!validateInputs())
+		if (geometry == null && instances == null && !validateInputs())
 			return;
 
 		Graphics2D g2 = (Graphics2D) g;
 
+		// Retained geometry and display lists are redrawn without interpretation
+		if (geometry != null || instances != null) {
+			paintRetained(g2);
+			return;
+		}
+
 		// Apply zoom and panning transformations
 		g2.translate(offsetX, offsetY);
 		g2.scale(scalingFactor, scalingFactor);
 
 		// Initialize turtle at screen midpoint
 		Turtle turtle = new Turtle(g2, screenMid().x, screenMid().y);
-		turtle.dropPen();
+		walk(turtle);
+	}
 
+	/**
+	 * Draws the retained geometry or display lists with the same zoom and panning
+	 * as a walked string. A full quality raster is used when one is ready;
+	 * otherwise a fast preview is drawn while the view is moving, or while the
+	 * raster is rendered in the background.
+	 */
+	private void paintRetained(Graphics2D g2) {
+		// Device position of the drawing's origin
+		double originX = offsetX + scalingFactor * (screenMid().x + geometryOriginX);
+		double originY = offsetY + scalingFactor * (screenMid().y + geometryOriginY);
+		RasterRegion region = rasterRegion(g2, originX, originY);
+		if (region != null && region.key.equals(rasterKey)) {
+			g2.drawImage(raster, region.x, region.y, null);
+			return;
+		}
+		if (quality.isInteracting() || region != null) {
+			if (!quality.isInteracting()) {
+				requestRaster(region);
+			}
+			paintPreview(g2, originX, originY);
+			return;
+		}
+
+		// No raster can be used, so the full quality drawing is made right here
+		Graphics2D g = (Graphics2D) g2.create();
 		try {
-			for (char ch : lSystemString.toCharArray()) {
-				TurtleCommand command = commandMap.get(ch);
-				try {
-					handleTurtleCommand(turtle, command); // COULD TRY ADDING GLOBAL VAR ITERATION
-					// GO TO METHOD FOR NEXT IDEA
-					// DEPENDING ON TYPE OF COMMAND, MODULATE ANGLE, STEP ETC TO VARYING DEGREES DEPENDING ON CURRENT ITERATION
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.translate(originX, originY);
+			g.scale(scalingFactor, scalingFactor);
+			drawFullQuality(g, geometry, instances, instancesColour, instancesThickness);
+		} finally {
+			g.dispose();
+		}
+	}
 
-				} catch (Exception e) {
-					showErrorDialog("No command provided for character: '" + ch + "'");
-					return;
+	/*
+	 * Draws with antialiasing and the true stroke widths.
+	 */
+	private static void drawFullQuality(Graphics2D g, SegmentBuffer geometry, InstancedGeometry instances,
+			Color instancesColour, float instancesThickness) {
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		if (geometry != null) {
+			geometry.draw(g);
+		} else {
+			instances.draw(g, instancesColour, instancesThickness);
+		}
+	}
+
+	/**
+	 * Returns where the full quality raster belongs on screen. For retained
+	 * geometry it covers the whole drawing at the current zoom level, so panning
+	 * just copies it to a new place; it only depends on the geometry, the zoom
+	 * level and the sub-pixel position of the drawing. When the drawing is too
+	 * large for that, or drawn from display lists, the raster covers the visible
+	 * area only and is tied to the exact view position.
+	 *
+	 * @return null on scaled (HiDPI) devices, where no raster is used
+	 */
+	private RasterRegion rasterRegion(Graphics2D g2, double originX, double originY) {
+		if (g2.getTransform().getScaleX() != 1 || g2.getTransform().getScaleY() != 1) {
+			return null;
+		}
+		if (geometry != null) {
+			Rectangle2D.Float bounds = geometry.getBounds();
+			float maxWidth = 0;
+			for (int i = 0; i < geometry.getStyleCount(); i++) {
+				maxWidth = Math.max(maxWidth, geometry.getStyleWidth(i));
+			}
+			double pad = scalingFactor * maxWidth + 2;
+			double left = originX + scalingFactor * bounds.x - pad;
+			double top = originY + scalingFactor * bounds.y - pad;
+			int x = (int) Math.floor(left);
+			int y = (int) Math.floor(top);
+			int width = (int) Math.ceil(scalingFactor * bounds.width + 2 * pad) + 1;
+			int height = (int) Math.ceil(scalingFactor * bounds.height + 2 * pad) + 1;
+			if ((long) width * height <= MAX_RASTER_PIXELS) {
+				// Sub-pixel offsets are rounded so repeated pans hit the same raster
+				double fractionX = Math.round((left - x) * 64) / 64.0;
+				double fractionY = Math.round((top - y) * 64) / 64.0;
+				return new RasterRegion(x, y, width, height,
+						fractionX + pad - scalingFactor * bounds.x, fractionY + pad - scalingFactor * bounds.y,
+						List.of(geometry, scalingFactor, fractionX, fractionY));
+			}
+		}
+		int width = Math.max(getWidth(), 1);
+		int height = Math.max(getHeight(), 1);
+		Object drawing = geometry != null ? geometry
+				: List.of(instances, instancesColour, instancesThickness);
+		return new RasterRegion(0, 0, width, height, originX, originY,
+				List.of(drawing, scalingFactor, originX, originY, width, height));
+	}
+
+	/**
+	 * Renders the raster of a region at full quality on the background thread,
+	 * unless it is already being rendered. The panel is repainted once it is
+	 * ready; a raster no longer needed by then is dropped.
+	 */
+	private void requestRaster(RasterRegion region) {
+		if (region.key.equals(pendingKey)) {
+			return;
+		}
+		pendingKey = region.key;
+		SegmentBuffer geometry = this.geometry;
+		InstancedGeometry instances = this.instances;
+		Color instancesColour = this.instancesColour;
+		float instancesThickness = this.instancesThickness;
+		double scale = scalingFactor;
+		RASTER_RENDERER.execute(() -> {
+			if (!region.key.equals(pendingKey)) {
+				return;
+			}
+			BufferedImage image = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB_PRE);
+			if (geometry != null && SoftwareRasterizer.isEnabled()) {
+				// Retained geometry is rasterized on all cores instead of stroked by Java2D
+				SoftwareRasterizer.draw(geometry, image, scale, region.translateX, region.translateY);
+			} else {
+				Graphics2D g = image.createGraphics();
+				try {
+					g.translate(region.translateX, region.translateY);
+					g.scale(scale, scale);
+					drawFullQuality(g, geometry, instances, instancesColour, instancesThickness);
+				} finally {
+					g.dispose();
 				}
 			}
+			SwingUtilities.invokeLater(() -> {
+				if (region.key.equals(pendingKey)) {
+					raster = image;
+					rasterKey = region.key;
+					pendingKey = null;
+					repaint();
+				}
+			});
+		});
+	}
+
+	/**
+	 * Draws a fast preview: no antialiasing, hairline strokes and geometry
+	 * simplified to the pixel grid, into a back buffer whose resolution the
+	 * quality controller adapts to keep within its target frame time.
+	 */
+	private void paintPreview(Graphics2D g2, double originX, double originY) {
+		long start = System.nanoTime();
+		double resolution = quality.getResolutionScale();
+		int width = Math.max(1, (int) Math.ceil(getWidth() * resolution));
+		int height = Math.max(1, (int) Math.ceil(getHeight() * resolution));
+		if (previewBuffer == null || previewBuffer.getWidth() != width || previewBuffer.getHeight() != height) {
+			previewBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		}
+		Graphics2D g = previewBuffer.createGraphics();
+		try {
+			// Opaque, so that scaling it onto the screen is a plain copy
+			g.setColor(getBackground());
+			g.fillRect(0, 0, width, height);
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			g.scale(resolution, resolution);
+			g.translate(originX, originY);
+			g.scale(scalingFactor, scalingFactor);
+			if (geometry != null) {
+				previewGeometry(scalingFactor * resolution).drawHairlines(g);
+			} else {
+				instances.draw(g, instancesColour, 0);
+			}
+		} finally {
+			g.dispose();
+		}
+		g2.drawImage(previewBuffer, 0, 0, getWidth(), getHeight(), null);
+
+		if (quality.isInteracting()) {
+			quality.frameRendered(System.nanoTime() - start);
+			String frameRate = String.format("Preview: %.0f fps (%.1f ms)", quality.getFramesPerSecond(),
+					quality.getLastFrameMillis());
+			g2.setColor(Color.DARK_GRAY);
+			g2.setFont(new Font("Arial", Font.PLAIN, 12));
+			g2.drawString(frameRate, 8, 16);
+		}
+	}
+
+	/**
+	 * Returns the geometry simplified to cells of at most one back buffer pixel.
+	 * Cell sizes are rounded down to powers of two so that the simplification is
+	 * reused while zooming.
+	 */
+	private SegmentBuffer previewGeometry(double pixelsPerUnit) {
+		float cellSize = (float) Math.pow(2, Math.floor(Math.log(1 / pixelsPerUnit) / Math.log(2)));
+		List<Object> key = List.of(geometry, cellSize);
+		if (!key.equals(previewKey)) {
+			previewGeometry = geometry.simplified(cellSize);
+			previewKey = key;
+		}
+		return previewGeometry;
+	}
+
+	/**
+	 * Placement of a full quality raster on screen and the inputs it was made
+	 * from.
+	 */
+	private static class RasterRegion {
+		final int x;
+		final int y;
+		final int width;
+		final int height;
+		final double translateX;
+		final double translateY;
+		final List<Object> key;
+
+		RasterRegion(int x, int y, int width, int height, double translateX, double translateY, List<Object> key) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.translateX = translateX;
+			this.translateY = translateY;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Returns the controller deciding between preview and full quality, e.g. to
+	 * configure its frame time target.
+	 */
+	public AdaptiveQuality getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Sets whether dragging with the right mouse button or Shift orbits the
+	 * camera rather than panning, i.e. whether a 3D drawing is shown.
+	 */
+	public void setOrbitEnabled(boolean orbitEnabled) {
+		this.orbitEnabled = orbitEnabled;
+	}
+
+	/**
+	 * Adds a listener notified whenever the user orbits the camera.
+	 */
+	public void addOrbitListener(ChangeListener listener) {
+		orbitListeners.add(listener);
+	}
+
+	/**
+	 * Adds a listener notified whenever the view comes to rest after the user
+	 * has panned or zoomed, e.g. to expand the drawing for the new viewport.
+	 */
+	public void addViewListener(ChangeListener listener) {
+		viewListeners.add(listener);
+	}
+
+	/**
+	 * Returns the visible area in drawing units, relative to the turtle's start.
+	 */
+	public Rectangle2D.Double getViewport() {
+		Point mid = screenMid();
+		return new Rectangle2D.Double(-offsetX / scalingFactor - mid.x, -offsetY / scalingFactor - mid.y,
+				getWidth() / scalingFactor, getHeight() / scalingFactor);
+	}
+
+	/**
+	 * Returns the number of device pixels per drawing unit.
+	 */
+	public double getScale() {
+		return scalingFactor;
+	}
+
+	private void viewRested() {
+		repaint();
+		ChangeEvent event = new ChangeEvent(this);
+		for (ChangeListener listener : viewListeners) {
+			listener.stateChanged(event);
+		}
+	}
+
+	public double getCameraYaw() {
+		return cameraYaw;
+	}
+
+	public double getCameraPitch() {
+		return cameraPitch;
+	}
+
+	/**
+	 * Returns the geometry being shown, interpreting the current L-System string
+	 * with the same parameters as the screen if it is drawn directly. The origin
+	 * of the geometry is the turtle's start point.
+	 *
+	 * @return the segments, or null if there is nothing to interpret
+	 */
+	public SegmentBuffer interpretGeometry() {
+		if (geometry != null) {
+			return geometry;
+		}
+		if (instances != null) {
+			return instances.toSegmentBuffer(instancesColour, instancesThickness);
+		}
+		if (!validateInputs())
+			return null;
+
+		SegmentBuffer interpreted = new SegmentBuffer();
+		walk(new Turtle(interpreted, 0, 0));
+		return interpreted;
+	}
+
+	/**
+	 * Walks the L-System string with the given turtle, executing the command
+	 * mapped to each character.
+	 */
+	private void walk(Turtle turtle) {
+		try {
+			TurtleInterpreter interpreter = new TurtleInterpreter(commandMap, angle, step, thickness, colour);
+			if (program == null && canCompile(lSystemString)) {
+				program = TurtleProgram.compile(lSystemString, commandMap);
+			}
+			if (program != null) {
+				interpreter.interpret(program, turtle);
+			} else {
+				interpreter.interpret(lSystemString, turtle);
+			}
+		} catch (IllegalArgumentException e) {
+			showErrorDialog(e.getMessage());
 		} catch (Exception e) {
 			showErrorDialog("Unexpected error while drawing: " + e.getMessage());
 		}
 	}
 
+	/*
+	 * Returns whether the symbols can be compiled and the program, at worst one
+	 * int per symbol while it grows, fits into the free heap with room to spare.
+	 */
+	private static boolean canCompile(CharSequence symbols) {
+		if (symbols instanceof ModuleString || symbols.length() > Integer.MAX_VALUE / 2) {
+			return false;
+		}
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return 8L * symbols.length() < free / 2;
+	}
+
 	/**
 	 * Validates that required input fields are set before rendering begins.
 	 */
 	private boolean validateInputs() {
-		if (lSystemString == null || lSystemString.isBlank()) {
+		if (lSystemString == null || lSystemString.length() == 0) {
 			showErrorDialog("L-System string is null or empty. Nothing to draw.");
 			return false;
 		}
@@ -115,22 +502,47 @@ public class DrawingPanel extends JPanel {
 		return true;
 	}
 
+	// Setters for rendering parameters
+	public void setLSystemString(CharSequence lSystemString) {
+		this.lSystemString = lSystemString;
+		this.program = null;
+		this.geometry = null;
+		this.instances = null;
+		repaint();
+	}
+
 	/**
-	 * Executes a turtle instruction based on the provided command.
+	 * Shows retained geometry, either interpreted by the render pipeline or
+	 * loaded from a file. It stays on screen until a new L-System string is set.
 	 */
-	private void handleTurtleCommand(Turtle turtle, TurtleCommand command) {
-		switch (command) {
-		case MOVE -> turtle.move(step, thickness, colour);
-		case TURNRIGHT -> turtle.right(angle);
-		case TURNLEFT -> turtle.left(angle);
-		case PUSH -> turtle.push();
-		case POP -> turtle.pop();
-		}
+	public void setGeometry(SegmentBuffer geometry) {
+		setGeometry(geometry, 0, 0);
 	}
 
-	// Setters for rendering parameters
-	public void setLSystemString(String lSystemString) {
-		this.lSystemString = lSystemString;
+	/**
+	 * Shows retained geometry whose coordinates are relative to the given point
+	 * rather than the turtle's start, e.g. geometry expanded for the viewport,
+	 * which is kept near the origin so that float coordinates stay precise at any
+	 * zoom level.
+	 */
+	public void setGeometry(SegmentBuffer geometry, double originX, double originY) {
+		this.geometry = geometry;
+		this.geometryOriginX = originX;
+		this.geometryOriginY = originY;
+		this.instances = null;
+		repaint();
+	}
+
+	/**
+	 * Shows a drawing from its display lists, for drawings whose geometry is too
+	 * large to retain. Like retained geometry it stays on screen until a new
+	 * L-System string is set.
+	 */
+	public void setInstances(InstancedGeometry instances, Color colour, float thickness) {
+		this.instances = instances;
+		this.instancesColour = colour;
+		this.instancesThickness = thickness;
+		this.geometry = null;
 		repaint();
 	}
 
@@ -151,6 +563,9 @@ public class DrawingPanel extends JPanel {
 	}
 
 	public void setCommandMap(Map<Character, TurtleCommand> commandMap) {
+		if (commandMap != this.commandMap) {
+			this.program = null;
+		}
 		this.commandMap = commandMap;
 	}
 
@@ -172,10 +587,12 @@ public class DrawingPanel extends JPanel {
 			@Override
 			public void mouseWheelMoved(MouseWheelEvent e) {
 
-				// Zoom in or out based on scroll direction
+				// Zoom in or out based on scroll direction, by a constant ratio once zoomed in
 				double oldScale = scalingFactor;
-				scalingFactor = (e.getPreciseWheelRotation() < 0) ? scalingFactor + SCALE_STEP
-						: Math.max(scalingFactor - SCALE_STEP, MINIMUM_ZOOMOUT_SCALE);
+				scalingFactor = (e.getPreciseWheelRotation() < 0)
+						? scalingFactor + Math.max(SCALE_STEP, scalingFactor * SCALE_STEP)
+						: Math.max(scalingFactor - Math.max(SCALE_STEP, scalingFactor * SCALE_STEP / (1 + SCALE_STEP)),
+								MINIMUM_ZOOMOUT_SCALE);
 
 				double factor = scalingFactor / oldScale;
 
@@ -184,6 +601,7 @@ public class DrawingPanel extends JPanel {
 				offsetX = mousePoint.getX() - factor * (mousePoint.getX() - offsetX);
 				offsetY = mousePoint.getY() - factor * (mousePoint.getY() - offsetY);
 
+				quality.inputActive();
 				repaint();
 			}
 		});
@@ -207,15 +625,32 @@ public class DrawingPanel extends JPanel {
 				if (lastMousePosition != null) {
 					int dx = e.getX() - lastMousePosition.x;
 					int dy = e.getY() - lastMousePosition.y;
+					lastMousePosition = e.getPoint();
+					quality.inputActive();
+					if (orbitEnabled && (SwingUtilities.isRightMouseButton(e) || e.isShiftDown())) {
+						orbit(dx, dy);
+						return;
+					}
 					offsetX += dx;
 					offsetY += dy;
-					lastMousePosition = e.getPoint();
 					repaint();
 				}
 			}
 		});
 	}
 
+	/*
+	 * Turns the camera by the dragged distance; the pitch stops at the poles.
+	 */
+	private void orbit(int dx, int dy) {
+		cameraYaw = (cameraYaw + dx * ORBIT_DEGREES_PER_PIXEL) % 360;
+		cameraPitch = Math.max(-90, Math.min(90, cameraPitch + dy * ORBIT_DEGREES_PER_PIXEL));
+		ChangeEvent event = new ChangeEvent(this);
+		for (ChangeListener listener : orbitListeners) {
+			listener.stateChanged(event);
+		}
+	}
+
 	/**
 	 * Shows a dialog box for critical errors encountered during rendering. Ensures
 	 * it is only shown once at a time.
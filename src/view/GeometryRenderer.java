@@ -0,0 +1,129 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import model.SegmentBuffer;
+
+/**
+ * GeometryRenderer draws retained geometry into offscreen images, scaled and
+ * centred to fit the image. It is used wherever a drawing is needed outside of
+ * the DrawingPanel, e.g. for thumbnails.
+ */
+public class GeometryRenderer {
+
+	private GeometryRenderer() {
+	}
+
+	/**
+	 * Renders the geometry into a new image of the given size. At full detail the
+	 * {@link SoftwareRasterizer} draws into a premultiplied image, unless it is
+	 * disabled.
+	 *
+	 * @param lowDetail draw without antialiasing, with hairline strokes and in a
+	 *                  single colour, which is much cheaper for small previews
+	 */
+	public static BufferedImage render(SegmentBuffer geometry, int width, int height, Color background,
+			boolean lowDetail) {
+		return render(geometry, geometry.getBounds(), width, height, background, lowDetail);
+	}
+
+	/**
+	 * Renders the geometry fitted to the given bounds rather than to its own, so
+	 * that several drawings rendered with the same bounds share one view.
+	 */
+	public static BufferedImage render(SegmentBuffer geometry, Rectangle2D.Float bounds, int width, int height,
+			Color background, boolean lowDetail) {
+		boolean software = !lowDetail && SoftwareRasterizer.isEnabled();
+		BufferedImage image = new BufferedImage(width, height,
+				software ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = image.createGraphics();
+		try {
+			if (background != null) {
+				g2.setColor(background);
+				g2.fillRect(0, 0, width, height);
+			}
+			if (!software) {
+				drawFitted(g2, geometry, bounds, width, height, lowDetail);
+			}
+		} finally {
+			g2.dispose();
+		}
+		if (software && geometry.size() > 0) {
+			double scale = fittedScale(bounds, width, height);
+			SoftwareRasterizer.draw(geometry, image, scale, width / 2.0 - scale * bounds.getCenterX(),
+					height / 2.0 - scale * bounds.getCenterY());
+		}
+		return image;
+	}
+
+	/**
+	 * Returns the scale at which the given bounds fit into the area with a small
+	 * margin, e.g. to draw a drawing in parts that line up with
+	 * {@link #render}.
+	 */
+	public static double fittedScale(Rectangle2D.Float bounds, int width, int height) {
+		double margin = 0.05 * Math.min(width, height);
+		return Math.min((width - 2 * margin) / Math.max(bounds.width, 1),
+				(height - 2 * margin) / Math.max(bounds.height, 1));
+	}
+
+	/**
+	 * Draws the geometry scaled uniformly so that its bounds fit into the given
+	 * area with a small margin.
+	 */
+	public static void drawFitted(Graphics2D g2, SegmentBuffer geometry, int width, int height, boolean lowDetail) {
+		drawFitted(g2, geometry, geometry.getBounds(), width, height, lowDetail);
+	}
+
+	/**
+	 * Draws the geometry scaled uniformly so that the given bounds fit into the
+	 * area with a small margin.
+	 */
+	public static void drawFitted(Graphics2D g2, SegmentBuffer geometry, Rectangle2D.Float bounds, int width,
+			int height, boolean lowDetail) {
+		if (geometry.size() == 0) {
+			return;
+		}
+		double scale = fittedScale(bounds, width, height);
+
+		Graphics2D g = (Graphics2D) g2.create();
+		try {
+			g.translate(width / 2.0, height / 2.0);
+			g.scale(scale, scale);
+			g.translate(-bounds.getCenterX(), -bounds.getCenterY());
+
+			if (lowDetail) {
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+				g.setStroke(new BasicStroke(0)); // thinnest line the device can draw
+				g.setColor(geometry.getStyleCount() > 0 ? new Color(geometry.getStyleArgb(0), true) : Color.BLACK);
+				g.draw(toPath(geometry));
+			} else {
+				g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				geometry.draw(g);
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/*
+	 * Collects all segments into a single path so they are drawn in one call.
+	 */
+	private static Path2D.Float toPath(SegmentBuffer geometry) {
+		Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, geometry.size() * 2);
+		for (int i = 0; i < geometry.size(); i++) {
+			path.moveTo(geometry.getX1(i), geometry.getY1(i));
+			path.lineTo(geometry.getX2(i), geometry.getY2(i));
+		}
+		return path;
+	}
+}
@@ -7,12 +7,21 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 
 import javax.swing.JFrame;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
 import javax.swing.JScrollPane;
 
 @SuppressWarnings("serial")
 public class MainFrame extends JFrame {
 	private ControlPanel controlPanel;
 	private DrawingPanel drawingPanel;
+	private JMenuItem saveDrawingItem;
+	private JMenuItem openDrawingItem;
+	private JMenuItem exportAnimationItem;
+	private JMenuItem sweepItem;
+	private JMenuItem reloadCatalogItem;
+	private JMenuItem statisticsItem;
 
 	/**
 	 * Constructs the main application window with control panel, drawing panel, and
@@ -38,6 +47,26 @@ public class MainFrame extends JFrame {
 		add(drawingPanel, BorderLayout.CENTER);
 		add(scrollPane, BorderLayout.WEST);
 
+		// File menu for saving and reopening interpreted drawings
+		JMenu fileMenu = new JMenu("File");
+		saveDrawingItem = new JMenuItem("Save Drawing...");
+		openDrawingItem = new JMenuItem("Open Drawing...");
+		fileMenu.add(saveDrawingItem);
+		fileMenu.add(openDrawingItem);
+		exportAnimationItem = new JMenuItem("Export Growth Animation...");
+		fileMenu.add(exportAnimationItem);
+		JMenu toolsMenu = new JMenu("Tools");
+		sweepItem = new JMenuItem("Parameter Sweep...");
+		toolsMenu.add(sweepItem);
+		statisticsItem = new JMenuItem("Drawing Statistics...");
+		toolsMenu.add(statisticsItem);
+		reloadCatalogItem = new JMenuItem("Reload Catalog");
+		toolsMenu.add(reloadCatalogItem);
+		JMenuBar menuBar = new JMenuBar();
+		menuBar.add(fileMenu);
+		menuBar.add(toolsMenu);
+		setJMenuBar(menuBar);
+
 		setVisible(true);
 
 	}
@@ -50,4 +79,28 @@ public class MainFrame extends JFrame {
 	public DrawingPanel getDrawingPanel() {
 		return drawingPanel;
 	}
+
+	public JMenuItem getSaveDrawingItem() {
+		return saveDrawingItem;
+	}
+
+	public JMenuItem getOpenDrawingItem() {
+		return openDrawingItem;
+	}
+
+	public JMenuItem getExportAnimationItem() {
+		return exportAnimationItem;
+	}
+
+	public JMenuItem getSweepItem() {
+		return sweepItem;
+	}
+
+	public JMenuItem getStatisticsItem() {
+		return statisticsItem;
+	}
+
+	public JMenuItem getReloadCatalogItem() {
+		return reloadCatalogItem;
+	}
 }
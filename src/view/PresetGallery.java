@@ -0,0 +1,174 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.ImageIcon;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+import model.GenerationCache;
+import model.GrowthTable;
+import model.LSystemParser;
+import model.PredefinedLSystem;
+import model.SegmentBuffer;
+import model.TurtleCommand;
+import model.TurtleInterpreter;
+
+/**
+ * PresetGallery shows a small rendered preview of every predefined L-System so
+ * users can pick a preset by its shape instead of by name.
+ *
+ * Thumbnails are rendered concurrently on a small bounded pool of background
+ * threads, at a reduced iteration depth and with the low-detail renderer, and
+ * are cached in memory and on disk. Until a thumbnail is ready an empty
+ * placeholder is shown, so the Event Dispatch Thread never waits.
+ */
+public class PresetGallery extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int THUMBNAIL_SIZE = 72;
+	// Largest expansion rendered for a thumbnail; deeper presets are shown at a lower depth
+	private static final long SYMBOL_BUDGET = 20_000;
+	private static final int RENDERER_VERSION = 1;
+	private static final Color THUMBNAIL_BACKGROUND = new Color(200, 200, 164);
+	private static final int THUMBNAIL_THICKNESS = 1;
+
+	// Shared by all galleries; daemon threads so they never keep the application alive
+	private static final ExecutorService POOL = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)), runnable -> {
+				Thread thread = new Thread(runnable, "thumbnail-renderer");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			});
+
+	private final JList<PredefinedLSystem> list;
+	private final Map<PredefinedLSystem, ImageIcon> thumbnails = new ConcurrentHashMap<>();
+	private final ImageIcon placeholder = new ImageIcon(
+			new BufferedImage(THUMBNAIL_SIZE, THUMBNAIL_SIZE, BufferedImage.TYPE_INT_ARGB));
+	private final ThumbnailCache cache = ThumbnailCache.defaultCache();
+
+	@SuppressWarnings("serial")
+	public PresetGallery(PredefinedLSystem[] presets) {
+		setLayout(new BorderLayout());
+
+		list = new JList<>(presets);
+		list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+		list.setVisibleRowCount(-1);
+		list.setCellRenderer(new DefaultListCellRenderer() {
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+					boolean isSelected, boolean cellHasFocus) {
+				super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+				if (value instanceof PredefinedLSystem preset) {
+					setText(preset.getName());
+					setIcon(thumbnails.getOrDefault(preset, placeholder));
+				}
+				setVerticalTextPosition(SwingConstants.BOTTOM);
+				setHorizontalTextPosition(SwingConstants.CENTER);
+				setHorizontalAlignment(SwingConstants.CENTER);
+				return this;
+			}
+		});
+
+		JScrollPane scrollPane = new JScrollPane(list);
+		scrollPane.setPreferredSize(new Dimension(3 * (THUMBNAIL_SIZE + 20), 2 * (THUMBNAIL_SIZE + 30)));
+		add(scrollPane, BorderLayout.CENTER);
+
+		for (PredefinedLSystem preset : presets) {
+			POOL.submit(() -> loadThumbnail(preset));
+		}
+	}
+
+	/**
+	 * Registers a listener called with the preset the user picked.
+	 */
+	public void addSelectionListener(Consumer<PredefinedLSystem> listener) {
+		list.addListSelectionListener(e -> {
+			if (!e.getValueIsAdjusting() && list.getSelectedValue() != null) {
+				listener.accept(list.getSelectedValue());
+			}
+		});
+	}
+
+	/**
+	 * Selects the thumbnail of the preset with the given preset's name, or none
+	 * if the gallery does not show it, e.g. for a preset from a catalog file.
+	 */
+	public void setSelectedPreset(PredefinedLSystem preset) {
+		for (int i = 0; preset != null && i < list.getModel().getSize(); i++) {
+			if (list.getModel().getElementAt(i).getName().equals(preset.getName())) {
+				if (list.getSelectedIndex() != i) {
+					list.setSelectedIndex(i);
+					list.ensureIndexIsVisible(i);
+				}
+				return;
+			}
+		}
+		list.clearSelection();
+	}
+
+	/*
+	 * Runs on the worker pool: reads the thumbnail from the cache or renders it,
+	 * then asks the list to repaint on the EDT.
+	 */
+	private void loadThumbnail(PredefinedLSystem preset) {
+		try {
+			int depth = thumbnailDepth(preset);
+			// The angle sign toggles with the preset's own depth, as in the main drawing
+			double angle = preset.getIterations() % 2 == 0 ? -preset.getAngle() : preset.getAngle();
+			// Every input that affects a pixel of the thumbnail
+			String key = GenerationCache.hash(RENDERER_VERSION + "|" + THUMBNAIL_SIZE + "|"
+					+ THUMBNAIL_BACKGROUND.getRGB() + "|"
+					+ GenerationCache.key(preset.getAxiom(), preset.getRules(), depth) + "|" + angle + "|"
+					+ preset.getStep() + "|" + THUMBNAIL_THICKNESS + "|" + preset.getColour().getRGB());
+
+			BufferedImage image = cache.get(key);
+			if (image == null) {
+				String symbols = new LSystemParser(preset.getAxiom(), preset.getRules(), depth)
+						.generateLSystemString();
+				SegmentBuffer geometry = new TurtleInterpreter(TurtleCommand.PREDEFINED_COMMANDS, angle,
+						preset.getStep(), THUMBNAIL_THICKNESS, preset.getColour()).interpret(symbols, 0, 0);
+				image = GeometryRenderer.render(geometry, THUMBNAIL_SIZE, THUMBNAIL_SIZE, THUMBNAIL_BACKGROUND, true);
+				cache.put(key, image);
+			}
+			thumbnails.put(preset, new ImageIcon(image));
+			SwingUtilities.invokeLater(list::repaint);
+		} catch (RuntimeException e) {
+			System.err.println("Could not render thumbnail for '" + preset.getName() + "': " + e.getMessage());
+		}
+	}
+
+	/*
+	 * Returns the deepest iteration count not exceeding the preset's own whose
+	 * expansion stays within the symbol budget.
+	 */
+	private static int thumbnailDepth(PredefinedLSystem preset) {
+		GrowthTable table = new LSystemParser(preset.getAxiom(), preset.getRules(), preset.getIterations())
+				.getGrowthTable();
+		int depth = preset.getIterations();
+		while (depth > 1 && table.length(depth) > SYMBOL_BUDGET) {
+			depth--;
+		}
+		return depth;
+	}
+}
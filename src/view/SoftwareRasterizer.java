@@ -0,0 +1,428 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import model.SegmentBuffer;
+
+/**
+ * SoftwareRasterizer draws retained geometry with antialiasing straight into
+ * the int[] pixels of an image, as an alternative to stroking it with Java2D,
+ * which draws on a single thread per Graphics2D and is expensive per line.
+ *
+ * The image is split into square tiles. The segments are first binned: every
+ * segment is listed for the tiles its stroke can reach. The tiles are then
+ * rasterized in parallel, each by one worker that only reads its own segments
+ * and only writes its own pixels, so no locking is needed.
+ *
+ * A segment is stroked like a BasicStroke with square caps: a rectangle of the
+ * stroke width extended by half the width at both ends. As with Java2D's
+ * default stroke control, the end points are moved to pixel centres and no
+ * stroke is thinner than an eighth of a pixel. Coverage is found the way
+ * Java2D's antialiasing renderer finds it: every pixel row is sampled along
+ * eight sub-rows, and on each sub-row the spans the strokes cover are merged
+ * and measured exactly across the pixels. Like SegmentBuffer.draw(), all
+ * segments of a style are drawn as one shape, style by style: merging the
+ * spans fills the union of the style's strokes, so overlapping and retraced
+ * segments are not blended twice, and each pixel is composited once. The
+ * result is within a couple of levels of Java2D on every preset.
+ *
+ * The pixels are premultiplied ARGB, as in a TYPE_INT_ARGB_PRE image; in an
+ * opaque TYPE_INT_ARGB or TYPE_INT_RGB image they are the same.
+ */
+public class SoftwareRasterizer {
+
+	// Set "lsystem.rasterizer" to "java2d" to draw full quality rasters with Java2D instead
+	private static final boolean ENABLED = !"java2d".equals(System.getProperty("lsystem.rasterizer", "software"));
+	private static final int TILE = 64;
+	// Geometries with fewer segments are rasterized on the calling thread only
+	private static final int PARALLEL_THRESHOLD = 1 << 11;
+	// Sub-rows sampled per pixel row, as many as Java2D's antialiasing renderer samples
+	private static final int SUBROWS = 8;
+	// Thinnest stroke Java2D draws with antialiasing, in pixels; also used for a width of 0
+	private static final float MIN_WIDTH = 0.125f;
+
+	private SoftwareRasterizer() {
+	}
+
+	/**
+	 * Returns false if Java2D should be used for full quality rasters instead.
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Draws the geometry into a TYPE_INT_ARGB_PRE, TYPE_INT_ARGB or TYPE_INT_RGB
+	 * image; see {@link #draw(SegmentBuffer, int[], int, int, double, double, double)}.
+	 */
+	public static void draw(SegmentBuffer geometry, BufferedImage image, double scale, double translateX,
+			double translateY) {
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		draw(geometry, pixels, image.getWidth(), image.getHeight(), scale, translateX, translateY);
+	}
+
+	/**
+	 * Draws the geometry into the pixels, mapping a point (x, y) of the geometry
+	 * to (translateX + scale * x, translateY + scale * y).
+	 *
+	 * @param pixels premultiplied ARGB pixels, row by row
+	 */
+	public static void draw(SegmentBuffer geometry, int[] pixels, int width, int height, double scale,
+			double translateX, double translateY) {
+		draw(geometry, pixels, width, height, scale, translateX, translateY, 0, 0);
+	}
+
+	/**
+	 * Draws one tile of a larger image: the pixels hold the part of the image
+	 * whose top left corner is at (tileX, tileY). Points are snapped to pixel
+	 * centres in the coordinates of the whole image, so tiles drawn separately
+	 * line up exactly with the image drawn in one piece.
+	 */
+	public static void draw(SegmentBuffer geometry, int[] pixels, int width, int height, double scale,
+			double translateX, double translateY, int tileX, int tileY) {
+		int size = geometry.size();
+		if (size == 0 || width <= 0 || height <= 0) {
+			return;
+		}
+		float[] halfWidths = new float[geometry.getStyleCount()];
+		for (int s = 0; s < halfWidths.length; s++) {
+			halfWidths[s] = Math.max((float) (geometry.getStyleWidth(s) * scale), MIN_WIDTH) / 2;
+		}
+
+		// Device coordinates, moved to pixel centres as Java2D's default stroke control does
+		float[] ax = new float[size];
+		float[] ay = new float[size];
+		float[] bx = new float[size];
+		float[] by = new float[size];
+		geometry.transformToPixelCentres(scale, translateX, translateY, ax, ay, bx, by);
+		if (tileX != 0 || tileY != 0) {
+			// Whole pixels, so moving the snapped points is exact
+			for (int i = 0; i < size; i++) {
+				ax[i] -= tileX;
+				ay[i] -= tileY;
+				bx[i] -= tileX;
+				by[i] -= tileY;
+			}
+		}
+
+		// Bin the segments into tiles: count, prefix sums, fill, so each tile lists its segments in order
+		int tilesX = (width + TILE - 1) / TILE;
+		int tilesY = (height + TILE - 1) / TILE;
+		int[] starts = new int[tilesX * tilesY + 1];
+		Bins bins = new Bins(geometry, halfWidths, ax, ay, bx, by, width, height, tilesX);
+		for (int i = 0; i < size; i++) {
+			bins.visit(i, starts, null);
+		}
+		for (int t = 0; t < tilesX * tilesY; t++) {
+			starts[t + 1] += starts[t];
+		}
+		int[] entries = new int[starts[tilesX * tilesY]];
+		int[] fill = starts.clone();
+		for (int i = 0; i < size; i++) {
+			bins.visit(i, fill, entries);
+		}
+
+		IntStream tiles = IntStream.range(0, tilesX * tilesY);
+		(size >= PARALLEL_THRESHOLD ? tiles.parallel() : tiles).forEach(tile -> {
+			if (starts[tile] < starts[tile + 1]) {
+				new TileRasterizer(geometry, halfWidths, ax, ay, bx, by, pixels, width, height).rasterize(tile,
+						tilesX, entries, starts[tile], starts[tile + 1]);
+			}
+		});
+	}
+
+	/*
+	 * Finds the tiles a segment's stroke can reach.
+	 */
+	private static final class Bins {
+		private final SegmentBuffer geometry;
+		private final float[] halfWidths;
+		private final float[] ax, ay, bx, by;
+		private final int width, height, tilesX;
+
+		Bins(SegmentBuffer geometry, float[] halfWidths, float[] ax, float[] ay, float[] bx, float[] by, int width,
+				int height, int tilesX) {
+			this.geometry = geometry;
+			this.halfWidths = halfWidths;
+			this.ax = ax;
+			this.ay = ay;
+			this.bx = bx;
+			this.by = by;
+			this.width = width;
+			this.height = height;
+			this.tilesX = tilesX;
+		}
+
+		/*
+		 * Counts the segment for each of its tiles, or, given the entries, stores it
+		 * at the tiles' next free positions.
+		 */
+		void visit(int i, int[] positions, int[] entries) {
+			// Square caps reach half a width beyond the ends, diagonally a little more
+			float reach = halfWidths[geometry.getStyle(i)] * 1.415f + 1;
+			int left = (int) Math.floor(Math.min(ax[i], bx[i]) - reach);
+			int top = (int) Math.floor(Math.min(ay[i], by[i]) - reach);
+			int right = (int) Math.ceil(Math.max(ax[i], bx[i]) + reach);
+			int bottom = (int) Math.ceil(Math.max(ay[i], by[i]) + reach);
+			if (right < 0 || bottom < 0 || left >= width || top >= height) {
+				return;
+			}
+			int tx0 = Math.max(left, 0) / TILE, tx1 = Math.min(right, width - 1) / TILE;
+			int ty0 = Math.max(top, 0) / TILE, ty1 = Math.min(bottom, height - 1) / TILE;
+			boolean single = tx0 == tx1 || ty0 == ty1;
+			double dx = bx[i] - ax[i], dy = by[i] - ay[i];
+			double length = Math.hypot(dx, dy);
+			for (int ty = ty0; ty <= ty1; ty++) {
+				for (int tx = tx0; tx <= tx1; tx++) {
+					// A long diagonal segment's bounding box covers tiles far from the segment
+					if (!single && length > 0) {
+						double cx = (tx + 0.5) * TILE - ax[i], cy = (ty + 0.5) * TILE - ay[i];
+						if (Math.abs(cx * dy - cy * dx) / length > TILE * 0.7072 + reach) {
+							continue;
+						}
+					}
+					int tile = ty * tilesX + tx;
+					if (entries == null) {
+						positions[tile + 1]++;
+					} else {
+						entries[positions[tile]++] = i;
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Rasterizes the segments of one tile. Each worker has its own instance.
+	 */
+	private static final class TileRasterizer {
+		private final SegmentBuffer geometry;
+		private final float[] halfWidths;
+		private final float[] ax, ay, bx, by;
+		private final int[] pixels;
+		private final int width, height;
+		private final float[] coverage = new float[TILE * TILE];
+		// Spans of the current style, as a sorted linked list per sub-row of the tile
+		private final int[] heads = new int[TILE * SUBROWS];
+		private float[] spanFrom = new float[256];
+		private float[] spanTo = new float[256];
+		private int[] spanNext = new int[256];
+		private int spans;
+		// Changes of coverage along the current pixel row, with room past its end
+		private final float[] deltas = new float[TILE + 2];
+		private int x0, y0, x1, y1;
+		// Part of the tile the current style has covered
+		private int dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+
+		TileRasterizer(SegmentBuffer geometry, float[] halfWidths, float[] ax, float[] ay, float[] bx, float[] by,
+				int[] pixels, int width, int height) {
+			this.geometry = geometry;
+			this.halfWidths = halfWidths;
+			this.ax = ax;
+			this.ay = ay;
+			this.bx = bx;
+			this.by = by;
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			Arrays.fill(heads, -1);
+		}
+
+		void rasterize(int tile, int tilesX, int[] entries, int from, int to) {
+			x0 = (tile % tilesX) * TILE;
+			y0 = (tile / tilesX) * TILE;
+			x1 = Math.min(width, x0 + TILE);
+			y1 = Math.min(height, y0 + TILE);
+			for (int style = 0; style < halfWidths.length; style++) {
+				dirtyLeft = x1;
+				dirtyTop = y1;
+				dirtyRight = x0;
+				dirtyBottom = y0;
+				for (int k = from; k < to; k++) {
+					int i = entries[k];
+					if (geometry.getStyle(i) == style) {
+						cover(i, halfWidths[style]);
+					}
+				}
+				if (spans > 0) {
+					accumulate();
+				}
+				if (dirtyLeft < dirtyRight) {
+					composite(geometry.getStyleArgb(style));
+				}
+			}
+		}
+
+		/*
+		 * Adds the spans the segment's stroke covers on each sub-row, sampled along
+		 * the middle of the sub-row. The stroke is where the distance across the
+		 * segment is at most half the width and the distance along it is within half
+		 * the width of its ends; on a sub-row each of the two is an interval of x.
+		 */
+		private void cover(int i, float halfWidth) {
+			double sx = ax[i], sy = ay[i];
+			double dx = bx[i] - sx, dy = by[i] - sy;
+			double length = Math.hypot(dx, dy);
+			// A segment without length is drawn as an axis-aligned square
+			double ux = length > 1e-9 ? dx / length : 1;
+			double uy = length > 1e-9 ? dy / length : 0;
+			boolean across = Math.abs(uy) > 1e-9, along = Math.abs(ux) > 1e-9;
+			// On a sub-row each interval is [from, to] around a centre that moves by its slope per unit of ry
+			double acrossSlope = across ? ux / uy : 0;
+			double acrossFrom = across ? -Math.abs(halfWidth / uy) : 0, acrossTo = -acrossFrom;
+			double alongSlope = along ? -uy / ux : 0;
+			double alongFrom = along ? (ux > 0 ? -halfWidth : -length - halfWidth) / Math.abs(ux) : 0;
+			double alongTo = along ? (ux > 0 ? length + halfWidth : halfWidth) / Math.abs(ux) : 0;
+
+			double top = Math.min(sy - uy * halfWidth, by[i] + uy * halfWidth) - Math.abs(ux) * halfWidth;
+			double bottom = Math.max(sy - uy * halfWidth, by[i] + uy * halfWidth) + Math.abs(ux) * halfWidth;
+			// Sub-rows whose middle lies within [top, bottom)
+			int first = Math.max(y0 * SUBROWS, (int) Math.ceil(top * SUBROWS - 0.5));
+			int last = Math.min(y1 * SUBROWS, (int) Math.ceil(bottom * SUBROWS - 0.5));
+			for (int row = first; row < last; row++) {
+				double ry = (row + 0.5) / SUBROWS - sy;
+				double left = x0, right = x1;
+				if (across) {
+					double centre = sx + ry * acrossSlope;
+					left = centre + acrossFrom > left ? centre + acrossFrom : left;
+					right = centre + acrossTo < right ? centre + acrossTo : right;
+				} else if (ry > halfWidth || ry < -halfWidth) {
+					continue;
+				}
+				if (along) {
+					double centre = sx + ry * alongSlope;
+					left = centre + alongFrom > left ? centre + alongFrom : left;
+					right = centre + alongTo < right ? centre + alongTo : right;
+				} else if (ry * uy < -halfWidth || ry * uy > length + halfWidth) {
+					continue;
+				}
+				if (left < right) {
+					addSpan(row - y0 * SUBROWS, (float) left, (float) right);
+				}
+			}
+		}
+
+		/*
+		 * Adds a span to the sub-row's list, which is kept sorted and free of
+		 * overlaps by merging the span with those it touches.
+		 */
+		private void addSpan(int row, float from, float to) {
+			int previous = -1, span = heads[row];
+			while (span >= 0 && spanTo[span] < from) {
+				previous = span;
+				span = spanNext[span];
+			}
+			if (span >= 0 && spanFrom[span] <= to) {
+				spanFrom[span] = Math.min(spanFrom[span], from);
+				float end = Math.max(spanTo[span], to);
+				int next = spanNext[span];
+				while (next >= 0 && spanFrom[next] <= end) {
+					end = Math.max(end, spanTo[next]);
+					next = spanNext[next];
+				}
+				spanTo[span] = end;
+				spanNext[span] = next;
+				return;
+			}
+			if (spans == spanFrom.length) {
+				spanFrom = Arrays.copyOf(spanFrom, spans * 2);
+				spanTo = Arrays.copyOf(spanTo, spans * 2);
+				spanNext = Arrays.copyOf(spanNext, spans * 2);
+			}
+			spanFrom[spans] = from;
+			spanTo[spans] = to;
+			spanNext[spans] = span;
+			if (previous < 0) {
+				heads[row] = spans;
+			} else {
+				spanNext[previous] = spans;
+			}
+			spans++;
+		}
+
+		/*
+		 * Adds the covered share of every pixel to its coverage. As in Java2D's
+		 * renderer, a span only adds to the pixels at its ends, as changes of
+		 * coverage; summing the changes along the pixel row then gives the coverage
+		 * of every pixel in between.
+		 */
+		private void accumulate() {
+			for (int py = y0; py < y1; py++) {
+				int base = (py - y0) * SUBROWS;
+				int left = x1, right = x0;
+				for (int row = base; row < base + SUBROWS; row++) {
+					for (int span = heads[row]; span >= 0; span = spanNext[span]) {
+						addDeltas(spanFrom[span], spanTo[span]);
+						left = Math.min(left, (int) spanFrom[span]);
+						right = Math.max(right, (int) Math.ceil(spanTo[span]));
+					}
+					heads[row] = -1;
+				}
+				if (left >= right) {
+					continue;
+				}
+				int pixelRow = (py - y0) * TILE - x0;
+				float sum = 0;
+				for (int px = left; px < right; px++) {
+					sum += deltas[px - x0];
+					deltas[px - x0] = 0;
+					coverage[pixelRow + px] += sum / SUBROWS;
+				}
+				deltas[right - x0] = 0;
+				dirtyLeft = Math.min(dirtyLeft, left);
+				dirtyRight = Math.max(dirtyRight, right);
+				dirtyTop = Math.min(dirtyTop, py);
+				dirtyBottom = Math.max(dirtyBottom, py + 1);
+			}
+			spans = 0;
+		}
+
+		/*
+		 * Adds a span's changes of coverage at the pixels holding its ends.
+		 */
+		private void addDeltas(float from, float to) {
+			int first = (int) from - x0, last = (int) to - x0;
+			float enter = from - (int) from, exit = to - (int) to;
+			deltas[first] += 1 - enter;
+			deltas[first + 1] += enter;
+			deltas[last] -= 1 - exit;
+			deltas[last + 1] -= exit;
+		}
+
+		/*
+		 * Blends the colour over the covered pixels (source over, premultiplied) and
+		 * clears the coverage for the next style.
+		 */
+		private void composite(int argb) {
+			float alpha = (argb >>> 24) / 255f;
+			float red = (argb >> 16 & 0xFF) * alpha;
+			float green = (argb >> 8 & 0xFF) * alpha;
+			float blue = (argb & 0xFF) * alpha;
+			for (int py = dirtyTop; py < dirtyBottom; py++) {
+				int row = (py - y0) * TILE - x0;
+				int pixelRow = py * width;
+				for (int px = dirtyLeft; px < dirtyRight; px++) {
+					float c = Math.min(coverage[row + px], 1);
+					if (c == 0) {
+						continue;
+					}
+					coverage[row + px] = 0;
+					float a = c * alpha;
+					float keep = 1 - a;
+					int dst = pixels[pixelRow + px];
+					int da = Math.round(255 * a + (dst >>> 24) * keep);
+					int dr = Math.round(red * c + (dst >> 16 & 0xFF) * keep);
+					int dg = Math.round(green * c + (dst >> 8 & 0xFF) * keep);
+					int db = Math.round(blue * c + (dst & 0xFF) * keep);
+					pixels[pixelRow + px] = da << 24 | dr << 16 | dg << 8 | db;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.util.Locale;
+
+import model.SegmentBuffer;
+
+/**
+ * SvgWriter turns retained geometry into a standalone SVG document. Segments
+ * are grouped into one path per style so the document stays small, and the
+ * drawing is fitted into the requested size through the viewBox.
+ */
+public class SvgWriter {
+
+	private SvgWriter() {
+	}
+
+	/**
+	 * Returns the SVG document for the geometry.
+	 *
+	 * @param background fill colour of the whole image, or null for transparent
+	 */
+	public static String write(SegmentBuffer geometry, int width, int height, Color background) {
+		Rectangle2D.Float bounds = geometry.getBounds();
+		float margin = 0.05f * Math.max(Math.max(bounds.width, bounds.height), 1);
+		StringBuilder svg = new StringBuilder(64 + geometry.size() * 24);
+		svg.append(String.format(Locale.ROOT,
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" viewBox=\"%s %s %s %s\">\n",
+				width, height, number(bounds.x - margin), number(bounds.y - margin),
+				number(Math.max(bounds.width, 1) + 2 * margin), number(Math.max(bounds.height, 1) + 2 * margin)));
+		if (background != null) {
+			svg.append(String.format(Locale.ROOT,
+					"<rect x=\"%s\" y=\"%s\" width=\"100%%\" height=\"100%%\" fill=\"%s\"/>\n",
+					number(bounds.x - margin), number(bounds.y - margin), hex(background.getRGB())));
+		}
+
+		for (int style = 0; style < geometry.getStyleCount(); style++) {
+			int argb = geometry.getStyleArgb(style);
+			svg.append(String.format(Locale.ROOT,
+					"<path fill=\"none\" stroke=\"%s\" stroke-opacity=\"%s\" stroke-width=\"%s\" stroke-linecap=\"round\" d=\"",
+					hex(argb), number(((argb >>> 24) & 0xFF) / 255f), number(geometry.getStyleWidth(style))));
+			for (int i = 0; i < geometry.size(); i++) {
+				if (geometry.getStyle(i) == style) {
+					svg.append('M').append(number(geometry.getX1(i))).append(' ').append(number(geometry.getY1(i)))
+							.append('L').append(number(geometry.getX2(i))).append(' ')
+							.append(number(geometry.getY2(i)));
+				}
+			}
+			svg.append("\"/>\n");
+		}
+		return svg.append("</svg>\n").toString();
+	}
+
+	private static String hex(int argb) {
+		return String.format("#%06x", argb & 0xFFFFFF);
+	}
+
+	/*
+	 * Two decimals are far below a pixel at any sensible zoom and keep the
+	 * document compact.
+	 */
+	private static String number(float value) {
+		if (value == Math.rint(value)) {
+			return Integer.toString((int) value);
+		}
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingConstants;
+
+import model.RenderSettings;
+
+/**
+ * SweepDialog lets the user choose two drawing parameters with a range each
+ * and shows the resulting grid of variants. Cells are filled in as their
+ * renders arrive.
+ */
+public class SweepDialog extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int CELL_SIZE = 140;
+	private static final Color CELL_BACKGROUND = new Color(200, 200, 164);
+
+	private JComboBox<RenderSettings.Parameter> columnParameter;
+	private JSpinner columnFrom;
+	private JSpinner columnTo;
+	private JSpinner columnStep;
+	private JComboBox<RenderSettings.Parameter> rowParameter;
+	private JSpinner rowFrom;
+	private JSpinner rowTo;
+	private JSpinner rowStep;
+	private JButton renderButton;
+	private JPanel grid;
+	private JLabel[][] cells = new JLabel[0][0];
+
+	public SweepDialog(JFrame owner) {
+		super(owner, "Parameter Sweep", false);
+		setLayout(new BorderLayout());
+
+		JPanel controls = new JPanel(new GridLayout(2, 5, 5, 5));
+		columnParameter = new JComboBox<>(RenderSettings.Parameter.values());
+		columnParameter.setSelectedItem(RenderSettings.Parameter.ANGLE);
+		columnFrom = new JSpinner(new SpinnerNumberModel(15.0, -360.0, 360.0, 0.5));
+		columnTo = new JSpinner(new SpinnerNumberModel(45.0, -360.0, 360.0, 0.5));
+		columnStep = new JSpinner(new SpinnerNumberModel(1.0, 0.01, 360.0, 0.5));
+		rowParameter = new JComboBox<>(RenderSettings.Parameter.values());
+		rowParameter.setSelectedItem(RenderSettings.Parameter.ANGLE_FACTOR);
+		rowFrom = new JSpinner(new SpinnerNumberModel(0.9, -360.0, 360.0, 0.1));
+		rowTo = new JSpinner(new SpinnerNumberModel(1.1, -360.0, 360.0, 0.1));
+		rowStep = new JSpinner(new SpinnerNumberModel(0.1, 0.01, 360.0, 0.1));
+
+		controls.add(new JLabel("Columns:"));
+		controls.add(columnParameter);
+		controls.add(labelled("from", columnFrom));
+		controls.add(labelled("to", columnTo));
+		controls.add(labelled("step", columnStep));
+		controls.add(new JLabel("Rows:"));
+		controls.add(rowParameter);
+		controls.add(labelled("from", rowFrom));
+		controls.add(labelled("to", rowTo));
+		controls.add(labelled("step", rowStep));
+
+		renderButton = new JButton("Render");
+		JPanel top = new JPanel(new BorderLayout());
+		top.add(controls, BorderLayout.CENTER);
+		top.add(renderButton, BorderLayout.EAST);
+		add(top, BorderLayout.NORTH);
+
+		grid = new JPanel();
+		add(new JScrollPane(grid), BorderLayout.CENTER);
+		setSize(new Dimension(1000, 750));
+		setLocationRelativeTo(owner);
+	}
+
+	private static JPanel labelled(String text, JSpinner spinner) {
+		JPanel panel = new JPanel(new BorderLayout(3, 0));
+		panel.add(new JLabel(text), BorderLayout.WEST);
+		panel.add(spinner, BorderLayout.CENTER);
+		return panel;
+	}
+
+	/**
+	 * Replaces the grid with empty cells labelled with their parameter values.
+	 */
+	public void prepareGrid(double[] rowValues, double[] columnValues) {
+		grid.removeAll();
+		grid.setLayout(new GridLayout(rowValues.length, columnValues.length, 4, 4));
+		cells = new JLabel[rowValues.length][columnValues.length];
+		for (int row = 0; row < rowValues.length; row++) {
+			for (int column = 0; column < columnValues.length; column++) {
+				JLabel cell = new JLabel(String.format("%s %.2f / %s %.2f", getColumnParameter(),
+						columnValues[column], getRowParameter(), rowValues[row]), SwingConstants.CENTER);
+				cell.setVerticalTextPosition(SwingConstants.BOTTOM);
+				cell.setHorizontalTextPosition(SwingConstants.CENTER);
+				cell.setPreferredSize(new Dimension(CELL_SIZE, CELL_SIZE + 20));
+				cell.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+				cell.setOpaque(true);
+				cell.setBackground(CELL_BACKGROUND);
+				cells[row][column] = cell;
+				grid.add(cell);
+			}
+		}
+		grid.revalidate();
+		grid.repaint();
+	}
+
+	/**
+	 * Shows the render of one cell. Must be called on the Event Dispatch Thread.
+	 */
+	public void setCell(int row, int column, BufferedImage image) {
+		if (row < cells.length && column < cells[row].length) {
+			cells[row][column].setIcon(new ImageIcon(image));
+		}
+	}
+
+	// Getters
+	public RenderSettings.Parameter getColumnParameter() {
+		return (RenderSettings.Parameter) columnParameter.getSelectedItem();
+	}
+
+	public double getColumnFrom() {
+		return (double) columnFrom.getValue();
+	}
+
+	public double getColumnTo() {
+		return (double) columnTo.getValue();
+	}
+
+	public double getColumnStep() {
+		return (double) columnStep.getValue();
+	}
+
+	public RenderSettings.Parameter getRowParameter() {
+		return (RenderSettings.Parameter) rowParameter.getSelectedItem();
+	}
+
+	public double getRowFrom() {
+		return (double) rowFrom.getValue();
+	}
+
+	public double getRowTo() {
+		return (double) rowTo.getValue();
+	}
+
+	public double getRowStep() {
+		return (double) rowStep.getValue();
+	}
+
+	// Add listeners
+	public void addRenderListener(ActionListener listener) {
+		renderButton.addActionListener(listener);
+	}
+}
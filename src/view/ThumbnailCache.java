@@ -0,0 +1,102 @@
+/*
+ * @author: Eliyas Tadesse
+ */
+package view;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import model.GenerationCache;
+
+/**
+ * Keeps rendered thumbnails in memory and as PNG files on disk, keyed by a hash
+ * of everything that determines their content. Thumbnails only depend on the
+ * preset definition, so after the first run they are read back instead of
+ * rendered.
+ *
+ * Like the generation cache, the directory is bounded in size: when it grows
+ * beyond the limit the least recently used files (by modification time, which
+ * is refreshed on every hit) are removed first.
+ */
+public class ThumbnailCache {
+
+	private static final String FILE_SUFFIX = ".png";
+	private static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final Map<String, BufferedImage> memory = new ConcurrentHashMap<>();
+
+	public ThumbnailCache(Path directory, long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Cache size limit must be positive.");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cache next to the generation cache (thumbnails/).
+	 */
+	public static ThumbnailCache defaultCache() {
+		return new ThumbnailCache(GenerationCache.baseDirectory().resolve("thumbnails"), DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Returns the cached thumbnail, or null if it was neither in memory nor on
+	 * disk. Unreadable files are treated as missing.
+	 */
+	public BufferedImage get(String key) {
+		BufferedImage image = memory.get(key);
+		if (image != null) {
+			return image;
+		}
+		Path file = directory.resolve(key + FILE_SUFFIX);
+		if (Files.isRegularFile(file)) {
+			try {
+				image = ImageIO.read(file.toFile());
+				Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			} catch (IOException e) {
+				image = null;
+			}
+			if (image != null) {
+				memory.put(key, image);
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Stores a thumbnail in memory and, best effort, on disk, then evicts old
+	 * files if the size limit is exceeded.
+	 */
+	public void put(String key, BufferedImage image) {
+		memory.put(key, image);
+		try {
+			Files.createDirectories(directory);
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			try {
+				ImageIO.write(image, "png", temp.toFile());
+				Files.move(temp, directory.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				// Only left over when writing or moving failed
+				Files.deleteIfExists(temp);
+			}
+			evict();
+		} catch (IOException e) {
+			System.err.println("Could not write thumbnail: " + e.getMessage());
+		}
+	}
+
+	private synchronized void evict() throws IOException {
+		GenerationCache.evictLeastRecentlyUsed(directory, "*" + FILE_SUFFIX, maxBytes);
+	}
+}